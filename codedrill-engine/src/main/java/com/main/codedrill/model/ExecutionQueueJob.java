@@ -0,0 +1,70 @@
+package com.main.codedrill.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A submission waiting in, or taken from, the durable execution queue. Rows are written and claimed with
+ * plain SQL by {@code ExecutionQueue}; the entity only defines the table.
+ */
+@Entity
+@Table(name = "execution_queue", indexes = {
+        @Index(name = "idx_execution_queue_claim", columnList = "status, available_at"),
+        @Index(name = "idx_execution_queue_lease", columnList = "status, lease_expires_at"),
+        @Index(name = "idx_execution_queue_user", columnList = "username, status")
+})
+@Getter
+@Setter
+public class ExecutionQueueJob {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Column(columnDefinition = "TEXT")
+    private String code;
+
+    // QUEUED, RUNNING, DONE, FAILED or CANCELLED
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    // Times the job was claimed, including the current run
+    @Column(nullable = false)
+    private int attempts;
+
+    // Earliest time the job may be claimed, later than its creation after a failed attempt
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    // Worker holding the job while it runs
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    // GradingResult as JSON once the job is done
+    @Column(name = "result_json", columnDefinition = "TEXT")
+    private String resultJson;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,37 @@
+package com.main.codedrill.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One input/output pair of a task: the submission's {@code main} method is run with {@code stdin} as
+ * {@code System.in} and must print {@code expectedOutput}, compared like the task's own expected output
+ */
+@Embeddable
+@Getter
+@Setter
+public class IoCase {
+
+    @Column(name = "stdin", columnDefinition = "TEXT")
+    private String stdin;
+
+    @Column(name = "expected_output", columnDefinition = "TEXT")
+    private String expectedOutput;
+
+    public IoCase() {
+    }
+
+    public IoCase(String stdin, String expectedOutput) {
+        this.stdin = stdin;
+        this.expectedOutput = expectedOutput;
+    }
+
+    /**
+     * Whether neither input nor output was given, as for an empty row of the task form
+     */
+    public boolean isBlank() {
+        return (stdin == null || stdin.isBlank()) && (expectedOutput == null || expectedOutput.isBlank());
+    }
+}
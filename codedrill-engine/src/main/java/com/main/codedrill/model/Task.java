@@ -6,6 +6,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.List;
@@ -57,6 +58,40 @@ public class Task {
     @Column(columnDefinition = "TEXT")
     private String junitTests;
 
+    // Output or test results vary between runs (randomness, timing), so verdicts must not be cached
+    @Getter
+    @Setter
+    @Column(columnDefinition = "boolean default false")
+    private boolean nondeterministic;
+
+    // Test methods are independent and may run concurrently in the sandbox
+    @Getter
+    @Setter
+    @Column(columnDefinition = "boolean default false")
+    private boolean parallelTests;
+
+    // How printed output is compared with expectedOutput; tasks without a mode compare like WHITESPACE
+    @Getter
+    @Setter
+    @Enumerated(EnumType.STRING)
+    @Column(name = "output_comparison")
+    private OutputComparison outputComparison;
+
+    // Largest accepted difference between an expected and a printed number with NUMERIC comparison,
+    // absolute or relative to the expected number; null for the configured default
+    @Getter
+    @Setter
+    private Double outputTolerance;
+
+    // Input/output pairs run in one sandbox JVM in addition to the plain run; loaded with the task because
+    // grading also happens outside of a persistence session (queue workers, regrading)
+    @Getter
+    @Setter
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "task_io_cases", joinColumns = @JoinColumn(name = "task_id"))
+    @OrderColumn(name = "position")
+    private List<IoCase> ioCases = new ArrayList<>();
+
     @Getter
     @Setter
     @Enumerated(EnumType.STRING)
@@ -135,4 +170,12 @@ public class Task {
     public enum TaskDifficulty {
         EASY, MEDIUM, HARD
     }
+
+    /**
+     * EXACT: character for character, up to line terminators and trailing newlines. WHITESPACE: the same
+     * sequence of whitespace-separated tokens. NUMERIC: like WHITESPACE, with numbers equal within the tolerance.
+     */
+    public enum OutputComparison {
+        EXACT, WHITESPACE, NUMERIC
+    }
 }
@@ -0,0 +1,36 @@
+package com.main.codedrill.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * JUnit tests of a task compiled when the task was saved, so that grading only has to compile the
+ * submission. Kept out of the {@code tasks} table so that loading a task never loads its bytecode.
+ */
+@Entity
+@Table(name = "task_test_bytecode")
+@Getter
+@Setter
+public class TaskTestBytecode {
+
+    @Id
+    @Column(name = "task_id")
+    private Long taskId;
+
+    // Hash of the sources and compiler release the bytecode was built from; stale rows are ignored
+    @Column(name = "source_hash", nullable = false, length = 64)
+    private String sourceHash;
+
+    @Column(name = "test_class", nullable = false)
+    private String testClass;
+
+    // Class files of the test sources as a zip archive of binary name -> bytes
+    @Column(name = "class_files", nullable = false, length = 16 * 1024 * 1024)
+    private byte[] classFiles;
+
+    @Column(name = "compiled_at", nullable = false)
+    private LocalDateTime compiledAt;
+}
@@ -0,0 +1,9 @@
+package com.main.codedrill.repository;
+
+import com.main.codedrill.model.TaskTestBytecode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TaskTestBytecodeRepository extends JpaRepository<TaskTestBytecode, Long> {
+}
@@ -0,0 +1,139 @@
+package com.main.codedrill.service;
+
+import java.util.function.IntConsumer;
+
+/**
+ * AIMD limit on the number of concurrent sandbox executions.
+ * <p>
+ * Every finished execution is a sample of its latency and whether it timed out. Samples are judged in
+ * windows: a window with too many timeouts, or whose recent latency is far above the long-run baseline,
+ * means the host is saturated and the limit shrinks multiplicatively. A healthy window in which the limit
+ * was actually used grows it by one. Timeouts of single runaway submissions are expected, so only the
+ * timeout <em>rate</em> counts, and latencies of timed-out runs are kept out of the averages.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double RECENT_WEIGHT = 0.3;
+    private static final double BASELINE_WEIGHT = 0.02;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int windowSize;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final double maxTimeoutRate;
+    private final IntConsumer onLimitChange;
+
+    private double estimate;
+    private int limit;
+    private double recentMillis = Double.NaN;
+    private double baselineMillis = Double.NaN;
+
+    private int windowSamples = 0;
+    private int windowTimeouts = 0;
+    private int windowMaxInFlight = 0;
+
+    private long samples = 0;
+    private long timeouts = 0;
+    private long increases = 0;
+    private long decreases = 0;
+
+    /**
+     * @param onLimitChange called with the new limit whenever it changes, while the limiter's lock is held
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int windowSize,
+                                      double backoffRatio, double latencyTolerance, double maxTimeoutRate,
+                                      IntConsumer onLimitChange) {
+        if (minLimit <= 0 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limiter bounds: initial=" + initialLimit
+                    + ", min=" + minLimit + ", max=" + maxLimit);
+        }
+        if (windowSize <= 0 || backoffRatio <= 0 || backoffRatio >= 1 || latencyTolerance <= 1
+                || maxTimeoutRate <= 0 || maxTimeoutRate > 1) {
+            throw new IllegalArgumentException("Invalid limiter settings: window=" + windowSize + ", backoff="
+                    + backoffRatio + ", tolerance=" + latencyTolerance + ", timeout rate=" + maxTimeoutRate);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowSize = windowSize;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.maxTimeoutRate = maxTimeoutRate;
+        this.onLimitChange = onLimitChange;
+        this.estimate = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Record a finished execution
+     *
+     * @param latencyMillis time the execution held its slot
+     * @param timedOut      whether the sandbox hit its time limit or failed
+     * @param inFlight      executions holding a slot when this one started, itself included
+     */
+    public synchronized void onSample(long latencyMillis, boolean timedOut, int inFlight) {
+        samples++;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        if (timedOut) {
+            timeouts++;
+            windowTimeouts++;
+        } else if (Double.isNaN(baselineMillis)) {
+            recentMillis = latencyMillis;
+            baselineMillis = latencyMillis;
+        } else {
+            recentMillis += RECENT_WEIGHT * (latencyMillis - recentMillis);
+            baselineMillis += BASELINE_WEIGHT * (latencyMillis - baselineMillis);
+        }
+
+        if (windowSamples >= windowSize) {
+            adjust();
+        }
+    }
+
+    private void adjust() {
+        boolean timingOut = windowTimeouts > maxTimeoutRate * windowSamples;
+        boolean slow = !Double.isNaN(baselineMillis) && recentMillis > baselineMillis * latencyTolerance;
+
+        if (timingOut || slow) {
+            estimate = Math.max(minLimit, estimate * backoffRatio);
+            // Latency measured while overloaded must not become the new normal
+            recentMillis = baselineMillis;
+        } else if (windowMaxInFlight * 2 >= limit) {
+            estimate = Math.min(maxLimit, estimate + 1);
+        }
+
+        windowSamples = 0;
+        windowTimeouts = 0;
+        windowMaxInFlight = 0;
+
+        int newLimit = (int) estimate;
+        if (newLimit != limit) {
+            if (newLimit > limit) {
+                increases++;
+            } else {
+                decreases++;
+            }
+            limit = newLimit;
+            onLimitChange.accept(newLimit);
+        }
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(limit, minLimit, maxLimit, samples, timeouts, increases, decreases,
+                Double.isNaN(recentMillis) ? 0 : Math.round(recentMillis),
+                Double.isNaN(baselineMillis) ? 0 : Math.round(baselineMillis));
+    }
+
+    /**
+     * @param recentLatencyMillis   short-term average latency of executions that did not time out
+     * @param baselineLatencyMillis long-run average the recent latency is compared to
+     */
+    public record Stats(int limit, int minLimit, int maxLimit, long samples, long timeouts,
+                        long increases, long decreases, long recentLatencyMillis, long baselineLatencyMillis) {
+    }
+}
@@ -0,0 +1,111 @@
+package com.main.codedrill.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton that finds all occurrences of a fixed set of ASCII patterns in one pass over
+ * the text. Transitions are precomputed into a complete DFA over the characters that occur in the
+ * patterns, so every text character costs one table lookup plus the reporting of the patterns that end
+ * at it; there is no backtracking whatever the input.
+ */
+final class AhoCorasick {
+
+    private final int[] symbolOf = new int[128];  // character -> symbol, 0 for characters in no pattern
+    private final int[][] next;                   // state x symbol -> state
+    private final int[][] outputs;                // state -> patterns ending in it
+    private final int[] lengths;
+
+    AhoCorasick(List<String> patterns) {
+        int symbols = 1;
+        for (String pattern : patterns) {
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("Empty pattern");
+            }
+            for (char c : pattern.toCharArray()) {
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Pattern is not ASCII: " + pattern);
+                }
+                if (symbolOf[c] == 0) {
+                    symbolOf[c] = symbols++;
+                }
+            }
+        }
+
+        // Trie of the patterns
+        List<int[]> transitions = new ArrayList<>();
+        List<List<Integer>> ending = new ArrayList<>();
+        transitions.add(new int[symbols]);
+        ending.add(new ArrayList<>());
+        lengths = new int[patterns.size()];
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            lengths[p] = pattern.length();
+            int state = 0;
+            for (char c : pattern.toCharArray()) {
+                int symbol = symbolOf[c];
+                if (transitions.get(state)[symbol] == 0) {
+                    transitions.add(new int[symbols]);
+                    ending.add(new ArrayList<>());
+                    transitions.get(state)[symbol] = transitions.size() - 1;
+                }
+                state = transitions.get(state)[symbol];
+            }
+            ending.get(state).add(p);
+        }
+
+        // Breadth-first over the trie: failure links, inherited outputs and the missing transitions
+        int[] fail = new int[transitions.size()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 1; symbol < symbols; symbol++) {
+            int child = transitions.get(0)[symbol];
+            if (child != 0) {
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            ending.get(state).addAll(ending.get(fail[state]));
+            int[] row = transitions.get(state);
+            int[] fallback = transitions.get(fail[state]);
+            for (int symbol = 1; symbol < symbols; symbol++) {
+                if (row[symbol] != 0) {
+                    fail[row[symbol]] = fallback[symbol];
+                    queue.add(row[symbol]);
+                } else {
+                    row[symbol] = fallback[symbol];
+                }
+            }
+        }
+
+        next = transitions.toArray(new int[0][]);
+        outputs = new int[ending.size()][];
+        for (int state = 0; state < outputs.length; state++) {
+            outputs[state] = ending.get(state).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Report every occurrence of every pattern, in order of their end positions
+     */
+    void match(CharSequence text, Handler handler) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            state = next[state][c < 128 ? symbolOf[c] : 0];
+            for (int pattern : outputs[state]) {
+                handler.match(pattern, i + 1 - lengths[pattern], i + 1);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface Handler {
+        /**
+         * @param start index of the first character of the occurrence
+         * @param end   index after its last character
+         */
+        void match(int pattern, int start, int end);
+    }
+}
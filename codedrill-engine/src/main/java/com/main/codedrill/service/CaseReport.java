@@ -0,0 +1,148 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a submission did with each input/output case of a task, run one after another in a single sandbox
+ * JVM, or the error that prevented the run. Whether a case passed is decided on the host, see
+ * {@link OutputComparator#judge}.
+ * <p>
+ * The case harness in the sandbox ({@code com.main.codedrill.sandbox.CaseHarness}) sends it as a binary
+ * report frame, raw in the worker's RESULT frame and base64-encoded on the last line of the entrypoint's
+ * output; {@link #decode} reads it and {@link #encode} writes the same layout (big-endian, strings as a
+ * length-prefixed UTF-8 byte array, length -1 for null):
+ * <pre>
+ * version:byte message:string caseCount:int (status:byte durationMillis:long output:string error:string)*
+ * wallMillis:long
+ * </pre>
+ *
+ * @param message    why the cases could not be run, {@code null} if they were
+ * @param cases      outcome of every case, in the order of the task's cases
+ * @param wallMillis time of the whole run, class loading of every case included
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record CaseReport(String message, List<Case> cases, long wallMillis) {
+
+    static final int FRAME_VERSION = 1;
+
+    public CaseReport {
+        cases = cases != null ? List.copyOf(cases) : List.of();
+    }
+
+    /**
+     * @param status         how the case's {@code main} method ended
+     * @param output         what it printed, capped by the harness
+     * @param error          what it wrote to {@code System.err}, or the uncaught exception, capped by the harness
+     * @param durationMillis time from starting {@code main} to its end or to the case's time limit
+     */
+    public record Case(Status status, String output, String error, long durationMillis) {
+    }
+
+    /**
+     * {@code SKIPPED}: not run because an earlier case could not be stopped
+     */
+    public enum Status {
+        OK, EXCEPTION, TIMEOUT, OUTPUT_LIMIT, ERROR, SKIPPED
+    }
+
+    /**
+     * Report of cases that could not be run at all
+     */
+    public static CaseReport error(String message) {
+        return new CaseReport(message, null, 0);
+    }
+
+    /**
+     * Whether a case, or the whole run, was stopped by its time limit. Only the host writes a message with
+     * this prefix; messages that quote the sandbox's output start with their own.
+     */
+    public boolean timedOut() {
+        return (message != null && message.startsWith("⏰"))
+                || cases.stream().anyMatch(c -> c.status() == Status.TIMEOUT);
+    }
+
+    /**
+     * Read a report frame written by the sandbox's case harness
+     *
+     * @throws IOException if the frame is truncated or of another version
+     */
+    public static CaseReport decode(byte[] frame) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(frame));
+        int version = data.readUnsignedByte();
+        if (version != FRAME_VERSION) {
+            throw new IOException("Unsupported case report version " + version);
+        }
+        String message = readString(data);
+        int caseCount = data.readInt();
+        List<Case> cases = new ArrayList<>(Math.min(caseCount, 256));
+        Status[] statuses = Status.values();
+        for (int i = 0; i < caseCount; i++) {
+            int status = data.readUnsignedByte();
+            if (status >= statuses.length) {
+                throw new IOException("Unknown case status " + status);
+            }
+            long durationMillis = data.readLong();
+            cases.add(new Case(statuses[status], readString(data), readString(data), durationMillis));
+        }
+        return new CaseReport(message, cases, data.readLong());
+    }
+
+    /**
+     * Write the report frame
+     */
+    public byte[] encode() {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(buffer);
+            data.writeByte(FRAME_VERSION);
+            writeString(data, message);
+            data.writeInt(cases.size());
+            for (Case c : cases) {
+                data.writeByte(c.status().ordinal());
+                data.writeLong(c.durationMillis());
+                writeString(data, c.output());
+                writeString(data, c.error());
+            }
+            data.writeLong(wallMillis);
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // not thrown by an in-memory stream
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > data.available()) {
+            throw new EOFException("Truncated case report");
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,1927 @@
+package com.main.codedrill.service;
+
+import com.main.codedrill.model.IoCase;
+import com.main.codedrill.model.Task;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.Map;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+@Service
+public class CodeExecutionService {
+
+    // Configuration Properties
+    @Value("${docker.timeout_seconds:8}")
+    private int timeoutSeconds;
+
+    @Value("${docker.test_timeout_seconds:20}")
+    private int testTimeoutSeconds;
+
+    // Input/output cases: a time limit per case, and one for all cases of a submission together
+    @Value("${docker.case_timeout_millis:2000}")
+    private long caseTimeoutMillis;
+
+    @Value("${docker.cases_timeout_seconds:30}")
+    private int casesTimeoutSeconds;
+
+    @Value("${docker.image:codedrill:latest}")
+    private String dockerImage;
+
+    @Value("${docker.junit_image:codedrill:latest}")
+    private String junitDockerImage;
+
+    @Value("${docker.memory_limit:48m}")
+    private String memoryLimit;
+
+    @Value("${docker.test_memory_limit:96m}")
+    private String testMemoryLimit;
+
+    @Value("${docker.cpu_limit:0.3}")
+    private String cpuLimit;
+
+    @Value("${docker.test_cpu_limit:0.6}")
+    private String testCpuLimit;
+
+    @Value("${docker.process_limit:12}")
+    private int processLimit;
+
+    @Value("${docker.test_process_limit:12}")
+    private int testProcessLimit;
+
+    // Threads that run the test methods of a task that opted into parallel tests, at most as many as the
+    // whole CPUs docker.test_cpu_limit grants (rounded up), see effectiveTestParallelism()
+    @Value("${docker.test_parallelism:4}")
+    private int testParallelism;
+
+    @Value("${docker.network_disabled:true}")
+    private boolean networkDisabled;
+
+    @Value("${docker.enabled:true}")
+    private boolean dockerEnabled;
+
+    // docker-engine, docker-cli, local or fake; auto picks a Docker backend, or fake if Docker is disabled
+    @Value("${execution.backend:auto}")
+    private String backendName;
+
+    // Security Configuration
+    @Value("${security.enabled:true}")
+    private boolean securityEnabled;
+
+    @Value("${security.strict_mode:true}")
+    private boolean strictMode;
+
+    @Value("${security.junit_relaxed_mode:true}")
+    private boolean junitRelaxedMode;
+
+    // Enhanced Resource Management
+    // Starting point of the adaptive concurrency limit
+    @Value("${execution.max_global_executions:4}")
+    private int maxGlobalExecutions;
+
+    @Value("${execution.limiter.enabled:true}")
+    private boolean limiterEnabled;
+
+    @Value("${execution.limiter.min_limit:1}")
+    private int limiterMinLimit;
+
+    @Value("${execution.limiter.max_limit:32}")
+    private int limiterMaxLimit;
+
+    @Value("${execution.limiter.window:10}")
+    private int limiterWindow;
+
+    @Value("${execution.limiter.backoff_ratio:0.9}")
+    private double limiterBackoffRatio;
+
+    @Value("${execution.limiter.latency_tolerance:2.0}")
+    private double limiterLatencyTolerance;
+
+    @Value("${execution.limiter.max_timeout_rate:0.3}")
+    private double limiterMaxTimeoutRate;
+
+    @Value("${execution.queue_timeout_seconds:30}")
+    private int queueTimeoutSeconds;
+
+    @Value("${execution.max_queued_per_user:3}")
+    private int maxQueuedPerUser;
+
+    @Value("${execution.max_queued:50}")
+    private int maxQueued;
+
+    @Value("${sandbox.worker.enabled:true}")
+    private boolean workerEnabled;
+
+    @Value("${sandbox.worker.max_jobs:100}")
+    private int workerMaxJobs;
+
+    // Class data sharing archive built into the runner image, empty to start sandbox JVMs without it
+    @Value("${sandbox.cds_archive:/app/cds/sandbox.jsa}")
+    private String cdsArchive;
+
+    @Value("${execution.output.capture_bytes:262144}")
+    private int outputCaptureBytes;
+
+    @Value("${execution.output.max_bytes:16777216}")
+    private long maxOutputBytes;
+
+    // Dependencies and State
+    private final SandboxContainerPool containerPool;
+    private final InMemoryJavaCompiler javaCompiler;
+    private final VerdictCache verdictCache;
+    private final TestBytecodeStore testBytecodeStore;
+    private final MaliciousCodeDetector codeDetector;
+    private final DockerEngineClient dockerEngine;
+    private final ContainerLeaseRegistry leaseRegistry;
+    private final List<ExecutionBackend> backends;
+
+    private ExecutionBackend backend;
+    private FairShareScheduler scheduler;
+    private AdaptiveConcurrencyLimiter limiter;
+    private final AtomicInteger activeExecutions = new AtomicInteger(0);
+    private final AtomicLong rejectedExecutions = new AtomicLong(0);
+    // Live viewers of the execution running on the current thread, see gradeTask(Task, String, LiveOutput)
+    private final ThreadLocal<LiveOutput> liveOutput = new ThreadLocal<>();
+    // Batch graded on the current thread, see gradeBatch
+    private final ThreadLocal<Batch> batch = new ThreadLocal<>();
+    // User an execution on the current thread runs for, if not the current principal, see gradeTaskAs
+    private final ThreadLocal<String> executingUser = new ThreadLocal<>();
+
+    private static final String RUN_PROFILE = "run";
+    private static final String JUNIT_PROFILE = "junit";
+    private static final String ENTRYPOINT = "/app/docker-entrypoint.sh";
+    private static final String BYTECODE_MARKER = "===BYTECODE===";
+    private static final String JUNIT_BYTECODE_MARKER = "===JUNIT_BYTECODE===";
+    private static final String GRADE_BYTECODE_MARKER = "===GRADE_BYTECODE===";
+    private static final String CASES_BYTECODE_MARKER = "===CASES_BYTECODE===";
+    // Last line of the entrypoint's test output: a base64 report frame, or an error the script ran into
+    private static final String TEST_REPORT_LINE = "===TEST_REPORT===";
+    private static final String TEST_ERROR_LINE = "===TEST_ERROR===";
+    private static final String CASE_REPORT_LINE = "===CASE_REPORT===";
+    private static final String CASE_ERROR_LINE = "===CASE_ERROR===";
+    private static final String SECURITY_ALERT = "🛡️ SECURITY ALERT: ";
+    private static final int MAX_REPORTED_COMPILE_ERRORS = 5;
+    private static final String WORKER_MAIN_CLASS = "com.main.codedrill.sandbox.SandboxWorker";
+    private static final String WORKER_CLASSPATH = "/app/sandbox/codedrill-sandbox.jar:/app/lib/*";
+    private static final long WORKER_GRACE_MILLIS = 5000;
+
+    private final Logger logger = LoggerFactory.getLogger(CodeExecutionService.class);
+
+    @Autowired
+    public CodeExecutionService(SandboxContainerPool containerPool,
+                                InMemoryJavaCompiler javaCompiler,
+                                VerdictCache verdictCache,
+                                TestBytecodeStore testBytecodeStore,
+                                MaliciousCodeDetector codeDetector,
+                                DockerEngineClient dockerEngine,
+                                ContainerLeaseRegistry leaseRegistry,
+                                List<ExecutionBackend> backends) {
+        this.containerPool = containerPool;
+        this.javaCompiler = javaCompiler;
+        this.verdictCache = verdictCache;
+        this.testBytecodeStore = testBytecodeStore;
+        this.codeDetector = codeDetector;
+        this.dockerEngine = dockerEngine;
+        this.leaseRegistry = leaseRegistry;
+        this.backends = backends;
+    }
+
+    /**
+     * Initialize the service after Spring has injected all properties
+     */
+    @PostConstruct
+    private void initialize() {
+        validateConfiguration();
+        selectBackend();
+        initializeScheduler();
+        initializeContainerPool();
+
+        logger.info("🚀 CodeExecutionService initialized");
+        logger.info("Execution backend: {}", backend.name());
+        logger.info("Security scanning {}", securityEnabled ? "ENABLED" : "DISABLED");
+        logger.info("Strict mode {}", strictMode ? "ENABLED" : "DISABLED");
+        logger.info("JUnit relaxed mode {}", junitRelaxedMode ? "ENABLED" : "DISABLED");
+        logger.info("🔒 Concurrent executions: {} at start, {}", maxGlobalExecutions,
+                limiterEnabled ? "adaptive between " + limiterMinLimit + " and " + limiterMaxLimit : "fixed");
+    }
+
+    /**
+     * Validate configuration on startup
+     */
+    private void validateConfiguration() {
+        if (timeoutSeconds <= 0 || timeoutSeconds > 300) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeoutSeconds);
+        }
+        if (testTimeoutSeconds <= 0 || testTimeoutSeconds > 600) {
+            throw new IllegalArgumentException("Invalid test timeout: " + testTimeoutSeconds);
+        }
+        if (caseTimeoutMillis <= 0 || casesTimeoutSeconds <= 0 || casesTimeoutSeconds > 600
+                || caseTimeoutMillis > TimeUnit.SECONDS.toMillis(casesTimeoutSeconds)) {
+            throw new IllegalArgumentException("Invalid case timeouts: " + caseTimeoutMillis + " ms per case, "
+                    + casesTimeoutSeconds + " s in total");
+        }
+        if (maxGlobalExecutions <= 0) {
+            throw new IllegalArgumentException("Invalid max executions: " + maxGlobalExecutions);
+        }
+        if (limiterEnabled && (maxGlobalExecutions < limiterMinLimit || maxGlobalExecutions > limiterMaxLimit)) {
+            throw new IllegalArgumentException("Max executions " + maxGlobalExecutions + " outside the limiter bounds "
+                    + limiterMinLimit + ".." + limiterMaxLimit);
+        }
+        if (maxQueuedPerUser <= 0 || maxQueued < maxQueuedPerUser) {
+            throw new IllegalArgumentException("Invalid queue bounds: per user " + maxQueuedPerUser + ", total " + maxQueued);
+        }
+        if (memoryLimit == null || memoryLimit.trim().isEmpty()) {
+            throw new IllegalArgumentException("Memory limit cannot be empty");
+        }
+        if (testParallelism < 1 || testParallelism > testProcessLimit / 2) {
+            // the test threads count against the sandbox's process limit, next to the JVM's own threads
+            throw new IllegalArgumentException("Invalid test parallelism: " + testParallelism
+                    + ", must be between 1 and half the test process limit " + testProcessLimit);
+        }
+        if (effectiveTestParallelism() < testParallelism) {
+            logger.info("🧪 Parallel tests limited to {} threads by the test CPU limit {}",
+                    effectiveTestParallelism(), testCpuLimit);
+        }
+        if (outputCaptureBytes < 2 || maxOutputBytes < outputCaptureBytes) {
+            throw new IllegalArgumentException("Invalid output limits: capture " + outputCaptureBytes + ", max " + maxOutputBytes);
+        }
+
+        logger.info("✅ Configuration validated successfully");
+    }
+
+    /**
+     * Pick the backend named by {@code execution.backend}
+     */
+    private void selectBackend() {
+        String name = backendName.trim();
+        if (name.equals("auto")) {
+            name = !dockerEnabled ? FakeExecutionBackend.NAME
+                    : dockerEngine.isAvailable() ? DockerEngineExecutionBackend.NAME
+                    : DockerCliExecutionBackend.NAME;
+        }
+
+        for (ExecutionBackend candidate : backends) {
+            if (candidate.name().equals(name)) {
+                if (!candidate.isAvailable()) {
+                    throw new IllegalArgumentException("Execution backend " + name + " is not available on this host");
+                }
+                backend = candidate;
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Unknown execution backend: " + backendName + " (available: "
+                + backends.stream().map(ExecutionBackend::name).sorted().toList() + ")");
+    }
+
+    /**
+     * Initialize the fair-share scheduler and the adaptive limit that sizes it from observed executions
+     */
+    private void initializeScheduler() {
+        this.scheduler = new FairShareScheduler(maxGlobalExecutions, maxQueuedPerUser, maxQueued);
+        if (limiterEnabled) {
+            this.limiter = new AdaptiveConcurrencyLimiter(maxGlobalExecutions, limiterMinLimit, limiterMaxLimit,
+                    limiterWindow, limiterBackoffRatio, limiterLatencyTolerance, limiterMaxTimeoutRate, newLimit -> {
+                logger.info("🎚️ Concurrent execution limit changed to {}", newLimit);
+                scheduler.setCapacity(newLimit);
+            });
+        }
+
+        logger.info("🎯 Initial concurrent execution limit: {}, queue: {} per user, {} total",
+                maxGlobalExecutions, maxQueuedPerUser, maxQueued);
+    }
+
+    /**
+     * Register the run and JUnit sandbox profiles with the warm container pool
+     */
+    private void initializeContainerPool() {
+        if (!backend.usesDocker() || !containerPool.isEnabled()) {
+            return;
+        }
+        containerPool.registerProfile(new SandboxContainerPool.ContainerSpec(RUN_PROFILE, dockerImage,
+                runLimits(), buildWorkerCommand(memoryLimit, "32m")));
+        containerPool.registerProfile(new SandboxContainerPool.ContainerSpec(JUNIT_PROFILE, junitDockerImage,
+                junitLimits(), buildWorkerCommand(testMemoryLimit, "64m")));
+    }
+
+    /**
+     * Command that starts the persistent worker JVM inside a pooled container. Only host-compiled submissions
+     * are sent to the worker, so it is not used at all without a host compiler.
+     */
+    private List<String> buildWorkerCommand(String containerMemoryLimit, String maxMetaspace) {
+        if (!workerEnabled || !javaCompiler.isAvailable()) {
+            return List.of();
+        }
+        List<String> command = new ArrayList<>(List.of(
+                "java",
+                "-Xmx" + calculateJvmHeapSize(containerMemoryLimit),
+                "-XX:MaxMetaspaceSize=" + maxMetaspace,
+                "-XX:+UseSerialGC",
+                "-XX:TieredStopAtLevel=1"));
+        if (!cdsArchive.isBlank()) {
+            // WORKER_CLASSPATH is the class path the archive was recorded with
+            command.add("-XX:SharedArchiveFile=" + cdsArchive);
+        }
+        command.addAll(List.of(
+                // the worker wipes the same directories between jobs as exec does before an entrypoint run
+                "-Dsandbox.scratch=" + String.join(":", SandboxContainerPool.SCRATCH_DIRECTORIES),
+                "-Djava.io.tmpdir=/app/code",
+                "-cp", WORKER_CLASSPATH,
+                WORKER_MAIN_CLASS,
+                String.valueOf(workerMaxJobs)));
+        return command;
+    }
+
+    private long parseMemoryLimit(String memoryLimit) {
+        if (memoryLimit == null || memoryLimit.trim().isEmpty()) {
+            return 48 * 1024 * 1024;
+        }
+
+        String limit = memoryLimit.toLowerCase().trim();
+
+        try {
+            if (limit.endsWith("m")) {
+                return Long.parseLong(limit.replace("m", "")) * 1024 * 1024;
+            } else if (limit.endsWith("g")) {
+                return Long.parseLong(limit.replace("g", "")) * 1024 * 1024 * 1024;
+            } else if (limit.endsWith("k")) {
+                return Long.parseLong(limit.replace("k", "")) * 1024;
+            } else {
+                return Long.parseLong(limit);
+            }
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid memory limit format: {}, using default 48MB", memoryLimit);
+            return 48 * 1024 * 1024;
+        }
+    }
+
+    /**
+     * Execute Java code with enhanced resource management
+     */
+    public String executeJavaCode(String code) throws Exception {
+        return executeCode(code).output();
+    }
+
+    /**
+     * Execute JUnit tests with enhanced resource management
+     */
+    public TestReport executeJUnitTests(String studentCode, String junitTests) throws Exception {
+        Map<String, String> testData = Map.of("studentCode", studentCode, "testCode", junitTests);
+        if (securityEnabled) {
+            String securityResult = performSecurityAnalysis(null, true, testData);
+            if (securityResult != null) {
+                return TestReport.error(securityResult);
+            }
+        }
+        return executeScreenedTests(testData);
+    }
+
+    /**
+     * Grade a submission and stream what its {@code main} method prints to {@code output} while it runs.
+     * The output is not closed; a verdict served from the cache produces no live output at all.
+     */
+    public GradingResult gradeTask(Task task, String code, LiveOutput output) throws Exception {
+        liveOutput.set(output);
+        try {
+            return gradeTask(task, code);
+        } finally {
+            liveOutput.remove();
+        }
+    }
+
+    /**
+     * Grade a submission on behalf of a user other than the current principal, e.g. a job taken from the
+     * {@link ExecutionQueue}; the execution waits in that user's queue of the fair-share scheduler
+     */
+    public GradingResult gradeTaskAs(String user, Task task, String code) throws Exception {
+        executingUser.set(user);
+        try {
+            return gradeTask(task, code);
+        } finally {
+            executingUser.remove();
+        }
+    }
+
+    /**
+     * Grade a submission for a task: run it and, if the task has JUnit tests or input/output cases, run those
+     * too, all with one admission and in one warm container. Identical resubmissions to an unchanged
+     * deterministic task are answered from the {@link VerdictCache}.
+     */
+    public GradingResult gradeTask(Task task, String code) throws Exception {
+        boolean hasJUnitTests = task.getJunitTests() != null && !task.getJunitTests().trim().isEmpty();
+
+        String cacheKey = verdictCache.isCacheable(task)
+                ? VerdictCache.key(task, code, hasJUnitTests ? junitDockerImage : dockerImage)
+                : null;
+        if (cacheKey != null) {
+            GradingResult cached = verdictCache.get(cacheKey);
+            if (cached != null) {
+                logger.debug("🗃️ Verdict cache hit for task {}", task.getId());
+                return cached;
+            }
+        }
+
+        GradingResult result = task.getIoCases().isEmpty()
+                ? gradeWithoutCases(task, code, hasJUnitTests)
+                : inOneSession(() -> {
+                    GradingResult graded = gradeWithoutCases(task, code, hasJUnitTests);
+                    // A blocked submission was already reported by the security analysis; it is not run again
+                    return graded.withCaseReport(graded.status() == GradingResult.Status.BLOCKED
+                            ? CaseReport.error(graded.output())
+                            : executeScreenedCases(code, task.getIoCases(), hasJUnitTests ? JUNIT_PROFILE : RUN_PROFILE));
+                }, hasJUnitTests);
+
+        if (cacheKey != null && isReproducible(result)) {
+            verdictCache.put(cacheKey, task.getId(), result);
+        }
+        return result;
+    }
+
+    private GradingResult gradeWithoutCases(Task task, String code, boolean hasJUnitTests) throws Exception {
+        return hasJUnitTests
+                ? gradeSubmission(code, task.getJunitTests(), task.isParallelTests(), testBytecodeStore.load(task))
+                : executeCode(code);
+    }
+
+    /**
+     * Run all executions of one grading with a single admission, the way a {@link #gradeBatch} runs its
+     * submissions: the input/output cases then run in the warm container, and on the worker JVM, that the
+     * main run or the grade job just used, instead of waiting for a second slot and leasing a second container
+     */
+    private GradingResult inOneSession(Callable<GradingResult> grading, boolean hasJUnitTests) throws Exception {
+        if (batch.get() != null) {
+            return grading.call();
+        }
+        Batch current = new Batch();
+        batch.set(current);
+        try {
+            return runWithExecutionSlot(() -> {
+                current.slotHeld = true;
+                return grading.call();
+            }, message -> new GradingResult(message, hasJUnitTests ? TestReport.error(message) : null,
+                    GradingResult.Status.OVERLOADED).withCaseReport(CaseReport.error(message)));
+        } finally {
+            batch.remove();
+            current.containers.values().forEach(container -> containerPool.release(container, true));
+        }
+    }
+
+    /**
+     * Grade several submissions to a task with a single admission. The batch waits for one execution slot
+     * in the {@code queueKey} queue of the fair-share scheduler and grades the submissions one after another
+     * in that slot. The warm containers it uses, and with them their worker JVMs, stay with the batch
+     * instead of going back to the pool between submissions.
+     *
+     * @return the results in the order of {@code codes}, with {@code null} for submissions whose grading
+     * failed, or {@code null} if the batch was not admitted
+     * because the queue was full or no slot was granted within the queue timeout
+     */
+    public List<GradingResult> gradeBatch(Task task, List<String> codes, String queueKey) throws Exception {
+        Batch current = new Batch();
+        batch.set(current);
+        try {
+            return runWithExecutionSlot(queueKey, () -> {
+                current.slotHeld = true;
+                List<GradingResult> results = new ArrayList<>(codes.size());
+                for (String code : codes) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException("Batch cancelled");
+                    }
+                    try {
+                        results.add(gradeTask(task, code));
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        logger.warn("Batch grading of a submission to task {} failed", task.getId(), e);
+                        results.add(null);
+                    }
+                }
+                return results;
+            }, message -> null);
+        } finally {
+            batch.remove();
+            current.containers.values().forEach(container -> containerPool.release(container, true));
+        }
+    }
+
+    /**
+     * Whether a result reflects the submission itself rather than the state of the system (overload,
+     * timeouts, infrastructure errors) or a security block that must be logged on every attempt
+     */
+    public boolean isReproducible(GradingResult result) {
+        if (result.output() == null || result.status() != GradingResult.Status.COMPLETED) {
+            return false;
+        }
+        if (result.casesRun() && (result.caseReport().timedOut() || isCaseInfrastructureError(result.caseReport()))) {
+            return false;
+        }
+        if (!result.testsRun()) {
+            return true;
+        }
+        String text = result.testReport().message();
+        return text == null
+                || !(text.startsWith("Error running tests") || text.startsWith("Test execution failed")
+                || text.startsWith("Unexpected test output"));
+    }
+
+    /**
+     * Grade a submission against a task's JUnit tests: run its {@code main} method and the test suite in one
+     * sandbox session, with a single admission and a single host compilation of the student class.
+     * Falls back to two separate executions when the tests cannot be compiled on the host.
+     */
+    public GradingResult gradeSubmission(String code, String junitTests) throws Exception {
+        return gradeSubmission(code, junitTests, false, null);
+    }
+
+    /**
+     * Grade a submission against JUnit tests, optionally running the test methods in parallel. Only tests
+     * compiled on the host run in parallel; the fallback of compiling in the sandbox runs them sequentially.
+     *
+     * @param precompiled the tests compiled when the task was saved, if any; only the submission is compiled
+     *                    then, and a submission that does not match what the tests expect fails the tests
+     *                    at run time instead of their compilation
+     */
+    public GradingResult gradeSubmission(String code, String junitTests, boolean parallelTests,
+                                         PrecompiledTests precompiled) throws Exception {
+        Map<String, String> testData = Map.of("studentCode", code, "testCode", junitTests);
+
+        if (securityEnabled) {
+            String runSecurityResult = performSecurityAnalysis(code, false, null);
+            if (runSecurityResult != null) {
+                return new GradingResult(runSecurityResult, null, GradingResult.Status.BLOCKED);
+            }
+            String testSecurityResult = performSecurityAnalysis(null, true, testData);
+            if (testSecurityResult != null) {
+                GradingResult run = executeScreenedCode(code);
+                return new GradingResult(run.output(), TestReport.error(testSecurityResult), GradingResult.Status.BLOCKED);
+            }
+        }
+
+        String mainClass = InMemoryJavaCompiler.publicClassName(code, null);
+        if (precompiled != null && javaCompiler.isAvailable() && mainClass != null
+                && !mainClass.equals(precompiled.testClass())) {
+            return gradeAgainstPrecompiledTests(code, mainClass, precompiled, parallelTests);
+        }
+
+        String testClass = InMemoryJavaCompiler.publicClassName(junitTests, null);
+        if (!javaCompiler.isJUnitAvailable() || mainClass == null || testClass == null || mainClass.equals(testClass)) {
+            return executeScreenedCode(code).withTestReport(executeScreenedTests(testData));
+        }
+
+        String studentFile = mainClass + ".java";
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put(studentFile, code);
+        sources.put(testClass + ".java", junitTests);
+
+        CompilationResult compilation = javaCompiler.compile(sources, true);
+        String violation = treeAnalysisViolation(compilation, studentFile);
+        if (violation != null) {
+            return new GradingResult(violation, null, GradingResult.Status.BLOCKED);
+        }
+        if (!compilation.success()) {
+            if (compilation.hasErrorsIn(studentFile)) {
+                return new GradingResult(
+                        "Compilation Error\n" + compilation.errorsIn(studentFile).formatErrors(MAX_REPORTED_COMPILE_ERRORS),
+                        compilationErrorReport("Student code compilation failed: ", compilation),
+                        compilationStatus(compilation));
+            }
+            // Only the task's tests are broken - the submission itself can still run
+            return executeScreenedCode(code)
+                    .withTestReport(compilationErrorReport("Test code compilation failed: ", compilation));
+        }
+
+        Map<String, byte[]> classFiles = compilation.classFiles();
+        return runWithExecutionSlot(
+                () -> executeGradeInSandbox(mainClass, testClass, classFiles, parallelTests),
+                message -> new GradingResult(message, TestReport.error(message), GradingResult.Status.OVERLOADED));
+    }
+
+    private GradingResult gradeAgainstPrecompiledTests(String code, String mainClass, PrecompiledTests precompiled,
+                                                       boolean parallelTests) throws Exception {
+        String studentFile = mainClass + ".java";
+        CompilationResult compilation = javaCompiler.compile(Map.of(studentFile, code), false);
+        String violation = treeAnalysisViolation(compilation, studentFile);
+        if (violation != null) {
+            return new GradingResult(violation, null, GradingResult.Status.BLOCKED);
+        }
+        if (!compilation.success()) {
+            return new GradingResult(
+                    "Compilation Error\n" + compilation.formatErrors(MAX_REPORTED_COMPILE_ERRORS),
+                    compilationErrorReport("Student code compilation failed: ", compilation),
+                    compilationStatus(compilation));
+        }
+
+        // Test classes win over submitted classes of the same name
+        Map<String, byte[]> classFiles = new LinkedHashMap<>(compilation.classFiles());
+        classFiles.putAll(precompiled.classFiles());
+        return runWithExecutionSlot(
+                () -> executeGradeInSandbox(mainClass, precompiled.testClass(), classFiles, parallelTests),
+                message -> new GradingResult(message, TestReport.error(message), GradingResult.Status.OVERLOADED));
+    }
+
+    /**
+     * Enhanced code execution with backpressure and proper resource management
+     */
+    private GradingResult executeCode(String code) throws Exception {
+        // Security scanning first
+        if (securityEnabled) {
+            String securityResult = performSecurityAnalysis(code, false, null);
+            if (securityResult != null) {
+                return new GradingResult(securityResult, null, GradingResult.Status.BLOCKED);
+            }
+        }
+        return executeScreenedCode(code);
+    }
+
+    /**
+     * Compile and execute code that already passed the security analysis
+     */
+    private GradingResult executeScreenedCode(String code) throws Exception {
+        // Host-side compilation: reject compile errors before a sandbox is requested and ship bytecode only
+        SandboxPayload payload = prepareRunPayload(code);
+        if (payload.rejected()) {
+            return new GradingResult(payload.rejection(), null, payload.rejectionStatus());
+        }
+        return runWithExecutionSlot(() -> executeInSandbox(payload),
+                message -> new GradingResult(message, null, GradingResult.Status.OVERLOADED));
+    }
+
+    /**
+     * Compile and run JUnit tests whose student and test code already passed the security analysis
+     */
+    private TestReport executeScreenedTests(Map<String, String> testData) throws Exception {
+        SandboxPayload payload = prepareTestPayload(testData);
+        if (payload.rejected()) {
+            return payload.testRejection();
+        }
+        return runWithExecutionSlot(() -> executeJUnitInSandbox(payload), TestReport::error);
+    }
+
+    /**
+     * Run a submission once per input/output case, all cases in one sandbox JVM
+     */
+    public CaseReport executeCases(String code, List<IoCase> cases) throws Exception {
+        if (securityEnabled) {
+            String securityResult = performSecurityAnalysis(code, false, null);
+            if (securityResult != null) {
+                return CaseReport.error(securityResult);
+            }
+        }
+        return executeScreenedCases(code, cases, RUN_PROFILE);
+    }
+
+    /**
+     * Compile code that already passed the security analysis and run it once per input/output case. Cases
+     * need the class files to reload them for every case, so they are only run for code compiled on the host.
+     *
+     * @param profile container profile to run in; the profile of the grading the cases belong to, so that
+     *                they can reuse its container
+     */
+    private CaseReport executeScreenedCases(String code, List<IoCase> cases, String profile) throws Exception {
+        SandboxPayload payload = prepareRunPayload(code);
+        if (payload.rejected()) {
+            return CaseReport.error(payload.rejection());
+        }
+        if (!payload.compiled()) {
+            return CaseReport.error("ERROR: Input/output cases need the host compiler, which is not available");
+        }
+
+        List<byte[]> inputs = cases.stream()
+                .map(c -> Objects.toString(c.getStdin(), "").getBytes(StandardCharsets.UTF_8))
+                .toList();
+        SandboxPayload casesPayload = SandboxPayload.compiledCases(
+                buildCasesPayload(payload.entryClass(), payload.classFiles(), inputs),
+                payload.entryClass(), payload.classFiles(), inputs);
+        return runWithExecutionSlot(() -> executeCasesInSandbox(casesPayload, profile), CaseReport::error);
+    }
+
+    /**
+     * Run an execution while holding one of the global execution slots. Requests wait in the current user's
+     * queue of the fair-share scheduler; a waiting request that is interrupted (e.g. because its client went
+     * away) gives up its place.
+     *
+     * @param overloaded builds the result returned when the queue is full or no slot is granted within the
+     *                   queue timeout
+     */
+    private <T> T runWithExecutionSlot(Callable<T> execution, Function<String, T> overloaded) throws Exception {
+        return runWithExecutionSlot(currentUserKey(), execution, overloaded);
+    }
+
+    /**
+     * Run an execution in the given queue of the fair-share scheduler. Executions of a batch that already
+     * holds a slot run in that slot; each of them is a sample for the adaptive limit, the batch as a whole is not.
+     */
+    private <T> T runWithExecutionSlot(String user, Callable<T> execution, Function<String, T> overloaded) throws Exception {
+        Batch current = batch.get();
+        if (current != null && current.slotHeld) {
+            return sampled(execution, activeExecutions.get());
+        }
+
+        FairShareScheduler.Ticket ticket;
+        try {
+            ticket = scheduler.enqueue(user);
+        } catch (RejectedExecutionException e) {
+            rejectedExecutions.incrementAndGet();
+            logger.warn("⏰ Execution rejected for {}: {}", user, e.getMessage());
+            return overloaded.apply("⏰ Too many executions waiting. Please wait for your previous runs to finish.");
+        }
+
+        if (!ticket.await(queueTimeoutSeconds, TimeUnit.SECONDS)) {
+            rejectedExecutions.incrementAndGet();
+            String message = String.format(
+                    "⏰ System overloaded. Currently processing: %d executions. Please try again in a moment.",
+                    activeExecutions.get()
+            );
+            return overloaded.apply(message);
+        }
+
+        int inFlight = activeExecutions.incrementAndGet();
+        try {
+            // Direct execution if resource available
+            return current != null ? execution.call() : sampled(execution, inFlight);
+
+        } catch (Exception e) {
+            logger.error("Direct execution failed", e);
+            throw e;
+        } finally {
+            activeExecutions.decrementAndGet();
+            ticket.release();
+        }
+    }
+
+    /**
+     * Run an execution and report its latency and whether it timed out to the adaptive limit
+     */
+    private <T> T sampled(Callable<T> execution, int inFlight) throws Exception {
+        long start = System.nanoTime();
+        boolean timedOut = true;
+        try {
+            T result = execution.call();
+            timedOut = isTimeout(result);
+            return result;
+        } finally {
+            if (limiter != null) {
+                limiter.onSample(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), timedOut, inFlight);
+            }
+        }
+    }
+
+    /**
+     * Whether the host stopped an execution at its time limit. Only the status the host recorded counts, never
+     * what the program printed.
+     */
+    private static boolean isTimeout(Object result) {
+        if (result instanceof GradingResult grading) {
+            return grading.status() == GradingResult.Status.TIMEOUT;
+        }
+        if (result instanceof TestReport report) {
+            return report.timedOut();
+        }
+        return result instanceof CaseReport report && report.timedOut();
+    }
+
+    /**
+     * Name of the execution backend selected at startup
+     */
+    public String getBackendName() {
+        return backend.name();
+    }
+
+    /**
+     * Current admission state: the concurrency limit, executions holding a slot, waiting requests and
+     * requests turned away because the queue was full or no slot was granted in time
+     */
+    public ExecutionMetrics getExecutionMetrics() {
+        return new ExecutionMetrics(scheduler.getCapacity(), scheduler.getRunning(), scheduler.getQueued(),
+                rejectedExecutions.get(), limiter != null ? limiter.getStats() : null);
+    }
+
+    /**
+     * Enhanced security analysis with detailed logging
+     */
+    private String performSecurityAnalysis(String code, boolean isJUnitTest, Map<String, String> testData) {
+        try {
+            if (isJUnitTest) {
+                String studentCode = testData.get("studentCode");
+                String testCode = testData.get("testCode");
+
+                // Always strict for student code
+                MaliciousCodeDetector.MaliciousCodeResult studentResult =
+                        codeDetector.analyzeCode(studentCode, false, javaCompiler.isJUnitAvailable());
+
+                if (studentResult.malicious()) {
+                    String securityMessage = formatSecurityMessage(studentResult, "Student Code");
+                    logger.warn("🚨 SECURITY VIOLATION - User: {} - Risk: {} - Student Code - Reasons: {}",
+                            getCurrentUserInfo(), studentResult.riskLevel(), studentResult.reasons());
+
+                    if (strictMode || studentResult.riskLevel() == MaliciousCodeDetector.RiskLevel.CRITICAL) {
+                        return securityMessage;
+                    }
+                }
+
+                // Test code analysis
+                MaliciousCodeDetector.MaliciousCodeResult testResult =
+                        codeDetector.analyzeCode(testCode, junitRelaxedMode);
+
+                if (testResult.malicious()) {
+                    if (!junitRelaxedMode || testResult.riskLevel() == MaliciousCodeDetector.RiskLevel.CRITICAL) {
+                        String securityMessage = formatSecurityMessage(testResult, "Test Code");
+                        logger.warn("🚨 SECURITY VIOLATION - User: {} - Risk: {} - Test Code - Reasons: {}",
+                                getCurrentUserInfo(), testResult.riskLevel(), testResult.reasons());
+                        return securityMessage;
+                    } else {
+                        logger.warn("⚠️ Suspicious test code allowed in relaxed mode: {}", testResult.reasons());
+                    }
+                }
+            } else {
+                MaliciousCodeDetector.MaliciousCodeResult result =
+                        codeDetector.analyzeCode(code, false, javaCompiler.isAvailable());
+
+                if (result.malicious()) {
+                    String securityMessage = formatSecurityMessage(result, "Code");
+                    logger.warn("🚨 SECURITY VIOLATION - User: {} - Risk: {} - Regular Code - Reasons: {}",
+                            getCurrentUserInfo(), result.riskLevel(), result.reasons());
+
+                    if (strictMode || result.riskLevel() == MaliciousCodeDetector.RiskLevel.CRITICAL) {
+                        return securityMessage;
+                    }
+
+                    logger.warn("⚠️ Risky code allowed in non-strict mode");
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Security analysis failed", e);
+            return isJUnitTest ?
+                    "Security analysis failed: " + e.getMessage() :
+                    "ERROR: Security analysis failed: " + e.getMessage();
+        }
+
+        return null; // No security issues
+    }
+
+    /**
+     * Verdict of the syntax tree analysis that ran with a host compilation, under the same policy as
+     * {@link #performSecurityAnalysis}: the security message if the file is blocked, otherwise {@code null}.
+     * The text scan leaves loops, allocation sizes and threads to this check when a host compiler is available.
+     */
+    private String treeAnalysisViolation(CompilationResult compilation, String file) {
+        MaliciousCodeDetector.MaliciousCodeResult result = compilation.analysisOf(file);
+        if (!securityEnabled || result == null || !result.malicious()) {
+            return null;
+        }
+        logger.warn("🚨 SECURITY VIOLATION - User: {} - Risk: {} - Syntax Tree - Reasons: {}",
+                getCurrentUserInfo(), result.riskLevel(), result.reasons());
+        if (strictMode || result.riskLevel() == MaliciousCodeDetector.RiskLevel.CRITICAL) {
+            return formatSecurityMessage(result, "Student Code");
+        }
+        logger.warn("⚠️ Risky code allowed in non-strict mode");
+        return null;
+    }
+
+    /**
+     * Compile student code on the host, or pass the source through if no host compiler is available
+     */
+    private SandboxPayload prepareRunPayload(String code) {
+        if (!javaCompiler.isAvailable()) {
+            return SandboxPayload.accept(code);
+        }
+
+        String mainClass = InMemoryJavaCompiler.publicClassName(code, "Solution");
+        CompilationResult result = javaCompiler.compile(Map.of(mainClass + ".java", code), false);
+        String violation = treeAnalysisViolation(result, mainClass + ".java");
+        if (violation != null) {
+            return SandboxPayload.reject(violation, GradingResult.Status.BLOCKED);
+        }
+
+        if (!result.success()) {
+            return SandboxPayload.reject("Compilation Error\n" + result.formatErrors(MAX_REPORTED_COMPILE_ERRORS),
+                    compilationStatus(result));
+        }
+        return SandboxPayload.compiled(buildBytecodePayload(BYTECODE_MARKER, mainClass, result.classFiles()),
+                mainClass, result.classFiles());
+    }
+
+    /**
+     * Compile student and test code together on the host, or pass the sources through if the JUnit
+     * API is not available to the host compiler
+     */
+    private SandboxPayload prepareTestPayload(Map<String, String> testData) {
+        if (!javaCompiler.isJUnitAvailable()) {
+            return SandboxPayload.accept(buildTestSourcePayload(testData));
+        }
+
+        String studentCode = testData.get("studentCode");
+        String testCode = testData.get("testCode");
+        String studentClass = InMemoryJavaCompiler.publicClassName(studentCode, null);
+        String testClass = InMemoryJavaCompiler.publicClassName(testCode, null);
+
+        if (studentClass == null || testClass == null) {
+            return SandboxPayload.rejectTests(TestReport.error("Could not extract class names"));
+        }
+
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put(studentClass + ".java", studentCode);
+        sources.put(testClass + ".java", testCode);
+
+        CompilationResult result = javaCompiler.compile(sources, true);
+        String violation = treeAnalysisViolation(result, studentClass + ".java");
+        if (violation != null) {
+            return SandboxPayload.rejectTests(TestReport.error(violation));
+        }
+        if (!result.success()) {
+            String prefix = result.hasErrorsIn(studentClass + ".java")
+                    ? "Student code compilation failed: "
+                    : "Test code compilation failed: ";
+            return SandboxPayload.rejectTests(compilationErrorReport(prefix, result));
+        }
+        return SandboxPayload.compiled(buildBytecodePayload(JUNIT_BYTECODE_MARKER, testClass, result.classFiles()),
+                testClass, result.classFiles());
+    }
+
+    /**
+     * Sandbox stdin format for host-compiled code: a marker line, the entry class and one base64 line per class
+     */
+    private String buildBytecodePayload(String marker, String entryClass, Map<String, byte[]> classFiles) {
+        return buildBytecodePayload(marker, Map.of("ENTRY", entryClass), classFiles);
+    }
+
+    private String buildBytecodePayload(String marker, Map<String, String> headers, Map<String, byte[]> classFiles) {
+        return buildBytecodePayload(marker, headers, List.of(), classFiles);
+    }
+
+    /**
+     * @param lines further lines after the headers, e.g. one per input/output case
+     */
+    private String buildBytecodePayload(String marker, Map<String, String> headers, List<String> lines,
+                                        Map<String, byte[]> classFiles) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        StringBuilder payload = new StringBuilder(marker).append('\n');
+        headers.forEach((key, value) -> payload.append(key).append(' ').append(value).append('\n'));
+        lines.forEach(line -> payload.append(line).append('\n'));
+        classFiles.forEach((name, bytes) ->
+                payload.append("CLASS ").append(name).append(' ').append(encoder.encodeToString(bytes)).append('\n'));
+        payload.append("===END===\n");
+        return payload.toString();
+    }
+
+    /**
+     * Bytecode payload of a cases run, with one {@code CASE} line holding the base64 stdin of each case
+     */
+    private String buildCasesPayload(String entryClass, Map<String, byte[]> classFiles, List<byte[]> inputs) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("ENTRY", entryClass);
+        headers.put("CASE_TIMEOUT", Long.toString(caseTimeoutMillis));
+        headers.put("TIME_LIMIT", Integer.toString(casesTimeoutSeconds));
+        Base64.Encoder encoder = Base64.getEncoder();
+        List<String> cases = inputs.stream().map(input -> "CASE " + encoder.encodeToString(input)).toList();
+        return buildBytecodePayload(CASES_BYTECODE_MARKER, headers, cases, classFiles);
+    }
+
+    private String buildTestSourcePayload(Map<String, String> testData) {
+        return "===STUDENT_CODE===\n" +
+                testData.get("studentCode") +
+                "\n===TEST_CODE===\n" +
+                testData.get("testCode") +
+                "\n===END===\n";
+    }
+
+    /**
+     * Key of the user's queue in the fair-share scheduler
+     */
+    private String currentUserKey() {
+        String user = executingUser.get();
+        if (user != null) {
+            return user;
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "anonymous";
+    }
+
+    /**
+     * Check out a warm container, or take the one the current batch kept
+     */
+    private SandboxContainerPool.PooledContainer acquirePooled(String profile) {
+        Batch current = batch.get();
+        SandboxContainerPool.PooledContainer kept = current != null ? current.containers.remove(profile) : null;
+        return kept != null ? kept : containerPool.acquire(profile);
+    }
+
+    /**
+     * Return a container to the pool, or keep it for the next submission of the current batch. A container that
+     * ran the entrypoint goes back to the pool, which resets it, since it may be a different student's next.
+     */
+    private void releasePooled(SandboxContainerPool.PooledContainer container, boolean reusable) {
+        Batch current = batch.get();
+        if (current == null || !reusable || container.needsReset()) {
+            containerPool.release(container, reusable);
+            return;
+        }
+        SandboxContainerPool.PooledContainer previous = current.containers.put(container.getProfile(), container);
+        if (previous != null) {
+            containerPool.release(previous, true);
+        }
+    }
+
+    /**
+     * Run code in a warm container from the pool, or else in a one-off sandbox of the configured backend
+     */
+    private GradingResult executeInSandbox(SandboxPayload payload) throws Exception {
+        SandboxContainerPool.PooledContainer pooled = acquirePooled(RUN_PROFILE);
+        if (pooled != null) {
+            return executeInPooledContainer(pooled, payload);
+        }
+        String code = payload.stdin();
+
+        String containerId = "coderunner-" + UUID.randomUUID().toString().substring(0, 8);
+
+        logger.debug("🐳 Starting container: {}", containerId);
+
+        ExecutionBackend.Sandbox container = null;
+        try {
+            container = startSandbox(containerId, dockerImage, runLimits(), code, liveOutput.get(), timeoutSeconds);
+
+            boolean completed = container.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            if (!completed) {
+                logger.warn("⏰ Container {} timed out, force killing", containerId);
+                container.kill();
+                return runTimeoutResult();
+            }
+            if (container.output().limitExceeded()) {
+                return new GradingResult(outputExceededMessage(), null);
+            }
+            if (container.oomKilled()) {
+                return new GradingResult(memoryExceededMessage(memoryLimit), null);
+            }
+
+            return new GradingResult(processExecutionResult(container.output()), null);
+
+        } catch (Exception e) {
+            logger.error("Container execution failed: {}", containerId, e);
+            throw e;
+        } finally {
+            if (container != null) {
+                container.close();
+            }
+        }
+    }
+
+    /**
+     * Run JUnit tests in a warm container from the pool, or else in a one-off sandbox of the configured backend
+     */
+    private TestReport executeJUnitInSandbox(SandboxPayload sandboxPayload) throws Exception {
+        SandboxContainerPool.PooledContainer pooled = acquirePooled(JUNIT_PROFILE);
+        if (pooled != null) {
+            return executeJUnitInPooledContainer(pooled, sandboxPayload);
+        }
+        String payload = sandboxPayload.stdin();
+
+        String containerId = "codedrill-junit-" + UUID.randomUUID().toString().substring(0, 8);
+
+        logger.debug("🧪 Starting JUnit container: {}", containerId);
+
+        ExecutionBackend.Sandbox container = null;
+        try {
+            container = startSandbox(containerId, junitDockerImage, junitLimits(), payload, null, testTimeoutSeconds);
+
+            boolean completed = container.waitFor(testTimeoutSeconds, TimeUnit.SECONDS);
+            if (!completed) {
+                logger.warn("⏰ JUnit container {} timed out, force killing", containerId);
+                container.kill();
+                return TestReport.error("⏰ Test execution timeout - tests took longer than " + testTimeoutSeconds + " seconds");
+            }
+            if (container.output().limitExceeded()) {
+                return TestReport.error(outputExceededMessage());
+            }
+            if (container.oomKilled()) {
+                return TestReport.error(memoryExceededMessage(testMemoryLimit));
+            }
+
+            return processJUnitResult(container.output());
+
+        } catch (Exception e) {
+            logger.error("JUnit container execution failed: {}", containerId, e);
+            throw e;
+        } finally {
+            if (container != null) {
+                container.close();
+            }
+        }
+    }
+
+    /**
+     * Run code inside a warm container from the pool, on the container's worker JVM if the code was compiled
+     * on the host. Containers that time out are discarded.
+     */
+    private GradingResult executeInPooledContainer(SandboxContainerPool.PooledContainer container,
+                                                   SandboxPayload payload) throws Exception {
+        logger.debug("♨️ Using pooled container: {} (use #{})", container.getName(), container.getUses());
+        boolean reusable = false;
+
+        try {
+            WorkerOutcome outcome = executeInWorker(container, payload, SandboxWorkerSession.JobType.RUN, null);
+            if (outcome != null) {
+                reusable = outcome.reusable();
+                SandboxWorkerSession.Result result = outcome.result();
+                return new GradingResult(formatWorkerRunResult(result), null, workerStatus(result.status()));
+            }
+
+            Process process = containerPool.exec(container, ENTRYPOINT);
+            ProcessOutput output = ProcessOutput.collect(process, outputLimits(), liveOutput.get(), process::destroyForcibly);
+            writeCode(process, payload.stdin());
+
+            boolean completed = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            if (!completed) {
+                logger.warn("⏰ Pooled container {} timed out, discarding", container.getName());
+                process.destroyForcibly();
+                return runTimeoutResult();
+            }
+            if (output.limitExceeded()) {
+                logger.warn("📤 Pooled container {} exceeded the output limit, discarding", container.getName());
+                return new GradingResult(outputExceededMessage(), null);
+            }
+
+            reusable = true;
+            return new GradingResult(processExecutionResult(output), null);
+
+        } finally {
+            releasePooled(container, reusable);
+        }
+    }
+
+    /**
+     * Run JUnit tests inside a warm container from the pool, on the container's worker JVM if the tests were
+     * compiled on the host. Containers that time out are discarded.
+     */
+    private TestReport executeJUnitInPooledContainer(SandboxContainerPool.PooledContainer container,
+                                                     SandboxPayload payload) throws Exception {
+        logger.debug("♨️ Using pooled JUnit container: {} (use #{})", container.getName(), container.getUses());
+        boolean reusable = false;
+
+        try {
+            WorkerOutcome outcome = executeInWorker(container, payload, SandboxWorkerSession.JobType.JUNIT, null);
+            if (outcome != null) {
+                reusable = outcome.reusable();
+                SandboxWorkerSession.Result result = outcome.result();
+                return workerTestReport(result.status(), result.report(), result.stderr());
+            }
+
+            Process process = containerPool.exec(container, ENTRYPOINT);
+            ProcessOutput output = ProcessOutput.collect(process, outputLimits(), null, process::destroyForcibly);
+            writeCode(process, payload.stdin());
+
+            boolean completed = process.waitFor(testTimeoutSeconds, TimeUnit.SECONDS);
+            if (!completed) {
+                logger.warn("⏰ Pooled JUnit container {} timed out, discarding", container.getName());
+                process.destroyForcibly();
+                return TestReport.error("⏰ Test execution timeout - tests took longer than " + testTimeoutSeconds + " seconds");
+            }
+            if (output.limitExceeded()) {
+                logger.warn("📤 Pooled JUnit container {} exceeded the output limit, discarding", container.getName());
+                return TestReport.error(outputExceededMessage());
+            }
+
+            reusable = true;
+            return processJUnitResult(output);
+
+        } finally {
+            releasePooled(container, reusable);
+        }
+    }
+
+    /**
+     * Send a host-compiled submission to the persistent worker JVM of a pooled container.
+     *
+     * @param testClass JUnit class of a {@link SandboxWorkerSession.JobType#GRADE} job, {@code null} otherwise
+     * @return the outcome, or {@code null} if the submission has to go through the entrypoint instead: it was
+     * not compiled on the host, the worker is unavailable, or the worker died without answering (e.g. the
+     * submission called {@code System.exit}) and the job is re-run in a fresh JVM
+     */
+    private WorkerOutcome executeInWorker(SandboxContainerPool.PooledContainer container, SandboxPayload payload,
+                                          SandboxWorkerSession.JobType type, String testClass) {
+        if (!workerEnabled || !payload.compiled()) {
+            return null;
+        }
+        SandboxWorkerSession session = containerPool.workerSession(container);
+        if (session == null) {
+            return null;
+        }
+
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(switch (type) {
+            case JUNIT -> testTimeoutSeconds;
+            case CASES -> casesTimeoutSeconds;
+            default -> timeoutSeconds;
+        });
+        long testTimeoutMillis = type == SandboxWorkerSession.JobType.GRADE ? TimeUnit.SECONDS.toMillis(testTimeoutSeconds) : 0;
+        LiveOutput output = type == SandboxWorkerSession.JobType.RUN || type == SandboxWorkerSession.JobType.GRADE
+                ? liveOutput.get()
+                : null;
+        SandboxWorkerSession.Job job = new SandboxWorkerSession.Job(type, UUID.randomUUID().toString(),
+                payload.entryClass(), timeoutMillis, testClass != null ? testClass : "", testTimeoutMillis,
+                payload.classFiles(), output != null, maxOutputBytes, payload.parallelTests() ? effectiveTestParallelism() : 1,
+                caseTimeoutMillis,
+                payload.caseInputs());
+
+        SandboxWorkerSession.Result result;
+        try {
+            result = session.execute(job, timeoutMillis + testTimeoutMillis + WORKER_GRACE_MILLIS, output);
+        } catch (IOException e) {
+            logger.debug("♨️ Worker in {} exited during job, re-running in a fresh JVM", container.getName());
+            containerPool.recycleWorker(container);
+            return null;
+        }
+
+        logger.debug("♨️ Worker job {} in {}: {} in {} ms", job.id(), container.getName(),
+                result.status(), result.durationMillis());
+
+        switch (result.recycle()) {
+            case JOB_LIMIT -> containerPool.recycleWorker(container);
+            case ISOLATION_BREACH -> logger.info("♨️ Worker in {} reported an isolation breach ({}), discarding container",
+                    container.getName(), result.status());
+            default -> {
+            }
+        }
+        return new WorkerOutcome(result, result.recycle() != SandboxWorkerSession.Recycle.ISOLATION_BREACH);
+    }
+
+    /**
+     * How a worker job ended, as far as the grading status is concerned
+     */
+    private static GradingResult.Status workerStatus(SandboxWorkerSession.Status status) {
+        return status == SandboxWorkerSession.Status.TIMEOUT ? GradingResult.Status.TIMEOUT : GradingResult.Status.COMPLETED;
+    }
+
+    /**
+     * Render a worker result exactly like the entrypoint's output for the same outcome
+     */
+    private String formatWorkerRunResult(SandboxWorkerSession.Result result) {
+        return switch (result.status()) {
+            case OK -> result.stdout().trim();
+            case TIMEOUT -> "⏰ Execution timeout - your code took longer than " + timeoutSeconds + " seconds";
+            case OUTPUT_LIMIT -> outputExceededMessage();
+            default -> (result.stdout() + "Runtime Error\n" + result.stderr()).trim();
+        };
+    }
+
+    /**
+     * Decode the report frame of a worker's test phase, or describe why there is none
+     */
+    private TestReport workerTestReport(SandboxWorkerSession.Status status, byte[] report, String stderr) {
+        return switch (status) {
+            case OK -> decodeTestReport(report);
+            case TIMEOUT -> TestReport.error("⏰ Test execution timeout - tests took longer than " + testTimeoutSeconds + " seconds");
+            case OUTPUT_LIMIT -> TestReport.error(outputExceededMessage());
+            default -> TestReport.error("Test execution failed: " + extractMainError(stderr));
+        };
+    }
+
+    private TestReport decodeTestReport(byte[] frame) {
+        try {
+            return TestReport.decode(frame);
+        } catch (IOException e) {
+            return TestReport.error("Unexpected test output: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Run the input/output cases in a warm container from the pool, or else in a one-off sandbox of the
+     * configured backend
+     */
+    private CaseReport executeCasesInSandbox(SandboxPayload payload, String profile) throws Exception {
+        SandboxContainerPool.PooledContainer pooled = acquirePooled(profile);
+        if (pooled != null) {
+            return executeCasesInPooledContainer(pooled, payload);
+        }
+
+        String containerId = "codedrill-cases-" + UUID.randomUUID().toString().substring(0, 8);
+
+        logger.debug("📋 Starting cases container: {}", containerId);
+
+        ExecutionBackend.Sandbox container = null;
+        try {
+            boolean junit = JUNIT_PROFILE.equals(profile);
+            container = startSandbox(containerId, junit ? junitDockerImage : dockerImage,
+                    junit ? junitLimits() : runLimits(), payload.stdin(), null, casesTimeoutSeconds);
+
+            if (!container.waitFor(casesTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("⏰ Cases container {} timed out, force killing", containerId);
+                container.kill();
+                return casesTimeoutReport();
+            }
+            if (container.output().limitExceeded()) {
+                return CaseReport.error(outputExceededMessage());
+            }
+            if (container.oomKilled()) {
+                return CaseReport.error(memoryExceededMessage(memoryLimit));
+            }
+
+            return interpretCaseOutput(container.output().stdout().trim(), container.output().stderr());
+
+        } catch (Exception e) {
+            logger.error("Cases container execution failed: {}", containerId, e);
+            throw e;
+        } finally {
+            if (container != null) {
+                container.close();
+            }
+        }
+    }
+
+    /**
+     * Run the input/output cases inside a warm container from the pool, on the container's worker JVM if
+     * possible. Containers that time out are discarded.
+     */
+    private CaseReport executeCasesInPooledContainer(SandboxContainerPool.PooledContainer container,
+                                                     SandboxPayload payload) throws Exception {
+        logger.debug("♨️ Using pooled container for cases: {} (use #{})", container.getName(), container.getUses());
+        boolean reusable = false;
+
+        try {
+            WorkerOutcome outcome = executeInWorker(container, payload, SandboxWorkerSession.JobType.CASES, null);
+            if (outcome != null) {
+                reusable = outcome.reusable();
+                SandboxWorkerSession.Result result = outcome.result();
+                return switch (result.status()) {
+                    case OK -> decodeCaseReport(result.report());
+                    case TIMEOUT -> casesTimeoutReport();
+                    case OUTPUT_LIMIT -> CaseReport.error(outputExceededMessage());
+                    default -> CaseReport.error("Test cases failed: " + extractMainError(result.stderr()));
+                };
+            }
+
+            Process process = containerPool.exec(container, ENTRYPOINT);
+            ProcessOutput output = ProcessOutput.collect(process, outputLimits(), null, process::destroyForcibly);
+            writeCode(process, payload.stdin());
+
+            if (!process.waitFor(casesTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("⏰ Pooled container {} timed out running cases, discarding", container.getName());
+                process.destroyForcibly();
+                return casesTimeoutReport();
+            }
+            if (output.limitExceeded()) {
+                logger.warn("📤 Pooled container {} exceeded the output limit running cases, discarding", container.getName());
+                return CaseReport.error(outputExceededMessage());
+            }
+
+            reusable = true;
+            return interpretCaseOutput(output.stdout().trim(), output.stderr());
+
+        } finally {
+            releasePooled(container, reusable);
+        }
+    }
+
+    private CaseReport casesTimeoutReport() {
+        return CaseReport.error("⏰ Test cases timeout - the cases took longer than " + casesTimeoutSeconds + " seconds");
+    }
+
+    private CaseReport decodeCaseReport(byte[] frame) {
+        try {
+            return CaseReport.decode(frame);
+        } catch (IOException e) {
+            return CaseReport.error("Unexpected case output: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The entrypoint's cases output ends with the harness's report frame in base64, or with an error the
+     * script ran into before the harness could report
+     */
+    private CaseReport interpretCaseOutput(String result, String errors) {
+        String last = result.substring(result.lastIndexOf('\n') + 1).trim();
+        if (last.startsWith(CASE_ERROR_LINE)) {
+            return CaseReport.error(last.substring(CASE_ERROR_LINE.length()).trim());
+        }
+        if (last.startsWith(CASE_REPORT_LINE)) {
+            try {
+                return decodeCaseReport(Base64.getDecoder().decode(last.substring(CASE_REPORT_LINE.length()).trim()));
+            } catch (IllegalArgumentException e) {
+                return CaseReport.error("Unexpected case output: " + e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            return CaseReport.error("Test cases failed: " + extractMainError(errors));
+        }
+        // e.g. the submission called System.exit before the harness could report
+        return CaseReport.error("Test cases failed: the program ended the JVM before all cases ran");
+    }
+
+    /**
+     * Whether the cases could not run for reasons outside the submission
+     */
+    private static boolean isCaseInfrastructureError(CaseReport report) {
+        String message = report.message();
+        return message != null && (message.startsWith("ERROR:") || message.startsWith("Unexpected case output")
+                || message.startsWith(SECURITY_ALERT));
+    }
+
+    /**
+     * Grade host-compiled code in one JUnit sandbox. If the combined run cannot produce a test report (the
+     * main method broke the worker's isolation, or the sandbox output is unusable) the missing part is
+     * executed separately, so the result always matches two independent executions.
+     */
+    private GradingResult executeGradeInSandbox(String mainClass, String testClass, Map<String, byte[]> classFiles,
+                                               boolean parallelTests) throws Exception {
+        String reportMarker = "===REPORT-" + UUID.randomUUID() + "===";
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("ENTRY", mainClass);
+        headers.put("TEST", testClass);
+        headers.put("REPORT", reportMarker);
+        if (parallelTests) {
+            headers.put("PARALLEL", String.valueOf(effectiveTestParallelism()));
+        }
+        SandboxPayload payload = SandboxPayload.compiledTests(
+                buildBytecodePayload(GRADE_BYTECODE_MARKER, headers, classFiles), mainClass, classFiles, parallelTests);
+
+        SandboxContainerPool.PooledContainer pooled = acquirePooled(JUNIT_PROFILE);
+        GradingResult result = pooled != null
+                ? executeGradeInPooledContainer(pooled, payload, testClass, reportMarker)
+                : executeGradeInColdSandbox(payload, reportMarker);
+
+        if (result == null) {
+            logger.warn("🧪 Combined grading produced no test report, running main and tests separately");
+            GradingResult run = executeInSandbox(SandboxPayload.compiled(
+                    buildBytecodePayload(BYTECODE_MARKER, mainClass, classFiles), mainClass, classFiles));
+            return run.withTestReport(executeJUnitInSandbox(junitPayload(testClass, classFiles, parallelTests)));
+        }
+        if (!result.testsRun()) {
+            return result.withTestReport(executeJUnitInSandbox(junitPayload(testClass, classFiles, parallelTests)));
+        }
+        return result;
+    }
+
+    /**
+     * @return the result, with no test results if the tests still have to run, or {@code null} if nothing
+     * usable came back
+     */
+    private GradingResult executeGradeInPooledContainer(SandboxContainerPool.PooledContainer container,
+                                                        SandboxPayload payload, String testClass,
+                                                        String reportMarker) throws Exception {
+        logger.debug("♨️ Using pooled container for grading: {} (use #{})", container.getName(), container.getUses());
+        boolean reusable = false;
+
+        try {
+            WorkerOutcome outcome = executeInWorker(container, payload, SandboxWorkerSession.JobType.GRADE, testClass);
+            if (outcome != null) {
+                reusable = outcome.reusable();
+                SandboxWorkerSession.Result result = outcome.result();
+                TestReport testReport = result.testStatus() == SandboxWorkerSession.Status.SKIPPED
+                        ? null
+                        : workerTestReport(result.testStatus(), result.report(), "");
+                GradingResult.Status status = result.status() == SandboxWorkerSession.Status.TIMEOUT
+                        ? GradingResult.Status.TIMEOUT
+                        : workerStatus(result.testStatus());
+                return new GradingResult(formatWorkerRunResult(result), testReport, status);
+            }
+
+            Process process = containerPool.exec(container, ENTRYPOINT);
+            ProcessOutput output = ProcessOutput.collect(process, outputLimits(), null, process::destroyForcibly);
+            writeCode(process, payload.stdin());
+
+            if (!process.waitFor(timeoutSeconds + testTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("⏰ Pooled container {} timed out while grading, discarding", container.getName());
+                process.destroyForcibly();
+                return gradeTimeoutResult();
+            }
+            if (output.limitExceeded()) {
+                logger.warn("📤 Pooled container {} exceeded the output limit while grading, discarding", container.getName());
+                String message = outputExceededMessage();
+                return new GradingResult(message, TestReport.error(message));
+            }
+
+            reusable = true;
+            return processGradeResult(output, reportMarker);
+
+        } finally {
+            releasePooled(container, reusable);
+        }
+    }
+
+    private GradingResult executeGradeInColdSandbox(SandboxPayload payload, String reportMarker) throws Exception {
+        String containerId = "codedrill-grade-" + UUID.randomUUID().toString().substring(0, 8);
+
+        logger.debug("🧪 Starting grading container: {}", containerId);
+
+        ExecutionBackend.Sandbox container = null;
+        try {
+            container = startSandbox(containerId, junitDockerImage, junitLimits(), payload.stdin(), null,
+                    timeoutSeconds + testTimeoutSeconds);
+
+            if (!container.waitFor(timeoutSeconds + testTimeoutSeconds, TimeUnit.SECONDS)) {
+                logger.warn("⏰ Grading container {} timed out, force killing", containerId);
+                container.kill();
+                return gradeTimeoutResult();
+            }
+            if (container.output().limitExceeded() || container.oomKilled()) {
+                String message = container.output().limitExceeded()
+                        ? outputExceededMessage()
+                        : memoryExceededMessage(testMemoryLimit);
+                return new GradingResult(message, TestReport.error(message));
+            }
+
+            return processGradeResult(container.output(), reportMarker);
+
+        } catch (Exception e) {
+            logger.error("Grading container execution failed: {}", containerId, e);
+            throw e;
+        } finally {
+            if (container != null) {
+                container.close();
+            }
+        }
+    }
+
+    private SandboxPayload junitPayload(String testClass, Map<String, byte[]> classFiles, boolean parallelTests) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("ENTRY", testClass);
+        if (parallelTests) {
+            headers.put("PARALLEL", String.valueOf(effectiveTestParallelism()));
+        }
+        return SandboxPayload.compiledTests(buildBytecodePayload(JUNIT_BYTECODE_MARKER, headers, classFiles),
+                testClass, classFiles, parallelTests);
+    }
+
+    private GradingResult runTimeoutResult() {
+        return new GradingResult("⏰ Execution timeout - your code took longer than " + timeoutSeconds + " seconds",
+                null, GradingResult.Status.TIMEOUT);
+    }
+
+    private GradingResult gradeTimeoutResult() {
+        return new GradingResult(
+                "⏰ Execution timeout - your code took longer than " + timeoutSeconds + " seconds",
+                TestReport.error("⏰ Test execution timeout - tests took longer than " + testTimeoutSeconds + " seconds"),
+                GradingResult.Status.TIMEOUT);
+    }
+
+    /**
+     * Split the entrypoint's grading output at the report marker into run output and test report
+     */
+    private GradingResult processGradeResult(ProcessOutput processOutput, String reportMarker) {
+        String output = processOutput.stdout();
+        String errors = processOutput.stderr();
+
+        int split = output.lastIndexOf(reportMarker);
+        if (split < 0) {
+            return null;
+        }
+
+        String runOutput = output.substring(0, split).trim();
+        String testOutput = output.substring(split + reportMarker.length()).trim();
+        return new GradingResult(runOutput, null).withTestReport(interpretJUnitOutput(testOutput, errors));
+    }
+
+    /**
+     * Start a one-off sandbox on the configured backend and feed it its stdin
+     */
+    private ExecutionBackend.Sandbox startSandbox(String name, String image, SandboxLimits limits, String stdin,
+                                                  LiveOutput output, long timeoutSeconds) throws IOException {
+        return backend.start(new ExecutionBackend.SandboxRequest(name, currentUserKey(), image, limits, stdin,
+                timeoutSeconds, outputLimits(), output));
+    }
+
+    private SandboxLimits runLimits() {
+        return new SandboxLimits(
+                parseMemoryLimit(memoryLimit),
+                Double.parseDouble(cpuLimit),
+                processLimit + 5,
+                List.of(new SandboxLimits.Ulimit("nproc", processLimit, processLimit),
+                        new SandboxLimits.Ulimit("nofile", 128, 256),
+                        new SandboxLimits.Ulimit("fsize", 10000000, 10000000)),
+                networkDisabled,
+                List.of("JAVA_OPTS=-Xmx" + calculateJvmHeapSize(memoryLimit) +
+                        " -XX:MaxDirectMemorySize=8m" +
+                        " -XX:MetaspaceSize=16m" +
+                        " -XX:MaxMetaspaceSize=32m" +
+                        " -XX:+UseSerialGC" +
+                        " -XX:TieredStopAtLevel=1",
+                        "CDS_ARCHIVE=" + cdsArchive)
+        );
+    }
+
+    private SandboxLimits junitLimits() {
+        return new SandboxLimits(
+                parseMemoryLimit(testMemoryLimit),
+                Double.parseDouble(testCpuLimit),
+                testProcessLimit + 10,
+                List.of(new SandboxLimits.Ulimit("nproc", testProcessLimit, testProcessLimit),
+                        new SandboxLimits.Ulimit("nofile", 256, 512),
+                        new SandboxLimits.Ulimit("fsize", 20000000, 20000000)),
+                networkDisabled,
+                List.of("JAVA_OPTS=-Xmx" + calculateJvmHeapSize(testMemoryLimit) +
+                        " -XX:MaxDirectMemorySize=16m" +
+                        " -XX:MetaspaceSize=32m" +
+                        " -XX:MaxMetaspaceSize=64m" +
+                        " -XX:+UseSerialGC" +
+                        " -XX:TieredStopAtLevel=1",
+                        "CDS_ARCHIVE=" + cdsArchive)
+        );
+    }
+
+    private String memoryExceededMessage(String limit) {
+        return "💥 Memory limit exceeded - your code used more than " + limit + " of memory";
+    }
+
+    private String outputExceededMessage() {
+        String limit = maxOutputBytes >= 1024 * 1024
+                ? maxOutputBytes / (1024 * 1024) + " MB"
+                : maxOutputBytes / 1024 + " KB";
+        return "📤 Output limit exceeded - your code wrote more than " + limit + " of output";
+    }
+
+    private ProcessOutput.Limits outputLimits() {
+        return new ProcessOutput.Limits(outputCaptureBytes, maxOutputBytes);
+    }
+
+    private void writeCode(Process process, String code) throws IOException {
+        try (OutputStreamWriter writer = new OutputStreamWriter(process.getOutputStream())) {
+            writer.write(code);
+        }
+    }
+
+    /**
+     * The configured test parallelism, clamped to the CPUs of the test sandbox's quota: more threads than
+     * CPUs only make CPU-bound tests contend for the quota
+     */
+    private int effectiveTestParallelism() {
+        int cpus = (int) Math.max(1, Math.ceil(Double.parseDouble(testCpuLimit)));
+        return Math.min(testParallelism, cpus);
+    }
+
+    private String calculateJvmHeapSize(String memoryLimit) {
+        long memBytes = parseMemoryLimit(memoryLimit);
+        long heapBytes = memBytes * 2 / 3;  // 66% for heap, rest for non-heap
+        return Math.max(16, heapBytes / 1024 / 1024) + "m";
+    }
+
+    private String processExecutionResult(ProcessOutput output) {
+        String errors = output.stderr();
+        if (!errors.isEmpty()) {
+            return extractMainError(errors);
+        }
+
+        return output.stdout().trim();
+    }
+
+    private TestReport processJUnitResult(ProcessOutput output) {
+        return interpretJUnitOutput(output.stdout().trim(), output.stderr());
+    }
+
+    /**
+     * The entrypoint's test output ends with the harness's report frame in base64, or with an error the
+     * script ran into before the harness could report
+     */
+    private TestReport interpretJUnitOutput(String result, String errors) {
+        if (result.isEmpty() && !errors.isEmpty()) {
+            return TestReport.error("Test execution failed: " + extractMainError(errors));
+        }
+
+        String last = result.substring(result.lastIndexOf('\n') + 1).trim();
+        if (last.startsWith(TEST_ERROR_LINE)) {
+            return TestReport.error(last.substring(TEST_ERROR_LINE.length()).trim());
+        }
+        if (last.startsWith(TEST_REPORT_LINE)) {
+            try {
+                return decodeTestReport(Base64.getDecoder().decode(last.substring(TEST_REPORT_LINE.length()).trim()));
+            } catch (IllegalArgumentException e) {
+                return TestReport.error("Unexpected test output: " + e.getMessage());
+            }
+        }
+        return TestReport.error("Unexpected test output: " + result);
+    }
+
+    /**
+     * Resource monitoring
+     */
+    @Scheduled(fixedRate = 30000) // Every 30 seconds
+    public void logResourceUsage() {
+        try {
+            Runtime runtime = Runtime.getRuntime();
+            long totalMemory = runtime.totalMemory();
+            long freeMemory = runtime.freeMemory();
+            long usedMemory = totalMemory - freeMemory;
+
+            int runningContainers = getRunningContainerCount();
+            int activeExec = activeExecutions.get();
+            ExecutionMetrics metrics = getExecutionMetrics();
+
+            CompilationCache.Stats compileCache = javaCompiler.getCacheStats();
+
+            logger.info("📊 RESOURCES - Memory: {}MB used/{}MB total, Containers: {}, Active: {}, Limit: {}, In flight: {}, Queued: {}, Rejected: {}, Warm: {}/{}, Compile cache: {} entries, {}% hits",
+                    usedMemory / 1024 / 1024,
+                    totalMemory / 1024 / 1024,
+                    runningContainers,
+                    activeExec,
+                    metrics.limit(),
+                    metrics.inFlight(),
+                    metrics.queued(),
+                    metrics.rejected(),
+                    containerPool.idleCount(RUN_PROFILE) + containerPool.idleCount(JUNIT_PROFILE),
+                    containerPool.totalCount(RUN_PROFILE) + containerPool.totalCount(JUNIT_PROFILE),
+                    compileCache.entries(),
+                    Math.round(compileCache.hitRate() * 100));
+
+            if (runningContainers > metrics.limit() * 2) {
+                logger.warn("⚠️ HIGH CONTAINER COUNT: {} running (expected max: {})",
+                        runningContainers, metrics.limit());
+            }
+            if (metrics.limiter() != null) {
+                AdaptiveConcurrencyLimiter.Stats limiterStats = metrics.limiter();
+                logger.info("🎚️ LIMITER - Limit: {} ({}..{}), Latency: {}ms recent/{}ms baseline, Timeouts: {}/{}, Changes: +{} -{}",
+                        limiterStats.limit(), limiterStats.minLimit(), limiterStats.maxLimit(),
+                        limiterStats.recentLatencyMillis(), limiterStats.baselineLatencyMillis(),
+                        limiterStats.timeouts(), limiterStats.samples(),
+                        limiterStats.increases(), limiterStats.decreases());
+            }
+
+        } catch (Exception e) {
+            logger.debug("Resource monitoring failed", e);
+        }
+    }
+
+    private int getRunningContainerCount() {
+        return leaseRegistry.getActiveCount();
+    }
+
+    // Helper methods
+    private String formatSecurityMessage(MaliciousCodeDetector.MaliciousCodeResult result, String codeType) {
+        StringBuilder message = new StringBuilder();
+        message.append(SECURITY_ALERT).append(codeType).append(" execution blocked\n\n");
+        message.append("Risk Level: ").append(result.riskLevel()).append("\n");
+        message.append("Detected Issues:\n");
+
+        String[] reasons = result.reasons().split(";");
+        for (String reason : reasons) {
+            if (!reason.trim().isEmpty()) {
+                message.append("• ").append(reason.trim()).append("\n");
+            }
+        }
+
+        message.append("\n📋 Security Guidelines:\n");
+        if ("Student Code".equals(codeType)) {
+            message.append("• Use only standard Java APIs for assignments\n");
+            message.append("• Avoid system calls, file operations, and network access\n");
+            message.append("• Focus on algorithm implementation and data structures\n");
+        } else {
+            message.append("• JUnit tests should focus on testing functionality\n");
+            message.append("• Avoid system manipulation and dangerous operations\n");
+        }
+        message.append("• Contact instructor if you believe this is a false positive\n");
+
+        return message.toString();
+    }
+
+    private TestReport compilationErrorReport(String prefix, CompilationResult compilation) {
+        return TestReport.compilationFailed(prefix + compilation.formatErrors(MAX_REPORTED_COMPILE_ERRORS),
+                compilation.diagnostics());
+    }
+
+    /**
+     * A host compilation given up on at its time limit ends the grading as a timeout, any other as completed
+     */
+    private static GradingResult.Status compilationStatus(CompilationResult compilation) {
+        return compilation.timedOut() ? GradingResult.Status.TIMEOUT : GradingResult.Status.COMPLETED;
+    }
+
+    private String getCurrentUserInfo() {
+        return currentUserKey();
+    }
+
+    private String extractMainError(String errorOutput) {
+        if (errorOutput.contains("Compilation Error")) {
+            Pattern pattern = Pattern.compile("(\\w+\\.java:\\d+: error:.+?(?=\\n\\s*\\^|$))", Pattern.DOTALL);
+            Matcher matcher = pattern.matcher(errorOutput);
+
+            if (matcher.find()) {
+                return "Compilation Error: " + matcher.group(1).trim();
+            }
+        }
+
+        // first three non-blank lines, without splitting the whole capture
+        StringBuilder result = new StringBuilder();
+        int count = 0;
+        int start = 0;
+        while (start < errorOutput.length() && count < 3) {
+            int end = errorOutput.indexOf('\n', start);
+            if (end < 0) {
+                end = errorOutput.length();
+            }
+            String line = errorOutput.substring(start, end);
+            if (!line.isBlank()) {
+                result.append(line).append("\n");
+                count++;
+            }
+            start = end + 1;
+        }
+        return result.toString().trim();
+    }
+
+    /**
+     * Graceful shutdown
+     */
+    @PreDestroy
+    public void destroy() {
+        logger.info("🛑 Shutting down CodeExecutionService");
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+
+        logger.info("✅ CodeExecutionService shutdown complete");
+    }
+
+    /**
+     * Data written to the sandbox's stdin, or the message (for tests, the report) to return instead if the
+     * submission was rejected before reaching the sandbox. Host-compiled payloads also carry their class
+     * files so that they can be sent to a worker JVM directly, and those of a cases run the stdin of each case.
+     */
+    private record SandboxPayload(String stdin, String rejection, TestReport testRejection,
+                                  GradingResult.Status rejectionStatus,
+                                  String entryClass, Map<String, byte[]> classFiles, boolean parallelTests,
+                                  List<byte[]> caseInputs) {
+
+        static SandboxPayload accept(String stdin) {
+            return new SandboxPayload(stdin, null, null, null, null, null, false, List.of());
+        }
+
+        static SandboxPayload compiled(String stdin, String entryClass, Map<String, byte[]> classFiles) {
+            return new SandboxPayload(stdin, null, null, null, entryClass, classFiles, false, List.of());
+        }
+
+        static SandboxPayload compiledTests(String stdin, String entryClass, Map<String, byte[]> classFiles,
+                                            boolean parallelTests) {
+            return new SandboxPayload(stdin, null, null, null, entryClass, classFiles, parallelTests, List.of());
+        }
+
+        static SandboxPayload compiledCases(String stdin, String entryClass, Map<String, byte[]> classFiles,
+                                            List<byte[]> caseInputs) {
+            return new SandboxPayload(stdin, null, null, null, entryClass, classFiles, false, caseInputs);
+        }
+
+        /**
+         * @param status how the grading of the rejected code ended, e.g. {@code BLOCKED} for a syntax tree violation
+         */
+        static SandboxPayload reject(String rejection, GradingResult.Status status) {
+            return new SandboxPayload(null, rejection, null, status, null, null, false, List.of());
+        }
+
+        static SandboxPayload rejectTests(TestReport report) {
+            return new SandboxPayload(null, null, report, null, null, null, false, List.of());
+        }
+
+        boolean rejected() {
+            return rejection != null || testRejection != null;
+        }
+
+        boolean compiled() {
+            return classFiles != null;
+        }
+    }
+
+    private record WorkerOutcome(SandboxWorkerSession.Result result, boolean reusable) {
+    }
+
+    /**
+     * State of a {@link #gradeBatch} call, or of a single grading that runs in one session: whether it holds
+     * its execution slot yet, and the warm container it kept of each profile
+     */
+    private static final class Batch {
+        private boolean slotHeld;
+        private final Map<String, SandboxContainerPool.PooledContainer> containers = new HashMap<>();
+    }
+
+    /**
+     * @param limit    current number of concurrent execution slots
+     * @param inFlight executions holding a slot
+     * @param queued   requests waiting for a slot
+     * @param rejected requests turned away since startup
+     * @param limiter  state of the adaptive limit, {@code null} if the limit is fixed
+     */
+    public record ExecutionMetrics(int limit, int inFlight, int queued, long rejected,
+                                   AdaptiveConcurrencyLimiter.Stats limiter) {
+    }
+}
@@ -0,0 +1,162 @@
+package com.main.codedrill.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache of host compilations.
+ * <p>
+ * Entries are keyed by the SHA-256 of the compiler options and every source file, and hold either the
+ * compiled class files or the compile errors, along with the syntax tree verdicts of the sources, so resubmitting unchanged code (or a task's starter template)
+ * skips javac entirely. The cache is bounded both by entry count and by the total size of the cached
+ * bytecode and diagnostics; the least recently used entries are evicted first.
+ */
+@Component
+public class CompilationCache {
+
+    // Rough per-entry overhead of the key, map node and result objects
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    @Value("${compiler.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${compiler.cache.max_entries:2000}")
+    private int maxEntries;
+
+    @Value("${compiler.cache.max_bytes:67108864}")
+    private long maxBytes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Logger logger = LoggerFactory.getLogger(CompilationCache.class);
+
+    @PostConstruct
+    private void initialize() {
+        if (enabled && (maxEntries <= 0 || maxBytes <= 0)) {
+            throw new IllegalArgumentException("Invalid compilation cache bounds: entries=" + maxEntries + ", bytes=" + maxBytes);
+        }
+        logger.info("🗃️ Compilation cache {} (max {} entries, {}MB)",
+                enabled ? "ENABLED" : "DISABLED", maxEntries, maxBytes / 1024 / 1024);
+    }
+
+    /**
+     * Cache key for a compilation: SHA-256 over the options and the sources in file name order
+     */
+    public static String key(Map<String, String> sources, List<String> options) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String option : options) {
+                update(digest, option);
+            }
+            update(digest, "--");
+            for (Map.Entry<String, String> source : new TreeMap<>(sources).entrySet()) {
+                update(digest, source.getKey());
+                update(digest, source.getValue());
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public CompilationResult get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.result;
+    }
+
+    public void put(String key, CompilationResult result) {
+        if (!enabled) {
+            return;
+        }
+        long size = sizeOf(key, result);
+        if (size > maxBytes) {
+            return;  // would evict everything else for a single oversized entry
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(key, new Entry(result, size));
+            totalBytes += size - (previous != null ? previous.size : 0);
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while ((entries.size() > maxEntries || totalBytes > maxBytes) && eldest.hasNext()) {
+                totalBytes -= eldest.next().size;
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), totalBytes);
+    }
+
+    private static long sizeOf(String key, CompilationResult result) {
+        long size = ENTRY_OVERHEAD_BYTES + key.length();
+        for (Map.Entry<String, byte[]> classFile : result.classFiles().entrySet()) {
+            size += classFile.getKey().length() + classFile.getValue().length;
+        }
+        for (CompilationDiagnostic diagnostic : result.diagnostics()) {
+            size += diagnostic.file().length() + diagnostic.message().length();
+        }
+        for (MaliciousCodeDetector.MaliciousCodeResult analysis : result.analysis().values()) {
+            size += analysis.reasons().length();
+        }
+        return size;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        // Length prefix keeps ("ab", "c") and ("a", "bc") apart
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private record Entry(CompilationResult result, long size) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int entries, long bytes) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
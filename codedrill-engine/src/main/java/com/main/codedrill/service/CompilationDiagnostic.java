@@ -0,0 +1,24 @@
+package com.main.codedrill.service;
+
+/**
+ * A single compiler error reported by the host-side compilation stage.
+ *
+ * @param file    source file name, e.g. {@code Solution.java}
+ * @param line    1-based line number, or -1 if unknown
+ * @param column  1-based column number, or -1 if unknown
+ * @param message compiler message without the file/line prefix
+ */
+public record CompilationDiagnostic(String file, long line, long column, String message) {
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(file);
+        if (line > 0) {
+            builder.append(':').append(line);
+            if (column > 0) {
+                builder.append(':').append(column);
+            }
+        }
+        return builder.append(": error: ").append(message).toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.main.codedrill.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of compiling a submission on the host.
+ *
+ * @param success     whether compilation produced class files without errors
+ * @param classFiles  compiled bytecode keyed by binary class name (empty on failure)
+ * @param diagnostics compiler errors (empty on success)
+ * @param analysis    verdict of the {@link SubmissionTreeAnalyzer} keyed by file name, for every file that
+ *                    could be parsed
+ * @param timedOut    whether javac was given up on at the host's compilation time limit
+ */
+public record CompilationResult(boolean success, Map<String, byte[]> classFiles, List<CompilationDiagnostic> diagnostics,
+                                Map<String, MaliciousCodeDetector.MaliciousCodeResult> analysis, boolean timedOut) {
+
+    public static CompilationResult success(Map<String, byte[]> classFiles) {
+        return new CompilationResult(true, Map.copyOf(classFiles), List.of(), Map.of(), false);
+    }
+
+    public static CompilationResult failure(List<CompilationDiagnostic> diagnostics) {
+        return new CompilationResult(false, Map.of(), List.copyOf(diagnostics), Map.of(), false);
+    }
+
+    /**
+     * Result of a compilation that did not finish in time, reported against every file
+     */
+    public static CompilationResult timeout(Collection<String> files, String message) {
+        List<CompilationDiagnostic> diagnostics = files.stream()
+                .map(file -> new CompilationDiagnostic(file, -1, -1, message))
+                .toList();
+        return new CompilationResult(false, Map.of(), diagnostics, Map.of(), true);
+    }
+
+    /**
+     * The same result with the syntax tree verdicts of its files
+     */
+    public CompilationResult withAnalysis(Map<String, MaliciousCodeDetector.MaliciousCodeResult> analysis) {
+        return new CompilationResult(success, classFiles, diagnostics, Map.copyOf(analysis), timedOut);
+    }
+
+    /**
+     * Syntax tree verdict of one file, or {@code null} if it was not analysed
+     */
+    public MaliciousCodeDetector.MaliciousCodeResult analysisOf(String file) {
+        return analysis.get(file);
+    }
+
+    public boolean hasErrorsIn(String file) {
+        return diagnostics.stream().anyMatch(d -> d.file().equals(file));
+    }
+
+    /**
+     * The same failed result restricted to the diagnostics of one file
+     */
+    public CompilationResult errorsIn(String file) {
+        return new CompilationResult(false, Map.of(),
+                diagnostics.stream().filter(d -> d.file().equals(file)).toList(), Map.of(), timedOut);
+    }
+
+    /**
+     * Render at most {@code maxErrors} diagnostics, one per line
+     */
+    public String formatErrors(int maxErrors) {
+        StringBuilder builder = new StringBuilder();
+        diagnostics.stream().limit(maxErrors).forEach(d -> builder.append(d).append("\n"));
+        if (diagnostics.size() > maxErrors) {
+            builder.append("... and ").append(diagnostics.size() - maxErrors).append(" more error(s)\n");
+        }
+        return builder.toString().trim();
+    }
+}
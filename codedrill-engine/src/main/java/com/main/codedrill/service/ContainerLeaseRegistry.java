@@ -0,0 +1,341 @@
+package com.main.codedrill.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Lease table of the one-off sandbox containers this application launched.
+ * <p>
+ * Every container is leased before it starts, with its owner and a deadline, and released when its
+ * execution is done. A single hashed timer wheel fires at the deadlines and kills exactly the containers
+ * whose lease expired, so a hung execution or a lost {@code docker run} client cannot leave a container
+ * running. Containers on the host that carry a sandbox name but have no lease are only looked for by
+ * {@link #reconcile()}, which runs at startup and on demand.
+ */
+@Component
+public class ContainerLeaseRegistry {
+
+    static final List<String> CONTAINER_PREFIXES = List.of("coderunner-", "codedrill-junit-", "codedrill-grade-");
+
+    @Value("${execution.leases.tick_millis:250}")
+    private long tickMillis;
+
+    @Value("${execution.leases.wheel_size:512}")
+    private int wheelSize;
+
+    @Value("${docker.enabled:true}")
+    private boolean dockerEnabled;
+
+    private final DockerEngineClient dockerEngine;
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+    private TimerWheel wheel;
+    private Thread wheelThread;
+
+    private final ExecutorService reaper = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ContainerLease-Reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Logger logger = LoggerFactory.getLogger(ContainerLeaseRegistry.class);
+
+    @Autowired
+    public ContainerLeaseRegistry(DockerEngineClient dockerEngine) {
+        this.dockerEngine = dockerEngine;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Invalid lease wheel: tick=" + tickMillis + "ms, size=" + wheelSize
+                    + " (size must be a power of two)");
+        }
+
+        wheel = new TimerWheel(TimeUnit.MILLISECONDS.toNanos(tickMillis), wheelSize, System.nanoTime(), this::expire);
+        wheelThread = new Thread(wheel, "ContainerLease-Wheel");
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+
+        if (dockerEnabled) {
+            reaper.submit(this::reconcile);
+        }
+        logger.info("⏳ Container leases: {} ms ticks, {} slots", tickMillis, wheelSize);
+    }
+
+    /**
+     * Register a container that is about to be started
+     *
+     * @param ttl time after which the container is killed unless the lease was released
+     */
+    public Lease acquire(String container, String owner, Duration ttl) {
+        Instant now = Instant.now();
+        Lease lease = new Lease(container, owner, now, now.plus(ttl), System.nanoTime() + ttl.toNanos());
+        leases.put(container, lease);
+        wheel.schedule(lease);
+        return lease;
+    }
+
+    /**
+     * The execution finished with its container; the reaper will not touch it
+     */
+    public void release(Lease lease) {
+        lease.released = true;
+        leases.remove(lease.container, lease);
+    }
+
+    /**
+     * Kill and remove a leased container right away, e.g. after its execution timed out
+     */
+    public void terminate(Lease lease) {
+        release(lease);
+        removeContainer(lease.container);
+    }
+
+    public List<Lease> getLeases() {
+        return List.copyOf(leases.values());
+    }
+
+    public int getActiveCount() {
+        return leases.size();
+    }
+
+    /**
+     * Remove sandbox containers on the host that have no lease, e.g. left behind by a previous run of the
+     * application, and forget leases whose container no longer exists
+     */
+    public ReconcileReport reconcile() {
+        List<String> running;
+        try {
+            running = listSandboxContainers();
+        } catch (Exception e) {
+            logger.warn("⏳ Container reconciliation failed", e);
+            return new ReconcileReport(0, 0, leases.size());
+        }
+
+        int removed = 0;
+        for (String container : running) {
+            if (!leases.containsKey(container)) {
+                removeContainer(container);
+                removed++;
+            }
+        }
+
+        int forgotten = 0;
+        Instant now = Instant.now();
+        for (Lease lease : leases.values()) {
+            // a lease younger than a few seconds may belong to a container that is still being created
+            if (!running.contains(lease.container) && lease.startedAt.plusSeconds(5).isBefore(now)
+                    && leases.remove(lease.container, lease)) {
+                lease.released = true;
+                forgotten++;
+            }
+        }
+
+        if (removed > 0 || forgotten > 0) {
+            logger.info("⏳ Reconciled sandbox containers: {} orphans removed, {} stale leases dropped", removed, forgotten);
+        }
+        return new ReconcileReport(removed, forgotten, leases.size());
+    }
+
+    private List<String> listSandboxContainers() throws IOException, InterruptedException {
+        List<String> names = new ArrayList<>();
+        if (dockerEngine.isAvailable()) {
+            for (DockerEngineClient.ContainerSummary container
+                    : dockerEngine.listContainers(true, Map.of("name", CONTAINER_PREFIXES))) {
+                names.add(container.name());
+            }
+        } else {
+            List<String> command = new ArrayList<>(List.of("docker", "ps", "-a", "--format", "{{.Names}}"));
+            for (String prefix : CONTAINER_PREFIXES) {
+                command.addAll(List.of("--filter", "name=" + prefix));
+            }
+            Process process = new ProcessBuilder(command).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    names.add(line.trim());
+                }
+            }
+            process.waitFor(5, TimeUnit.SECONDS);
+        }
+        // the name filter matches substrings, only the prefixes are ours
+        names.removeIf(name -> CONTAINER_PREFIXES.stream().noneMatch(name::startsWith));
+        return names;
+    }
+
+    private void expire(Lease lease) {
+        if (lease.released || !leases.remove(lease.container, lease)) {
+            return;
+        }
+        lease.released = true;
+        logger.warn("⏳ Lease of container {} (owner {}) expired after {}s, killing it", lease.container, lease.owner,
+                Duration.between(lease.startedAt, lease.deadline).toSeconds());
+        reaper.submit(() -> removeContainer(lease.container));
+    }
+
+    private void removeContainer(String container) {
+        try {
+            if (dockerEngine.isAvailable()) {
+                dockerEngine.remove(container);
+                return;
+            }
+            Process process = new ProcessBuilder("docker", "rm", "-f", container).redirectErrorStream(true).start();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to remove container: {}", container, e);
+        }
+    }
+
+    /**
+     * Containers of executions still running at shutdown are removed, nothing else on the host is touched
+     */
+    @PreDestroy
+    public void destroy() {
+        if (wheelThread != null) {
+            wheelThread.interrupt();
+        }
+        reaper.shutdownNow();
+
+        for (Lease lease : getLeases()) {
+            terminate(lease);
+        }
+    }
+
+    /**
+     * @param removed  containers without a lease that were removed
+     * @param dropped  leases whose container had disappeared
+     * @param active   leases held after reconciliation
+     */
+    public record ReconcileReport(int removed, int dropped, int active) {
+    }
+
+    public static final class Lease {
+        private final String container;
+        private final String owner;
+        private final Instant startedAt;
+        private final Instant deadline;
+        private final long deadlineNanos;
+        private long remainingRounds;
+        volatile boolean released = false;
+
+        Lease(String container, String owner, Instant startedAt, Instant deadline, long deadlineNanos) {
+            this.container = container;
+            this.owner = owner;
+            this.startedAt = startedAt;
+            this.deadline = deadline;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public String getContainer() {
+            return container;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public Instant getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * Hashed timer wheel: each slot holds the leases due in that tick of some round. Scheduling and
+     * releasing are O(1); a released lease stays in its slot and is dropped when the slot comes around.
+     */
+    static final class TimerWheel implements Runnable {
+        private final long tickNanos;
+        private final ArrayDeque<Lease>[] slots;
+        private final int mask;
+        private final long startNanos;
+        private final Consumer<Lease> onExpire;
+        private long tick = 0;
+
+        /**
+         * @param startNanos {@link System#nanoTime()} at which tick 0 begins
+         */
+        @SuppressWarnings("unchecked")
+        TimerWheel(long tickNanos, int size, long startNanos, Consumer<Lease> onExpire) {
+            this.tickNanos = tickNanos;
+            this.slots = new ArrayDeque[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = new ArrayDeque<>();
+            }
+            this.mask = size - 1;
+            this.startNanos = startNanos;
+            this.onExpire = onExpire;
+        }
+
+        synchronized void schedule(Lease lease) {
+            // round up, so a lease never fires before its deadline; the current tick's slot was already visited
+            long dueTick = Math.max(tick + 1, (lease.deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+            lease.remainingRounds = (dueTick - tick - 1) / slots.length;
+            slots[(int) (dueTick & mask)].add(lease);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long sleepNanos = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+                    if (sleepNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                    }
+                    for (Lease lease : advance()) {
+                        onExpire.accept(lease);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Move to the next tick and collect the leases that are due
+         */
+        synchronized List<Lease> advance() {
+            tick++;
+            List<Lease> due = new ArrayList<>();
+            Iterator<Lease> iterator = slots[(int) (tick & mask)].iterator();
+            while (iterator.hasNext()) {
+                Lease lease = iterator.next();
+                if (lease.released) {
+                    iterator.remove();
+                } else if (lease.remainingRounds <= 0) {
+                    iterator.remove();
+                    due.add(lease);
+                } else {
+                    lease.remainingRounds--;
+                }
+            }
+            return due;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.main.codedrill.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs sandboxes with {@code docker run --rm -i}, for hosts where the daemon socket is not reachable
+ * directly. Containers are leased in the {@link ContainerLeaseRegistry} while they run.
+ */
+@Component
+public class DockerCliExecutionBackend implements ExecutionBackend {
+
+    static final String NAME = "docker-cli";
+
+    // Time a container may outlive its execution timeout before its lease expires
+    static final long LEASE_GRACE_SECONDS = 30;
+
+    private final ContainerLeaseRegistry leaseRegistry;
+
+    @Autowired
+    public DockerCliExecutionBackend(ContainerLeaseRegistry leaseRegistry) {
+        this.leaseRegistry = leaseRegistry;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean usesDocker() {
+        return true;
+    }
+
+    /**
+     * Only known once a container is started; a missing client or daemon fails the execution
+     */
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Sandbox start(SandboxRequest request) throws IOException {
+        ContainerLeaseRegistry.Lease lease = leaseRegistry.acquire(request.name(), request.owner(),
+                Duration.ofSeconds(request.timeoutSeconds() + LEASE_GRACE_SECONDS));
+
+        try {
+            List<String> command = new ArrayList<>(List.of("docker", "run", "--name", request.name(), "--rm", "-i"));
+            command.addAll(request.limits().cliArgs());
+            command.add(request.image());
+
+            Process process = new ProcessBuilder(command).start();
+            // killing the docker run client would leave the container running
+            ProcessOutput output = ProcessOutput.collect(process, request.outputLimits(), request.liveOutput(), () -> {
+                process.destroyForcibly();
+                leaseRegistry.terminate(lease);
+            });
+            try (OutputStream stdin = process.getOutputStream()) {
+                stdin.write(request.stdin().getBytes(StandardCharsets.UTF_8));
+            }
+            return new CliSandbox(process, output, lease);
+        } catch (IOException | RuntimeException e) {
+            leaseRegistry.terminate(lease);
+            throw e;
+        }
+    }
+
+    /**
+     * Run with {@code --rm}, so the daemon removes the container as soon as it exits
+     */
+    private final class CliSandbox implements Sandbox {
+        private final Process process;
+        private final ProcessOutput output;
+        private final ContainerLeaseRegistry.Lease lease;
+
+        CliSandbox(Process process, ProcessOutput output, ContainerLeaseRegistry.Lease lease) {
+            this.process = process;
+            this.output = output;
+            this.lease = lease;
+        }
+
+        @Override
+        public ProcessOutput output() {
+            return output;
+        }
+
+        @Override
+        public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+            return process.waitFor(timeout, unit);
+        }
+
+        @Override
+        public boolean oomKilled() {
+            return false;
+        }
+
+        @Override
+        public void kill() {
+            process.destroyForcibly();
+            leaseRegistry.terminate(lease);
+        }
+
+        @Override
+        public void close() {
+            leaseRegistry.release(lease);
+        }
+    }
+}
@@ -0,0 +1,735 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.URLEncoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Client for the Docker Engine API on the daemon's Unix socket.
+ * <p>
+ * Every call is a plain HTTP/1.1 exchange on a fresh connection, so a container lifecycle operation costs a
+ * socket round trip instead of forking a {@code docker} CLI process, and exit codes and OOM kills are read
+ * from the daemon's JSON instead of being inferred from CLI output. Attaching upgrades the connection to a
+ * raw stream that carries stdin one way and multiplexed stdout/stderr frames the other.
+ */
+@Component
+public class DockerEngineClient {
+
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final long EVENT_RECONNECT_MILLIS = 1000;
+
+    @Value("${docker.api.enabled:true}")
+    private boolean enabled;
+
+    @Value("${docker.api.socket:/var/run/docker.sock}")
+    private String socketPath;
+
+    @Value("${docker.api.version:v1.41}")
+    private String apiVersion;
+
+    @Value("${docker.api.timeout_seconds:10}")
+    private int timeoutSeconds;
+
+    private volatile boolean available = false;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger eventThreadCount = new AtomicInteger();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "DockerApi-Watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Logger logger = LoggerFactory.getLogger(DockerEngineClient.class);
+
+    public DockerEngineClient() {
+    }
+
+    /**
+     * Client for a specific socket, e.g. a stub daemon in tests
+     */
+    DockerEngineClient(String socketPath, String apiVersion, int timeoutSeconds) {
+        this.enabled = true;
+        this.socketPath = socketPath;
+        this.apiVersion = apiVersion;
+        this.timeoutSeconds = timeoutSeconds;
+        this.available = true;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        if (!enabled) {
+            logger.info("🐳 Docker Engine API DISABLED, using the docker CLI");
+            return;
+        }
+        if (timeoutSeconds <= 0 || !apiVersion.startsWith("v")) {
+            throw new IllegalArgumentException("Invalid Docker API settings: version=" + apiVersion + ", timeout=" + timeoutSeconds);
+        }
+
+        available = ping();
+        if (available) {
+            logger.info("🐳 Docker Engine API {} available at {}", apiVersion, socketPath);
+        } else {
+            logger.warn("🐳 Docker Engine API not reachable at {}, using the docker CLI", socketPath);
+        }
+    }
+
+    /**
+     * Whether the API is enabled and the daemon answered at startup
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public boolean ping() {
+        try {
+            return call("GET", "/_ping", null, defaultTimeout()).status() == 200;
+        } catch (IOException e) {
+            logger.debug("Docker API ping failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Create a container without starting it
+     *
+     * @param entrypoint  replaces the image's entrypoint, {@code null} keeps it
+     * @param interactive whether stdin stays open for one attached client and is closed when it hangs up
+     * @return the container id
+     */
+    public String createContainer(String name, String image, List<String> entrypoint, SandboxLimits limits,
+                                  Map<String, String> labels, boolean interactive) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("Image", image);
+        if (entrypoint != null) {
+            body.put("Entrypoint", entrypoint);
+        }
+        body.put("Env", limits.env());
+        body.put("Labels", labels);
+        body.put("Tty", false);
+        body.put("AttachStdin", interactive);
+        body.put("AttachStdout", interactive);
+        body.put("AttachStderr", interactive);
+        body.put("OpenStdin", interactive);
+        body.put("StdinOnce", interactive);
+        body.put("HostConfig", limits.hostConfig());
+
+        Response response = call("POST", "/containers/create?name=" + encode(name), body, defaultTimeout());
+        return expect(response, 201).path("Id").asText();
+    }
+
+    /**
+     * Attach to stdin, stdout and stderr of a created container. Attach before starting it, otherwise early
+     * output is lost.
+     */
+    public Attachment attach(String container) throws IOException {
+        Exchange exchange = open("POST", "/containers/" + encode(container)
+                + "/attach?stream=1&stdin=1&stdout=1&stderr=1", null, true, 0);
+        if (exchange.status != 101 && exchange.status != 200) {
+            try (exchange) {
+                throw failure(new Response(exchange.request, exchange.status, exchange.body.readAllBytes()));
+            }
+        }
+        return new Attachment(exchange);
+    }
+
+    public void start(String container) throws IOException {
+        Response response = call("POST", "/containers/" + encode(container) + "/start", null, defaultTimeout());
+        expect(response, 204, 304);
+    }
+
+    /**
+     * Wait for a container to stop
+     *
+     * @return exit code and OOM flag, or {@code null} if the container is still running after the timeout
+     */
+    public ExitStatus awaitExit(String container, long timeout, TimeUnit unit) throws IOException {
+        Response response;
+        try {
+            response = call("POST", "/containers/" + encode(container) + "/wait", null, unit.toMillis(timeout));
+        } catch (SocketTimeoutException e) {
+            return null;
+        }
+        int exitCode = expect(response, 200).path("StatusCode").asInt();
+        ContainerState state = inspect(container);
+        return new ExitStatus(exitCode, state != null && state.oomKilled());
+    }
+
+    /**
+     * @return the container's state, or {@code null} if it does not exist
+     */
+    public ContainerState inspect(String container) throws IOException {
+        Response response = call("GET", "/containers/" + encode(container) + "/json", null, defaultTimeout());
+        if (response.status() == 404) {
+            return null;
+        }
+        JsonNode state = expect(response, 200).path("State");
+        return new ContainerState(state.path("Running").asBoolean(), state.path("ExitCode").asInt(),
+                state.path("OOMKilled").asBoolean());
+    }
+
+    /**
+     * Send SIGKILL; containers that are gone or not running are ignored
+     */
+    public void kill(String container) throws IOException {
+        Response response = call("POST", "/containers/" + encode(container) + "/kill", null, defaultTimeout());
+        expect(response, 204, 404, 409);
+    }
+
+    /**
+     * Kill and remove a container; containers that are already gone are ignored
+     */
+    public void remove(String container) throws IOException {
+        Response response = call("DELETE", "/containers/" + encode(container) + "?force=true", null, defaultTimeout());
+        expect(response, 204, 404, 409);
+    }
+
+    /**
+     * @param all     whether stopped containers are listed too
+     * @param filters Engine API filters, e.g. {@code name} or {@code label}
+     */
+    public List<ContainerSummary> listContainers(boolean all, Map<String, List<String>> filters) throws IOException {
+        Response response = call("GET", "/containers/json?all=" + all + "&filters="
+                + encode(objectMapper.writeValueAsString(filters)), null, defaultTimeout());
+
+        List<ContainerSummary> containers = new ArrayList<>();
+        for (JsonNode node : expect(response, 200)) {
+            String name = node.path("Names").path(0).asText("");
+            Map<String, String> labels = new HashMap<>();
+            node.path("Labels").fields().forEachRemaining(label -> labels.put(label.getKey(), label.getValue().asText()));
+            containers.add(new ContainerSummary(node.path("Id").asText(), name.startsWith("/") ? name.substring(1) : name,
+                    node.path("State").asText(), Instant.ofEpochSecond(node.path("Created").asLong()), labels));
+        }
+        return containers;
+    }
+
+    /**
+     * Follow container events in the background; the stream reconnects if the daemon closes it
+     *
+     * @param filters  Engine API filters, e.g. {@code event=die} or {@code label=...}
+     * @param listener called on the stream's own thread; must not block for long
+     */
+    public EventStream events(Map<String, List<String>> filters, Consumer<ContainerEvent> listener) throws IOException {
+        Map<String, List<String>> containerFilters = new HashMap<>(filters);
+        containerFilters.put("type", List.of("container"));
+        String path = "/events?filters=" + encode(objectMapper.writeValueAsString(containerFilters));
+
+        EventStream stream = new EventStream(path, listener);
+        Thread thread = new Thread(stream, "DockerApi-Events-" + eventThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+        return stream;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        watchdog.shutdownNow();
+    }
+
+    private long defaultTimeout() {
+        return TimeUnit.SECONDS.toMillis(timeoutSeconds);
+    }
+
+    private JsonNode expect(Response response, int... expected) throws IOException {
+        for (int status : expected) {
+            if (response.status() == status) {
+                return response.body().length == 0 ? objectMapper.nullNode() : objectMapper.readTree(response.body());
+            }
+        }
+        throw failure(response);
+    }
+
+    private IOException failure(Response response) {
+        String message = new String(response.body(), StandardCharsets.UTF_8).trim();
+        try {
+            message = objectMapper.readTree(response.body()).path("message").asText(message);
+        } catch (IOException e) {
+            // not JSON, keep the raw body
+        }
+        return new IOException("Docker API " + response.request() + " failed with " + response.status() + ": " + message);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private Response call(String method, String path, Object body, long timeoutMillis) throws IOException {
+        try (Exchange exchange = open(method, path, body, false, timeoutMillis)) {
+            try {
+                return new Response(exchange.request, exchange.status, exchange.body.readAllBytes());
+            } catch (IOException e) {
+                throw exchange.timedOut() ? new SocketTimeoutException(exchange.request + " timed out") : e;
+            }
+        }
+    }
+
+    /**
+     * Send a request and read the response head; the body is left for the caller to consume
+     *
+     * @param upgrade       whether to ask for the connection to be hijacked as a raw stream
+     * @param timeoutMillis the connection is closed when the whole exchange takes longer; 0 for no limit
+     */
+    private Exchange open(String method, String path, Object body, boolean upgrade, long timeoutMillis) throws IOException {
+        String request = method + " " + path.replaceFirst("\\?.*", "");
+        byte[] content = body == null ? new byte[0] : objectMapper.writeValueAsBytes(body);
+
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = timeoutMillis > 0 ? watchdog.schedule(() -> {
+            expired.set(true);
+            closeQuietly(channel);
+        }, timeoutMillis, TimeUnit.MILLISECONDS) : null;
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+
+            StringBuilder head = new StringBuilder()
+                    .append(method).append(" /").append(apiVersion).append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: docker\r\n")
+                    .append("Content-Length: ").append(content.length).append("\r\n");
+            if (body != null) {
+                head.append("Content-Type: application/json\r\n");
+            }
+            head.append(upgrade ? "Connection: Upgrade\r\nUpgrade: tcp\r\n" : "Connection: close\r\n").append("\r\n");
+
+            OutputStream out = outputStream(channel);
+            out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+            out.write(content);
+
+            InputStream in = new BufferedInputStream(inputStream(channel));
+            String statusLine = readLine(in);
+            String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed response to " + request + ": " + statusLine);
+            }
+            int status = Integer.parseInt(parts[1]);
+
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+                }
+            }
+
+            return new Exchange(request, channel, deadline, expired, status, bodyStream(in, status, headers), out);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(channel);
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            if (expired.get()) {
+                throw new SocketTimeoutException(request + " timed out");
+            }
+            throw e;
+        }
+    }
+
+    private static InputStream bodyStream(InputStream in, int status, Map<String, String> headers) {
+        if (status == 101) {
+            return in;
+        }
+        if (status == 204 || status == 304) {
+            return InputStream.nullInputStream();
+        }
+        if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+            return new ChunkedInputStream(in);
+        }
+        String length = headers.get("content-length");
+        return length != null ? new BoundedInputStream(in, Long.parseLong(length)) : in;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("Connection closed by the Docker daemon");
+            }
+            line.write(b);
+        }
+        String text = line.toString(StandardCharsets.US_ASCII);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    /**
+     * Socket streams that, unlike {@code Channels.newInputStream}, allow a read and a write to block at the
+     * same time, which an attached container needs
+     */
+    private static InputStream inputStream(SocketChannel channel) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return length == 0 ? 0 : channel.read(ByteBuffer.wrap(bytes, offset, length));
+            }
+        };
+    }
+
+    private static OutputStream outputStream(SocketChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                // half-close: the daemon closes the container's stdin, output keeps flowing
+                if (channel.isOpen()) {
+                    channel.shutdownOutput();
+                }
+            }
+        };
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+
+    private record Response(String request, int status, byte[] body) {
+    }
+
+    /**
+     * @param exitCode  the container's main process exit code
+     * @param oomKilled whether the kernel killed the container for exceeding its memory limit
+     */
+    public record ExitStatus(int exitCode, boolean oomKilled) {
+    }
+
+    public record ContainerState(boolean running, int exitCode, boolean oomKilled) {
+    }
+
+    /**
+     * @param state e.g. {@code created}, {@code running} or {@code exited}
+     */
+    public record ContainerSummary(String id, String name, String state, Instant createdAt, Map<String, String> labels) {
+
+        public boolean isRunning() {
+            return "running".equals(state);
+        }
+    }
+
+    /**
+     * @param action     e.g. {@code die}, {@code oom} or {@code destroy}
+     * @param attributes the container's labels plus event details such as {@code name} and {@code exitCode}
+     */
+    public record ContainerEvent(String action, String containerId, Map<String, String> attributes) {
+
+        public String name() {
+            return attributes.getOrDefault("name", "");
+        }
+
+        /**
+         * @return the exit code of a {@code die} event, or -1
+         */
+        public int exitCode() {
+            try {
+                return Integer.parseInt(attributes.getOrDefault("exitCode", "-1"));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Receives demultiplexed output of an attached container
+     */
+    @FunctionalInterface
+    public interface OutputSink {
+        void accept(LiveOutput.Stream stream, byte[] bytes, int offset, int length);
+    }
+
+    /**
+     * The hijacked connection of an attached container
+     */
+    public static final class Attachment implements Closeable {
+        private final Exchange exchange;
+
+        private Attachment(Exchange exchange) {
+            this.exchange = exchange;
+        }
+
+        /**
+         * The container's stdin; closing it sends EOF to the container
+         */
+        public OutputStream stdin() {
+            return exchange.out;
+        }
+
+        /**
+         * Read output frames until the container's streams end, then close the connection
+         */
+        public void readOutput(OutputSink sink) throws IOException {
+            byte[] header = new byte[FRAME_HEADER_BYTES];
+            byte[] buffer = new byte[8192];
+            try {
+                while (readFrameHeader(exchange.body, header)) {
+                    LiveOutput.Stream stream = header[0] == 2 ? LiveOutput.Stream.STDERR : LiveOutput.Stream.STDOUT;
+                    long remaining = ((header[4] & 0xFFL) << 24) | ((header[5] & 0xFF) << 16)
+                            | ((header[6] & 0xFF) << 8) | (header[7] & 0xFF);
+                    while (remaining > 0) {
+                        int read = exchange.body.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (read == -1) {
+                            throw new EOFException("Output frame cut short");
+                        }
+                        sink.accept(stream, buffer, 0, read);
+                        remaining -= read;
+                    }
+                }
+            } finally {
+                close();
+            }
+        }
+
+        private static boolean readFrameHeader(InputStream in, byte[] header) throws IOException {
+            int filled = 0;
+            while (filled < header.length) {
+                int read = in.read(header, filled, header.length - filled);
+                if (read == -1) {
+                    if (filled == 0) {
+                        return false;
+                    }
+                    throw new EOFException("Output frame header cut short");
+                }
+                filled += read;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            exchange.close();
+        }
+    }
+
+    /**
+     * A running subscription to container events
+     */
+    public final class EventStream implements Runnable, Closeable {
+        private final String path;
+        private final Consumer<ContainerEvent> listener;
+        private volatile Exchange exchange;
+        private volatile boolean closed = false;
+
+        private EventStream(String path, Consumer<ContainerEvent> listener) {
+            this.path = path;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try (Exchange current = open("GET", path, null, false, 0)) {
+                    exchange = current;
+                    if (closed) {
+                        return;
+                    }
+                    if (current.status != 200) {
+                        throw failure(new Response(current.request, current.status, current.body.readAllBytes()));
+                    }
+                    try (MappingIterator<JsonNode> events = objectMapper.readerFor(JsonNode.class).readValues(current.body)) {
+                        while (events.hasNextValue()) {
+                            dispatch(events.nextValue());
+                        }
+                    }
+                } catch (Exception e) {
+                    if (!closed) {
+                        logger.debug("🐳 Docker event stream interrupted: {}", e.getMessage());
+                    }
+                }
+
+                if (!closed) {
+                    try {
+                        Thread.sleep(EVENT_RECONNECT_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void dispatch(JsonNode event) {
+            Map<String, String> attributes = new HashMap<>();
+            JsonNode actor = event.path("Actor");
+            actor.path("Attributes").fields().forEachRemaining(a -> attributes.put(a.getKey(), a.getValue().asText()));
+            try {
+                listener.accept(new ContainerEvent(event.path("Action").asText(), actor.path("ID").asText(), attributes));
+            } catch (RuntimeException e) {
+                logger.warn("🐳 Docker event listener failed", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            Exchange current = exchange;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+
+    /**
+     * One request on its own connection
+     */
+    private static final class Exchange implements Closeable {
+        private final String request;
+        private final SocketChannel channel;
+        private final ScheduledFuture<?> deadline;
+        private final AtomicBoolean expired;
+        private final int status;
+        private final InputStream body;
+        private final OutputStream out;
+
+        private Exchange(String request, SocketChannel channel, ScheduledFuture<?> deadline, AtomicBoolean expired,
+                         int status, InputStream body, OutputStream out) {
+            this.request = request;
+            this.channel = channel;
+            this.deadline = deadline;
+            this.expired = expired;
+            this.status = status;
+            this.body = body;
+            this.out = out;
+        }
+
+        boolean timedOut() {
+            return expired.get();
+        }
+
+        @Override
+        public void close() {
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            closeQuietly(channel);
+        }
+    }
+
+    private static final class BoundedInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(bytes, offset, (int) Math.min(length, remaining));
+            if (read == -1) {
+                throw new EOFException("Response body cut short");
+            }
+            remaining -= read;
+            return read;
+        }
+    }
+
+    private static final class ChunkedInputStream extends InputStream {
+        private final InputStream in;
+        private long chunkRemaining = 0;
+        private boolean finished = false;
+
+        ChunkedInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (chunkRemaining == 0) {
+                String size = readLine(in);
+                int extension = size.indexOf(';');
+                chunkRemaining = Long.parseLong((extension >= 0 ? size.substring(0, extension) : size).trim(), 16);
+                if (chunkRemaining == 0) {
+                    while (!readLine(in).isEmpty()) {
+                        // skip trailers
+                    }
+                    finished = true;
+                    return -1;
+                }
+            }
+
+            int read = in.read(bytes, offset, (int) Math.min(length, chunkRemaining));
+            if (read == -1) {
+                throw new EOFException("Chunk cut short");
+            }
+            chunkRemaining -= read;
+            if (chunkRemaining == 0) {
+                readLine(in);  // CRLF after the chunk data
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.main.codedrill.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs sandboxes through the Docker Engine API: create, attach, start and wait without spawning a
+ * {@code docker} client per execution, and with the container's OOM state available afterwards.
+ * Containers are leased in the {@link ContainerLeaseRegistry} while they run.
+ */
+@Component
+public class DockerEngineExecutionBackend implements ExecutionBackend {
+
+    static final String NAME = "docker-engine";
+
+    private final DockerEngineClient dockerEngine;
+    private final ContainerLeaseRegistry leaseRegistry;
+
+    private final Logger logger = LoggerFactory.getLogger(DockerEngineExecutionBackend.class);
+
+    @Autowired
+    public DockerEngineExecutionBackend(DockerEngineClient dockerEngine, ContainerLeaseRegistry leaseRegistry) {
+        this.dockerEngine = dockerEngine;
+        this.leaseRegistry = leaseRegistry;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean usesDocker() {
+        return true;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return dockerEngine.isAvailable();
+    }
+
+    @Override
+    public Sandbox start(SandboxRequest request) throws IOException {
+        String name = request.name();
+        ContainerLeaseRegistry.Lease lease = leaseRegistry.acquire(name, request.owner(),
+                Duration.ofSeconds(request.timeoutSeconds() + DockerCliExecutionBackend.LEASE_GRACE_SECONDS));
+
+        try {
+            dockerEngine.createContainer(name, request.image(), null, request.limits(), Map.of(), true);
+            DockerEngineClient.Attachment attachment = dockerEngine.attach(name);
+            ProcessOutput output = ProcessOutput.collect(attachment, request.outputLimits(), request.liveOutput(),
+                    () -> kill(name));
+            dockerEngine.start(name);
+            try (OutputStream stdin = attachment.stdin()) {
+                stdin.write(request.stdin().getBytes(StandardCharsets.UTF_8));
+            }
+            return new EngineSandbox(name, output, lease);
+        } catch (IOException | RuntimeException e) {
+            leaseRegistry.terminate(lease);
+            throw e;
+        }
+    }
+
+    private void kill(String name) {
+        try {
+            dockerEngine.kill(name);
+        } catch (IOException e) {
+            logger.warn("Failed to kill container: {}", name, e);
+        }
+    }
+
+    private final class EngineSandbox implements Sandbox {
+        private final String name;
+        private final ProcessOutput output;
+        private final ContainerLeaseRegistry.Lease lease;
+        private DockerEngineClient.ExitStatus exit;
+
+        EngineSandbox(String name, ProcessOutput output, ContainerLeaseRegistry.Lease lease) {
+            this.name = name;
+            this.output = output;
+            this.lease = lease;
+        }
+
+        @Override
+        public ProcessOutput output() {
+            return output;
+        }
+
+        @Override
+        public boolean waitFor(long timeout, TimeUnit unit) throws IOException {
+            exit = dockerEngine.awaitExit(name, timeout, unit);
+            return exit != null;
+        }
+
+        @Override
+        public boolean oomKilled() {
+            return exit != null && exit.oomKilled();
+        }
+
+        @Override
+        public void kill() {
+            leaseRegistry.terminate(lease);
+        }
+
+        /**
+         * Created without auto-removal so that its OOM state can still be inspected after it exited
+         */
+        @Override
+        public void close() {
+            leaseRegistry.release(lease);
+            try {
+                dockerEngine.remove(name);
+            } catch (IOException e) {
+                logger.warn("Failed to remove container: {}", name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.main.codedrill.service;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs one-off sandboxes for {@link CodeExecutionService}: a runner image's entrypoint fed the submission
+ * payload on stdin. The backend is chosen with {@code execution.backend}; see
+ * {@link CodeExecutionService} for the selection and the warm container pool, which only Docker backends use.
+ */
+public interface ExecutionBackend {
+
+    /**
+     * Name used to select the backend in {@code execution.backend}
+     */
+    String name();
+
+    /**
+     * Whether sandboxes are Docker containers, which can be mixed with warm containers from the pool
+     */
+    boolean usesDocker();
+
+    /**
+     * Whether the backend can run sandboxes on this host
+     */
+    boolean isAvailable();
+
+    /**
+     * Start a sandbox and write its stdin; the caller must close the returned sandbox
+     */
+    Sandbox start(SandboxRequest request) throws IOException;
+
+    /**
+     * @param name           unique sandbox name, also the container name for Docker backends
+     * @param owner          user the execution runs for
+     * @param image          runner image
+     * @param limits         resource limits, applied as far as the backend can enforce them
+     * @param stdin          entrypoint payload
+     * @param timeoutSeconds execution timeout, after which a lost sandbox may be reaped
+     * @param outputLimits   capture and kill limits of stdout and stderr
+     * @param liveOutput     receives the output as it arrives, may be {@code null}
+     */
+    record SandboxRequest(String name, String owner, String image, SandboxLimits limits, String stdin,
+                          long timeoutSeconds, ProcessOutput.Limits outputLimits, LiveOutput liveOutput) {
+    }
+
+    /**
+     * A sandbox running a single execution
+     */
+    interface Sandbox {
+
+        ProcessOutput output();
+
+        /**
+         * @return {@code false} if the sandbox is still running after the timeout
+         */
+        boolean waitFor(long timeout, TimeUnit unit) throws IOException, InterruptedException;
+
+        /**
+         * Whether the kernel killed the sandbox for exceeding its memory limit, if the backend can tell
+         */
+        boolean oomKilled();
+
+        /**
+         * Stop the sandbox right away, for executions that timed out
+         */
+        void kill();
+
+        /**
+         * Release the sandbox's resources once its execution is done
+         */
+        void close();
+    }
+}
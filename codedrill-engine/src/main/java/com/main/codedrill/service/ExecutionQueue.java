@@ -0,0 +1,322 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Durable queue of submissions in the {@code execution_queue} table, so that executions can run on worker
+ * processes separate from the web nodes and survive restarts of either.
+ * <p>
+ * Workers claim the oldest available job of the user with the fewest running jobs, so that one user's backlog
+ * does not hold back the other users. They claim it with {@code SELECT ... FOR UPDATE SKIP LOCKED}, so
+ * concurrent workers never block on or take the same row. A claimed job is leased to its worker, which renews the
+ * lease with heartbeats while it runs; jobs whose lease expired (the worker died) or whose run failed are
+ * queued again with exponential backoff until {@code execution.queue.max_attempts} runs were made.
+ * Timestamps come from the clock of the node that writes them, so nodes need synchronized clocks well
+ * within the lease duration.
+ */
+@Service
+public class ExecutionQueue {
+
+    // Web nodes send submissions to the queue instead of executing them in-process
+    @Value("${execution.queue.enabled:false}")
+    private boolean enabled;
+
+    @Value("${execution.queue.max_attempts:3}")
+    private int maxAttempts;
+
+    @Value("${execution.queue.lease_seconds:30}")
+    private int leaseSeconds;
+
+    @Value("${execution.queue.retry_backoff_seconds:2}")
+    private int retryBackoffSeconds;
+
+    // How long a web node waits for a worker to finish a submission, queueing time included
+    @Value("${execution.queue.await_seconds:120}")
+    private int awaitSeconds;
+
+    @Value("${execution.queue.poll_millis:250}")
+    private long pollMillis;
+
+    @Value("${execution.queue.retention_minutes:60}")
+    private int retentionMinutes;
+
+    private static final String COLUMNS = "id, username, task_id, code, status, attempts, result_json, error_message";
+    private static final String SELECT_AVAILABLE = "SELECT " + COLUMNS + " FROM execution_queue q "
+            + "WHERE status = 'QUEUED' AND available_at <= ? ORDER BY "
+            + "(SELECT COUNT(*) FROM execution_queue r WHERE r.username = q.username AND r.status = 'RUNNING'), "
+            + "available_at, created_at LIMIT 1 FOR UPDATE SKIP LOCKED";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM execution_queue WHERE id = ?";
+    private static final String LEASE = "UPDATE execution_queue SET status = 'RUNNING', attempts = attempts + 1, "
+            + "lease_owner = ?, lease_expires_at = ?, heartbeat_at = ? WHERE id = ?";
+    private static final String RENEW_LEASE = "UPDATE execution_queue SET lease_expires_at = ?, heartbeat_at = ? "
+            + "WHERE id = ? AND lease_owner = ? AND status = 'RUNNING'";
+    private static final String FINISH = "UPDATE execution_queue SET status = ?, result_json = ?, error_message = ?, "
+            + "available_at = ?, finished_at = ?, lease_owner = NULL, lease_expires_at = NULL "
+            + "WHERE id = ? AND lease_owner = ? AND status = 'RUNNING'";
+    private static final String RELEASE = "UPDATE execution_queue SET status = 'QUEUED', attempts = attempts - 1, "
+            + "lease_owner = NULL, lease_expires_at = NULL WHERE id = ? AND lease_owner = ? AND status = 'RUNNING'";
+    private static final String REQUEUE_EXPIRED = "UPDATE execution_queue SET "
+            + "status = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'QUEUED' END, "
+            + "finished_at = CASE WHEN attempts >= ? THEN ? ELSE NULL END, "
+            + "available_at = ?, error_message = 'Execution worker stopped responding', "
+            + "lease_owner = NULL, lease_expires_at = NULL WHERE status = 'RUNNING' AND lease_expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Logger logger = LoggerFactory.getLogger(ExecutionQueue.class);
+
+    @Autowired
+    public ExecutionQueue(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        if (maxAttempts <= 0 || leaseSeconds <= 0 || retryBackoffSeconds < 0 || awaitSeconds <= 0
+                || pollMillis <= 0 || retentionMinutes <= 0) {
+            throw new IllegalArgumentException("Invalid execution queue settings: attempts=" + maxAttempts
+                    + ", lease=" + leaseSeconds + " s, backoff=" + retryBackoffSeconds + " s, await="
+                    + awaitSeconds + " s, poll=" + pollMillis + " ms, retention=" + retentionMinutes + " min");
+        }
+        if (enabled) {
+            logger.info("📬 Executions go through the durable queue: lease {} s, {} attempts, await {} s",
+                    leaseSeconds, maxAttempts, awaitSeconds);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    int getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    /**
+     * Queue a submission and wait until a worker graded it
+     *
+     * @throws TimeoutException      if no worker finished the job within {@code execution.queue.await_seconds};
+     *                               the job is cancelled
+     * @throws ExecutionException    if the job failed on every attempt
+     * @throws InterruptedException  if the wait was interrupted; the job is cancelled
+     */
+    public GradingResult grade(String username, Long taskId, String code)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return await(enqueue(username, taskId, code), awaitSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return the id of the new job
+     */
+    public String enqueue(String username, Long taskId, String code) {
+        String id = UUID.randomUUID().toString();
+        Timestamp now = now();
+        jdbcTemplate.update("INSERT INTO execution_queue (id, username, task_id, code, status, attempts, "
+                + "available_at, created_at) VALUES (?, ?, ?, ?, 'QUEUED', 0, ?, ?)", id, username, taskId, code, now, now);
+        return id;
+    }
+
+    /**
+     * Wait for a job to finish
+     *
+     * @throws CancellationException if the job was cancelled
+     */
+    public GradingResult await(String id, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            while (true) {
+                Entry entry = find(id);
+                if (entry == null) {
+                    throw new ExecutionException(new IllegalStateException("Execution job " + id + " no longer exists"));
+                }
+                switch (entry.status()) {
+                    case DONE -> {
+                        return parseResult(entry.resultJson());
+                    }
+                    case FAILED -> throw new ExecutionException(new IllegalStateException(entry.error()));
+                    case CANCELLED -> throw new CancellationException("Execution job " + id + " was cancelled");
+                    default -> {
+                    }
+                }
+                if (System.nanoTime() - deadline > 0) {
+                    cancel(id);
+                    throw new TimeoutException("No execution worker finished the job within " + timeout + " " + unit);
+                }
+                Thread.sleep(pollMillis);
+            }
+        } catch (InterruptedException e) {
+            cancel(id);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the job, or {@code null} if it does not exist or was purged
+     */
+    public Entry find(String id) {
+        List<Entry> entries = jdbcTemplate.query(SELECT_BY_ID, (rs, rowNum) -> mapEntry(rs), id);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * Cancel a job that has not finished; a worker running it stops at its next heartbeat
+     *
+     * @return whether the job was cancelled by this call
+     */
+    public boolean cancel(String id) {
+        return jdbcTemplate.update("UPDATE execution_queue SET status = 'CANCELLED', finished_at = ?, "
+                + "lease_owner = NULL, lease_expires_at = NULL WHERE id = ? AND status IN ('QUEUED', 'RUNNING')",
+                now(), id) == 1;
+    }
+
+    /**
+     * Jobs that are queued or running
+     */
+    public long getDepth() {
+        Long depth = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM execution_queue WHERE status IN ('QUEUED', 'RUNNING')", Long.class);
+        return depth != null ? depth : 0;
+    }
+
+    /**
+     * Take the oldest available job of the user with the fewest running jobs and lease it to a worker
+     *
+     * @return the job, or {@code null} if none is available
+     */
+    Entry claim(String workerId) {
+        return transactionTemplate.execute(status -> {
+            Timestamp now = now();
+            List<Entry> entries = jdbcTemplate.query(SELECT_AVAILABLE, (rs, rowNum) -> mapEntry(rs), now);
+            if (entries.isEmpty()) {
+                return null;
+            }
+            Entry entry = entries.get(0);
+            jdbcTemplate.update(LEASE, workerId, leaseDeadline(), now, entry.id());
+            return new Entry(entry.id(), entry.username(), entry.taskId(), entry.code(), Status.RUNNING,
+                    entry.attempts() + 1, null, null);
+        });
+    }
+
+    /**
+     * Extend a worker's lease on a running job
+     *
+     * @return {@code false} if the worker lost the job: it was cancelled or its lease expired
+     */
+    boolean heartbeat(String id, String workerId) {
+        return jdbcTemplate.update(RENEW_LEASE, leaseDeadline(), now(), id, workerId) == 1;
+    }
+
+    void complete(String id, String workerId, GradingResult result) throws JsonProcessingException {
+        Timestamp now = now();
+        jdbcTemplate.update(FINISH, Status.DONE.name(), objectMapper.writeValueAsString(result), null, now, now,
+                id, workerId);
+    }
+
+    /**
+     * Record a failed run: the job is queued again after a backoff unless it used up its attempts or the
+     * failure cannot go away by retrying
+     */
+    void fail(Entry entry, String workerId, String error, boolean retryable) {
+        boolean retry = retryable && entry.attempts() < maxAttempts;
+        long backoffSeconds = (long) retryBackoffSeconds << Math.min(entry.attempts() - 1, 10);
+        Timestamp now = now();
+        int updated = jdbcTemplate.update(FINISH,
+                retry ? Status.QUEUED.name() : Status.FAILED.name(), null, error,
+                Timestamp.valueOf(LocalDateTime.now().plusSeconds(retry ? backoffSeconds : 0)),
+                retry ? null : now, entry.id(), workerId);
+        if (updated == 1) {
+            logger.warn("📬 Execution job {} failed on attempt {}/{}{}: {}", entry.id(), entry.attempts(), maxAttempts,
+                    retry ? ", retrying in " + backoffSeconds + " s" : "", error);
+        }
+    }
+
+    /**
+     * Put a job back without counting the run, e.g. because its worker is shutting down
+     */
+    void release(String id, String workerId) {
+        jdbcTemplate.update(RELEASE, id, workerId);
+    }
+
+    /**
+     * Queue again, or fail, the running jobs whose worker stopped renewing its lease
+     *
+     * @return number of jobs whose lease expired
+     */
+    int requeueExpired() {
+        Timestamp now = now();
+        int expired = jdbcTemplate.update(REQUEUE_EXPIRED, maxAttempts, maxAttempts, now, now, now);
+        if (expired > 0) {
+            logger.warn("📬 Requeued {} execution jobs whose worker stopped responding", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Delete finished jobs after their retention time
+     */
+    int purgeFinished() {
+        return jdbcTemplate.update("DELETE FROM execution_queue WHERE status IN ('DONE', 'FAILED', 'CANCELLED') "
+                + "AND finished_at < ?", Timestamp.valueOf(LocalDateTime.now().minusMinutes(retentionMinutes)));
+    }
+
+    private Entry mapEntry(ResultSet rs) throws SQLException {
+        return new Entry(rs.getString("id"), rs.getString("username"), rs.getLong("task_id"),
+                rs.getString("code"), Status.valueOf(rs.getString("status")), rs.getInt("attempts"),
+                rs.getString("result_json"), rs.getString("error_message"));
+    }
+
+    private GradingResult parseResult(String json) throws ExecutionException {
+        try {
+            return objectMapper.readValue(json, GradingResult.class);
+        } catch (JsonProcessingException e) {
+            throw new ExecutionException("Unreadable execution result", e);
+        }
+    }
+
+    private Timestamp leaseDeadline() {
+        return Timestamp.valueOf(LocalDateTime.now().plusSeconds(leaseSeconds));
+    }
+
+    private static Timestamp now() {
+        return Timestamp.valueOf(LocalDateTime.now());
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    /**
+     * A job as stored in the queue
+     *
+     * @param attempts   runs started so far, including the current one
+     * @param resultJson grading result of a finished job
+     * @param error      failure of the last run, if any
+     */
+    public record Entry(String id, String username, Long taskId, String code, Status status, int attempts,
+                        String resultJson, String error) {
+    }
+}
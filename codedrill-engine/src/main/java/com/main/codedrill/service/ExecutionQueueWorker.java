@@ -0,0 +1,200 @@
+package com.main.codedrill.service;
+
+import com.main.codedrill.model.Task;
+import com.main.codedrill.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs jobs from the {@link ExecutionQueue} on this node. Enabled in the worker process, and optionally on
+ * a web node that should execute queued submissions itself.
+ * <p>
+ * Each thread claims a job only while the local execution scheduler has a free slot and nobody waiting,
+ * so jobs stay in the durable queue, where any worker can take them, until this node can start them right
+ * away. A background thread renews the leases of running jobs and interrupts jobs whose lease was lost
+ * because they were cancelled or requeued. It also requeues jobs of workers that stopped responding and
+ * purges old finished jobs; every worker does this, which is harmless because the updates are idempotent.
+ */
+@Component
+public class ExecutionQueueWorker {
+
+    @Value("${execution.queue.worker.enabled:false}")
+    private boolean enabled;
+
+    @Value("${execution.queue.worker.threads:4}")
+    private int threads;
+
+    @Value("${execution.queue.worker.idle_poll_millis:500}")
+    private long idlePollMillis;
+
+    private final ExecutionQueue queue;
+    private final CodeExecutionService codeExecutionService;
+    private final TaskRepository taskRepository;
+
+    private final String workerId = workerId();
+    // Thread running each job this worker holds
+    private final ConcurrentHashMap<String, Thread> running = new ConcurrentHashMap<>();
+    private ExecutorService runners;
+    private ScheduledExecutorService heartbeat;
+    private volatile boolean stopping;
+
+    private final Logger logger = LoggerFactory.getLogger(ExecutionQueueWorker.class);
+
+    @Autowired
+    public ExecutionQueueWorker(ExecutionQueue queue, CodeExecutionService codeExecutionService,
+                                TaskRepository taskRepository) {
+        this.queue = queue;
+        this.codeExecutionService = codeExecutionService;
+        this.taskRepository = taskRepository;
+    }
+
+    @PostConstruct
+    private void start() {
+        if (!enabled) {
+            return;
+        }
+        if (threads <= 0 || idlePollMillis <= 0) {
+            throw new IllegalArgumentException("Invalid queue worker settings: threads=" + threads
+                    + ", poll=" + idlePollMillis + " ms");
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        runners = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "ExecutionQueue-Worker-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < threads; i++) {
+            runners.submit(this::runJobs);
+        }
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ExecutionQueue-Heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, queue.getLeaseSeconds() / 3);
+        heartbeat.scheduleWithFixedDelay(this::maintainLeases, interval, interval, TimeUnit.SECONDS);
+
+        logger.info("📬 Queue worker {} started with {} threads", workerId, threads);
+    }
+
+    private void runJobs() {
+        while (!stopping) {
+            try {
+                ExecutionQueue.Entry entry = hasCapacity() ? queue.claim(workerId) : null;
+                if (entry == null) {
+                    Thread.sleep(idlePollMillis);
+                    continue;
+                }
+                execute(entry);
+            } catch (InterruptedException e) {
+                if (stopping) {
+                    return;
+                }
+            } catch (Exception e) {
+                logger.warn("📬 Queue worker {} could not claim a job: {}", workerId, e.getMessage());
+                sleepQuietly();
+            }
+        }
+    }
+
+    private boolean hasCapacity() {
+        CodeExecutionService.ExecutionMetrics metrics = codeExecutionService.getExecutionMetrics();
+        return metrics.queued() == 0 && metrics.inFlight() < metrics.limit();
+    }
+
+    private void execute(ExecutionQueue.Entry entry) {
+        running.put(entry.id(), Thread.currentThread());
+        try {
+            Task task = taskRepository.findById(entry.taskId()).orElse(null);
+            if (task == null) {
+                queue.fail(entry, workerId, "Task " + entry.taskId() + " no longer exists", false);
+                return;
+            }
+            GradingResult result = codeExecutionService.gradeTaskAs(entry.username(), task, entry.code());
+            queue.complete(entry.id(), workerId, result);
+
+        } catch (InterruptedException e) {
+            if (stopping) {
+                queue.release(entry.id(), workerId);
+            }
+            // otherwise the lease was lost and the job belongs to someone else now
+        } catch (Exception e) {
+            logger.error("Queued execution {} failed", entry.id(), e);
+            queue.fail(entry, workerId, e.getMessage(), true);
+        } finally {
+            running.remove(entry.id());
+            Thread.interrupted();  // a lost lease may have interrupted the thread after the job finished
+        }
+    }
+
+    private void maintainLeases() {
+        try {
+            running.forEach((id, thread) -> {
+                if (!queue.heartbeat(id, workerId) && running.remove(id, thread)) {
+                    logger.info("📬 Worker {} lost job {}, stopping it", workerId, id);
+                    thread.interrupt();
+                }
+            });
+            queue.requeueExpired();
+            queue.purgeFinished();
+        } catch (Exception e) {
+            logger.warn("📬 Queue maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(idlePollMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String workerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + ManagementFactory.getRuntimeMXBean().getPid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Hand running jobs back to the queue so another worker picks them up without waiting for their lease
+     */
+    @PreDestroy
+    public void stop() {
+        if (runners == null) {
+            return;
+        }
+        stopping = true;
+        heartbeat.shutdownNow();
+        runners.shutdownNow();
+        try {
+            runners.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        running.keySet().forEach(id -> queue.release(id, workerId));
+        logger.info("📬 Queue worker {} stopped", workerId);
+    }
+}
@@ -0,0 +1,251 @@
+package com.main.codedrill.service;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for sandbox executions with per-user fairness.
+ * <p>
+ * At most {@code capacity} executions hold a slot at once. Waiting requests are kept in one FIFO queue per
+ * user and freed slots are handed out round-robin across users, so a student with many pending runs gets
+ * one slot per round while classmates are waiting. Waiters sleep on a condition and are signalled when
+ * their slot is granted. Queues are bounded per user and in total; a waiter that gives up (timeout,
+ * interrupt, client gone) cancels its ticket, which withdraws it from the queue or frees its slot.
+ */
+public class FairShareScheduler {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, ArrayDeque<Ticket>> queues = new LinkedHashMap<>();
+    private final int maxQueuedPerUser;
+    private final int maxQueued;
+
+    private int capacity;
+    private int running = 0;
+    private int queued = 0;
+    private boolean shutdown = false;
+
+    public FairShareScheduler(int capacity, int maxQueuedPerUser, int maxQueued) {
+        if (capacity <= 0 || maxQueuedPerUser <= 0 || maxQueued <= 0) {
+            throw new IllegalArgumentException("Invalid scheduler bounds: capacity=" + capacity
+                    + ", perUser=" + maxQueuedPerUser + ", total=" + maxQueued);
+        }
+        this.capacity = capacity;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * Ask for an execution slot. The ticket is granted immediately if a slot is free and nobody is waiting.
+     *
+     * @throws RejectedExecutionException if the user's queue or the global queue is full
+     */
+    public Ticket enqueue(String user) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new RejectedExecutionException("Scheduler is shut down");
+            }
+
+            Ticket ticket = new Ticket(user);
+            if (running < capacity && queued == 0) {
+                running++;
+                ticket.state = State.GRANTED;
+                return ticket;
+            }
+
+            ArrayDeque<Ticket> queue = queues.get(user);
+            int userQueued = queue == null ? 0 : queue.size();
+            if (userQueued >= maxQueuedPerUser) {
+                throw new RejectedExecutionException("User " + user + " already has " + userQueued + " queued executions");
+            }
+            if (queued >= maxQueued) {
+                throw new RejectedExecutionException("Execution queue is full (" + queued + ")");
+            }
+
+            queues.computeIfAbsent(user, u -> new ArrayDeque<>()).addLast(ticket);
+            queued++;
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Change the number of concurrent slots; waiting tickets are granted right away if it grew
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        lock.lock();
+        try {
+            this.capacity = capacity;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reject new tickets and wake all waiters with a cancellation
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            for (ArrayDeque<Ticket> queue : queues.values()) {
+                for (Ticket ticket : queue) {
+                    ticket.state = State.CANCELLED;
+                    ticket.granted.signalAll();
+                }
+            }
+            queues.clear();
+            queued = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        lock.lock();
+        try {
+            return capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grant free slots round-robin: one ticket from the user at the head of the rotation, who then moves to
+     * the back if more of their tickets are waiting. Must be called with the lock held.
+     */
+    private void dispatch() {
+        while (running < capacity && queued > 0) {
+            Iterator<Map.Entry<String, ArrayDeque<Ticket>>> users = queues.entrySet().iterator();
+            Map.Entry<String, ArrayDeque<Ticket>> next = users.next();
+            users.remove();
+
+            Ticket ticket = next.getValue().pollFirst();
+            if (!next.getValue().isEmpty()) {
+                queues.put(next.getKey(), next.getValue());
+            }
+
+            queued--;
+            running++;
+            ticket.state = State.GRANTED;
+            ticket.granted.signalAll();
+        }
+    }
+
+    private enum State {
+        QUEUED, GRANTED, DONE, CANCELLED
+    }
+
+    /**
+     * A request for one execution slot. Every ticket must end with {@link #release()} or {@link #cancel()}.
+     */
+    public final class Ticket {
+        private final String user;
+        private final Condition granted = lock.newCondition();
+        private State state = State.QUEUED;
+
+        private Ticket(String user) {
+            this.user = user;
+        }
+
+        /**
+         * Wait until the slot is granted. The ticket is cancelled if the wait times out or is interrupted.
+         *
+         * @return {@code true} if the caller now holds a slot and must {@link #release()} it
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            lock.lock();
+            try {
+                long remaining = unit.toNanos(timeout);
+                while (state == State.QUEUED) {
+                    if (remaining <= 0) {
+                        withdraw();
+                        return false;
+                    }
+                    remaining = granted.awaitNanos(remaining);
+                }
+                return state == State.GRANTED;
+            } catch (InterruptedException e) {
+                withdraw();
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Give the slot back after the execution finished
+         */
+        public void release() {
+            cancel();
+        }
+
+        /**
+         * Withdraw a waiting ticket or free a granted slot; does nothing if the ticket is already finished
+         */
+        public void cancel() {
+            lock.lock();
+            try {
+                withdraw();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public boolean isGranted() {
+            lock.lock();
+            try {
+                return state == State.GRANTED;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void withdraw() {
+            if (state == State.QUEUED) {
+                ArrayDeque<Ticket> queue = queues.get(user);
+                if (queue != null && queue.remove(this)) {
+                    queued--;
+                    if (queue.isEmpty()) {
+                        queues.remove(user);
+                    }
+                }
+                state = State.CANCELLED;
+                granted.signalAll();
+            } else if (state == State.GRANTED) {
+                state = State.DONE;
+                running--;
+                dispatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.main.codedrill.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deterministic stand-in for a sandbox that runs nothing: it answers every payload with a fixed output
+ * after a configurable latency. Used when Docker is disabled, and to benchmark admission, host compilation
+ * and result handling without the cost of real executions.
+ */
+@Component
+public class FakeExecutionBackend implements ExecutionBackend {
+
+    static final String NAME = "fake";
+
+    static final String RUN_OUTPUT = "✅ Code executed successfully (fake execution backend)";
+    static final String TEST_REPORT = "===TEST_REPORT=== " + Base64.getEncoder().encodeToString(new TestReport(true,
+            "✅ Simulated test execution (fake execution backend)", 1, 0, 0, 1, true, null, 0, null, 1, 0, 0, null,
+            null).encode());
+
+    @Value("${execution.fake.latency_millis:0}")
+    private long latencyMillis;
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean usesDocker() {
+        return false;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public Sandbox start(SandboxRequest request) {
+        return new FakeSandbox(ProcessOutput.completed(respond(request.stdin()), "", request.outputLimits(),
+                request.liveOutput()));
+    }
+
+    /**
+     * What the entrypoint would print for the payload if every submission succeeded
+     */
+    static String respond(String payload) {
+        String firstLine = payload.lines().findFirst().orElse("");
+        return switch (firstLine) {
+            case "===BYTECODE===" -> RUN_OUTPUT + "\n";
+            case "===JUNIT_BYTECODE===" -> TEST_REPORT + "\n";
+            case "===GRADE_BYTECODE===" -> RUN_OUTPUT + "\n\n" + header(payload, "REPORT") + "\n" + TEST_REPORT + "\n";
+            case "===CASES_BYTECODE===" -> caseReport(payload) + "\n";
+            default -> payload.contains("===STUDENT_CODE===") ? TEST_REPORT + "\n" : printedLiterals(payload);
+        };
+    }
+
+    /**
+     * A report in which every case of the payload ran and printed nothing
+     */
+    private static String caseReport(String payload) {
+        int caseCount = (int) payload.lines().filter(line -> line.startsWith("CASE ")).count();
+        CaseReport.Case ok = new CaseReport.Case(CaseReport.Status.OK, "", "", 0);
+        return "===CASE_REPORT=== " + Base64.getEncoder().encodeToString(
+                new CaseReport(null, Collections.nCopies(caseCount, ok), 0).encode());
+    }
+
+    private static String header(String payload, String name) {
+        return payload.lines()
+                .filter(line -> line.startsWith(name + " "))
+                .map(line -> line.substring(name.length() + 1))
+                .findFirst()
+                .orElse("");
+    }
+
+    /**
+     * The string literals of the source's print statements, for submissions that were not compiled on the host
+     */
+    private static String printedLiterals(String code) {
+        StringBuilder output = new StringBuilder();
+        for (String line : code.split("\n")) {
+            if (line.contains("System.out.print")) {
+                int startIndex = line.indexOf("(\"") + 2;
+                int endIndex = line.lastIndexOf("\")");
+                if (startIndex > 1 && endIndex > startIndex) {
+                    output.append(line, startIndex, endIndex);
+                    if (line.contains("println")) {
+                        output.append("\n");
+                    }
+                }
+            }
+        }
+        return !output.isEmpty() ? output.toString() : RUN_OUTPUT;
+    }
+
+    private final class FakeSandbox implements Sandbox {
+        private final ProcessOutput output;
+        private final long startedAt = System.nanoTime();
+
+        FakeSandbox(ProcessOutput output) {
+            this.output = output;
+        }
+
+        @Override
+        public ProcessOutput output() {
+            return output;
+        }
+
+        @Override
+        public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+            long remainingNanos = startedAt + TimeUnit.MILLISECONDS.toNanos(latencyMillis) - System.nanoTime();
+            if (remainingNanos > unit.toNanos(timeout)) {
+                unit.sleep(timeout);
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(remainingNanos);
+            return true;
+        }
+
+        @Override
+        public boolean oomKilled() {
+            return false;
+        }
+
+        @Override
+        public void kill() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
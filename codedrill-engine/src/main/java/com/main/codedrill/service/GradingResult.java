@@ -0,0 +1,80 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+
+import java.util.List;
+
+/**
+ * Outcome of grading a submission against a task in one sandbox session.
+ *
+ * @param output      what the submission's {@code main} method printed, or the compilation, runtime,
+ *                    timeout or security message that replaced it
+ * @param testReport  outcome of the JUnit tests, or {@code null} if the tests were not run because the task
+ *                    has none or the submission was blocked
+ * @param caseReport  outcome of the task's input/output cases, or {@code null} if the task has none
+ * @param status      how the run and the tests ended, as seen by the host; {@link Status#COMPLETED} for
+ *                    results stored before it was recorded
+ */
+public record GradingResult(String output, @JsonAlias("testResults") TestReport testReport, CaseReport caseReport,
+                            Status status) {
+
+    /**
+     * {@code COMPLETED}: the submission ran, or failed to compile, crashed or exceeded a limit on its own;
+     * {@code BLOCKED}: the security analysis stopped the submission or the tests, or could not decide;
+     * {@code TIMEOUT}: the sandbox stopped the run or the tests at their time limit;
+     * {@code OVERLOADED}: not run because the queue was full or no execution slot was granted in time
+     */
+    public enum Status {
+        COMPLETED, BLOCKED, TIMEOUT, OVERLOADED
+    }
+
+    public GradingResult {
+        status = status != null ? status : Status.COMPLETED;
+    }
+
+    public GradingResult(String output, TestReport testReport) {
+        this(output, testReport, null, Status.COMPLETED);
+    }
+
+    public GradingResult(String output, TestReport testReport, Status status) {
+        this(output, testReport, null, status);
+    }
+
+    public GradingResult withCaseReport(CaseReport caseReport) {
+        return new GradingResult(output, testReport, caseReport, status);
+    }
+
+    /**
+     * This result with the report of tests that ran separately; a timeout of the tests is a timeout of the
+     * result unless the run already ended otherwise
+     */
+    public GradingResult withTestReport(TestReport testReport) {
+        Status combined = status == Status.COMPLETED && testReport != null && testReport.timedOut()
+                ? Status.TIMEOUT
+                : status;
+        return new GradingResult(output, testReport, caseReport, combined);
+    }
+
+    public boolean testsRun() {
+        return testReport != null;
+    }
+
+    public boolean casesRun() {
+        return caseReport != null;
+    }
+
+    /**
+     * Whether all tests passed, or no tests were run
+     */
+    public boolean testsPassed() {
+        return !testsRun() || testReport.allTestsPassed();
+    }
+
+    /**
+     * Whether the submission solves the task, given how its output and the output of each input/output case
+     * compared with the expected ones
+     */
+    public boolean isCorrect(OutputComparator.Verdict output, List<OutputComparator.CaseVerdict> cases) {
+        return output.matches() && testsPassed() && cases.stream().allMatch(OutputComparator.CaseVerdict::passed);
+    }
+}
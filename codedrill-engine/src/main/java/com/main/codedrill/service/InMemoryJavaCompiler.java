@@ -0,0 +1,401 @@
+package com.main.codedrill.service;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compiles submissions on the host with {@link JavaCompiler} and an in-memory {@link JavaFileManager}.
+ * <p>
+ * Compile errors are rejected before a sandbox is ever requested, and successful compilations produce
+ * bytecode that is shipped to the container instead of source. If the web application runs on a JRE
+ * (no system compiler) or the JUnit API cannot be located, callers fall back to in-container javac.
+ * Results, including failed compilations, are memoized in the {@link CompilationCache}.
+ * <p>
+ * Every compilation also runs the {@link SubmissionTreeAnalyzer} on the syntax trees javac parsed, before
+ * it goes on to attribute and generate them from the same trees, so analysis costs no second parse.
+ * <p>
+ * javac runs on a small fixed pool of compiler threads, not on the request thread: oversized sources are
+ * rejected before javac sees them, and a compilation that does not finish within the time limit, waiting
+ * for a compiler thread included, is reported as a compile error and left to finish without its caller.
+ */
+@Component
+public class InMemoryJavaCompiler {
+
+    private static final Pattern PUBLIC_CLASS_PATTERN =
+            Pattern.compile("public\\s+(?:(?:final|abstract)\\s+)*class\\s+([A-Za-z_$][A-Za-z0-9_$]*)");
+
+    // Classes whose jars are needed to compile JUnit 5 tests
+    private static final List<String> JUNIT_MARKER_CLASSES = List.of(
+            "org.junit.jupiter.api.Test",
+            "org.junit.platform.commons.annotation.Testable",
+            "org.opentest4j.AssertionFailedError",
+            "org.apiguardian.api.API"
+    );
+
+    @Value("${compiler.host_enabled:true}")
+    private boolean hostCompilationEnabled;
+
+    @Value("${compiler.release:17}")
+    private String release;
+
+    @Value("${compiler.junit_classpath:}")
+    private String configuredJUnitClasspath;
+
+    @Value("${compiler.max_source_bytes:262144}")
+    private int maxSourceBytes;
+
+    @Value("${compiler.threads:2}")
+    private int compilerThreads;
+
+    @Value("${compiler.timeout_seconds:15}")
+    private long timeoutSeconds;
+
+    private final CompilationCache cache;
+    private final SubmissionTreeAnalyzer treeAnalyzer;
+    private JavaCompiler compiler;
+    private String junitClasspath;
+    private ExecutorService executor;
+
+    private final Logger logger = LoggerFactory.getLogger(InMemoryJavaCompiler.class);
+
+    @Autowired
+    public InMemoryJavaCompiler(CompilationCache cache, SubmissionTreeAnalyzer treeAnalyzer) {
+        this.cache = cache;
+        this.treeAnalyzer = treeAnalyzer;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        if (maxSourceBytes <= 0 || compilerThreads <= 0 || timeoutSeconds <= 0) {
+            throw new IllegalArgumentException("Invalid host compiler bounds: max_source_bytes=" + maxSourceBytes
+                    + ", threads=" + compilerThreads + ", timeout_seconds=" + timeoutSeconds);
+        }
+        if (!hostCompilationEnabled) {
+            logger.info("🔨 Host-side compilation DISABLED");
+            return;
+        }
+
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            logger.warn("🔨 No system Java compiler available (running on a JRE?), compiling inside the sandbox");
+            return;
+        }
+
+        junitClasspath = configuredJUnitClasspath.isBlank()
+                ? detectJUnitClasspath()
+                : expandClasspath(configuredJUnitClasspath);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(compilerThreads, r -> {
+            Thread t = new Thread(r, "HostCompiler-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        logger.info("🔨 Host-side compilation ENABLED (release {}, {} threads, {}s limit), JUnit classpath {}",
+                release, compilerThreads, timeoutSeconds,
+                junitClasspath != null ? "resolved" : "NOT resolved - tests compile inside the sandbox");
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isAvailable() {
+        return compiler != null;
+    }
+
+    public boolean isJUnitAvailable() {
+        return compiler != null && junitClasspath != null;
+    }
+
+    public String getRelease() {
+        return release;
+    }
+
+    /**
+     * Compile a set of compilation units entirely in memory.
+     *
+     * @param sources   source code keyed by file name, e.g. {@code Solution.java}
+     * @param withJUnit whether the JUnit API must be on the classpath
+     */
+    public CompilationResult compile(Map<String, String> sources, boolean withJUnit) {
+        if (!isAvailable() || (withJUnit && !isJUnitAvailable())) {
+            throw new IllegalStateException("Host-side compilation is not available");
+        }
+
+        List<CompilationDiagnostic> oversized = new ArrayList<>();
+        sources.forEach((fileName, source) -> {
+            if (source.getBytes(StandardCharsets.UTF_8).length > maxSourceBytes) {
+                oversized.add(new CompilationDiagnostic(fileName, -1, -1,
+                        "source file is larger than " + maxSourceBytes + " bytes"));
+            }
+        });
+        if (!oversized.isEmpty()) {
+            return CompilationResult.failure(oversized);
+        }
+
+        List<String> options = new ArrayList<>(List.of(
+                "--release", release,
+                "-proc:none",            // never run annotation processors on untrusted input
+                "-g:source,lines",
+                "-Xlint:none",
+                "-encoding", "UTF-8"
+        ));
+        if (withJUnit) {
+            options.add("-classpath");
+            options.add(junitClasspath);
+        }
+
+        List<String> keyParts = new ArrayList<>(options);
+        keyParts.add(treeAnalyzer.fingerprint());
+        String cacheKey = CompilationCache.key(sources, keyParts);
+        CompilationResult cached = cache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompilationResult result = compileBounded(sources, options);
+        if (!result.timedOut()) {
+            cache.put(cacheKey, result);
+        }
+        return result;
+    }
+
+    public CompilationCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Compile on the compiler pool and wait at most the time limit. javac does not react to interrupts, so a
+     * compilation that runs over keeps its thread until it ends; one still waiting for a thread never starts.
+     */
+    private CompilationResult compileBounded(Map<String, String> sources, List<String> options) {
+        Future<CompilationResult> future = executor.submit(() -> compileUncached(sources, options));
+        try {
+            return future.get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("🔨 Compilation of {} did not finish within {}s", sources.keySet(), timeoutSeconds);
+            return CompilationResult.timeout(sources.keySet(),
+                    "compilation took longer than " + timeoutSeconds + " seconds");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the host compiler", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("In-memory compilation failed", e.getCause());
+        }
+    }
+
+    private CompilationResult compileUncached(Map<String, String> sources, List<String> options) {
+        List<JavaFileObject> units = new ArrayList<>();
+        sources.forEach((fileName, source) -> units.add(new SourceFile(fileName, source)));
+
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        StandardJavaFileManager standardFileManager =
+                compiler.getStandardFileManager(collector, Locale.ENGLISH, StandardCharsets.UTF_8);
+
+        try (MemoryFileManager fileManager = new MemoryFileManager(standardFileManager)) {
+            JavacTask task = (JavacTask) compiler.getTask(null, fileManager, collector, options, null, units);
+            Map<String, MaliciousCodeDetector.MaliciousCodeResult> analysis = analyze(task, task.parse());
+            task.generate();  // continues from the parsed trees
+
+            List<CompilationDiagnostic> errors = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    errors.add(toCompilationDiagnostic(diagnostic));
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                return CompilationResult.failure(errors).withAnalysis(analysis);
+            }
+            return CompilationResult.success(fileManager.getClassFiles()).withAnalysis(analysis);
+
+        } catch (IOException e) {
+            throw new IllegalStateException("In-memory compilation failed", e);
+        }
+    }
+
+    private Map<String, MaliciousCodeDetector.MaliciousCodeResult> analyze(JavacTask task,
+                                                                          Iterable<? extends CompilationUnitTree> units) {
+        SourcePositions positions = Trees.instance(task).getSourcePositions();
+        Map<String, MaliciousCodeDetector.MaliciousCodeResult> analysis = new LinkedHashMap<>();
+        for (CompilationUnitTree unit : units) {
+            if (unit.getSourceFile() instanceof SourceFile file) {
+                try {
+                    analysis.put(file.fileName, treeAnalyzer.analyze(unit, positions));
+                } catch (RuntimeException | StackOverflowError e) {
+                    logger.warn("🔨 Syntax tree analysis of {} failed: {}", file.fileName, e.toString());
+                    analysis.put(file.fileName, new MaliciousCodeDetector.MaliciousCodeResult(true,
+                            MaliciousCodeDetector.RiskLevel.HIGH, "Syntax tree analysis failed; "));
+                }
+            }
+        }
+        return analysis;
+    }
+
+    /**
+     * Name of the first public top-level class in the source, or the fallback if there is none
+     */
+    public static String publicClassName(String source, String fallback) {
+        if (source == null) {
+            return fallback;
+        }
+        Matcher matcher = PUBLIC_CLASS_PATTERN.matcher(source);
+        return matcher.find() ? matcher.group(1) : fallback;
+    }
+
+    private CompilationDiagnostic toCompilationDiagnostic(Diagnostic<? extends JavaFileObject> diagnostic) {
+        String file = diagnostic.getSource() instanceof SourceFile sourceFile
+                ? sourceFile.fileName
+                : "unknown";
+        return new CompilationDiagnostic(file,
+                diagnostic.getLineNumber(),
+                diagnostic.getColumnNumber(),
+                diagnostic.getMessage(Locale.ENGLISH));
+    }
+
+    private String detectJUnitClasspath() {
+        Set<String> entries = new LinkedHashSet<>();
+        for (String className : JUNIT_MARKER_CLASSES) {
+            try {
+                URL location = Class.forName(className).getProtectionDomain().getCodeSource().getLocation();
+                if (location == null || !"file".equals(location.getProtocol())) {
+                    // Nested jar inside a Spring Boot fat jar - javac cannot read it
+                    return null;
+                }
+                entries.add(Paths.get(location.toURI()).toString());
+            } catch (Exception e) {
+                logger.debug("Could not locate {} for the JUnit compile classpath", className, e);
+                return null;
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    /**
+     * Expand {@code dir/*} entries the same way the java launcher does
+     */
+    private String expandClasspath(String classpath) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            if (entry.endsWith("*")) {
+                Path dir = Paths.get(entry.substring(0, entry.length() - 1));
+                try (Stream<Path> jars = Files.list(dir)) {
+                    jars.filter(p -> p.toString().endsWith(".jar")).forEach(p -> entries.add(p.toString()));
+                } catch (IOException e) {
+                    logger.warn("Could not expand classpath entry {}", entry);
+                }
+            } else if (!entry.isBlank()) {
+                entries.add(entry);
+            }
+        }
+        return entries.isEmpty() ? null : String.join(File.pathSeparator, entries);
+    }
+
+    private static class SourceFile extends SimpleJavaFileObject {
+        private final String fileName;
+        private final String source;
+
+        SourceFile(String fileName, String source) {
+            super(URI.create("string:///" + fileName), Kind.SOURCE);
+            this.fileName = fileName;
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static class ClassFile extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ClassFile> classFiles = new LinkedHashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFile classFile = new ClassFile(className);
+            classFiles.put(className, classFile);
+            return classFile;
+        }
+
+        Map<String, byte[]> getClassFiles() {
+            Map<String, byte[]> result = new LinkedHashMap<>();
+            classFiles.forEach((name, file) -> result.put(name, file.bytes.toByteArray()));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.main.codedrill.service;
+
+import java.util.ArrayDeque;
+
+/**
+ * Single pass over Java source for {@link MaliciousCodeDetector}. Comments are dropped, and the rest is
+ * turned into a lower-case canonical text with one space between tokens, except around the dot of a member
+ * access, which joins its operands ({@code System . exit} and {@code System/**}{@code /.exit} both become
+ * {@code system.exit}). An empty argument list followed by a dot is left out, so a call chain like
+ * {@code Runtime.getRuntime().exec(} reads {@code runtime.getruntime.exec (}. String and char literals are
+ * replaced by a quote token; the contents of string literals are collected separately. Unicode escapes are
+ * translated first, as javac does.
+ * <p>
+ * The same pass records the structural facts the detector's heuristics need, so no pattern ever has to
+ * look at more than one token: the deepest loop nesting, the largest array dimension and list capacity
+ * written as a decimal constant, and whether a string literal contains a {@code \x} hex escape.
+ */
+final class JavaTokenizer {
+
+    /**
+     * @param code              canonical text
+     * @param literals          lower-case contents of the string literals, one per line
+     * @param maxLoopNesting    deepest nesting of {@code for}, {@code while} and {@code do} loops
+     * @param largestArrayDigits digits of the largest constant in {@code new T[...]}, 0 if none
+     * @param largestListDigits digits of the largest constant in {@code new ArrayList(...)}, 0 if none
+     * @param hexEscapes        whether a string literal contains a {@code \x} escape
+     */
+    record Scan(String code, String literals, int maxLoopNesting, int largestArrayDigits,
+                int largestListDigits, boolean hexEscapes) {
+    }
+
+    private final String source;
+    private int pos;
+
+    private final StringBuilder code;
+    private final StringBuilder literals = new StringBuilder();
+    private boolean joinNext;  // the last token was a member access dot
+
+    // The last three tokens, qualified names as their last segment
+    private String last1 = "";
+    private String last2 = "";
+    private String last3 = "";
+
+    // 1 after an ArrayList type, 2 once its argument list opened
+    private int listConstructor;
+
+    private int parenDepth;
+    private int pendingLoops;  // loop keywords whose body has not started yet
+    private int loopDepth;
+    private final ArrayDeque<Integer> braces = new ArrayDeque<>();  // loops opened by each open brace
+
+    private int maxLoopNesting;
+    private int largestArrayDigits;
+    private int largestListDigits;
+    private boolean hexEscapes;
+
+    private JavaTokenizer(String source) {
+        this.source = source;
+        this.code = new StringBuilder(source.length());
+    }
+
+    static Scan scan(String source) {
+        return new JavaTokenizer(translateUnicodeEscapes(source)).run();
+    }
+
+    /**
+     * Replace Unicode escapes the way javac does before it reads any token, so that they cannot hide a
+     * name
+     */
+    private static String translateUnicodeEscapes(String source) {
+        if (source.indexOf("\\u") < 0) {
+            return source;
+        }
+        StringBuilder out = new StringBuilder(source.length());
+        int length = source.length();
+        int backslashes = 0;
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '\\' && backslashes % 2 == 0 && i + 1 < length && source.charAt(i + 1) == 'u') {
+                int hex = i + 1;
+                while (hex < length && source.charAt(hex) == 'u') {
+                    hex++;
+                }
+                if (hex + 4 <= length && isHex(source, hex, 4)) {
+                    out.append((char) Integer.parseInt(source, hex, hex + 4, 16));
+                    i = hex + 4;
+                    backslashes = 0;
+                    continue;
+                }
+            }
+            backslashes = c == '\\' ? backslashes + 1 : 0;
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    private static boolean isHex(String source, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            if (Character.digit(source.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Scan run() {
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            char next = pos + 1 < length ? source.charAt(pos + 1) : '\0';
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '/' && next == '/') {
+                int end = source.indexOf('\n', pos);
+                pos = end < 0 ? length : end + 1;
+            } else if (c == '/' && next == '*') {
+                int end = source.indexOf("*/", pos + 2);
+                pos = end < 0 ? length : end + 2;
+            } else if (c == '"') {
+                stringLiteral();
+            } else if (c == '\'') {
+                charLiteral();
+            } else if (Character.isJavaIdentifierStart(c)) {
+                identifier();
+            } else if (isDigit(c) || (c == '.' && isDigit(next))) {
+                number();
+            } else if (c == '@' && Character.isJavaIdentifierStart(next)) {
+                pos++;
+                token("@" + readIdentifier());
+            } else if (c == '.' && source.startsWith("...", pos)) {
+                pos += 3;
+                token("...");
+            } else if (c == '.') {
+                pos++;
+                memberAccess();
+            } else {
+                pos++;
+                punctuation(c);
+            }
+        }
+        maxLoopNesting = Math.max(maxLoopNesting, loopDepth + pendingLoops);
+        return new Scan(code.toString(), literals.toString(), maxLoopNesting, largestArrayDigits,
+                largestListDigits, hexEscapes);
+    }
+
+    private void stringLiteral() {
+        boolean textBlock = source.startsWith("\"\"\"", pos);
+        pos += textBlock ? 3 : 1;
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == '\\') {
+                hexEscapes |= isHexEscape(pos + 1) || (pos + 2 < length && source.charAt(pos + 1) == '\\' && isHexEscape(pos + 2));
+                appendLiteral(c);
+                if (pos + 1 < length) {
+                    appendLiteral(source.charAt(pos + 1));
+                }
+                pos += 2;
+            } else if (textBlock ? source.startsWith("\"\"\"", pos) : c == '"') {
+                pos += textBlock ? 3 : 1;
+                break;
+            } else if (!textBlock && c == '\n') {
+                break;  // unterminated, javac rejects it anyway
+            } else {
+                appendLiteral(c);
+                pos++;
+            }
+        }
+        literals.append('\n');
+        token("\"");
+    }
+
+    private void charLiteral() {
+        pos++;
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else {
+                pos++;
+                if (c == '\'' || c == '\n') {
+                    break;
+                }
+            }
+        }
+        token("'");
+    }
+
+    private void identifier() {
+        String word = readIdentifier();
+        token(word);
+        if (word.equals("for") || word.equals("while") || word.equals("do")) {
+            pendingLoops++;
+        }
+    }
+
+    private String readIdentifier() {
+        int start = pos;
+        while (pos < source.length() && Character.isJavaIdentifierPart(source.charAt(pos))) {
+            pos++;
+        }
+        return source.substring(start, pos).toLowerCase();
+    }
+
+    private void number() {
+        int start = pos;
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (Character.isLetterOrDigit(c) || c == '_'
+                    || (c == '.' && pos + 1 < length && isDigit(source.charAt(pos + 1)))) {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String number = source.substring(start, pos).toLowerCase();
+
+        int digits = decimalDigits(number);
+        if (digits > 0 && last1.equals("[") && last3.equals("new")) {
+            largestArrayDigits = Math.max(largestArrayDigits, digits);
+        }
+        if (digits > 0 && last1.equals("(") && listConstructor == 2) {
+            largestListDigits = Math.max(largestListDigits, digits);
+        }
+        token(number);
+    }
+
+    private void memberAccess() {
+        int length = code.length();
+        if (length >= 3 && code.charAt(length - 1) == ')' && code.charAt(length - 2) == ' ' && code.charAt(length - 3) == '(') {
+            code.setLength(length >= 4 && code.charAt(length - 4) == ' ' ? length - 4 : length - 3);
+        }
+        code.append('.');
+        joinNext = true;
+    }
+
+    private void punctuation(char c) {
+        switch (c) {
+            case '(' -> parenDepth++;
+            case ')' -> parenDepth = Math.max(0, parenDepth - 1);
+            case '{' -> {
+                braces.push(pendingLoops);
+                loopDepth += pendingLoops;
+                maxLoopNesting = Math.max(maxLoopNesting, loopDepth);
+                pendingLoops = 0;
+            }
+            case '}' -> {
+                if (!braces.isEmpty()) {
+                    loopDepth -= braces.pop();
+                }
+            }
+            case ';' -> {
+                // End of a loop whose body is a single statement, or of a do-while condition
+                if (parenDepth == 0 && pendingLoops > 0) {
+                    maxLoopNesting = Math.max(maxLoopNesting, loopDepth + pendingLoops);
+                    pendingLoops = 0;
+                }
+            }
+            default -> {
+            }
+        }
+        token(String.valueOf(c));
+    }
+
+    private void token(String token) {
+        if (joinNext && Character.isJavaIdentifierStart(token.charAt(0))) {
+            last1 = token;  // last segment of a qualified name
+        } else {
+            last3 = last2;
+            last2 = last1;
+            last1 = token;
+            if (!joinNext && !code.isEmpty()) {
+                code.append(' ');
+            }
+        }
+        code.append(token);
+        joinNext = false;
+
+        if (last1.endsWith("arraylist")) {
+            listConstructor = 1;
+        } else if (token.equals("(")) {
+            listConstructor = listConstructor == 1 ? 2 : 0;
+        } else if (!token.equals("<") && !token.equals(">") && !token.equals(",") && !token.equals("?")
+                && !Character.isJavaIdentifierStart(token.charAt(0))) {
+            listConstructor = 0;  // type arguments keep it
+        }
+    }
+
+    private void appendLiteral(char c) {
+        literals.append(c == '\n' ? ' ' : Character.toLowerCase(c));
+    }
+
+    private boolean isHexEscape(int index) {
+        return index + 2 < source.length() && source.charAt(index) == 'x'
+                && isHex(source, index + 1, 2);
+    }
+
+    /**
+     * Number of digits of a decimal integer constant, 0 for any other number
+     */
+    private static int decimalDigits(String number) {
+        int digits = 0;
+        for (int i = 0; i < number.length(); i++) {
+            char c = number.charAt(i);
+            if (isDigit(c)) {
+                digits++;
+            } else if (c != '_' && !(i == number.length() - 1 && c == 'l')) {
+                return 0;
+            }
+        }
+        return digits;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,166 @@
+package com.main.codedrill.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Output of one execution as it is produced, for live viewers.
+ * <p>
+ * Producers append stdout and stderr chunks and never block: everything up to {@code maxBytes} is kept so
+ * that late subscribers can replay it, and the rest is dropped and flagged as truncated. Subscribers are
+ * notified when something new is available and pull whatever accumulated since their last poll, so a slow
+ * consumer receives fewer, larger chunks instead of slowing down the execution.
+ */
+public class LiveOutput {
+
+    public enum Stream {
+        STDOUT, STDERR
+    }
+
+    private final int maxBytes;
+    private final ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private long dropped = 0;
+    private boolean closed = false;
+
+    public LiveOutput(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void append(Stream stream, byte[] bytes, int offset, int length) {
+        synchronized (this) {
+            if (closed || length == 0) {
+                return;
+            }
+            boolean alreadyTruncated = dropped > 0;
+            int accepted = Math.max(0, Math.min(length, maxBytes - stdout.size() - stderr.size()));
+            (stream == Stream.STDOUT ? stdout : stderr).write(bytes, offset, accepted);
+            dropped += length - accepted;
+            if (accepted == 0 && alreadyTruncated) {
+                return;  // subscribers already know about the truncation
+            }
+        }
+        notifySubscribers();
+    }
+
+    public void append(Stream stream, byte[] bytes) {
+        append(stream, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Mark the output as complete; subscribers get a last notification
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        notifySubscribers();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Follow the output from the beginning
+     *
+     * @param onAvailable called from producer threads when new output arrived or the output was closed;
+     *                    must not block
+     */
+    public Subscription subscribe(Runnable onAvailable) {
+        Subscription subscription = new Subscription(onAvailable);
+        subscriptions.add(subscription);
+        onAvailable.run();
+        return subscription;
+    }
+
+    private void notifySubscribers() {
+        for (Subscription subscription : subscriptions) {
+            subscription.onAvailable.run();
+        }
+    }
+
+    /**
+     * End of the longest part of {@code bytes[start, end)} that does not stop inside a UTF-8 sequence
+     */
+    static int utf8Boundary(byte[] bytes, int start, int end) {
+        for (int i = end - 1; i >= Math.max(start, end - 3); i--) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                return end;
+            }
+            if (b >= 0xC0) {
+                int sequenceLength = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                return i + sequenceLength <= end ? end : i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * What a subscriber has not seen yet
+     *
+     * @param truncated whether output was dropped because the byte limit was reached
+     * @param finished  whether this is the last chunk
+     */
+    public record Chunk(String stdout, String stderr, boolean truncated, boolean finished) {
+
+        public boolean hasOutput() {
+            return !stdout.isEmpty() || !stderr.isEmpty();
+        }
+    }
+
+    public final class Subscription {
+        private final Runnable onAvailable;
+        private int stdoutPosition = 0;
+        private int stderrPosition = 0;
+        private boolean reportedTruncation = false;
+        private boolean finished = false;
+
+        private Subscription(Runnable onAvailable) {
+            this.onAvailable = onAvailable;
+        }
+
+        /**
+         * @return the output since the last poll, or {@code null} if there is nothing new
+         */
+        public Chunk poll() {
+            synchronized (LiveOutput.this) {
+                if (finished) {
+                    return null;
+                }
+
+                byte[] out = stdout.toByteArray();
+                byte[] err = stderr.toByteArray();
+                // Keep an incomplete UTF-8 sequence for the next poll unless no more bytes can follow
+                int outEnd = closed ? out.length : utf8Boundary(out, stdoutPosition, out.length);
+                int errEnd = closed ? err.length : utf8Boundary(err, stderrPosition, err.length);
+                boolean truncation = dropped > 0 && !reportedTruncation;
+
+                if (outEnd == stdoutPosition && errEnd == stderrPosition && !truncation && !closed) {
+                    return null;
+                }
+
+                Chunk chunk = new Chunk(
+                        new String(out, stdoutPosition, outEnd - stdoutPosition, StandardCharsets.UTF_8),
+                        new String(err, stderrPosition, errEnd - stderrPosition, StandardCharsets.UTF_8),
+                        truncation, closed);
+                stdoutPosition = outEnd;
+                stderrPosition = errEnd;
+                reportedTruncation |= truncation;
+                finished = closed;
+                return chunk;
+            }
+        }
+
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.main.codedrill.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Runs the runner image's entrypoint script as a local process in a scratch directory, for benchmarks and
+ * integration tests on machines without a Docker daemon. Submissions see the same payload protocol and
+ * produce the same output as in a container, so backend latencies compare like for like.
+ * <p>
+ * This is not a security boundary: there is no network or file system isolation, only the JVM heap
+ * limit and the ulimits that apply to a single process tree (open files, file size, core dumps, CPU
+ * time, stack and address space). {@code nproc} is skipped because it counts all processes of the user.
+ */
+@Component
+public class LocalProcessExecutionBackend implements ExecutionBackend {
+
+    static final String NAME = "local";
+
+    // ulimit option of each limit, and whether bash takes its value in KiB rather than as given
+    private static final Map<String, String> ULIMIT_OPTIONS = Map.of(
+            "nofile", "-n", "core", "-c", "cpu", "-t", "fsize", "-f", "stack", "-s", "as", "-v");
+    private static final List<String> KIB_ULIMITS = List.of("fsize", "stack", "as");
+
+    @Value("${execution.local.entrypoint:docker-entrypoint.sh}")
+    private String entrypoint;
+
+    // Sandbox jar with the test harness, as built by Dockerfile.coderunner
+    @Value("${execution.local.harness_jar:}")
+    private String harnessJar;
+
+    // Class path of the JUnit platform and Jackson, e.g. a directory of jars as /opt/junit/*
+    @Value("${execution.local.classpath:}")
+    private String junitClasspath;
+
+    private final Logger logger = LoggerFactory.getLogger(LocalProcessExecutionBackend.class);
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public boolean usesDocker() {
+        return false;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return Files.isRegularFile(Paths.get(entrypoint));
+    }
+
+    @Override
+    public Sandbox start(SandboxRequest request) throws IOException {
+        Path workDir = Files.createTempDirectory(request.name() + "-");
+
+        try {
+            ProcessBuilder builder = new ProcessBuilder("bash", "-c", ulimitScript(request.limits()) + "exec bash \"$0\"",
+                    Paths.get(entrypoint).toAbsolutePath().toString())
+                    .directory(workDir.toFile());
+
+            Map<String, String> env = builder.environment();
+            for (String variable : request.limits().env()) {
+                int separator = variable.indexOf('=');
+                env.put(variable.substring(0, separator), variable.substring(separator + 1));
+            }
+            env.put("MEMORY_LIMIT", Math.max(16, request.limits().memoryBytes() * 2 / 3 / 1024 / 1024) + "m");
+            env.put("TIMEOUT", String.valueOf(request.timeoutSeconds()));
+            env.put("HARNESS_JAR", harnessJar);
+            env.put("JUNIT_CLASSPATH", junitClasspath);
+
+            Process process = builder.start();
+            ProcessOutput output = ProcessOutput.collect(process, request.outputLimits(), request.liveOutput(),
+                    () -> destroyTree(process));
+            try (OutputStream stdin = process.getOutputStream()) {
+                stdin.write(request.stdin().getBytes(StandardCharsets.UTF_8));
+            }
+            return new LocalSandbox(process, output, workDir);
+        } catch (IOException | RuntimeException e) {
+            deleteRecursively(workDir);
+            throw e;
+        }
+    }
+
+    private static String ulimitScript(SandboxLimits limits) {
+        StringBuilder script = new StringBuilder("ulimit -c 0; ");
+        for (SandboxLimits.Ulimit ulimit : limits.ulimits()) {
+            String option = ULIMIT_OPTIONS.get(ulimit.name());
+            if (option == null) {
+                continue;
+            }
+            long divisor = KIB_ULIMITS.contains(ulimit.name()) ? 1024 : 1;
+            // soft first: a hard limit below the current soft limit is rejected
+            script.append("ulimit -S ").append(option).append(' ').append(ulimit.soft() / divisor).append("; ")
+                    .append("ulimit -H ").append(option).append(' ').append(ulimit.hard() / divisor).append("; ");
+        }
+        return script.toString();
+    }
+
+    /**
+     * Kill the entrypoint together with the JVMs it started, which would otherwise outlive it
+     */
+    private static void destroyTree(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Failed to delete sandbox directory: {}", root, e);
+        }
+    }
+
+    private final class LocalSandbox implements Sandbox {
+        private final Process process;
+        private final ProcessOutput output;
+        private final Path workDir;
+
+        LocalSandbox(Process process, ProcessOutput output, Path workDir) {
+            this.process = process;
+            this.output = output;
+            this.workDir = workDir;
+        }
+
+        @Override
+        public ProcessOutput output() {
+            return output;
+        }
+
+        @Override
+        public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+            return process.waitFor(timeout, unit);
+        }
+
+        @Override
+        public boolean oomKilled() {
+            return false;
+        }
+
+        @Override
+        public void kill() {
+            destroyTree(process);
+        }
+
+        @Override
+        public void close() {
+            destroyTree(process);
+            deleteRecursively(workDir);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.main.codedrill.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Static security screening of submitted code and JUnit tests, with a relaxed mode for tests.
+ * <p>
+ * The source is read once by {@link JavaTokenizer}, which drops comments, keeps string contents apart and
+ * canonicalises spacing and call chains. All rules are then matched in a single pass of an
+ * {@link AhoCorasick} automaton over the canonical code and another over the string contents, so the
+ * time taken is linear in the size of the input whatever it contains. Rules on names match whole
+ * identifiers ({@code exec}, not {@code executeQuery}) unless they are marked as parts of names
+ * ({@code ClassLoader} also in {@code URLClassLoader}). Verdicts are cached by hash of the code, since
+ * the same tests are screened for every submission of a task.
+ */
+@Component
+public class MaliciousCodeDetector {
+
+    @Value("${security.scan_cache.max_entries:1024}")
+    private int cacheMaxEntries = 1024;
+
+    public enum RiskLevel {
+        NONE, LOW, MEDIUM, HIGH, CRITICAL
+    }
+
+    public record MaliciousCodeResult(boolean malicious, RiskLevel riskLevel, String reasons) {
+
+        @Override
+        public String toString() {
+            return String.format("MaliciousCodeResult{malicious=%s, riskLevel=%s, reasons='%s'}",
+                    malicious, riskLevel, reasons);
+        }
+    }
+
+    /**
+     * Rule groups in reporting order
+     */
+    private enum Category {
+        CONTAINER_ESCAPE("Container escape attempt detected", RiskLevel.CRITICAL),
+        SHELL_EXEC("System command execution detected", RiskLevel.CRITICAL),
+        EXEC("System command execution detected", RiskLevel.CRITICAL),  // strict mode only
+        BYTECODE("Bytecode manipulation detected", RiskLevel.HIGH),
+        SERIALIZATION("Serialization attack patterns detected", RiskLevel.HIGH),
+        JVM_MANIPULATION("JVM manipulation detected", RiskLevel.HIGH),
+        FILE("Dangerous file operations detected", RiskLevel.MEDIUM),
+        NETWORK("Network operations detected", RiskLevel.MEDIUM),
+        REFLECTION("Reflection API abuse detected", RiskLevel.MEDIUM),
+        RESOURCE("Resource exhaustion patterns detected", RiskLevel.MEDIUM),
+        FORBIDDEN(null, RiskLevel.HIGH),
+        // Markers, never reported
+        JUNIT(null, RiskLevel.NONE),
+        TEST_IO(null, RiskLevel.NONE),
+        TEST_REFLECTION(null, RiskLevel.NONE),
+        TEST_WORD(null, RiskLevel.NONE),
+        CLASS_WORD(null, RiskLevel.NONE);
+
+        private final String reason;
+        private final RiskLevel level;
+
+        Category(String reason, RiskLevel level) {
+            this.reason = reason;
+            this.level = level;
+        }
+    }
+
+    /**
+     * @param wholeWord whether the pattern must not continue an identifier on either end
+     * @param label     name reported for forbidden keywords
+     */
+    private record Rule(String pattern, boolean wholeWord, Category category, String label) {
+    }
+
+    private static final List<Rule> CODE_RULES = new ArrayList<>();
+    private static final List<Rule> STRING_RULES = new ArrayList<>();
+
+    static {
+        words(Category.CONTAINER_ESCAPE, "chroot", "pivot_root", "unshare", "nsenter", "capsh", "docker",
+                "kubernetes", "k8s", "cgroup", "cgroups");
+        strings(Category.CONTAINER_ESCAPE, "/proc/", "/sys/", "/dev/", "/host", "docker.sock");
+
+        words(Category.SHELL_EXEC, "getruntime.exec", "bash", "sh", "cmd", "powershell");
+        parts(Category.SHELL_EXEC, "processbuilder", "processhandle");
+        strings(Category.SHELL_EXEC, "/bin/");
+        words(Category.EXEC, "exec", "system (");
+
+        parts(Category.BYTECODE, "classloader", "defineclass", "loadclass", "findclass", "javassist", "cglib",
+                "bytebuddy", "instrumentation", "classfiletransformer", "retransform");
+        words(Category.BYTECODE, "asm");
+
+        parts(Category.SERIALIZATION, "objectinputstream", "objectoutputstream", "jndi");
+        words(Category.SERIALIZATION, "serializable", "readobject", "writeobject", "externalizable",
+                "externalisable", "rmi");
+        strings(Category.SERIALIZATION, "ldap://", "rmi://", "ac ed 00 05");
+
+        words(Category.JVM_MANIPULATION, "system.exit", "system.halt", "system.gc", "system.load",
+                "system.loadlibrary", "system.setproperty", "system.setsecuritymanager", "system.getenv",
+                "system.getproperty", "system.getproperties", "getruntime.halt", "getruntime.exit",
+                "getruntime.gc", "getruntime.freememory", "getruntime.totalmemory", "thread.sleep",
+                "thread.interrupt", "policy.setpolicy");
+        parts(Category.JVM_MANIPULATION, "shutdownhook", "securitymanager");
+
+        parts(Category.FILE, "filewriter", "fileoutputstream", "fileinputstream", "filereader",
+                "randomaccessfile", "filechannel", "nio.file");
+        words(Category.FILE, "files.write", "files.writestring", "files.delete", "files.deleteifexists",
+                "files.copy", "files.move", "files.createfile", "files.createdirectory",
+                "files.createdirectories", "files.readallbytes", "files.readstring", "files.readalllines",
+                "files.newbufferedreader", "files.newbufferedwriter", "files.list", "files.walk", "files.lines",
+                "paths.get", "path.of", "new file", "mkdir", "mkdirs");
+        strings(Category.FILE, "../", "..\\", "/etc/", "/tmp/");
+
+        parts(Category.NETWORK, "socket", "httpclient", "urlconnection", "openconnection", "inetaddress",
+                "networkinterface");
+        words(Category.NETWORK, "new url", ".connect (");
+        strings(Category.NETWORK, "localhost", "127.0.0.1");
+
+        parts(Category.REFLECTION, "getdeclaredmethod", "getdeclaredfield", "getdeclaredconstructor",
+                "setaccessible", "methodhandle", "java.lang.reflect", "sun.misc");
+        words(Category.REFLECTION, "class.forname", ".invoke (", ".newinstance (", "unsafe");
+
+        words(Category.RESOURCE, "while ( true )", "for ( ; ; )", "thread.sleep ( 0 )", "new thread");
+        parts(Category.RESOURCE, "executorservice", "threadpool");
+
+        forbidden("native", true, "native");
+        forbidden("jni", true, "jni");
+        forbidden("sun.misc", false, "sun.misc");
+        forbidden("com.sun", true, "com.sun");
+        forbidden("jdk.internal", true, "jdk.internal");
+        forbidden("unsafe", true, "unsafe");
+        forbidden("privileged", false, "privileged");
+        forbidden("accesscontroller", false, "accessController");
+
+        words(Category.JUNIT, "@test", "@beforeeach", "@aftereach", "system.setout");
+        parts(Category.JUNIT, "assertequals", "asserttrue", "assertfalse", "junit", "bytearrayoutputstream");
+        parts(Category.TEST_WORD, "test");
+        words(Category.CLASS_WORD, "class");
+        parts(Category.TEST_IO, "stringwriter", "printwriter", "stringreader", "bytearrayoutputstream",
+                "bytearrayinputstream", "test");
+        parts(Category.TEST_REFLECTION, "test", "junit", "assertequals", "invoke", "mock");
+    }
+
+    private static final AhoCorasick CODE_MATCHER =
+            new AhoCorasick(CODE_RULES.stream().map(Rule::pattern).toList());
+    private static final AhoCorasick STRING_MATCHER =
+            new AhoCorasick(STRING_RULES.stream().map(Rule::pattern).toList());
+
+    // (mode, hash of code) -> verdict, least recently used first
+    private final Map<String, MaliciousCodeResult> verdicts = new LinkedHashMap<>(16, 0.75f, true);
+
+    @PostConstruct
+    private void validateSettings() {
+        if (cacheMaxEntries < 0) {
+            throw new IllegalArgumentException("security.scan_cache.max_entries must not be negative: " + cacheMaxEntries);
+        }
+    }
+
+    /**
+     * Analyse code, with relaxed checking if it is JUnit test code
+     *
+     * @param code               The code to analyze
+     * @param isJUnitRelaxedMode Whether to apply relaxed checking for JUnit test code
+     */
+    public MaliciousCodeResult analyzeCode(String code, boolean isJUnitRelaxedMode) {
+        return analyzeCode(code, isJUnitRelaxedMode, false);
+    }
+
+    /**
+     * @param treeChecked whether the code also goes through the {@link SubmissionTreeAnalyzer}, which takes
+     *                    over the checks of loops, allocation sizes and threads that the text can only
+     *                    approximate
+     */
+    public MaliciousCodeResult analyzeCode(String code, boolean isJUnitRelaxedMode, boolean treeChecked) {
+        if (code == null || code.isEmpty()) {
+            return new MaliciousCodeResult(false, RiskLevel.NONE, "No code provided");
+        }
+        if (cacheMaxEntries == 0) {
+            return analyze(code, isJUnitRelaxedMode, treeChecked);
+        }
+
+        String key = (isJUnitRelaxedMode ? "relaxed:" : "strict:") + (treeChecked ? "tree:" : "")
+                + VerdictCache.sha256(code);
+        synchronized (verdicts) {
+            MaliciousCodeResult cached = verdicts.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        MaliciousCodeResult result = analyze(code, isJUnitRelaxedMode, treeChecked);
+        synchronized (verdicts) {
+            verdicts.put(key, result);
+            if (verdicts.size() > cacheMaxEntries) {
+                verdicts.remove(verdicts.keySet().iterator().next());
+            }
+        }
+        return result;
+    }
+
+    private MaliciousCodeResult analyze(String code, boolean isJUnitRelaxedMode, boolean treeChecked) {
+        JavaTokenizer.Scan scan = JavaTokenizer.scan(code);
+        Hits hits = new Hits();
+        CODE_MATCHER.match(scan.code(), (pattern, start, end) -> hits.add(CODE_RULES.get(pattern), scan.code(), start, end));
+        STRING_MATCHER.match(scan.literals(), (pattern, start, end) -> hits.add(STRING_RULES.get(pattern), null, start, end));
+
+        boolean junitTest = isJUnitRelaxedMode && hits.junitIndicators() >= 2;
+        Report report = new Report();
+
+        // Always checked, whatever the mode
+        report.check(hits, Category.CONTAINER_ESCAPE);
+        if (junitTest) {
+            if (hits.has(Category.SHELL_EXEC)) {
+                report.add("Dangerous system command execution detected", RiskLevel.CRITICAL);
+            }
+        } else if (hits.has(Category.SHELL_EXEC) || hits.has(Category.EXEC)) {
+            report.add(Category.SHELL_EXEC.reason, Category.SHELL_EXEC.level);
+        }
+        report.check(hits, Category.BYTECODE);
+        report.check(hits, Category.SERIALIZATION);
+
+        if (junitTest) {
+            // Only flag what a test has no business doing
+            if (hits.has(Category.FILE) && !hits.has(Category.TEST_IO)) {
+                report.add("Non-test file operations detected", RiskLevel.MEDIUM);
+            }
+            report.check(hits, Category.NETWORK);
+            if (hits.has(Category.REFLECTION) && !hits.has(Category.TEST_REFLECTION)) {
+                report.add("Non-JUnit reflection detected", RiskLevel.MEDIUM);
+            }
+            hits.forbidden.forEach(keyword -> report.add("Forbidden keyword in test: " + keyword, RiskLevel.HIGH));
+        } else {
+            report.check(hits, Category.JVM_MANIPULATION);
+            report.check(hits, Category.FILE);
+            report.check(hits, Category.NETWORK);
+            report.check(hits, Category.REFLECTION);
+            if (!treeChecked && (hits.has(Category.RESOURCE) || scan.largestArrayDigits() >= 6 || scan.largestListDigits() >= 6)) {
+                report.add(Category.RESOURCE.reason, Category.RESOURCE.level);
+            }
+            hits.forbidden.forEach(keyword -> report.add("Forbidden keyword detected: " + keyword, RiskLevel.HIGH));
+
+            if (scan.hexEscapes()) {
+                report.add("Hex-encoded strings detected (possible obfuscation)", RiskLevel.MEDIUM);
+            }
+            if (!treeChecked && scan.maxLoopNesting() > 3) {
+                report.add("Excessive nested loops detected (DoS risk)", RiskLevel.MEDIUM);
+            }
+            if (!treeChecked && scan.largestArrayDigits() >= 5) {
+                report.add("Large array allocation detected (memory exhaustion risk)", RiskLevel.MEDIUM);
+            }
+        }
+
+        boolean isMalicious = report.level.ordinal() >= RiskLevel.MEDIUM.ordinal();
+        return new MaliciousCodeResult(isMalicious, report.level, report.reasons.toString());
+    }
+
+    /**
+     * Rules that matched one input
+     */
+    private static final class Hits {
+        private final Set<Category> categories = EnumSet.noneOf(Category.class);
+        private final Set<String> forbidden = new LinkedHashSet<>();
+        private final Set<String> junit = new LinkedHashSet<>();
+
+        void add(Rule rule, String text, int start, int end) {
+            if (rule.wholeWord() && text != null && !isWordAt(text, start, end)) {
+                return;
+            }
+            categories.add(rule.category());
+            if (rule.category() == Category.FORBIDDEN) {
+                forbidden.add(rule.label());
+            } else if (rule.category() == Category.JUNIT) {
+                junit.add(rule.pattern());
+            }
+        }
+
+        boolean has(Category category) {
+            return categories.contains(category);
+        }
+
+        int junitIndicators() {
+            return junit.size() + (has(Category.TEST_WORD) && has(Category.CLASS_WORD) ? 1 : 0);
+        }
+
+        private static boolean isWordAt(String text, int start, int end) {
+            boolean startsWord = Character.isJavaIdentifierPart(text.charAt(start));
+            boolean endsWord = Character.isJavaIdentifierPart(text.charAt(end - 1));
+            return !(startsWord && start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1)))
+                    && !(endsWord && end < text.length() && Character.isJavaIdentifierPart(text.charAt(end)));
+        }
+    }
+
+    private static final class Report {
+        private final StringBuilder reasons = new StringBuilder();
+        private RiskLevel level = RiskLevel.NONE;
+
+        void check(Hits hits, Category category) {
+            if (hits.has(category)) {
+                add(category.reason, category.level);
+            }
+        }
+
+        void add(String reason, RiskLevel riskLevel) {
+            reasons.append(reason).append("; ");
+            if (riskLevel.ordinal() > level.ordinal()) {
+                level = riskLevel;
+            }
+        }
+    }
+
+    private static void words(Category category, String... patterns) {
+        for (String pattern : patterns) {
+            CODE_RULES.add(new Rule(pattern, true, category, pattern));
+        }
+    }
+
+    private static void parts(Category category, String... patterns) {
+        for (String pattern : patterns) {
+            CODE_RULES.add(new Rule(pattern, false, category, pattern));
+        }
+    }
+
+    private static void strings(Category category, String... patterns) {
+        for (String pattern : patterns) {
+            STRING_RULES.add(new Rule(pattern, false, category, pattern));
+        }
+    }
+
+    private static void forbidden(String pattern, boolean wholeWord, String keyword) {
+        CODE_RULES.add(new Rule(pattern, wholeWord, Category.FORBIDDEN, keyword));
+    }
+}
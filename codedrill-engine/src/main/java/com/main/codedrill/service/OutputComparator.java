@@ -0,0 +1,544 @@
+package com.main.codedrill.service;
+
+import com.main.codedrill.model.IoCase;
+import com.main.codedrill.model.Task;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Compares what a submission printed with the expected output of its task, or of one of the task's
+ * input/output cases, in the task's {@link Task.OutputComparison} mode.
+ * <p>
+ * Every expected output is split into tokens (or normalized, for {@code EXACT}) once per task version and kept
+ * in a small LRU map; the printed output is then read once, token by token, without building a normalized
+ * copy. The comparison stops at the first difference and describes it with a line diff of a few lines
+ * around it, computed with Myers' algorithm on that window only, so its cost does not grow with the output.
+ */
+@Component
+public class OutputComparator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutputComparator.class);
+
+    static final String END_OF_OUTPUT = "<end of output>";
+    private static final int MAX_SHOWN_CHARS = 200;
+    private static final int MAX_NUMBER_CHARS = 64;
+    private static final Pattern NUMBER = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+
+    @Value("${grading.output.numeric_tolerance:1e-6}")
+    private double defaultTolerance;
+
+    @Value("${grading.output.diff_lines:20}")
+    private int maxDiffLines;
+
+    @Value("${grading.output.diff_context:3}")
+    private int diffContext;
+
+    @Value("${grading.output.cache_entries:256}")
+    private int maxCachedOutputs;
+
+    private final Map<Key, Expected> prepared = new LinkedHashMap<>(64, 0.75f, true);
+
+    public OutputComparator() {
+        this(1e-6, 20, 3, 256);
+    }
+
+    OutputComparator(double defaultTolerance, int maxDiffLines, int diffContext, int maxCachedOutputs) {
+        this.defaultTolerance = defaultTolerance;
+        this.maxDiffLines = maxDiffLines;
+        this.diffContext = diffContext;
+        this.maxCachedOutputs = maxCachedOutputs;
+    }
+
+    @PostConstruct
+    void validate() {
+        if (!(defaultTolerance >= 0)) {
+            throw new IllegalArgumentException("grading.output.numeric_tolerance must not be negative");
+        }
+        if (maxDiffLines < 1 || diffContext < 0 || diffContext >= maxDiffLines) {
+            throw new IllegalArgumentException("grading.output.diff_lines must be at least 1 and exceed grading.output.diff_context");
+        }
+        if (maxCachedOutputs < 0) {
+            throw new IllegalArgumentException("grading.output.cache_entries must not be negative");
+        }
+        logger.info("🔍 Output comparison: numeric tolerance {}, diffs of up to {} lines", defaultTolerance, maxDiffLines);
+    }
+
+    /**
+     * @param matches      whether the output is accepted
+     * @param expectedLine 1-based line of the first difference in the expected output, 0 if the output matches
+     * @param actualLine   1-based line of the first difference in the printed output, 0 if the output matches
+     * @param expected     what was expected at the first difference, {@value #END_OF_OUTPUT} if the
+     *                     submission printed too much
+     * @param actual       what was printed there, {@value #END_OF_OUTPUT} if the submission printed too little
+     * @param diff         lines around the first difference: two spaces before common lines, {@code - } before
+     *                     expected and {@code + } before printed lines; empty if the output matches
+     */
+    public record Verdict(boolean matches, int expectedLine, int actualLine, String expected, String actual,
+                          String diff) {
+
+        static final Verdict MATCH = new Verdict(true, 0, 0, null, null, "");
+    }
+
+    /**
+     * Compare printed output with the task's expected output; any output matches if none is expected
+     */
+    public Verdict compare(Task task, String actual) {
+        String expectedOutput = task.getExpectedOutput();
+        if (expectedOutput == null || expectedOutput.trim().isEmpty()) {
+            return Verdict.MATCH;
+        }
+        return compare(prepare(task), actual != null ? actual : "");
+    }
+
+    /**
+     * Judge the outcome of every input/output case of the task. A case passes if its {@code main} method
+     * returned normally and printed the case's expected output, compared in the task's mode; a case
+     * without expected output must print nothing. Cases the report does not cover fail.
+     */
+    public List<CaseVerdict> judge(Task task, CaseReport report) {
+        List<IoCase> cases = task.getIoCases();
+        List<CaseVerdict> verdicts = new ArrayList<>(cases.size());
+        for (int i = 0; i < cases.size(); i++) {
+            CaseReport.Case outcome = report != null && i < report.cases().size() ? report.cases().get(i) : null;
+            if (outcome == null) {
+                String error = report != null && report.message() != null ? report.message() : "Not run";
+                verdicts.add(new CaseVerdict(i + 1, CaseReport.Status.ERROR, false, 0, null, error));
+                continue;
+            }
+            Verdict output = outcome.status() == CaseReport.Status.OK
+                    ? compare(prepare(task, i, Objects.toString(cases.get(i).getExpectedOutput(), "")), outcome.output())
+                    : null;
+            verdicts.add(new CaseVerdict(i + 1, outcome.status(), output != null && output.matches(),
+                    outcome.durationMillis(), output, outcome.error()));
+        }
+        return verdicts;
+    }
+
+    /**
+     * @param number         1-based position of the case in the task
+     * @param status         how the case's {@code main} method ended
+     * @param passed         whether it ended normally and printed the expected output
+     * @param durationMillis time the case ran
+     * @param output         how its output compared with the expected output, {@code null} unless it ended normally
+     * @param error          what it wrote to {@code System.err}, or why it did not run
+     */
+    public record CaseVerdict(int number, CaseReport.Status status, boolean passed, long durationMillis,
+                              Verdict output, String error) {
+    }
+
+    /**
+     * The task's expected output in comparable form, computed once per task version
+     */
+    Expected prepare(Task task) {
+        return prepare(task, -1, task.getExpectedOutput());
+    }
+
+    /**
+     * @param caseIndex index of the input/output case whose expected output this is, -1 for the task's own
+     */
+    private Expected prepare(Task task, int caseIndex, String source) {
+        Task.OutputComparison mode = task.getOutputComparison() != null
+                ? task.getOutputComparison()
+                : Task.OutputComparison.WHITESPACE;
+        double tolerance = task.getOutputTolerance() != null ? task.getOutputTolerance() : defaultTolerance;
+        Key key = task.getId() != null ? new Key(task.getId(), caseIndex) : null;
+
+        if (key != null) {
+            synchronized (prepared) {
+                Expected cached = prepared.get(key);
+                if (cached != null && cached.mode == mode && cached.tolerance == tolerance && cached.source.equals(source)) {
+                    return cached;
+                }
+            }
+        }
+
+        Expected expected = new Expected(source, mode, tolerance);
+        if (key != null && maxCachedOutputs > 0) {
+            synchronized (prepared) {
+                prepared.put(key, expected);
+                if (prepared.size() > maxCachedOutputs) {
+                    prepared.remove(prepared.keySet().iterator().next());
+                }
+            }
+        }
+        return expected;
+    }
+
+    private record Key(long taskId, int caseIndex) {
+    }
+
+    Verdict compare(Expected expected, String actual) {
+        return expected.mode == Task.OutputComparison.EXACT
+                ? compareExact(expected, actual)
+                : compareTokens(expected, actual);
+    }
+
+    private Verdict compareExact(Expected expected, String actual) {
+        String text = expected.text;
+        int length = actual.length();
+        int e = 0;
+        int a = 0;
+        int line = 1;
+        while (e < text.length()) {
+            if (a == length) {
+                return mismatch(expected, e, actual, a, line, excerpt(text, e), END_OF_OUTPUT);
+            }
+            char c = actual.charAt(a);
+            if (c == '\r' && a + 1 < length && actual.charAt(a + 1) == '\n') {
+                a++;
+                continue;
+            }
+            if (c != text.charAt(e)) {
+                return mismatch(expected, e, actual, a, line, excerpt(text, e), excerpt(actual, a));
+            }
+            if (c == '\n') {
+                line++;
+            }
+            a++;
+            e++;
+        }
+
+        int end = a;
+        while (end < length && (actual.charAt(end) == '\n' || actual.charAt(end) == '\r')) {
+            end++;
+        }
+        return end == length
+                ? Verdict.MATCH
+                : mismatch(expected, e, actual, a, line, END_OF_OUTPUT, excerpt(actual, a));
+    }
+
+    private Verdict compareTokens(Expected expected, String actual) {
+        int length = actual.length();
+        int pos = 0;
+        int line = 1;
+        for (int t = 0; t < expected.tokenCount; t++) {
+            while (pos < length && isSpace(actual.charAt(pos))) {
+                if (actual.charAt(pos++) == '\n') {
+                    line++;
+                }
+            }
+            int start = pos;
+            while (pos < length && !isSpace(actual.charAt(pos))) {
+                pos++;
+            }
+            int offset = expected.tokenStart[t];
+            String expectedToken = expected.text.substring(offset, expected.tokenEnd[t]);
+            if (start == pos) {
+                return mismatch(expected, offset, actual, start, line, shorten(expectedToken), END_OF_OUTPUT);
+            }
+            if (!expected.tokenMatches(t, actual, start, pos)) {
+                return mismatch(expected, offset, actual, start, line, shorten(expectedToken),
+                        shorten(actual.substring(start, Math.min(pos, start + MAX_SHOWN_CHARS + 1))));
+            }
+        }
+
+        while (pos < length && isSpace(actual.charAt(pos))) {
+            if (actual.charAt(pos++) == '\n') {
+                line++;
+            }
+        }
+        if (pos == length) {
+            return Verdict.MATCH;
+        }
+        int end = pos;
+        while (end < length && !isSpace(actual.charAt(end)) && end - pos <= MAX_SHOWN_CHARS) {
+            end++;
+        }
+        return mismatch(expected, expected.text.length(), actual, pos, line,
+                END_OF_OUTPUT, shorten(actual.substring(pos, end)));
+    }
+
+    private Verdict mismatch(Expected expected, int expectedOffset, String actual, int actualOffset,
+                             int actualLine, String expectedText, String actualText) {
+        int expectedLine = expected.lineOf(expectedOffset);
+        return new Verdict(false, expectedLine + 1, actualLine, expectedText, actualText,
+                diff(expected, expectedLine, actual, actualOffset, actualLine - 1));
+    }
+
+    /**
+     * Myers diff of the windows of both outputs that start {@code diffContext} lines before the first
+     * difference, rendered as at most {@code maxDiffLines} lines
+     */
+    private String diff(Expected expected, int expectedLine, String actual, int actualOffset, int actualLine) {
+        int expectedFrom = Math.max(0, expectedLine - diffContext);
+        int actualFrom = Math.max(0, actualLine - diffContext);
+        List<String> a = expected.lines(expectedFrom, maxDiffLines);
+        List<String> b = lines(actual, lineStart(actual, actualOffset, actualLine - actualFrom), maxDiffLines);
+
+        StringBuilder diff = new StringBuilder()
+                .append("@@ expected line ").append(expectedFrom + 1)
+                .append(", actual line ").append(actualFrom + 1).append(" @@\n");
+        int shown = 0;
+        for (String edit : myers(a, b, expected)) {
+            if (shown++ == maxDiffLines) {
+                diff.append("  ...\n");
+                break;
+            }
+            diff.append(edit).append('\n');
+        }
+        return diff.toString();
+    }
+
+    /**
+     * Edit script from {@code a} to {@code b} with the fewest insertions and deletions, found by Myers'
+     * greedy algorithm. Both windows are short, so the O((N+M)D) search and its trace stay small.
+     */
+    private List<String> myers(List<String> a, List<String> b, Expected expected) {
+        int n = a.size();
+        int m = b.size();
+        int max = n + m;
+        int[] v = new int[2 * max + 2];
+        List<int[]> trace = new ArrayList<>();
+
+        int finalD = max;
+        search:
+        for (int d = 0; d <= max; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[max + k - 1] < v[max + k + 1])
+                        ? v[max + k + 1]
+                        : v[max + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && expected.linesMatch(a.get(x), b.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[max + k] = x;
+                if (x >= n && y >= m) {
+                    finalD = d;
+                    break search;
+                }
+            }
+        }
+
+        List<String> edits = new ArrayList<>();
+        int x = n;
+        int y = m;
+        for (int d = finalD; d > 0; d--) {
+            int[] previous = trace.get(d);
+            int k = x - y;
+            int previousK = k == -d || (k != d && previous[max + k - 1] < previous[max + k + 1]) ? k + 1 : k - 1;
+            int previousX = previous[max + previousK];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                edits.add("  " + shorten(a.get(--x)));
+                y--;
+            }
+            if (x > previousX) {
+                edits.add("- " + shorten(a.get(--x)));
+            } else {
+                edits.add("+ " + shorten(b.get(--y)));
+            }
+        }
+        while (x > 0 && y > 0) {
+            edits.add("  " + shorten(a.get(--x)));
+            y--;
+        }
+        Collections.reverse(edits);
+        return edits;
+    }
+
+    /**
+     * Offset of the start of the line {@code linesBack} lines before the one containing {@code offset}
+     */
+    private static int lineStart(String text, int offset, int linesBack) {
+        int pos = Math.min(offset, text.length());
+        int remaining = linesBack;
+        while (pos > 0) {
+            if (text.charAt(pos - 1) == '\n') {
+                if (remaining == 0) {
+                    break;
+                }
+                remaining--;
+            }
+            pos--;
+        }
+        return pos;
+    }
+
+    private static List<String> lines(String text, int from, int count) {
+        List<String> lines = new ArrayList<>(count);
+        int pos = from;
+        while (lines.size() < count && pos < text.length()) {
+            int end = text.indexOf('\n', pos);
+            int next = end < 0 ? text.length() : end + 1;
+            if (end < 0) {
+                end = text.length();
+            }
+            if (end > pos && text.charAt(end - 1) == '\r') {
+                end--;
+            }
+            lines.add(text.substring(pos, end));
+            pos = next;
+        }
+        return lines;
+    }
+
+    private static String excerpt(String text, int offset) {
+        int end = text.indexOf('\n', offset);
+        end = end < 0 ? text.length() : end;
+        if (end > offset && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return shorten(text.substring(offset, Math.min(end, offset + MAX_SHOWN_CHARS + 1)));
+    }
+
+    private static String shorten(String text) {
+        return text.length() <= MAX_SHOWN_CHARS ? text : text.substring(0, MAX_SHOWN_CHARS) + "…";
+    }
+
+    /**
+     * The whitespace of the {@code \s} regex class, which the comparison has always split on
+     */
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    /**
+     * Expected output of one task version in the form the comparison reads: for {@code EXACT} the text with
+     * {@code \r\n} turned into {@code \n} and trailing newlines removed, otherwise token boundaries and,
+     * for {@code NUMERIC}, the value of every numeric token. Line starts locate differences for the diff.
+     */
+    static final class Expected {
+        final String source;
+        final Task.OutputComparison mode;
+        final double tolerance;
+        final String text;
+        final int[] lineStarts;
+        int tokenCount;
+        int[] tokenStart = new int[0];
+        int[] tokenEnd = new int[0];
+        double[] numbers;
+
+        Expected(String source, Task.OutputComparison mode, double tolerance) {
+            this.source = source;
+            this.mode = mode;
+            this.tolerance = tolerance;
+
+            if (mode == Task.OutputComparison.EXACT) {
+                String text = source.replace("\r\n", "\n");
+                int end = text.length();
+                while (end > 0 && text.charAt(end - 1) == '\n') {
+                    end--;
+                }
+                this.text = text.substring(0, end);
+            } else {
+                this.text = source;
+                tokenize();
+            }
+
+            int lines = 1;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    lines++;
+                }
+            }
+            lineStarts = new int[lines];
+            for (int i = 0, line = 1; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    lineStarts[line++] = i + 1;
+                }
+            }
+        }
+
+        private void tokenize() {
+            int capacity = 16;
+            tokenStart = new int[capacity];
+            tokenEnd = new int[capacity];
+            int pos = 0;
+            while (pos < text.length()) {
+                while (pos < text.length() && isSpace(text.charAt(pos))) {
+                    pos++;
+                }
+                if (pos == text.length()) {
+                    break;
+                }
+                int start = pos;
+                while (pos < text.length() && !isSpace(text.charAt(pos))) {
+                    pos++;
+                }
+                if (tokenCount == tokenStart.length) {
+                    tokenStart = Arrays.copyOf(tokenStart, tokenCount * 2);
+                    tokenEnd = Arrays.copyOf(tokenEnd, tokenCount * 2);
+                }
+                tokenStart[tokenCount] = start;
+                tokenEnd[tokenCount++] = pos;
+            }
+
+            if (mode == Task.OutputComparison.NUMERIC) {
+                numbers = new double[tokenCount];
+                for (int t = 0; t < tokenCount; t++) {
+                    numbers[t] = parseNumber(text, tokenStart[t], tokenEnd[t]);
+                }
+            }
+        }
+
+        boolean tokenMatches(int t, String actual, int start, int end) {
+            int length = tokenEnd[t] - tokenStart[t];
+            if (end - start == length && text.regionMatches(tokenStart[t], actual, start, length)) {
+                return true;
+            }
+            if (numbers == null || Double.isNaN(numbers[t])) {
+                return false;
+            }
+            double value = parseNumber(actual, start, end);
+            double difference = Math.abs(value - numbers[t]);
+            return difference <= tolerance || difference <= tolerance * Math.abs(numbers[t]);
+        }
+
+        /**
+         * Whether two lines of the diff windows are equal under this comparison mode
+         */
+        boolean linesMatch(String expectedLine, String actualLine) {
+            if (mode == Task.OutputComparison.EXACT || expectedLine.equals(actualLine)) {
+                return expectedLine.equals(actualLine);
+            }
+            Expected line = new Expected(expectedLine, mode, tolerance);
+            int pos = 0;
+            for (int t = 0; t < line.tokenCount; t++) {
+                while (pos < actualLine.length() && isSpace(actualLine.charAt(pos))) {
+                    pos++;
+                }
+                int start = pos;
+                while (pos < actualLine.length() && !isSpace(actualLine.charAt(pos))) {
+                    pos++;
+                }
+                if (start == pos || !line.tokenMatches(t, actualLine, start, pos)) {
+                    return false;
+                }
+            }
+            return actualLine.substring(pos).isBlank();
+        }
+
+        int lineOf(int offset) {
+            int index = Arrays.binarySearch(lineStarts, offset);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        List<String> lines(int from, int count) {
+            return from < lineStarts.length
+                    ? OutputComparator.lines(text, lineStarts[from], count)
+                    : List.of();
+        }
+
+        private static double parseNumber(String text, int start, int end) {
+            if (end - start > MAX_NUMBER_CHARS) {
+                return Double.NaN;
+            }
+            String token = text.substring(start, end);
+            return NUMBER.matcher(token).matches() ? Double.parseDouble(token) : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.main.codedrill.service;
+
+import java.util.Map;
+
+/**
+ * A task's JUnit tests compiled ahead of grading.
+ *
+ * @param testClass  binary name of the test class to run
+ * @param sourceHash hash of the sources and compiler release the class files were built from
+ * @param classFiles class files of the test sources only, keyed by binary class name
+ */
+public record PrecompiledTests(String testClass, String sourceHash, Map<String, byte[]> classFiles) {
+}
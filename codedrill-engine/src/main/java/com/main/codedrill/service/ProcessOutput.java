@@ -0,0 +1,245 @@
+package com.main.codedrill.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains stdout and stderr of a sandbox process or attached container concurrently while it runs.
+ * <p>
+ * Reading both pipes from the start keeps a chatty process from blocking on a full pipe, and lets its
+ * output reach a {@link LiveOutput} as it is produced instead of after the process exited. Each stream is
+ * captured into a fixed-size buffer holding its beginning and, in a ring, its end, so a test report printed
+ * last survives any amount of output before it. A process writing more than {@link Limits#maxBytes()} in
+ * total is killed.
+ */
+class ProcessOutput {
+
+    private static final long DRAIN_TIMEOUT_MILLIS = 2000;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService READERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "Sandbox-Output-" + THREAD_COUNT.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final BoundedCapture stdout;
+    private final BoundedCapture stderr;
+    private final LiveOutput liveOutput;
+    private final long maxBytes;
+    private final Runnable onLimitExceeded;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicBoolean limitExceeded = new AtomicBoolean();
+    private CompletableFuture<Void> drained;
+
+    private ProcessOutput(Limits limits, LiveOutput liveOutput, Runnable onLimitExceeded) {
+        this.stdout = new BoundedCapture(limits.captureBytes());
+        this.stderr = new BoundedCapture(limits.captureBytes());
+        this.liveOutput = liveOutput;
+        this.maxBytes = limits.maxBytes();
+        this.onLimitExceeded = onLimitExceeded;
+    }
+
+    /**
+     * Start reading a process's output
+     *
+     * @param liveOutput      receives the output as it arrives, may be {@code null}
+     * @param onLimitExceeded kills the process, called once on a reader thread
+     */
+    static ProcessOutput collect(Process process, Limits limits, LiveOutput liveOutput, Runnable onLimitExceeded) {
+        ProcessOutput output = new ProcessOutput(limits, liveOutput, onLimitExceeded);
+        output.drained = CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> output.pump(process.getInputStream(), LiveOutput.Stream.STDOUT), READERS),
+                CompletableFuture.runAsync(() -> output.pump(process.getErrorStream(), LiveOutput.Stream.STDERR), READERS));
+        return output;
+    }
+
+    /**
+     * Start reading the multiplexed output of a container attached through the Engine API
+     *
+     * @param liveOutput      receives the output as it arrives, may be {@code null}
+     * @param onLimitExceeded kills the container, called once on a reader thread
+     */
+    static ProcessOutput collect(DockerEngineClient.Attachment attachment, Limits limits, LiveOutput liveOutput,
+                                 Runnable onLimitExceeded) {
+        ProcessOutput output = new ProcessOutput(limits, liveOutput, onLimitExceeded);
+        output.drained = CompletableFuture.runAsync(() -> {
+            try {
+                attachment.readOutput(output::accept);
+            } catch (IOException e) {
+                // container killed, the connection is closed
+            }
+        }, READERS);
+        return output;
+    }
+
+    /**
+     * Output of a sandbox that did not run as a process, with the same capture and limit as real output
+     */
+    static ProcessOutput completed(String stdout, String stderr, Limits limits, LiveOutput liveOutput) {
+        ProcessOutput output = new ProcessOutput(limits, liveOutput, () -> {
+        });
+        byte[] out = stdout.getBytes(StandardCharsets.UTF_8);
+        byte[] err = stderr.getBytes(StandardCharsets.UTF_8);
+        output.accept(LiveOutput.Stream.STDOUT, out, 0, out.length);
+        output.accept(LiveOutput.Stream.STDERR, err, 0, err.length);
+        output.drained = CompletableFuture.completedFuture(null);
+        return output;
+    }
+
+    /**
+     * Everything the process wrote to stdout, truncated in the middle if it exceeded the capture size; waits
+     * briefly for the pipe to be drained after the process ended
+     */
+    String stdout() {
+        awaitDrained();
+        return stdout.toString();
+    }
+
+    String stderr() {
+        awaitDrained();
+        return stderr.toString();
+    }
+
+    /**
+     * Whether the process was killed for writing more than the output limit
+     */
+    boolean limitExceeded() {
+        return limitExceeded.get();
+    }
+
+    private void awaitDrained() {
+        try {
+            drained.get(DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // return what was read so far
+        }
+    }
+
+    private void pump(InputStream in, LiveOutput.Stream stream) {
+        byte[] buffer = new byte[8192];
+        try (in) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                accept(stream, buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // process killed, the pipe is closed
+        }
+    }
+
+    private void accept(LiveOutput.Stream stream, byte[] bytes, int offset, int length) {
+        (stream == LiveOutput.Stream.STDOUT ? stdout : stderr).write(bytes, offset, length);
+        if (liveOutput != null) {
+            liveOutput.append(stream, bytes, offset, length);
+        }
+        if (totalBytes.addAndGet(length) > maxBytes && limitExceeded.compareAndSet(false, true)) {
+            onLimitExceeded.run();
+        }
+    }
+
+    /**
+     * @param captureBytes bytes kept of each stream, half from its beginning and half from its end
+     * @param maxBytes     bytes both streams may write in total before the process is killed
+     */
+    record Limits(int captureBytes, long maxBytes) {
+    }
+
+    /**
+     * Keeps the first half of its capacity as written and the last half in a ring buffer, counting the
+     * bytes dropped in between
+     */
+    static final class BoundedCapture {
+        private final byte[] head;
+        private final byte[] tail;
+        private int headLength;
+        private int tailEnd;
+        private int tailLength;
+        private long dropped;
+
+        BoundedCapture(int capacity) {
+            this.head = new byte[capacity / 2];
+            this.tail = new byte[capacity - capacity / 2];
+        }
+
+        synchronized void write(byte[] bytes, int offset, int length) {
+            int toHead = Math.min(length, head.length - headLength);
+            System.arraycopy(bytes, offset, head, headLength, toHead);
+            headLength += toHead;
+            offset += toHead;
+            length -= toHead;
+            if (length == 0) {
+                return;
+            }
+
+            if (length >= tail.length) {
+                dropped += tailLength + length - tail.length;
+                System.arraycopy(bytes, offset + length - tail.length, tail, 0, tail.length);
+                tailEnd = 0;
+                tailLength = tail.length;
+                return;
+            }
+            dropped += Math.max(0, tailLength + length - tail.length);
+            int first = Math.min(length, tail.length - tailEnd);
+            System.arraycopy(bytes, offset, tail, tailEnd, first);
+            System.arraycopy(bytes, offset + first, tail, 0, length - first);
+            tailEnd = (tailEnd + length) % tail.length;
+            tailLength = Math.min(tail.length, tailLength + length);
+        }
+
+        @Override
+        public synchronized String toString() {
+            ByteArrayOutputStream result = new ByteArrayOutputStream(headLength + tailLength + 64);
+            int start = Math.floorMod(tailEnd - tailLength, Math.max(1, tail.length));
+            int length = tailLength;
+            if (dropped == 0) {
+                result.write(head, 0, headLength);
+            } else {
+                // cut at character boundaries rather than leave broken UTF-8 sequences around the marker
+                int kept = completeLength(head, headLength);
+                int skipped = 0;
+                while (skipped < Math.min(3, length) && (tail[(start + skipped) % tail.length] & 0xC0) == 0x80) {
+                    skipped++;
+                }
+                start = (start + skipped) % tail.length;
+                length -= skipped;
+
+                long truncated = dropped + headLength - kept + skipped;
+                result.write(head, 0, kept);
+                result.writeBytes(("\n... [output truncated, " + truncated + " bytes dropped] ...\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            int first = Math.min(length, tail.length - start);
+            result.write(tail, start, first);
+            result.write(tail, 0, length - first);
+            return result.toString(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Length of {@code bytes[0..length)} without a trailing incomplete UTF-8 sequence
+         */
+        private static int completeLength(byte[] bytes, int length) {
+            for (int i = length - 1; i >= Math.max(0, length - 3); i--) {
+                int b = bytes[i] & 0xFF;
+                if ((b & 0xC0) != 0x80) {
+                    int sequence = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+                    return i + sequence <= length ? length : i;
+                }
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,617 @@
+package com.main.codedrill.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of pre-started, network-less runner containers.
+ * <p>
+ * Containers are started with {@code sleep infinity} as their main process and submissions are executed
+ * inside them with {@code docker exec}, so the hot path no longer pays for container creation. Every
+ * container is reset before each use, recycled after a bounded number of uses and evicted when it becomes
+ * unhealthy, idle for too long or too old.
+ * <p>
+ * Profiles that define a worker command additionally keep a persistent {@link SandboxWorkerSession} inside
+ * each container, so that precompiled submissions skip both container and JVM startup.
+ * <p>
+ * When the Engine API is reachable, containers are created, inspected and removed through it, and idle
+ * containers that die are evicted as soon as the daemon reports it instead of at the next health check.
+ */
+@Component
+public class SandboxContainerPool {
+
+    static final String POOL_LABEL = "codedrill.pool";
+    private static final String NAME_PREFIX = "warmrunner-";
+
+    /**
+     * Directories inside a container that a submission can write to, wiped between submissions
+     */
+    static final List<String> SCRATCH_DIRECTORIES = List.of("/app/code", "/tmp", "/var/tmp", "/dev/shm");
+
+    /**
+     * Run as the sandbox user before a container that ran the entrypoint is reused: kills every process but
+     * PID 1 ({@code sleep infinity}) and itself, and fails if any is still there after a second. Killed orphans
+     * stay behind as zombies of PID 1, which never reaps them, so a container they were left in is retired.
+     */
+    private static final String RESET_SCRIPT = "kill -9 -1 2>/dev/null; "
+            + "for attempt in 1 2 3 4 5 6 7 8 9 10; do left=; "
+            + "for p in /proc/[0-9]*; do case ${p#/proc/} in 1|$$) ;; *) [ -e $p ] && left=1 ;; esac; done; "
+            + "[ -z \"$left\" ] && exit 0; sleep 0.1; done; exit 1";
+
+    @Value("${docker.pool.enabled:true}")
+    private boolean poolEnabled;
+
+    @Value("${docker.pool.min_size:2}")
+    private int minSize;
+
+    @Value("${docker.pool.max_size:6}")
+    private int maxSize;
+
+    @Value("${docker.pool.max_uses:50}")
+    private int maxUsesPerContainer;
+
+    @Value("${docker.pool.max_idle_seconds:600}")
+    private int maxIdleSeconds;
+
+    @Value("${docker.pool.max_age_minutes:30}")
+    private int maxAgeMinutes;
+
+    @Value("${docker.pool.health_check_interval_seconds:20}")
+    private int healthCheckIntervalSeconds;
+
+    @Value("${docker.pool.startup_timeout_seconds:20}")
+    private int startupTimeoutSeconds;
+
+    @Value("${sandbox.worker.startup_timeout_seconds:10}")
+    private int workerStartupTimeoutSeconds;
+
+    private final Map<String, ProfilePool> pools = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ContainerPool-Maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService lifecycleExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "ContainerPool-Lifecycle");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final DockerEngineClient dockerEngine;
+    private DockerEngineClient.EventStream deathEvents;
+    private volatile boolean shutdownRequested = false;
+
+    private final Logger logger = LoggerFactory.getLogger(SandboxContainerPool.class);
+
+    @Autowired
+    public SandboxContainerPool(DockerEngineClient dockerEngine) {
+        this.dockerEngine = dockerEngine;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        if (!poolEnabled) {
+            logger.info("♨️ Container pool DISABLED");
+            return;
+        }
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        if (maxUsesPerContainer <= 0) {
+            throw new IllegalArgumentException("Invalid max uses per container: " + maxUsesPerContainer);
+        }
+
+        maintenanceExecutor.scheduleWithFixedDelay(this::maintain,
+                healthCheckIntervalSeconds, healthCheckIntervalSeconds, TimeUnit.SECONDS);
+
+        if (dockerEngine.isAvailable()) {
+            try {
+                deathEvents = dockerEngine.events(Map.of("event", List.of("die"), "label", List.of(POOL_LABEL)),
+                        this::onContainerDied);
+            } catch (IOException e) {
+                logger.warn("♨️ Not following container events, relying on health checks: {}", e.getMessage());
+            }
+        }
+
+        logger.info("♨️ Container pool ENABLED - min: {}, max: {}, max uses: {}", minSize, maxSize, maxUsesPerContainer);
+    }
+
+    public boolean isEnabled() {
+        return poolEnabled;
+    }
+
+    /**
+     * Register a sandbox profile and start warming containers for it in the background.
+     * Containers left behind by a previous run of the application are removed first.
+     */
+    public void registerProfile(ContainerSpec spec) {
+        if (!poolEnabled) {
+            return;
+        }
+        pools.computeIfAbsent(spec.profile(), p -> new ProfilePool(spec));
+        lifecycleExecutor.submit(() -> {
+            removeStaleContainers(spec.profile());
+            topUp(pools.get(spec.profile()));
+        });
+    }
+
+    /**
+     * Check out a warm container for the given profile.
+     *
+     * @return a leased container, or {@code null} if the pool is disabled or exhausted and the caller
+     * should fall back to a cold {@code docker run}
+     */
+    public PooledContainer acquire(String profile) {
+        ProfilePool pool = poolEnabled ? pools.get(profile) : null;
+        if (pool == null || shutdownRequested) {
+            return null;
+        }
+
+        PooledContainer container = pool.idle.pollFirst();
+        if (container == null && pool.total.get() < maxSize) {
+            // Pool is drained but has headroom - pay the startup once and keep the container afterwards
+            container = startContainer(pool);
+        }
+
+        if (container != null) {
+            container.uses++;
+            container.lastUsedAt = Instant.now();
+        } else {
+            logger.debug("♨️ Pool '{}' exhausted, falling back to cold container", profile);
+        }
+
+        // Replace what we just took so the next submission finds a warm container too
+        if (pool.idle.size() < minSize) {
+            lifecycleExecutor.submit(() -> topUp(pool));
+        }
+        return container;
+    }
+
+    /**
+     * Return a container to the pool.
+     *
+     * @param reusable {@code false} if the execution timed out or failed in a way that may have left state
+     *                 behind; the container is then destroyed instead of being reused
+     */
+    public void release(PooledContainer container, boolean reusable) {
+        ProfilePool pool = pools.get(container.profile);
+        if (pool == null) {
+            return;
+        }
+
+        if (shutdownRequested) {
+            destroy(pool, container);
+            return;
+        }
+
+        if (!reusable || container.uses >= maxUsesPerContainer) {
+            lifecycleExecutor.submit(() -> {
+                destroy(pool, container);
+                topUp(pool);
+            });
+            return;
+        }
+
+        if (container.needsReset) {
+            // Processes the entrypoint left running must not meet the next submission
+            lifecycleExecutor.submit(() -> {
+                if (!shutdownRequested && reset(container)) {
+                    container.needsReset = false;
+                    container.lastUsedAt = Instant.now();
+                    pool.idle.offerFirst(container);
+                    return;
+                }
+                destroy(pool, container);
+                topUp(pool);
+            });
+            return;
+        }
+
+        container.lastUsedAt = Instant.now();
+        pool.idle.offerFirst(container);  // LIFO keeps the hottest containers busy and lets cold ones age out
+    }
+
+    /**
+     * Start a process inside a leased container. The {@link #SCRATCH_DIRECTORIES} are wiped as part of the same
+     * {@code docker exec} so that no state from the previous submission is visible. The processes it leaves
+     * behind are killed when the container is released, see {@link #reset}.
+     */
+    public Process exec(PooledContainer container, String entrypoint) throws IOException {
+        container.needsReset = true;
+        ProcessBuilder pb = new ProcessBuilder(
+                "docker", "exec", "-i", container.name,
+                "sh", "-c", "find " + String.join(" ", SCRATCH_DIRECTORIES) + " -mindepth 1 -delete 2>/dev/null; "
+                        + "exec " + entrypoint
+        );
+        return pb.start();
+    }
+
+    /**
+     * Persistent worker JVM of a leased container, started on first use.
+     *
+     * @return the worker session, or {@code null} if the profile has no worker or the worker cannot be
+     * started, in which case the caller should use {@link #exec} instead
+     */
+    public SandboxWorkerSession workerSession(PooledContainer container) {
+        ProfilePool pool = pools.get(container.profile);
+        if (pool == null || !pool.workerSupported) {
+            return null;
+        }
+
+        SandboxWorkerSession session = container.workerSession;
+        if (session != null && session.isAlive()) {
+            return session;
+        }
+
+        List<String> command = new ArrayList<>(List.of("docker", "exec", "-i", container.name));
+        command.addAll(pool.spec.workerCommand());
+        try {
+            session = SandboxWorkerSession.start(command, TimeUnit.SECONDS.toMillis(workerStartupTimeoutSeconds));
+            container.workerSession = session;
+            logger.debug("♨️ Sandbox worker started in {} ({} ms)", container.name, session.getStartupMillis());
+            return session;
+        } catch (IOException e) {
+            // Most likely an older runner image without the worker - stop trying for this profile
+            pool.workerSupported = false;
+            logger.warn("♨️ Sandbox worker unavailable for profile {}, using per-job JVMs: {}",
+                    container.profile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stop the worker of a container (e.g. after it reached its job limit); the next
+     * {@link #workerSession} call starts a fresh one in the same container
+     */
+    public void recycleWorker(PooledContainer container) {
+        SandboxWorkerSession session = container.workerSession;
+        container.workerSession = null;
+        if (session != null) {
+            session.close();
+        }
+    }
+
+    public int idleCount(String profile) {
+        ProfilePool pool = pools.get(profile);
+        return pool == null ? 0 : pool.idle.size();
+    }
+
+    public int totalCount(String profile) {
+        ProfilePool pool = pools.get(profile);
+        return pool == null ? 0 : pool.total.get();
+    }
+
+    /**
+     * Evict an idle container as soon as the daemon reports that it stopped. Leased containers are left to
+     * their execution, which fails and releases them as not reusable.
+     */
+    private void onContainerDied(DockerEngineClient.ContainerEvent event) {
+        ProfilePool pool = pools.get(event.attributes().getOrDefault(POOL_LABEL, ""));
+        if (pool == null || shutdownRequested) {
+            return;
+        }
+        for (PooledContainer container : pool.idle) {
+            if (container.name.equals(event.name()) && pool.idle.remove(container)) {
+                logger.debug("♨️ Pooled container {} died (exit code {}), evicting", container.name, event.exitCode());
+                lifecycleExecutor.submit(() -> {
+                    destroy(pool, container);
+                    topUp(pool);
+                });
+                return;
+            }
+        }
+    }
+
+    /**
+     * Periodic health check and eviction of idle containers, followed by a top-up to the minimum size.
+     */
+    private void maintain() {
+        for (ProfilePool pool : pools.values()) {
+            try {
+                Instant now = Instant.now();
+                List<PooledContainer> evicted = new ArrayList<>();
+
+                Iterator<PooledContainer> iterator = pool.idle.iterator();
+                while (iterator.hasNext()) {
+                    PooledContainer container = iterator.next();
+                    boolean tooOld = Duration.between(container.createdAt, now).toMinutes() >= maxAgeMinutes;
+                    boolean idleTooLong = Duration.between(container.lastUsedAt, now).getSeconds() >= maxIdleSeconds
+                            && pool.idle.size() - evicted.size() > minSize;
+
+                    if ((tooOld || idleTooLong || !isRunning(container)) && pool.idle.remove(container)) {
+                        evicted.add(container);
+                    }
+                }
+
+                for (PooledContainer container : evicted) {
+                    logger.debug("♨️ Evicting pooled container {}", container.name);
+                    destroy(pool, container);
+                }
+
+                topUp(pool);
+            } catch (Exception e) {
+                logger.warn("Container pool maintenance failed for profile {}", pool.spec.profile(), e);
+            }
+        }
+    }
+
+    private synchronized void topUp(ProfilePool pool) {
+        while (!shutdownRequested && pool.idle.size() < minSize && pool.total.get() < maxSize) {
+            PooledContainer container = startContainer(pool);
+            if (container == null) {
+                break;
+            }
+            pool.idle.offerLast(container);
+        }
+    }
+
+    private PooledContainer startContainer(ProfilePool pool) {
+        ContainerSpec spec = pool.spec;
+        String name = NAME_PREFIX + spec.profile() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+        if (pool.total.incrementAndGet() > maxSize) {
+            pool.total.decrementAndGet();
+            return null;
+        }
+        try {
+            if (dockerEngine.isAvailable()) {
+                dockerEngine.createContainer(name, spec.image(), List.of("sleep", "infinity"), spec.limits(),
+                        Map.of(POOL_LABEL, spec.profile()), false);
+                dockerEngine.start(name);
+            } else {
+                runWithCli(spec, name);
+            }
+
+            logger.debug("♨️ Warm container {} started", name);
+            return new PooledContainer(name, spec.profile());
+
+        } catch (Exception e) {
+            pool.total.decrementAndGet();
+            removeContainers(List.of(name));
+            logger.warn("Failed to start pooled container for profile {}: {}", spec.profile(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void runWithCli(ContainerSpec spec, String name) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(
+                "docker", "run", "-d", "--rm", "--name", name,
+                "--label", POOL_LABEL + "=" + spec.profile()
+        ));
+        command.addAll(spec.limits().cliArgs());
+        command.addAll(List.of("--entrypoint", "sleep", spec.image(), "infinity"));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        if (!process.waitFor(startupTimeoutSeconds, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("docker run timed out");
+        }
+        if (process.exitValue() != 0) {
+            String output = new String(process.getInputStream().readAllBytes()).trim();
+            throw new IllegalStateException("docker run failed: " + output);
+        }
+    }
+
+    private boolean isRunning(PooledContainer container) {
+        if (dockerEngine.isAvailable()) {
+            try {
+                DockerEngineClient.ContainerState state = dockerEngine.inspect(container.name);
+                return state != null && state.running();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        try {
+            Process process = new ProcessBuilder("docker", "inspect", "-f", "{{.State.Running}}", container.name)
+                    .redirectErrorStream(true)
+                    .start();
+            String output = new String(process.getInputStream().readAllBytes()).trim();
+            return process.waitFor(5, TimeUnit.SECONDS) && process.exitValue() == 0 && "true".equals(output);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Kill every process the entrypoint left in a container, its worker JVM included, and check that none is left
+     *
+     * @return whether the container is clean and can be reused
+     */
+    private boolean reset(PooledContainer container) {
+        recycleWorker(container);
+        try {
+            Process process = new ProcessBuilder("docker", "exec", container.name, "sh", "-c", RESET_SCRIPT)
+                    .redirectErrorStream(true)
+                    .start();
+            if (!process.waitFor(startupTimeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                logger.warn("♨️ Resetting pooled container {} timed out, discarding", container.name);
+                return false;
+            }
+            if (process.exitValue() != 0) {
+                logger.info("♨️ Processes survived the reset of pooled container {}, discarding", container.name);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("♨️ Failed to reset pooled container {}: {}", container.name, e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void destroy(ProfilePool pool, PooledContainer container) {
+        pool.total.decrementAndGet();
+        recycleWorker(container);
+        removeContainers(List.of(container.name));
+    }
+
+    private void removeStaleContainers(String profile) {
+        try {
+            List<String> ids = dockerEngine.isAvailable()
+                    ? dockerEngine.listContainers(true, Map.of("label", List.of(POOL_LABEL + "=" + profile))).stream()
+                            .map(DockerEngineClient.ContainerSummary::id)
+                            .toList()
+                    : listStaleContainers(profile);
+
+            if (!ids.isEmpty()) {
+                logger.info("♨️ Removing {} stale pooled containers for profile {}", ids.size(), profile);
+                removeContainers(ids);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to remove stale pooled containers", e);
+        }
+    }
+
+    private List<String> listStaleContainers(String profile) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("docker", "ps", "-aq",
+                "--filter", "label=" + POOL_LABEL + "=" + profile).start();
+
+        List<String> ids = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    ids.add(line.trim());
+                }
+            }
+        }
+        process.waitFor(5, TimeUnit.SECONDS);
+        return ids;
+    }
+
+    private void removeContainers(List<String> names) {
+        if (names.isEmpty()) {
+            return;
+        }
+        if (dockerEngine.isAvailable()) {
+            for (String name : names) {
+                try {
+                    dockerEngine.remove(name);
+                } catch (IOException e) {
+                    logger.warn("Failed to remove container: {}", name, e);
+                }
+            }
+            return;
+        }
+        try {
+            List<String> command = new ArrayList<>(List.of("docker", "rm", "-f"));
+            command.addAll(names);
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to remove containers: {}", names, e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        shutdownRequested = true;
+        if (deathEvents != null) {
+            deathEvents.close();
+        }
+        maintenanceExecutor.shutdownNow();
+        lifecycleExecutor.shutdownNow();
+
+        List<String> names = new ArrayList<>();
+        for (ProfilePool pool : pools.values()) {
+            PooledContainer container;
+            while ((container = pool.idle.pollFirst()) != null) {
+                recycleWorker(container);
+                names.add(container.name);
+            }
+        }
+        removeContainers(names);
+
+        logger.info("♨️ Container pool shut down, removed {} idle containers", names.size());
+    }
+
+    /**
+     * Resource limits and image of one class of sandbox containers.
+     *
+     * @param profile logical pool name, e.g. {@code run} or {@code junit}
+     * @param image   runner image
+     * @param limits        network, memory, CPU and ulimit restrictions
+     * @param workerCommand command that starts the persistent worker JVM inside the container, or an empty
+     *                      list if submissions of this profile always run through the entrypoint
+     */
+    public record ContainerSpec(String profile, String image, SandboxLimits limits, List<String> workerCommand) {
+    }
+
+    /**
+     * A container checked out of the pool
+     */
+    public static class PooledContainer {
+        private final String name;
+        private final String profile;
+        private final Instant createdAt = Instant.now();
+        private volatile Instant lastUsedAt = Instant.now();
+        private volatile int uses;
+        private volatile SandboxWorkerSession workerSession;
+        private volatile boolean needsReset;
+
+        PooledContainer(String name, String profile) {
+            this.name = name;
+            this.profile = profile;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getProfile() {
+            return profile;
+        }
+
+        public int getUses() {
+            return uses;
+        }
+
+        /**
+         * Whether a process was started with {@link #exec} since the container was last reset
+         */
+        public boolean needsReset() {
+            return needsReset;
+        }
+    }
+
+    private static class ProfilePool {
+        private final ContainerSpec spec;
+        private final LinkedBlockingDeque<PooledContainer> idle = new LinkedBlockingDeque<>();
+        private final AtomicInteger total = new AtomicInteger(0);
+        private volatile boolean workerSupported;
+
+        ProfilePool(ContainerSpec spec) {
+            this.spec = spec;
+            this.workerSupported = !spec.workerCommand().isEmpty();
+        }
+    }
+}
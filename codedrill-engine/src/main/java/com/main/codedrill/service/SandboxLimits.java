@@ -0,0 +1,60 @@
+package com.main.codedrill.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resource restrictions of a sandbox container, rendered either as {@code docker run} arguments or as the
+ * Engine API's {@code HostConfig}.
+ *
+ * @param memoryBytes     hard memory limit
+ * @param cpus            CPU quota in cores
+ * @param pidsLimit       maximum number of processes and threads in the container
+ * @param ulimits         per-process resource limits
+ * @param networkDisabled whether the container gets no network at all
+ * @param env             {@code NAME=value} environment entries
+ */
+public record SandboxLimits(long memoryBytes, double cpus, long pidsLimit, List<Ulimit> ulimits,
+                            boolean networkDisabled, List<String> env) {
+
+    public record Ulimit(String name, long soft, long hard) {
+    }
+
+    public List<String> cliArgs() {
+        List<String> args = new ArrayList<>();
+        if (networkDisabled) {
+            args.add("--network=none");
+        }
+        args.add("--memory=" + memoryBytes);
+        args.add("--cpus=" + cpus);
+        for (Ulimit ulimit : ulimits) {
+            args.add("--ulimit");
+            args.add(ulimit.name() + "=" + ulimit.soft() + ":" + ulimit.hard());
+        }
+        args.add("--pids-limit=" + pidsLimit);
+        for (String variable : env) {
+            args.add("-e");
+            args.add(variable);
+        }
+        return args;
+    }
+
+    Map<String, Object> hostConfig() {
+        List<Map<String, Object>> limits = new ArrayList<>();
+        for (Ulimit ulimit : ulimits) {
+            limits.add(Map.of("Name", ulimit.name(), "Soft", ulimit.soft(), "Hard", ulimit.hard()));
+        }
+
+        Map<String, Object> hostConfig = new LinkedHashMap<>();
+        hostConfig.put("Memory", memoryBytes);
+        hostConfig.put("NanoCpus", Math.round(cpus * 1_000_000_000L));
+        hostConfig.put("PidsLimit", pidsLimit);
+        hostConfig.put("Ulimits", limits);
+        if (networkDisabled) {
+            hostConfig.put("NetworkMode", "none");
+        }
+        return hostConfig;
+    }
+}
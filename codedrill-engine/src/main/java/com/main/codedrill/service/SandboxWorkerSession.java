@@ -0,0 +1,249 @@
+package com.main.codedrill.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host side of the framed stdin/stdout protocol spoken by the persistent worker JVM inside a sandbox
+ * container ({@code com.main.codedrill.sandbox.SandboxWorker}, built into the runner image).
+ * <p>
+ * A session is bound to one worker process. Jobs are executed one at a time; a watchdog kills the worker
+ * if it does not answer within the host-side deadline, which the caller sees as {@link Status#TIMEOUT}.
+ * Output the worker streams while a job runs is passed on to the job's {@link LiveOutput}.
+ */
+public class SandboxWorkerSession implements AutoCloseable {
+
+    static final int PROTOCOL_VERSION = 8;
+
+    private static final byte FRAME_OUTPUT = 1;
+    private static final byte FRAME_RESULT = 2;
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SandboxWorker-Watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Process process;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private long startupMillis;
+    private volatile boolean killedByWatchdog = false;
+
+    private SandboxWorkerSession(Process process) {
+        this.process = process;
+        this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+    }
+
+    /**
+     * Launch a worker with the given command and wait for its READY frame
+     */
+    public static SandboxWorkerSession start(List<String> command, long startupTimeoutMillis) throws IOException {
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        long start = System.nanoTime();
+        SandboxWorkerSession session = new SandboxWorkerSession(process);
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(process::destroyForcibly, startupTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            DataInputStream ready = new DataInputStream(new ByteArrayInputStream(session.readFrame()));
+            String hello = ready.readUTF();
+            int version = ready.readInt();
+            if (!"READY".equals(hello) || version != PROTOCOL_VERSION) {
+                throw new IOException("Unexpected worker handshake: " + hello + " v" + version);
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+            throw new IOException("Sandbox worker failed to start", e);
+        } finally {
+            watchdog.cancel(false);
+        }
+
+        session.startupMillis = (System.nanoTime() - start) / 1_000_000;
+        return session;
+    }
+
+    /**
+     * Run a job on the worker.
+     *
+     * @param hostTimeoutMillis deadline after which the worker process is killed; should exceed the job's
+     *                          own time limit so that the worker can report the timeout itself
+     * @param liveOutput        receives the output streamed while the job runs, may be {@code null}
+     */
+    public synchronized Result execute(Job job, long hostTimeoutMillis, LiveOutput liveOutput) throws IOException {
+        ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+            killedByWatchdog = true;
+            process.destroyForcibly();
+        }, hostTimeoutMillis, TimeUnit.MILLISECONDS);
+
+        try {
+            writeFrame(job.encode());
+            while (true) {
+                byte[] frame = readFrame();
+                if (frame.length > 0 && frame[0] == FRAME_RESULT) {
+                    return Result.decode(frame);
+                }
+                if (frame.length < 2 || frame[0] != FRAME_OUTPUT) {
+                    throw new IOException("Unexpected worker frame of " + frame.length + " bytes");
+                }
+                if (liveOutput != null) {
+                    LiveOutput.Stream stream = frame[1] == 0 ? LiveOutput.Stream.STDOUT : LiveOutput.Stream.STDERR;
+                    liveOutput.append(stream, frame, 2, frame.length - 2);
+                }
+            }
+        } catch (IOException e) {
+            if (killedByWatchdog) {
+                return new Result(job.id(), Status.TIMEOUT, "", "", hostTimeoutMillis, new byte[0], Status.SKIPPED,
+                        Recycle.ISOLATION_BREACH);
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    public boolean isAlive() {
+        return process.isAlive();
+    }
+
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    @Override
+    public void close() {
+        try {
+            out.close();  // EOF on stdin lets the worker exit on its own
+        } catch (IOException ignored) {
+            // worker already gone
+        }
+        process.destroyForcibly();
+    }
+
+    private byte[] readFrame() throws IOException {
+        int length = in.readInt();
+        return in.readNBytes(length);
+    }
+
+    private void writeFrame(byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+    }
+
+    public enum JobType {
+        RUN(1), JUNIT(2), GRADE(3), CASES(4);
+
+        private final byte code;
+
+        JobType(int code) {
+            this.code = (byte) code;
+        }
+    }
+
+    public enum Status {
+        OK, EXCEPTION, TIMEOUT, OUT_OF_MEMORY, ERROR, SKIPPED, OUTPUT_LIMIT
+    }
+
+    /**
+     * Why the worker exits after a job: {@code JOB_LIMIT} only requires a fresh JVM, while
+     * {@code ISOLATION_BREACH} means the whole container should be discarded
+     */
+    public enum Recycle {
+        NONE, JOB_LIMIT, ISOLATION_BREACH
+    }
+
+    /**
+     * @param testClass         JUnit class run after {@code entryClass}'s main method, only for {@link JobType#GRADE}
+     * @param testTimeoutMillis time limit of the test phase of a grade job
+     * @param streamOutput      whether the worker streams the output of the main method while it runs
+     * @param maxOutputBytes    output after which the job is stopped with {@link Status#OUTPUT_LIMIT}, 0 for no limit
+     * @param testParallelism   threads that run the JUnit test methods concurrently, 1 to run them one by one
+     * @param caseTimeoutMillis time limit of each input/output case of a {@link JobType#CASES} job
+     * @param caseInputs        stdin of each input/output case, only for {@link JobType#CASES}
+     */
+    public record Job(JobType type, String id, String entryClass, long timeoutMillis, String testClass,
+                      long testTimeoutMillis, Map<String, byte[]> classFiles, boolean streamOutput,
+                      long maxOutputBytes, int testParallelism, long caseTimeoutMillis, List<byte[]> caseInputs) {
+
+        public Job(JobType type, String id, String entryClass, long timeoutMillis, Map<String, byte[]> classFiles) {
+            this(type, id, entryClass, timeoutMillis, "", 0, classFiles, false, 0, 1, 0, List.of());
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(buffer);
+            data.writeByte(type.code);
+            data.writeUTF(id);
+            data.writeUTF(entryClass);
+            data.writeLong(timeoutMillis);
+            data.writeUTF(testClass);
+            data.writeLong(testTimeoutMillis);
+            data.writeInt(classFiles.size());
+            for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+                data.writeUTF(entry.getKey());
+                data.writeInt(entry.getValue().length);
+                data.write(entry.getValue());
+            }
+            data.writeBoolean(streamOutput);
+            data.writeLong(maxOutputBytes);
+            data.writeInt(testParallelism);
+            data.writeLong(caseTimeoutMillis);
+            data.writeInt(caseInputs.size());
+            for (byte[] input : caseInputs) {
+                data.writeInt(input.length);
+                data.write(input);
+            }
+            return buffer.toByteArray();
+        }
+    }
+
+    /**
+     * @param status     outcome of the job, or of the main phase of a grade job
+     * @param report     {@link TestReport} frame of a JUnit job or of the test phase of a grade job,
+     *                   {@link CaseReport} frame of a cases job, empty otherwise
+     * @param testStatus outcome of the test phase of a grade job; {@code SKIPPED} if the main phase broke
+     *                   isolation, always {@code OK} for other job types
+     */
+    public record Result(String jobId, Status status, String stdout, String stderr, long durationMillis,
+                         byte[] report, Status testStatus, Recycle recycle) {
+
+        static Result decode(byte[] frame) throws IOException {
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(frame, 1, frame.length - 1));
+            String jobId = data.readUTF();
+            Status status = Status.values()[data.readByte()];
+            String stdout = readString(data);
+            String stderr = readString(data);
+            long durationMillis = data.readLong();
+            byte[] report = readBytes(data);
+            Status testStatus = Status.values()[data.readByte()];
+            Recycle recycle = Recycle.values()[data.readByte()];
+            return new Result(jobId, status, stdout, stderr, durationMillis, report, testStatus, recycle);
+        }
+
+        private static String readString(DataInputStream data) throws IOException {
+            return new String(readBytes(data), StandardCharsets.UTF_8);
+        }
+
+        private static byte[] readBytes(DataInputStream data) throws IOException {
+            byte[] bytes = new byte[data.readInt()];
+            data.readFully(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,622 @@
+package com.main.codedrill.service;
+
+import com.sun.source.tree.ArrayTypeTree;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.BreakTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.DoWhileLoopTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewArrayTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParameterizedTypeTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.PrimitiveTypeTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.SwitchTree;
+import com.sun.source.tree.ThrowTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TypeCastTree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.tree.WhileLoopTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreeScanner;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.lang.model.element.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Checks of a submission that need its syntax tree: calls of forbidden APIs, reflection, thread creation,
+ * allocations whose constant size exceeds a limit, loop nesting and loops that can never end.
+ * <p>
+ * Runs on the trees javac parses for the host compilation, between parsing and attribution, so a
+ * submission is parsed once and the checks cost one walk of its tree (see {@link InMemoryJavaCompiler}).
+ * Names are not attributed: types are taken as written, through the file's imports and the declared
+ * types of its variables, which is enough for code that is not trying to hide, and
+ * {@link MaliciousCodeDetector} still screens the text for the rest.
+ */
+@Component
+public class SubmissionTreeAnalyzer {
+
+    private static final String JVM = "JVM manipulation detected";
+    private static final String COMMAND = "System command execution detected";
+    private static final String REFLECTION = "Reflection API abuse detected";
+    private static final String THREADS = "Thread creation detected";
+    private static final String ALLOCATION = "Large array allocation detected (memory exhaustion risk)";
+    private static final String NESTING = "Excessive nested loops detected (DoS risk)";
+    private static final String ENDLESS_LOOP = "Loop without exit detected (DoS risk)";
+
+    private record Rule(MaliciousCodeDetector.RiskLevel level, String reason) {
+    }
+
+    private static final Rule JVM_RULE = new Rule(MaliciousCodeDetector.RiskLevel.HIGH, JVM);
+    private static final Rule COMMAND_RULE = new Rule(MaliciousCodeDetector.RiskLevel.CRITICAL, COMMAND);
+    private static final Rule REFLECTION_RULE = new Rule(MaliciousCodeDetector.RiskLevel.MEDIUM, REFLECTION);
+    private static final Rule THREAD_RULE = new Rule(MaliciousCodeDetector.RiskLevel.MEDIUM, THREADS);
+
+    // "Type.method" as written, or "Type.*" for every method of the type
+    private static final Map<String, Rule> CALLS = new HashMap<>();
+    // Types whose instantiation or subclassing is reported
+    private static final Map<String, Rule> TYPES = new HashMap<>();
+
+    static {
+        for (String method : new String[]{"exit", "load", "loadLibrary", "setSecurityManager", "setProperty",
+                "setProperties", "getenv"}) {
+            CALLS.put("System." + method, JVM_RULE);
+        }
+        for (String method : new String[]{"halt", "exit", "addShutdownHook", "removeShutdownHook", "load", "loadLibrary"}) {
+            CALLS.put("Runtime." + method, JVM_RULE);
+        }
+        CALLS.put("Runtime.exec", COMMAND_RULE);
+        CALLS.put("ProcessHandle.*", COMMAND_RULE);
+        CALLS.put("Policy.setPolicy", JVM_RULE);
+
+        for (String call : new String[]{"Class.forName", "MethodHandles.*", "Proxy.*", "Array.newInstance",
+                "Method.invoke", "Constructor.newInstance", "Field.set", "Field.get", "AccessibleObject.setAccessible"}) {
+            CALLS.put(call, REFLECTION_RULE);
+        }
+
+        for (String call : new String[]{"Thread.ofVirtual", "Thread.ofPlatform", "Thread.startVirtualThread",
+                "Executors.*", "ForkJoinPool.commonPool", "CompletableFuture.runAsync", "CompletableFuture.supplyAsync"}) {
+            CALLS.put(call, THREAD_RULE);
+        }
+        for (String type : new String[]{"Thread", "ThreadPoolExecutor", "ScheduledThreadPoolExecutor", "ForkJoinPool",
+                "Timer"}) {
+            TYPES.put(type, THREAD_RULE);
+        }
+        TYPES.put("ProcessBuilder", COMMAND_RULE);
+    }
+
+    // Reflective methods reported whatever they are called on
+    private static final Set<String> REFLECTIVE_METHODS = Set.of("setAccessible", "trySetAccessible",
+            "getDeclaredMethod", "getDeclaredMethods", "getDeclaredField", "getDeclaredFields",
+            "getDeclaredConstructor", "getDeclaredConstructors", "getDeclaredClasses");
+
+    // Static methods whose result type the checks need to know
+    private static final Map<String, String> RESULT_TYPES = Map.of(
+            "Runtime.getRuntime", "Runtime",
+            "Thread.currentThread", "Thread",
+            "Class.forName", "Class");
+
+    // Package prefixes that are reported wherever they are named
+    private static final Map<String, Rule> PACKAGES = new LinkedHashMap<>();
+
+    static {
+        PACKAGES.put("sun.misc.", new Rule(MaliciousCodeDetector.RiskLevel.HIGH, "Internal JDK API used"));
+        PACKAGES.put("sun.reflect.", new Rule(MaliciousCodeDetector.RiskLevel.HIGH, "Internal JDK API used"));
+        PACKAGES.put("com.sun.", new Rule(MaliciousCodeDetector.RiskLevel.HIGH, "Internal JDK API used"));
+        PACKAGES.put("jdk.internal.", new Rule(MaliciousCodeDetector.RiskLevel.HIGH, "Internal JDK API used"));
+        PACKAGES.put("java.lang.instrument.", new Rule(MaliciousCodeDetector.RiskLevel.HIGH, "Bytecode manipulation detected"));
+        PACKAGES.put("java.lang.reflect.", REFLECTION_RULE);
+        PACKAGES.put("java.lang.invoke.", REFLECTION_RULE);
+    }
+
+    // Bytes per slot of collections and buffers created with a constant capacity
+    private static final Map<String, Integer> CAPACITY_BYTES = Map.of(
+            "ArrayList", 4, "Vector", 4, "ArrayDeque", 4, "PriorityQueue", 4,
+            "HashMap", 4, "HashSet", 4, "LinkedHashMap", 4, "LinkedHashSet", 4,
+            "StringBuilder", 1, "ByteArrayOutputStream", 1);
+
+    @Value("${security.tree_analysis.max_loop_depth:4}")
+    private int maxLoopDepth = 4;
+
+    @Value("${security.tree_analysis.max_allocation_bytes:67108864}")
+    private long maxAllocationBytes = 64L * 1024 * 1024;
+
+    @PostConstruct
+    private void validateSettings() {
+        if (maxLoopDepth <= 0 || maxAllocationBytes <= 0) {
+            throw new IllegalArgumentException("Invalid tree analysis limits: loop depth " + maxLoopDepth
+                    + ", allocation " + maxAllocationBytes + " bytes");
+        }
+    }
+
+    /**
+     * Settings the verdicts depend on, part of the key of cached compilations
+     */
+    public String fingerprint() {
+        return "tree-analysis:" + maxLoopDepth + ":" + maxAllocationBytes;
+    }
+
+    /**
+     * Check one parsed compilation unit; reasons name the first line each problem was found on
+     */
+    public MaliciousCodeDetector.MaliciousCodeResult analyze(CompilationUnitTree unit, SourcePositions positions) {
+        Scanner scanner = new Scanner(unit, positions);
+        scanner.scan(unit, null);
+
+        MaliciousCodeDetector.RiskLevel level = MaliciousCodeDetector.RiskLevel.NONE;
+        StringBuilder reasons = new StringBuilder();
+        for (Map.Entry<String, Finding> finding : scanner.findings.entrySet()) {
+            reasons.append(finding.getKey()).append(" (line ").append(finding.getValue().line()).append("); ");
+            if (finding.getValue().level().ordinal() > level.ordinal()) {
+                level = finding.getValue().level();
+            }
+        }
+        return new MaliciousCodeDetector.MaliciousCodeResult(
+                level.ordinal() >= MaliciousCodeDetector.RiskLevel.MEDIUM.ordinal(), level, reasons.toString());
+    }
+
+    private record Finding(MaliciousCodeDetector.RiskLevel level, long line) {
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        try {
+            return Math.multiplyExact(a, b);
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private final class Scanner extends TreeScanner<Void, Void> {
+        private final CompilationUnitTree unit;
+        private final SourcePositions positions;
+
+        // Reason -> first finding, in order of discovery
+        private final Map<String, Finding> findings = new LinkedHashMap<>();
+        // Simple name -> imported qualified name
+        private final Map<String, String> imports = new HashMap<>();
+        // Variable name -> declared type as written, scopes are not told apart
+        private final Map<String, String> variableTypes = new HashMap<>();
+        // Final variables with a constant initializer
+        private final Map<String, Long> constants = new HashMap<>();
+        private int loopDepth;
+
+        Scanner(CompilationUnitTree unit, SourcePositions positions) {
+            this.unit = unit;
+            this.positions = positions;
+        }
+
+        @Override
+        public Void visitImport(ImportTree tree, Void unused) {
+            String name = tree.getQualifiedIdentifier().toString();
+            checkPackage(name, tree);
+            if (!tree.isStatic() && !name.endsWith(".*")) {
+                imports.put(name.substring(name.lastIndexOf('.') + 1), name);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitClass(ClassTree tree, Void unused) {
+            if (tree.getExtendsClause() != null) {
+                checkType(tree.getExtendsClause(), tree);
+            }
+            int outerDepth = loopDepth;
+            loopDepth = 0;  // methods of a nested class do not run inside the enclosing loop
+            super.visitClass(tree, unused);
+            loopDepth = outerDepth;
+            return null;
+        }
+
+        @Override
+        public Void visitMethod(MethodTree tree, Void unused) {
+            if (tree.getModifiers().getFlags().contains(Modifier.NATIVE)) {
+                report(MaliciousCodeDetector.RiskLevel.HIGH, "Forbidden keyword detected: native", tree);
+            }
+            return super.visitMethod(tree, unused);
+        }
+
+        @Override
+        public Void visitVariable(VariableTree tree, Void unused) {
+            if (tree.getType() != null) {
+                String type = typeName(tree.getType());
+                if (type != null) {
+                    variableTypes.put(tree.getName().toString(), type);
+                }
+            }
+            if (tree.getInitializer() != null) {
+                if (tree.getModifiers().getFlags().contains(Modifier.FINAL)) {
+                    Long value = constant(tree.getInitializer());
+                    if (value != null) {
+                        constants.put(tree.getName().toString(), value);
+                    }
+                }
+                String inferred = expressionType(tree.getInitializer());
+                if (inferred != null && !variableTypes.containsKey(tree.getName().toString())) {
+                    variableTypes.put(tree.getName().toString(), inferred);  // var
+                }
+            }
+            return super.visitVariable(tree, unused);
+        }
+
+        @Override
+        public Void visitMemberSelect(MemberSelectTree tree, Void unused) {
+            String name = qualifiedName(tree);
+            if (name == null) {
+                return super.visitMemberSelect(tree, unused);
+            }
+            checkPackage(name, tree);
+            return null;  // a plain name, nothing else in it to check
+        }
+
+        @Override
+        public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (tree.getMethodSelect() instanceof MemberSelectTree select) {
+                String method = select.getIdentifier().toString();
+                String receiver = expressionType(select.getExpression());
+                if (receiver != null) {
+                    Rule rule = CALLS.getOrDefault(receiver + "." + method, CALLS.get(receiver + ".*"));
+                    if (rule != null) {
+                        report(rule.level(), rule.reason(), tree);
+                    }
+                }
+                if (REFLECTIVE_METHODS.contains(method)) {
+                    report(REFLECTION_RULE.level(), REFLECTION_RULE.reason(), tree);
+                }
+            }
+            return super.visitMethodInvocation(tree, unused);
+        }
+
+        @Override
+        public Void visitNewClass(NewClassTree tree, Void unused) {
+            checkType(tree.getIdentifier(), tree);
+
+            String type = typeName(tree.getIdentifier());
+            Integer slotBytes = type != null ? CAPACITY_BYTES.get(type) : null;
+            if (slotBytes != null && tree.getArguments().size() == 1) {
+                Long capacity = constant(tree.getArguments().get(0));
+                if (capacity != null) {
+                    checkAllocation(saturatedMultiply(capacity, slotBytes), tree);
+                }
+            }
+            return super.visitNewClass(tree, unused);
+        }
+
+        @Override
+        public Void visitNewArray(NewArrayTree tree, Void unused) {
+            if (!tree.getDimensions().isEmpty()) {
+                long elements = 1;
+                for (ExpressionTree dimension : tree.getDimensions()) {
+                    Long size = constant(dimension);
+                    if (size != null && size > 0) {
+                        elements = saturatedMultiply(elements, size);  // lower bound if some are not constant
+                    }
+                }
+                checkAllocation(saturatedMultiply(elements, elementBytes(tree.getType())), tree);
+            }
+            return super.visitNewArray(tree, unused);
+        }
+
+        @Override
+        public Void visitForLoop(ForLoopTree tree, Void unused) {
+            if (tree.getCondition() == null || isTrue(tree.getCondition())) {
+                checkExit(tree.getStatement(), tree);
+            }
+            return loop(tree, () -> super.visitForLoop(tree, unused));
+        }
+
+        @Override
+        public Void visitEnhancedForLoop(EnhancedForLoopTree tree, Void unused) {
+            return loop(tree, () -> super.visitEnhancedForLoop(tree, unused));
+        }
+
+        @Override
+        public Void visitWhileLoop(WhileLoopTree tree, Void unused) {
+            if (isTrue(tree.getCondition())) {
+                checkExit(tree.getStatement(), tree);
+            }
+            return loop(tree, () -> super.visitWhileLoop(tree, unused));
+        }
+
+        @Override
+        public Void visitDoWhileLoop(DoWhileLoopTree tree, Void unused) {
+            if (isTrue(tree.getCondition())) {
+                checkExit(tree.getStatement(), tree);
+            }
+            return loop(tree, () -> super.visitDoWhileLoop(tree, unused));
+        }
+
+        private Void loop(Tree tree, Runnable body) {
+            loopDepth++;
+            if (loopDepth > maxLoopDepth) {
+                report(MaliciousCodeDetector.RiskLevel.MEDIUM, NESTING, tree);
+            }
+            body.run();
+            loopDepth--;
+            return null;
+        }
+
+        private void checkExit(StatementTree body, Tree loop) {
+            if (!new ExitFinder().exits(body)) {
+                report(MaliciousCodeDetector.RiskLevel.MEDIUM, ENDLESS_LOOP, loop);
+            }
+        }
+
+        private void checkAllocation(long bytes, Tree tree) {
+            if (bytes > maxAllocationBytes) {
+                report(MaliciousCodeDetector.RiskLevel.MEDIUM, ALLOCATION, tree);
+            }
+        }
+
+        private void checkType(Tree type, Tree tree) {
+            String name = typeName(type);
+            Rule rule = name != null ? TYPES.get(name) : null;
+            if (rule != null) {
+                report(rule.level(), rule.reason(), tree);
+            }
+        }
+
+        private void checkPackage(String name, Tree tree) {
+            for (Map.Entry<String, Rule> entry : PACKAGES.entrySet()) {
+                if (name.startsWith(entry.getKey())) {
+                    Rule rule = entry.getValue();
+                    report(rule.level(), rule == REFLECTION_RULE ? rule.reason() : rule.reason() + ": " + name, tree);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Dotted name if the expression is nothing but identifiers, {@code null} otherwise
+         */
+        private static String qualifiedName(MemberSelectTree tree) {
+            StringBuilder name = new StringBuilder(tree.getIdentifier());
+            ExpressionTree expression = tree.getExpression();
+            while (expression instanceof MemberSelectTree select) {
+                name.insert(0, '.').insert(0, select.getIdentifier());
+                expression = select.getExpression();
+            }
+            if (!(expression instanceof IdentifierTree identifier)) {
+                return null;
+            }
+            return name.insert(0, '.').insert(0, identifier.getName()).toString();
+        }
+
+        /**
+         * Simple name of a type as written, after resolving a qualified name through the imports
+         */
+        private String typeName(Tree type) {
+            if (type instanceof IdentifierTree identifier) {
+                return simpleName(identifier.getName().toString());
+            }
+            if (type instanceof MemberSelectTree select) {
+                return select.getIdentifier().toString();
+            }
+            if (type instanceof ParameterizedTypeTree parameterized) {
+                return typeName(parameterized.getType());
+            }
+            return null;
+        }
+
+        private String simpleName(String name) {
+            String imported = imports.get(name);
+            return imported != null ? imported.substring(imported.lastIndexOf('.') + 1) : name;
+        }
+
+        /**
+         * Type of an expression as far as it can be told without attribution, or {@code null}. An identifier
+         * that is not a known variable is taken to be a type, as in a static call.
+         */
+        private String expressionType(ExpressionTree expression) {
+            if (expression instanceof IdentifierTree identifier) {
+                String name = identifier.getName().toString();
+                return variableTypes.getOrDefault(name, simpleName(name));
+            }
+            if (expression instanceof MemberSelectTree select) {
+                return select.getIdentifier().toString();
+            }
+            if (expression instanceof ParenthesizedTree parenthesized) {
+                return expressionType(parenthesized.getExpression());
+            }
+            if (expression instanceof TypeCastTree cast) {
+                return typeName(cast.getType());
+            }
+            if (expression instanceof NewClassTree newClass) {
+                return typeName(newClass.getIdentifier());
+            }
+            if (expression instanceof MethodInvocationTree invocation
+                    && invocation.getMethodSelect() instanceof MemberSelectTree select) {
+                String receiver = expressionType(select.getExpression());
+                return receiver == null ? null : RESULT_TYPES.get(receiver + "." + select.getIdentifier());
+            }
+            return null;
+        }
+
+        /**
+         * Value of an integer constant expression made of literals, final constants and arithmetic
+         */
+        private Long constant(ExpressionTree expression) {
+            try {
+                return evaluate(expression);
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;  // overflows, certainly too large
+            }
+        }
+
+        private Long evaluate(ExpressionTree expression) {
+            if (expression instanceof LiteralTree literal) {
+                Object value = literal.getValue();
+                if (value instanceof Integer || value instanceof Long) {
+                    return ((Number) value).longValue();
+                }
+                return value instanceof Character character ? (long) character : null;
+            }
+            if (expression instanceof ParenthesizedTree parenthesized) {
+                return evaluate(parenthesized.getExpression());
+            }
+            if (expression instanceof TypeCastTree cast) {
+                return evaluate(cast.getExpression());
+            }
+            if (expression instanceof IdentifierTree identifier) {
+                return constants.get(identifier.getName().toString());
+            }
+            if (expression instanceof MemberSelectTree select) {
+                return switch (select.toString()) {
+                    case "Integer.MAX_VALUE" -> (long) Integer.MAX_VALUE;
+                    case "Short.MAX_VALUE" -> (long) Short.MAX_VALUE;
+                    case "Character.MAX_VALUE" -> (long) Character.MAX_VALUE;
+                    default -> null;
+                };
+            }
+            if (expression instanceof UnaryTree unary && unary.getKind() == Tree.Kind.UNARY_MINUS) {
+                Long value = evaluate(unary.getExpression());
+                return value == null ? null : Math.negateExact(value);
+            }
+            if (expression instanceof BinaryTree binary) {
+                Long left = evaluate(binary.getLeftOperand());
+                Long right = evaluate(binary.getRightOperand());
+                if (left == null || right == null) {
+                    return null;
+                }
+                return switch (binary.getKind()) {
+                    case PLUS -> Math.addExact(left, right);
+                    case MINUS -> Math.subtractExact(left, right);
+                    case MULTIPLY -> Math.multiplyExact(left, right);
+                    case DIVIDE -> right == 0 ? null : left / right;
+                    case LEFT_SHIFT -> right < 0 || right > 62 ? null : Math.multiplyExact(left, 1L << right);
+                    default -> null;
+                };
+            }
+            return null;
+        }
+
+        private static boolean isTrue(ExpressionTree condition) {
+            ExpressionTree expression = condition;
+            while (expression instanceof ParenthesizedTree parenthesized) {
+                expression = parenthesized.getExpression();
+            }
+            return expression instanceof LiteralTree literal && Boolean.TRUE.equals(literal.getValue());
+        }
+
+        private static int elementBytes(Tree type) {
+            if (type instanceof PrimitiveTypeTree primitive) {
+                return switch (primitive.getPrimitiveTypeKind()) {
+                    case BOOLEAN, BYTE -> 1;
+                    case CHAR, SHORT -> 2;
+                    case LONG, DOUBLE -> 8;
+                    default -> 4;
+                };
+            }
+            return type instanceof ArrayTypeTree ? 16 : 4;  // rows are array objects, others references
+        }
+
+        private void report(MaliciousCodeDetector.RiskLevel level, String reason, Tree tree) {
+            findings.computeIfAbsent(reason, r -> {
+                long position = positions.getStartPosition(unit, tree);
+                long line = position < 0 ? 0 : unit.getLineMap().getLineNumber(position);
+                return new Finding(level, line);
+            });
+        }
+    }
+
+    /**
+     * Whether a loop body can leave the loop: a return, a throw, a {@code System.exit}, or a break that is
+     * not inside a nested loop or switch (labelled breaks are assumed to leave it)
+     */
+    private static final class ExitFinder extends TreeScanner<Boolean, Void> {
+        private int nested;
+
+        boolean exits(StatementTree body) {
+            return Boolean.TRUE.equals(scan(body, null));
+        }
+
+        @Override
+        public Boolean reduce(Boolean first, Boolean second) {
+            return Boolean.TRUE.equals(first) || Boolean.TRUE.equals(second);
+        }
+
+        @Override
+        public Boolean visitReturn(ReturnTree tree, Void unused) {
+            return true;
+        }
+
+        @Override
+        public Boolean visitThrow(ThrowTree tree, Void unused) {
+            return true;
+        }
+
+        @Override
+        public Boolean visitBreak(BreakTree tree, Void unused) {
+            return tree.getLabel() != null || nested == 0;
+        }
+
+        @Override
+        public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            return tree.getMethodSelect().toString().equals("System.exit") || super.visitMethodInvocation(tree, unused);
+        }
+
+        @Override
+        public Boolean visitForLoop(ForLoopTree tree, Void unused) {
+            return nested(() -> super.visitForLoop(tree, unused));
+        }
+
+        @Override
+        public Boolean visitEnhancedForLoop(EnhancedForLoopTree tree, Void unused) {
+            return nested(() -> super.visitEnhancedForLoop(tree, unused));
+        }
+
+        @Override
+        public Boolean visitWhileLoop(WhileLoopTree tree, Void unused) {
+            return nested(() -> super.visitWhileLoop(tree, unused));
+        }
+
+        @Override
+        public Boolean visitDoWhileLoop(DoWhileLoopTree tree, Void unused) {
+            return nested(() -> super.visitDoWhileLoop(tree, unused));
+        }
+
+        @Override
+        public Boolean visitSwitch(SwitchTree tree, Void unused) {
+            return nested(() -> super.visitSwitch(tree, unused));
+        }
+
+        // Returns and breaks in there do not leave the loop
+        @Override
+        public Boolean visitLambdaExpression(LambdaExpressionTree tree, Void unused) {
+            return false;
+        }
+
+        @Override
+        public Boolean visitClass(ClassTree tree, Void unused) {
+            return false;
+        }
+
+        private Boolean nested(Supplier<Boolean> body) {
+            nested++;
+            try {
+                return body.get();
+            } finally {
+                nested--;
+            }
+        }
+    }
+}
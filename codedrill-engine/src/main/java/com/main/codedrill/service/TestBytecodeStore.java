@@ -0,0 +1,191 @@
+package com.main.codedrill.service;
+
+import com.main.codedrill.model.Task;
+import com.main.codedrill.model.TaskTestBytecode;
+import com.main.codedrill.repository.TaskTestBytecodeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Compiles a task's JUnit tests when the task is saved and keeps the class files in the
+ * {@code task_test_bytecode} table, so that grading compiles only the submission.
+ * <p>
+ * Tests refer to the class under test, so they are compiled against the task's reference solution and
+ * only the classes of the test source are kept. Tasks without a compilable solution are not precompiled
+ * and grading compiles their tests together with every submission, as before. Every row carries a hash
+ * of the sources it was built from; a row whose hash no longer matches the task is ignored, so a task
+ * changed without going through {@link #compile} never runs outdated tests. Rows are cached in memory
+ * under the same hash.
+ */
+@Service
+public class TestBytecodeStore {
+
+    private static final int MAX_REPORTED_ERRORS = 10;
+
+    @Value("${compiler.precompile_tests:true}")
+    private boolean enabled;
+
+    private final InMemoryJavaCompiler javaCompiler;
+    private final TaskTestBytecodeRepository repository;
+
+    // Task id -> tests for the source hash they were looked up with, or none if the task has no valid row
+    private final ConcurrentHashMap<Long, Cached> cache = new ConcurrentHashMap<>();
+
+    private final Logger logger = LoggerFactory.getLogger(TestBytecodeStore.class);
+
+    @Autowired
+    public TestBytecodeStore(InMemoryJavaCompiler javaCompiler, TaskTestBytecodeRepository repository) {
+        this.javaCompiler = javaCompiler;
+        this.repository = repository;
+    }
+
+    /**
+     * Compile the tests of a task that is about to be saved.
+     *
+     * @return the compiled tests, or {@code null} if the task has no tests or they cannot be precompiled
+     * (no reference solution, or no host compiler with JUnit)
+     * @throws IllegalArgumentException with the compiler errors if the tests do not compile against the
+     *                                  reference solution
+     */
+    public PrecompiledTests compile(Task task) {
+        Map<String, String> sources = sources(task);
+        if (!enabled || sources == null || !javaCompiler.isJUnitAvailable()) {
+            return null;
+        }
+        String solutionFile = InMemoryJavaCompiler.publicClassName(task.getSolution(), null) + ".java";
+        String testClass = InMemoryJavaCompiler.publicClassName(task.getJunitTests(), null);
+
+        CompilationResult solution = javaCompiler.compile(Map.of(solutionFile, task.getSolution()), true);
+        if (!solution.success()) {
+            logger.debug("Reference solution of task {} does not compile, tests are not precompiled", task.getId());
+            return null;
+        }
+
+        CompilationResult compilation = javaCompiler.compile(sources, true);
+        if (!compilation.success()) {
+            String testFile = testClass + ".java";
+            if (compilation.hasErrorsIn(testFile)) {
+                throw new IllegalArgumentException("The JUnit tests do not compile against the reference solution:\n"
+                        + compilation.errorsIn(testFile).formatErrors(MAX_REPORTED_ERRORS));
+            }
+            return null;
+        }
+
+        Map<String, byte[]> testClasses = new LinkedHashMap<>(compilation.classFiles());
+        testClasses.keySet().removeAll(solution.classFiles().keySet());
+        return new PrecompiledTests(testClass, sourceHash(sources), testClasses);
+    }
+
+    /**
+     * Store the tests compiled for a saved task, or remove its row if there are none
+     */
+    public void store(Long taskId, PrecompiledTests tests) {
+        if (tests == null) {
+            delete(taskId);
+            return;
+        }
+
+        TaskTestBytecode row = new TaskTestBytecode();
+        row.setTaskId(taskId);
+        row.setSourceHash(tests.sourceHash());
+        row.setTestClass(tests.testClass());
+        row.setClassFiles(pack(tests.classFiles()));
+        row.setCompiledAt(LocalDateTime.now());
+        repository.save(row);
+        cache.put(taskId, new Cached(tests.sourceHash(), tests));
+        logger.info("🔨 Stored {} precompiled test class(es) for task {}", tests.classFiles().size(), taskId);
+    }
+
+    public void delete(Long taskId) {
+        cache.remove(taskId);
+        repository.deleteById(taskId);
+    }
+
+    /**
+     * Precompiled tests matching the task's current sources, or {@code null} if there are none
+     */
+    public PrecompiledTests load(Task task) {
+        Map<String, String> sources = sources(task);
+        if (!enabled || task.getId() == null || sources == null) {
+            return null;
+        }
+        String hash = sourceHash(sources);
+
+        Cached cached = cache.get(task.getId());
+        if (cached != null && cached.sourceHash().equals(hash)) {
+            return cached.tests();
+        }
+
+        PrecompiledTests tests = repository.findById(task.getId())
+                .filter(row -> row.getSourceHash().equals(hash))
+                .map(row -> new PrecompiledTests(row.getTestClass(), row.getSourceHash(), unpack(row.getClassFiles())))
+                .orElse(null);
+        cache.put(task.getId(), new Cached(hash, tests));
+        return tests;
+    }
+
+    /**
+     * Solution and test sources keyed by file name, or {@code null} if the task lacks either
+     */
+    private static Map<String, String> sources(Task task) {
+        String solutionClass = InMemoryJavaCompiler.publicClassName(task.getSolution(), null);
+        String testClass = InMemoryJavaCompiler.publicClassName(task.getJunitTests(), null);
+        if (solutionClass == null || testClass == null || solutionClass.equals(testClass)) {
+            return null;
+        }
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put(solutionClass + ".java", task.getSolution());
+        sources.put(testClass + ".java", task.getJunitTests());
+        return sources;
+    }
+
+    private String sourceHash(Map<String, String> sources) {
+        return CompilationCache.key(sources, List.of("--release", javaCompiler.getRelease()));
+    }
+
+    private static byte[] pack(Map<String, byte[]> classFiles) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(buffer)) {
+            for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+                zip.putNextEntry(new ZipEntry(classFile.getKey()));
+                zip.write(classFile.getValue());
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not pack test class files", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Map<String, byte[]> unpack(byte[] archive) {
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                classFiles.put(entry.getName(), zip.readAllBytes());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not unpack test class files", e);
+        }
+        return Map.copyOf(classFiles);
+    }
+
+    private record Cached(String sourceHash, PrecompiledTests tests) {
+    }
+}
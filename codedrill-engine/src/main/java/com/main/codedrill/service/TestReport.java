@@ -0,0 +1,200 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of running a JUnit test class in the sandbox, or the error that prevented it.
+ * <p>
+ * The test harness in the sandbox ({@code com.main.codedrill.sandbox.TestHarness}) sends it as a binary
+ * report frame, raw in the worker's RESULT frame and base64-encoded on the last line of the entrypoint's
+ * output; {@link #decode} reads it and {@link #encode} writes the same layout. Serialized as JSON it keeps
+ * the shape of the former summary map that API clients consume.
+ * <p>
+ * Report frame layout (big-endian, strings as a length-prefixed UTF-8 byte array, length -1 for null):
+ * <pre>
+ * version:byte flags:byte (bit 0 success, bit 1 allTestsPassed) message:string exception:string
+ * testsSucceeded:int testsFailed:int testsSkipped:int totalTests:int
+ * failureCount:int (testName:string exception:string stackTrace:string)* failuresOmitted:int
+ * testCount:int (testName:string status:byte durationMillis:long)*
+ * parallelism:int wallMillis:long testMillis:long
+ * </pre>
+ *
+ * @param failures          reported failures, capped by the harness; failures beyond the cap are only counted
+ * @param tests             per-test results, capped by the harness
+ * @param compilationErrors compiler errors if the submission or the tests did not compile on the host
+ * @param exception         stack trace of a harness error
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record TestReport(boolean success, String message, int testsSucceeded, int testsFailed, int testsSkipped,
+                         int totalTests, boolean allTestsPassed, List<Failure> failures, int failuresOmitted,
+                         List<TestCase> tests, int parallelism, long wallMillis, long testMillis,
+                         List<CompilationDiagnostic> compilationErrors, String exception) {
+
+    static final int FRAME_VERSION = 1;
+
+    private static final int FLAG_SUCCESS = 1;
+    private static final int FLAG_ALL_PASSED = 2;
+
+    public TestReport {
+        failures = failures != null ? List.copyOf(failures) : List.of();
+        tests = tests != null ? List.copyOf(tests) : List.of();
+        compilationErrors = compilationErrors != null ? List.copyOf(compilationErrors) : List.of();
+    }
+
+    /**
+     * @param exception message of the exception that failed the test, {@code null} if it had none
+     */
+    public record Failure(String testName, String exception, String stackTrace) {
+    }
+
+    /**
+     * @param status {@code passed}, {@code failed} or {@code skipped}
+     */
+    public record TestCase(String testName, String status, long durationMillis) {
+    }
+
+    /**
+     * Report of tests that could not be run at all
+     */
+    public static TestReport error(String message) {
+        return new TestReport(false, message, 0, 0, 0, 0, false, null, 0, null, 0, 0, 0, null, null);
+    }
+
+    /**
+     * Report of tests that could not be run because the submission or the tests did not compile
+     */
+    public static TestReport compilationFailed(String message, List<CompilationDiagnostic> diagnostics) {
+        return new TestReport(false, message, 0, 0, 0, 0, false, null, 0, null, 0, 0, 0, diagnostics, null);
+    }
+
+    /**
+     * Whether the tests were stopped by their time limit. Only the host writes a message with this prefix;
+     * messages that quote the sandbox's output start with their own.
+     */
+    public boolean timedOut() {
+        return message != null && message.startsWith("⏰ Test execution timeout");
+    }
+
+    /**
+     * Read a report frame written by the sandbox's test harness
+     *
+     * @throws IOException if the frame is truncated or of another version
+     */
+    public static TestReport decode(byte[] frame) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(frame));
+        int version = data.readUnsignedByte();
+        if (version != FRAME_VERSION) {
+            throw new IOException("Unsupported test report version " + version);
+        }
+        int flags = data.readUnsignedByte();
+        String message = readString(data);
+        String exception = readString(data);
+        int succeeded = data.readInt();
+        int failed = data.readInt();
+        int skipped = data.readInt();
+        int total = data.readInt();
+
+        int failureCount = data.readInt();
+        List<Failure> failures = new ArrayList<>(Math.min(failureCount, 64));
+        for (int i = 0; i < failureCount; i++) {
+            failures.add(new Failure(readString(data), readString(data), readString(data)));
+        }
+        int failuresOmitted = data.readInt();
+
+        int testCount = data.readInt();
+        List<TestCase> tests = new ArrayList<>(Math.min(testCount, 256));
+        for (int i = 0; i < testCount; i++) {
+            String name = readString(data);
+            String status = switch (data.readByte()) {
+                case 0 -> "passed";
+                case 1 -> "failed";
+                default -> "skipped";
+            };
+            tests.add(new TestCase(name, status, data.readLong()));
+        }
+
+        int parallelism = data.readInt();
+        long wallMillis = data.readLong();
+        long testMillis = data.readLong();
+        return new TestReport((flags & FLAG_SUCCESS) != 0, message, succeeded, failed, skipped, total,
+                (flags & FLAG_ALL_PASSED) != 0, failures, failuresOmitted, tests, parallelism, wallMillis,
+                testMillis, null, exception);
+    }
+
+    /**
+     * Write the report frame; compilation errors are not part of it
+     */
+    public byte[] encode() {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(buffer);
+            data.writeByte(FRAME_VERSION);
+            data.writeByte((success ? FLAG_SUCCESS : 0) | (allTestsPassed ? FLAG_ALL_PASSED : 0));
+            writeString(data, message);
+            writeString(data, exception);
+            data.writeInt(testsSucceeded);
+            data.writeInt(testsFailed);
+            data.writeInt(testsSkipped);
+            data.writeInt(totalTests);
+            data.writeInt(failures.size());
+            for (Failure failure : failures) {
+                writeString(data, failure.testName());
+                writeString(data, failure.exception());
+                writeString(data, failure.stackTrace());
+            }
+            data.writeInt(failuresOmitted);
+            data.writeInt(tests.size());
+            for (TestCase test : tests) {
+                writeString(data, test.testName());
+                data.writeByte(switch (test.status()) {
+                    case "passed" -> 0;
+                    case "failed" -> 1;
+                    default -> 2;
+                });
+                data.writeLong(test.durationMillis());
+            }
+            data.writeInt(parallelism);
+            data.writeLong(wallMillis);
+            data.writeLong(testMillis);
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);  // not thrown by an in-memory stream
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > data.available()) {
+            throw new EOFException("Truncated test report");
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,164 @@
+package com.main.codedrill.service;
+
+import com.main.codedrill.model.IoCase;
+import com.main.codedrill.model.Task;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of grading results for identical submissions to the same version of a task.
+ * <p>
+ * The key combines the hash of the submission (with insignificant trailing whitespace removed), the hash of
+ * the task's expected output, JUnit tests and test mode, and the runner image, so editing a task or switching images
+ * never serves a stale verdict. Entries expire after a TTL and the least recently used ones are evicted
+ * beyond the size limit. Tasks flagged as nondeterministic are never cached.
+ */
+@Component
+public class VerdictCache {
+
+    @Value("${execution.verdict_cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${execution.verdict_cache.max_entries:5000}")
+    private int maxEntries;
+
+    @Value("${execution.verdict_cache.ttl_minutes:60}")
+    private int ttlMinutes;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Logger logger = LoggerFactory.getLogger(VerdictCache.class);
+
+    @PostConstruct
+    private void initialize() {
+        if (enabled && (maxEntries <= 0 || ttlMinutes <= 0)) {
+            throw new IllegalArgumentException("Invalid verdict cache settings: entries=" + maxEntries + ", ttl=" + ttlMinutes);
+        }
+        logger.info("🗃️ Verdict cache {} (max {} entries, TTL {} min)",
+                enabled ? "ENABLED" : "DISABLED", maxEntries, ttlMinutes);
+    }
+
+    /**
+     * @return whether results for this task may be cached at all
+     */
+    public boolean isCacheable(Task task) {
+        return enabled && task.getId() != null && !task.isNondeterministic();
+    }
+
+    /**
+     * Cache key for a submission to a task, graded with the given runner image
+     */
+    public static String key(Task task, String code, String runnerImage) {
+        String taskVersion = sha256(Objects.toString(task.getExpectedOutput(), "") + "\u0000"
+                + Objects.toString(task.getJunitTests(), "") + "\u0000" + task.isParallelTests()
+                + ioCasesVersion(task));
+        return task.getId() + ":" + sha256(normalize(code)) + ":" + taskVersion + ":" + runnerImage;
+    }
+
+    private static String ioCasesVersion(Task task) {
+        StringBuilder version = new StringBuilder();
+        for (IoCase ioCase : task.getIoCases()) {
+            version.append("\u0000").append(Objects.toString(ioCase.getStdin(), ""))
+                    .append("\u0001").append(Objects.toString(ioCase.getExpectedOutput(), ""));
+        }
+        return version.toString();
+    }
+
+    public GradingResult get(String key) {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt.isAfter(Instant.now())) {
+                hits.incrementAndGet();
+                return entry.result;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, Long taskId, GradingResult result) {
+        Entry entry = new Entry(taskId, result, Instant.now().plus(Duration.ofMinutes(ttlMinutes)));
+        synchronized (this) {
+            entries.put(key, entry);
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached verdict of a task, e.g. after its tests were edited
+     */
+    public synchronized void invalidateTask(Long taskId) {
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.taskId.equals(taskId));
+        if (entries.size() < before) {
+            logger.debug("🗃️ Invalidated {} cached verdicts of task {}", before - entries.size(), taskId);
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits.get(), misses.get(), entries.size());
+    }
+
+    /**
+     * Hash identifying a submission regardless of line endings and trailing whitespace
+     */
+    public static String submissionHash(String code) {
+        return sha256(normalize(code));
+    }
+
+    /**
+     * Line endings and trailing whitespace never change what a program does; leading lines are kept
+     * because they shift the line numbers shown in stack traces
+     */
+    static String normalize(String code) {
+        if (code == null) {
+            return "";
+        }
+        String[] lines = code.replace("\r\n", "\n").replace('\r', '\n').split("\n");
+        StringBuilder normalized = new StringBuilder(code.length());
+        for (String line : lines) {
+            normalized.append(line.stripTrailing()).append('\n');
+        }
+        return normalized.toString().stripTrailing();
+    }
+
+    static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry(Long taskId, GradingResult result, Instant expiresAt) {
+    }
+
+    public record Stats(long hits, long misses, int entries) {
+    }
+}
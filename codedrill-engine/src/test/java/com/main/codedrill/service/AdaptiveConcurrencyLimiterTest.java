@@ -0,0 +1,120 @@
+package com.main.codedrill.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Window-based growth and backoff of the execution limit
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    private final List<Integer> changes = new ArrayList<>();
+
+    /**
+     * Limit 4 within [2, 6], windows of 4 samples, halving on backoff, 2x latency tolerance, 25% timeout rate
+     */
+    private AdaptiveConcurrencyLimiter limiter() {
+        return new AdaptiveConcurrencyLimiter(4, 2, 6, 4, 0.5, 2.0, 0.25, changes::add);
+    }
+
+    private static void window(AdaptiveConcurrencyLimiter limiter, long latencyMillis, int timeouts, int inFlight) {
+        for (int i = 0; i < 4; i++) {
+            limiter.onSample(latencyMillis, i < timeouts, inFlight);
+        }
+    }
+
+    @Test
+    void growsByOneAfterAHealthyWindowThatUsedTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        for (int i = 0; i < 3; i++) {
+            limiter.onSample(100, false, 4);
+        }
+        assertEquals(4, limiter.getLimit());
+
+        limiter.onSample(100, false, 4);
+        assertEquals(5, limiter.getLimit());
+        window(limiter, 100, 0, 3);
+        assertEquals(6, limiter.getLimit());
+
+        // capped at the maximum
+        window(limiter, 100, 0, 6);
+        assertEquals(6, limiter.getLimit());
+        assertEquals(List.of(5, 6), changes);
+    }
+
+    @Test
+    void keepsTheLimitAfterAWindowThatBarelyUsedIt() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        window(limiter, 100, 0, 1);
+        assertEquals(4, limiter.getLimit());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    void backsOffOnATimeoutRateButToleratesASingleTimeout() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        // 1 of 4 is exactly the allowed rate
+        window(limiter, 100, 1, 4);
+        assertEquals(5, limiter.getLimit());
+
+        window(limiter, 100, 2, 4);
+        assertEquals(2, limiter.getLimit());
+
+        // never below the minimum
+        window(limiter, 100, 4, 4);
+        assertEquals(2, limiter.getLimit());
+        assertEquals(List.of(5, 2), changes);
+
+        AdaptiveConcurrencyLimiter.Stats stats = limiter.getStats();
+        assertEquals(12L, stats.samples());
+        assertEquals(7L, stats.timeouts());
+        assertEquals(1L, stats.increases());
+        assertEquals(1L, stats.decreases());
+    }
+
+    @Test
+    void backsOffWhenRecentLatencyRisesFarAboveTheBaseline() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        window(limiter, 100, 0, 1);
+        assertEquals(100L, limiter.getStats().baselineLatencyMillis());
+
+        window(limiter, 1000, 0, 1);
+        assertEquals(2, limiter.getLimit());
+        assertEquals(List.of(2), changes);
+
+        // the overloaded window's latency is not carried into the next one
+        AdaptiveConcurrencyLimiter.Stats stats = limiter.getStats();
+        assertEquals(stats.baselineLatencyMillis(), stats.recentLatencyMillis());
+    }
+
+    @Test
+    void keepsLatenciesOfTimedOutRunsOutOfTheAverages() {
+        AdaptiveConcurrencyLimiter limiter = limiter();
+
+        limiter.onSample(100, false, 1);
+        limiter.onSample(60_000, true, 1);
+        limiter.onSample(60_000, true, 1);
+
+        AdaptiveConcurrencyLimiter.Stats stats = limiter.getStats();
+        assertEquals(100L, stats.recentLatencyMillis());
+        assertEquals(100L, stats.baselineLatencyMillis());
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(1, 2, 6, 4, 0.5, 2.0, 0.25, changes::add));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(4, 2, 6, 4, 1.0, 2.0, 0.25, changes::add));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveConcurrencyLimiter(4, 2, 6, 4, 0.5, 1.0, 0.25, changes::add));
+    }
+}
@@ -0,0 +1,68 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Report frames sent by the sandbox's case harness, and grading results that carry them
+ */
+class CaseReportTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static final CaseReport REPORT = new CaseReport(null, List.of(
+            new CaseReport.Case(CaseReport.Status.OK, "3\n", "", 12),
+            new CaseReport.Case(CaseReport.Status.EXCEPTION, "", "java.lang.ArithmeticException: / by zero", 3),
+            new CaseReport.Case(CaseReport.Status.TIMEOUT, "ünïcödé ✓", null, 2000),
+            new CaseReport.Case(CaseReport.Status.SKIPPED, "", "Not run: an earlier case could not be stopped", 0)),
+            2041);
+
+    @Test
+    void roundTripsThroughTheFrame() throws IOException {
+        assertEquals(REPORT, CaseReport.decode(REPORT.encode()));
+
+        CaseReport error = CaseReport.error("Test cases failed: \"quoted\"\nand a second line");
+        assertEquals(error, CaseReport.decode(error.encode()));
+    }
+
+    @Test
+    void rejectsTruncatedAndUnknownFrames() {
+        byte[] frame = REPORT.encode();
+        for (int length : new int[]{0, 1, 10, frame.length / 2, frame.length - 1}) {
+            byte[] truncated = Arrays.copyOf(frame, length);
+            assertThrows(IOException.class, () -> CaseReport.decode(truncated), "length " + length);
+        }
+
+        frame[0] = CaseReport.FRAME_VERSION + 1;
+        assertThrows(IOException.class, () -> CaseReport.decode(frame));
+    }
+
+    @Test
+    void recognizesTimeouts() {
+        assertTrue(REPORT.timedOut());
+        assertTrue(CaseReport.error("⏰ Test cases timeout - the cases took longer than 30 seconds").timedOut());
+        assertFalse(CaseReport.error("Test cases failed: boom").timedOut());
+        assertFalse(CaseReport.error("Test cases failed: ⏰ Test cases timeout").timedOut());
+        assertFalse(new CaseReport(null, List.of(REPORT.cases().get(0)), 12).timedOut());
+    }
+
+    @Test
+    void travelsWithTheGradingResultAsJson() throws IOException {
+        GradingResult result = new GradingResult("42", null).withCaseReport(REPORT);
+        GradingResult read = mapper.readValue(mapper.writeValueAsString(result), GradingResult.class);
+        assertEquals(result, read);
+        assertTrue(read.casesRun());
+
+        GradingResult withoutCases = mapper.readValue("{\"output\": \"42\"}", GradingResult.class);
+        assertFalse(withoutCases.casesRun());
+
+        GradingResult timedOut = new GradingResult("⏰", null, GradingResult.Status.TIMEOUT).withCaseReport(REPORT);
+        assertEquals(timedOut, mapper.readValue(mapper.writeValueAsString(timedOut), GradingResult.class));
+    }
+}
@@ -0,0 +1,111 @@
+package com.main.codedrill.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Expiry of container leases on the hashed timer wheel, including deadlines more than one revolution away
+ */
+class ContainerLeaseRegistryTest {
+
+    private static final long TICK_NANOS = 10;
+
+    /**
+     * Four slots of 10ns starting at time 0, advanced by hand
+     */
+    private final ContainerLeaseRegistry.TimerWheel wheel =
+            new ContainerLeaseRegistry.TimerWheel(TICK_NANOS, 4, 0, lease -> { });
+
+    private static ContainerLeaseRegistry.Lease lease(long deadlineNanos) {
+        return new ContainerLeaseRegistry.Lease("container", "owner", Instant.EPOCH, Instant.EPOCH, deadlineNanos);
+    }
+
+    /**
+     * Advance the wheel until the lease expires and return the number of ticks it took
+     */
+    private int ticksUntilExpired(ContainerLeaseRegistry.Lease lease) {
+        for (int ticks = 1; ticks <= 100; ticks++) {
+            List<ContainerLeaseRegistry.Lease> expired = wheel.advance();
+            if (expired.contains(lease)) {
+                assertEquals(1, expired.size());
+                return ticks;
+            }
+            assertTrue(expired.isEmpty());
+        }
+        return fail("lease never expired");
+    }
+
+    @Test
+    void expiresWithinTheFirstRevolution() {
+        ContainerLeaseRegistry.Lease lease = lease(25);
+        wheel.schedule(lease);
+        assertEquals(3, ticksUntilExpired(lease));
+    }
+
+    @Test
+    void expiresOnTheTickOfItsDeadline() {
+        ContainerLeaseRegistry.Lease onBoundary = lease(40);
+        wheel.schedule(onBoundary);
+        assertEquals(4, ticksUntilExpired(onBoundary));
+
+        ContainerLeaseRegistry.Lease justAfter = lease(81);
+        wheel.schedule(justAfter);
+        assertEquals(5, ticksUntilExpired(justAfter));
+    }
+
+    @Test
+    void waitsOutTheRoundsOfADeadlineSeveralRevolutionsAway() {
+        // due at tick 10, in slot 2, which is passed at ticks 2 and 6 first
+        ContainerLeaseRegistry.Lease lease = lease(95);
+        wheel.schedule(lease);
+        assertEquals(10, ticksUntilExpired(lease));
+    }
+
+    @Test
+    void countsRoundsFromTheCurrentTick() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(wheel.advance().isEmpty());
+        }
+
+        // due at tick 7, in the slot of the current tick 3: one revolution, no extra round
+        ContainerLeaseRegistry.Lease sameSlot = lease(70);
+        wheel.schedule(sameSlot);
+        assertEquals(4, ticksUntilExpired(sameSlot));
+
+        // due at tick 12 from tick 7, in slot 0
+        ContainerLeaseRegistry.Lease nextRound = lease(120);
+        wheel.schedule(nextRound);
+        assertEquals(5, ticksUntilExpired(nextRound));
+    }
+
+    @Test
+    void expiresAPastDeadlineOnTheNextTick() {
+        for (int i = 0; i < 5; i++) {
+            wheel.advance();
+        }
+
+        ContainerLeaseRegistry.Lease lease = lease(0);
+        wheel.schedule(lease);
+        assertEquals(1, ticksUntilExpired(lease));
+    }
+
+    @Test
+    void dropsReleasedLeases() {
+        ContainerLeaseRegistry.Lease released = lease(95);
+        ContainerLeaseRegistry.Lease kept = lease(95);
+        wheel.schedule(released);
+        wheel.schedule(kept);
+        released.released = true;
+
+        List<ContainerLeaseRegistry.Lease> expired = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expired.addAll(wheel.advance());
+        }
+        assertEquals(List.of(kept), expired);
+    }
+}
@@ -0,0 +1,324 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.URLDecoder;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Engine API client against a stub daemon listening on a Unix socket in a temporary directory
+ */
+class DockerEngineClientTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private StubDaemon daemon;
+    private DockerEngineClient client;
+
+    @BeforeEach
+    void startDaemon() throws IOException {
+        daemon = new StubDaemon(tempDir.resolve("docker.sock"));
+        client = new DockerEngineClient(daemon.socket.toString(), "v1.41", 2);
+    }
+
+    @AfterEach
+    void stopDaemon() {
+        client.destroy();
+        daemon.close();
+    }
+
+    @Test
+    void createSendsLimitsAndReturnsId() throws Exception {
+        daemon.on("POST /v1.41/containers/create", (request, out) -> respond(out, 201, "{\"Id\":\"c0ffee\"}"));
+
+        SandboxLimits limits = new SandboxLimits(48L * 1024 * 1024, 0.3, 17,
+                List.of(new SandboxLimits.Ulimit("nofile", 128, 256)), true, List.of("JAVA_OPTS=-Xmx32m"));
+        String id = client.createContainer("coderunner-1", "codedrill:latest", null, limits, Map.of(), true);
+
+        assertEquals("c0ffee", id);
+        Request request = daemon.requests.get(0);
+        assertEquals("name=coderunner-1", request.query());
+        JsonNode body = JSON.readTree(request.body());
+        assertEquals("codedrill:latest", body.path("Image").asText());
+        assertTrue(body.path("OpenStdin").asBoolean());
+        assertTrue(body.path("StdinOnce").asBoolean());
+        assertEquals("JAVA_OPTS=-Xmx32m", body.path("Env").path(0).asText());
+        JsonNode hostConfig = body.path("HostConfig");
+        assertEquals(48L * 1024 * 1024, hostConfig.path("Memory").asLong());
+        assertEquals(300_000_000L, hostConfig.path("NanoCpus").asLong());
+        assertEquals(17, hostConfig.path("PidsLimit").asInt());
+        assertEquals("none", hostConfig.path("NetworkMode").asText());
+        assertEquals(256, hostConfig.path("Ulimits").path(0).path("Hard").asInt());
+    }
+
+    @Test
+    void attachDemultiplexesOutputAndClosesStdin() throws Exception {
+        daemon.on("POST /v1.41/containers/runner/attach", (request, out) -> {
+            out.write(("HTTP/1.1 101 UPGRADED\r\nContent-Type: application/vnd.docker.raw-stream\r\n"
+                    + "Connection: Upgrade\r\nUpgrade: tcp\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            String stdin = new String(request.in().readAllBytes(), StandardCharsets.UTF_8);
+            writeFrame(out, 1, "echo: " + stdin);
+            writeFrame(out, 2, "warning");
+            writeFrame(out, 1, " ü");
+        });
+
+        DockerEngineClient.Attachment attachment = client.attach("runner");
+        try (OutputStream stdin = attachment.stdin()) {
+            stdin.write("hello".getBytes(StandardCharsets.UTF_8));
+        }
+
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        attachment.readOutput((stream, bytes, offset, length) ->
+                (stream == LiveOutput.Stream.STDOUT ? stdout : stderr).write(bytes, offset, length));
+
+        assertEquals("echo: hello ü", stdout.toString(StandardCharsets.UTF_8));
+        assertEquals("warning", stderr.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void awaitExitReportsExitCodeAndOomKill() throws Exception {
+        daemon.on("POST /v1.41/containers/runner/wait", (request, out) -> respond(out, 200, "{\"StatusCode\":137}"));
+        daemon.on("GET /v1.41/containers/runner/json", (request, out) ->
+                respond(out, 200, "{\"State\":{\"Running\":false,\"ExitCode\":137,\"OOMKilled\":true}}"));
+
+        DockerEngineClient.ExitStatus exit = client.awaitExit("runner", 1, TimeUnit.SECONDS);
+
+        assertNotNull(exit);
+        assertEquals(137, exit.exitCode());
+        assertTrue(exit.oomKilled());
+    }
+
+    @Test
+    void awaitExitReturnsNullWhileContainerKeepsRunning() throws Exception {
+        daemon.on("POST /v1.41/containers/runner/wait", (request, out) -> request.in().readAllBytes());
+
+        long start = System.nanoTime();
+        assertNull(client.awaitExit("runner", 200, TimeUnit.MILLISECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1500);
+    }
+
+    @Test
+    void killAndRemoveIgnoreMissingContainers() throws Exception {
+        daemon.on("POST /v1.41/containers/gone/kill", (request, out) -> respond(out, 404, "{\"message\":\"No such container: gone\"}"));
+        daemon.on("DELETE /v1.41/containers/gone", (request, out) -> respond(out, 404, "{\"message\":\"No such container: gone\"}"));
+
+        client.kill("gone");
+        client.remove("gone");
+
+        assertEquals("force=true", daemon.requests.get(1).query());
+    }
+
+    @Test
+    void errorsCarryTheDaemonMessage() {
+        daemon.on("POST /v1.41/containers/gone/start", (request, out) -> respond(out, 404, "{\"message\":\"No such container: gone\"}"));
+
+        IOException error = assertThrows(IOException.class, () -> client.start("gone"));
+        assertTrue(error.getMessage().contains("No such container: gone"), error.getMessage());
+    }
+
+    @Test
+    void listContainersParsesNamesAndSendsFilters() throws Exception {
+        daemon.on("GET /v1.41/containers/json", (request, out) -> respond(out, 200,
+                "[{\"Id\":\"a1\",\"Names\":[\"/coderunner-1\"],\"State\":\"running\",\"Created\":1700000000,"
+                        + "\"Labels\":{\"codedrill.pool\":\"run\"}},"
+                        + "{\"Id\":\"b2\",\"Names\":[\"/coderunner-2\"],\"State\":\"exited\",\"Created\":1700000100}]"));
+
+        List<DockerEngineClient.ContainerSummary> containers =
+                client.listContainers(true, Map.of("name", List.of("coderunner-")));
+
+        assertEquals(2, containers.size());
+        assertEquals("coderunner-1", containers.get(0).name());
+        assertTrue(containers.get(0).isRunning());
+        assertEquals("run", containers.get(0).labels().get("codedrill.pool"));
+        assertFalse(containers.get(1).isRunning());
+        assertEquals(1700000100L, containers.get(1).createdAt().getEpochSecond());
+
+        String query = URLDecoder.decode(daemon.requests.get(0).query(), StandardCharsets.UTF_8);
+        assertTrue(query.contains("all=true"), query);
+        assertTrue(query.contains("{\"name\":[\"coderunner-\"]}"), query);
+    }
+
+    @Test
+    void eventsAreStreamedFromChunkedResponse() throws Exception {
+        daemon.on("GET /v1.41/events", (request, out) -> {
+            out.write("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            writeChunk(out, "{\"Type\":\"container\",\"Action\":\"die\",\"Actor\":{\"ID\":\"a1\","
+                    + "\"Attributes\":{\"name\":\"warmrunner-run-1\",\"exitCode\":\"137\",\"codedrill.pool\":\"run\"}}}\n");
+            writeChunk(out, "{\"Type\":\"container\",\"Action\":\"oom\",");
+            writeChunk(out, "\"Actor\":{\"ID\":\"b2\",\"Attributes\":{\"name\":\"coderunner-2\"}}}\n");
+            request.in().readAllBytes();  // keep the stream open until the client hangs up
+        });
+
+        BlockingQueue<DockerEngineClient.ContainerEvent> events = new LinkedBlockingQueue<>();
+        try (DockerEngineClient.EventStream stream = client.events(Map.of("event", List.of("die", "oom")), events::add)) {
+            DockerEngineClient.ContainerEvent died = events.poll(2, TimeUnit.SECONDS);
+            assertNotNull(died);
+            assertEquals("die", died.action());
+            assertEquals("warmrunner-run-1", died.name());
+            assertEquals(137, died.exitCode());
+            assertEquals("run", died.attributes().get("codedrill.pool"));
+
+            DockerEngineClient.ContainerEvent oom = events.poll(2, TimeUnit.SECONDS);
+            assertNotNull(oom);
+            assertEquals("oom", oom.action());
+            assertEquals("b2", oom.containerId());
+        }
+
+        String query = URLDecoder.decode(daemon.requests.get(0).query(), StandardCharsets.UTF_8);
+        assertTrue(query.contains("\"type\":[\"container\"]"), query);
+    }
+
+    private static void respond(OutputStream out, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        out.write(("HTTP/1.1 " + status + " Stub\r\nContent-Type: application/json\r\nContent-Length: "
+                + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(body);
+    }
+
+    private static void writeFrame(OutputStream out, int stream, String text) throws IOException {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        out.write(new byte[]{(byte) stream, 0, 0, 0,
+                (byte) (payload.length >>> 24), (byte) (payload.length >>> 16), (byte) (payload.length >>> 8), (byte) payload.length});
+        out.write(payload);
+        out.flush();
+    }
+
+    private static void writeChunk(OutputStream out, String text) throws IOException {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        out.write((Integer.toHexString(data.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(data);
+        out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private record Request(String method, String path, String query, byte[] body, InputStream in) {
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(Request request, OutputStream out) throws IOException;
+    }
+
+    /**
+     * Minimal HTTP/1.1 server on a Unix socket: one request per connection, answered by the handler
+     * registered for its method and path
+     */
+    private static final class StubDaemon implements AutoCloseable {
+        private final Path socket;
+        private final ServerSocketChannel server;
+        private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+        private final List<Request> requests = new CopyOnWriteArrayList<>();
+        private final List<SocketChannel> connections = new CopyOnWriteArrayList<>();
+
+        StubDaemon(Path socket) throws IOException {
+            this.socket = socket;
+            this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Thread acceptor = new Thread(this::acceptLoop, "StubDaemon-Acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        void on(String route, Handler handler) {
+            handlers.put(route, handler);
+        }
+
+        private void acceptLoop() {
+            while (server.isOpen()) {
+                try {
+                    SocketChannel connection = server.accept();
+                    connections.add(connection);
+                    Thread worker = new Thread(() -> serve(connection), "StubDaemon-Connection");
+                    worker.setDaemon(true);
+                    worker.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(SocketChannel connection) {
+            try (connection) {
+                InputStream in = Channels.newInputStream(connection);
+                OutputStream out = Channels.newOutputStream(connection);
+
+                String[] requestLine = readLine(in).split(" ");
+                int contentLength = 0;
+                String line;
+                while (!(line = readLine(in)).isEmpty()) {
+                    if (line.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(line.substring(15).trim());
+                    }
+                }
+                byte[] body = in.readNBytes(contentLength);
+
+                String target = requestLine[1];
+                int question = target.indexOf('?');
+                String path = question >= 0 ? target.substring(0, question) : target;
+                Request request = new Request(requestLine[0], path, question >= 0 ? target.substring(question + 1) : "", body, in);
+                requests.add(request);
+
+                Handler handler = handlers.get(request.method() + " " + path);
+                if (handler == null) {
+                    respond(out, 404, "{\"message\":\"page not found\"}");
+                } else {
+                    handler.handle(request, out);
+                }
+            } catch (IOException e) {
+                // client hung up
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public void close() {
+            try {
+                server.close();
+                for (SocketChannel connection : connections) {
+                    connection.close();
+                }
+            } catch (IOException e) {
+                // best effort
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.main.codedrill.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Slot admission, round-robin dispatch across users and the ways a ticket can end
+ */
+class FairShareSchedulerTest {
+
+    @Test
+    void grantsFreedSlotsRoundRobinAcrossUsers() {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 3, 10);
+        FairShareScheduler.Ticket holder = scheduler.enqueue("holder");
+        assertTrue(holder.isGranted());
+
+        FairShareScheduler.Ticket a1 = scheduler.enqueue("alice");
+        FairShareScheduler.Ticket a2 = scheduler.enqueue("alice");
+        FairShareScheduler.Ticket a3 = scheduler.enqueue("alice");
+        FairShareScheduler.Ticket b1 = scheduler.enqueue("bob");
+        FairShareScheduler.Ticket c1 = scheduler.enqueue("carol");
+        assertEquals(5, scheduler.getQueued());
+
+        // alice queued first, but gets her second slot only after bob and carol had one each
+        FairShareScheduler.Ticket previous = holder;
+        for (FairShareScheduler.Ticket expected : new FairShareScheduler.Ticket[]{a1, b1, c1, a2, a3}) {
+            assertFalse(expected.isGranted());
+            previous.release();
+            assertTrue(expected.isGranted());
+            assertEquals(1, scheduler.getRunning());
+            previous = expected;
+        }
+
+        previous.release();
+        assertEquals(0, scheduler.getRunning());
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    void boundsTheQueuePerUserAndInTotal() {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 2, 3);
+        scheduler.enqueue("holder");
+
+        scheduler.enqueue("alice");
+        scheduler.enqueue("alice");
+        assertThrows(RejectedExecutionException.class, () -> scheduler.enqueue("alice"));
+
+        scheduler.enqueue("bob");
+        assertThrows(RejectedExecutionException.class, () -> scheduler.enqueue("carol"));
+        assertEquals(3, scheduler.getQueued());
+    }
+
+    @Test
+    void awaitOnAGrantedTicketReturnsAtOnce() throws InterruptedException {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 1, 1);
+        FairShareScheduler.Ticket ticket = scheduler.enqueue("alice");
+
+        assertTrue(ticket.await(0, TimeUnit.MILLISECONDS));
+
+        Thread.currentThread().interrupt();
+        try {
+            assertTrue(ticket.await(1, TimeUnit.SECONDS));
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+        assertTrue(ticket.isGranted());
+        assertEquals(1, scheduler.getRunning());
+    }
+
+    @Test
+    void cancellingAGrantedTicketFreesItsSlotOnce() throws InterruptedException {
+        FairShareScheduler scheduler = new FairShareScheduler(2, 2, 2);
+        FairShareScheduler.Ticket first = scheduler.enqueue("alice");
+        FairShareScheduler.Ticket second = scheduler.enqueue("bob");
+        FairShareScheduler.Ticket waiting = scheduler.enqueue("carol");
+        assertFalse(waiting.isGranted());
+
+        first.cancel();
+        assertFalse(first.isGranted());
+        assertTrue(waiting.isGranted());
+        assertEquals(2, scheduler.getRunning());
+
+        // a finished ticket must not free a slot held by somebody else
+        first.release();
+        first.cancel();
+        assertEquals(2, scheduler.getRunning());
+        assertFalse(first.await(0, TimeUnit.MILLISECONDS));
+
+        second.release();
+        waiting.release();
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    void withdrawsAQueuedTicketWhoseWaitTimesOut() throws InterruptedException {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 2, 2);
+        FairShareScheduler.Ticket holder = scheduler.enqueue("holder");
+        FairShareScheduler.Ticket waiting = scheduler.enqueue("alice");
+
+        assertFalse(waiting.await(0, TimeUnit.MILLISECONDS));
+        assertEquals(0, scheduler.getQueued());
+
+        holder.release();
+        assertFalse(waiting.isGranted());
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    void withdrawsAQueuedTicketWhoseWaitIsInterrupted() {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 2, 2);
+        FairShareScheduler.Ticket holder = scheduler.enqueue("holder");
+        FairShareScheduler.Ticket waiting = scheduler.enqueue("alice");
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, () -> waiting.await(1, TimeUnit.MINUTES));
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals(0, scheduler.getQueued());
+
+        holder.release();
+        assertFalse(waiting.isGranted());
+        assertEquals(0, scheduler.getRunning());
+    }
+
+    @Test
+    void wakesAWaiterWhenItsSlotIsGranted() throws InterruptedException {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 1, 1);
+        FairShareScheduler.Ticket holder = scheduler.enqueue("holder");
+        FairShareScheduler.Ticket waiting = scheduler.enqueue("alice");
+
+        AtomicBoolean granted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            try {
+                granted.set(waiting.await(1, TimeUnit.MINUTES));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        holder.release();
+        waiter.join(TimeUnit.SECONDS.toMillis(30));
+        assertFalse(waiter.isAlive());
+        assertTrue(granted.get());
+        waiting.release();
+    }
+
+    @Test
+    void grantsWaitersWhenCapacityGrowsAndCancelsThemOnShutdown() throws InterruptedException {
+        FairShareScheduler scheduler = new FairShareScheduler(1, 2, 3);
+        scheduler.enqueue("holder");
+        FairShareScheduler.Ticket alice = scheduler.enqueue("alice");
+        FairShareScheduler.Ticket bob = scheduler.enqueue("bob");
+        FairShareScheduler.Ticket carol = scheduler.enqueue("carol");
+
+        scheduler.setCapacity(3);
+        assertTrue(alice.isGranted());
+        assertTrue(bob.isGranted());
+        assertFalse(carol.isGranted());
+
+        scheduler.shutdown();
+        assertFalse(carol.await(1, TimeUnit.MINUTES));
+        assertEquals(0, scheduler.getQueued());
+        assertThrows(RejectedExecutionException.class, () -> scheduler.enqueue("dave"));
+    }
+}
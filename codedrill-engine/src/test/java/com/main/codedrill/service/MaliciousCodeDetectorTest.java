@@ -0,0 +1,196 @@
+package com.main.codedrill.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rules of the security scan, and its running time on inputs built to make pattern matchers backtrack
+ */
+class MaliciousCodeDetectorTest {
+
+    private static final int ADVERSARIAL_SIZE = 1 << 20;
+    // A linear scan of the full input takes about 8 times as long as one of an eighth of it, a quadratic
+    // one about 64 times; the bound leaves room for noise on a loaded machine
+    private static final double MAX_GROWTH = 24;
+    private static final long MIN_MEASURED_NANOS = 1_000_000;
+    private static final Duration ADVERSARIAL_TIMEOUT = Duration.ofSeconds(30);
+
+    private final MaliciousCodeDetector detector = new MaliciousCodeDetector();
+
+    private static final String SOLUTION = """
+            import java.util.*;
+
+            public class Solution {
+                public static void main(String[] args) {
+                    Scanner in = new Scanner(System.in);
+                    List<Integer> values = new ArrayList<>();
+                    while (in.hasNextInt()) {
+                        values.add(in.nextInt());
+                    }
+                    for (int i = 0; i < values.size(); i++) {
+                        System.out.println(values.get(i) * 2);
+                    }
+                }
+            }
+            """;
+
+    private static final String JUNIT_TEST = """
+            import org.junit.jupiter.api.*;
+            import java.io.*;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class SolutionTest {
+                private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+                @BeforeEach
+                void redirect() {
+                    System.setOut(new PrintStream(out));
+                }
+
+                @Test
+                void doubles() {
+                    System.setIn(new ByteArrayInputStream("1 2".getBytes()));
+                    Solution.main(new String[0]);
+                    assertEquals("2\\n4\\n", out.toString());
+                }
+            }
+            """;
+
+    @Test
+    void acceptsOrdinaryCode() {
+        MaliciousCodeDetector.MaliciousCodeResult result = detector.analyzeCode(SOLUTION, false);
+        assertFalse(result.malicious(), result.toString());
+        assertEquals(MaliciousCodeDetector.RiskLevel.NONE, result.riskLevel());
+    }
+
+    @Test
+    void acceptsJUnitTestsInRelaxedMode() {
+        assertFalse(detector.analyzeCode(JUNIT_TEST, true).malicious());
+    }
+
+    @Test
+    void detectsCommandExecutionAcrossSpacingCommentsAndCallChains() {
+        for (String code : new String[]{
+                "Runtime.getRuntime().exec(\"ls\");",
+                "Runtime . getRuntime ( ) . exec (\"ls\");",
+                "Runtime.getRuntime()/* hidden */.exec(\"ls\");",
+                "new ProcessBuilder(\"ls\").start();",
+                "Runtime.getRuntime().\\u0065xec(\"ls\");"}) {
+            MaliciousCodeDetector.MaliciousCodeResult result = detector.analyzeCode(code, true);
+            assertEquals(MaliciousCodeDetector.RiskLevel.CRITICAL, result.riskLevel(), code);
+        }
+    }
+
+    @Test
+    void ignoresCommentsAndStringContents() {
+        String code = """
+                public class Solution {
+                    // Runtime.getRuntime().exec is not allowed here
+                    /* neither is System.exit(0) */
+                    public static void main(String[] args) {
+                        System.out.println("Please do not call System.exit or use a Socket");
+                    }
+                }
+                """;
+        assertEquals(MaliciousCodeDetector.RiskLevel.NONE, detector.analyzeCode(code, false).riskLevel());
+    }
+
+    @Test
+    void matchesNamesAsWholeIdentifiers() {
+        assertFalse(detector.analyzeCode("int execute = 1; String shape = \"\"; int cmdCount = 0;", false).malicious());
+        assertTrue(detector.analyzeCode("exec(command);", false).malicious());
+        assertTrue(detector.analyzeCode("new URLClassLoader(urls);", false).malicious());
+    }
+
+    @Test
+    void reportsEachRuleGroup() {
+        assertReason("System.exit(1);", "JVM manipulation detected");
+        assertReason("new FileWriter(\"out.txt\");", "Dangerous file operations detected");
+        assertReason("new Socket(host, 80);", "Network operations detected");
+        assertReason("Class.forName(name).getDeclaredMethod(\"x\").setAccessible(true);", "Reflection API abuse detected");
+        assertReason("while (true) { }", "Resource exhaustion patterns detected");
+        assertReason("for (;;) x++;", "Resource exhaustion patterns detected");
+        assertReason("List<Integer> l = new ArrayList<Integer>(1_000_000);", "Resource exhaustion patterns detected");
+        assertReason("int[] a = new int[50000];", "Large array allocation detected");
+        assertReason("new ObjectInputStream(in).readObject();", "Serialization attack patterns detected");
+        assertReason("String p = \"/proc/self/environ\";", "Container escape attempt detected");
+        assertReason("String s = \"\\\\x41\\\\x42\";", "Hex-encoded strings detected");
+        assertReason("public native void run();", "Forbidden keyword detected: native");
+        assertReason("""
+                for (int a = 0; a < n; a++)
+                    for (int b = 0; b < n; b++) {
+                        while (c < n) {
+                            do { c++; } while (c < 10);
+                        }
+                    }
+                """, "Excessive nested loops detected");
+    }
+
+    @Test
+    void relaxedModeStillFlagsWhatTestsShouldNotDo() {
+        String test = JUNIT_TEST.replace("Solution.main(new String[0]);",
+                "new java.net.Socket(\"localhost\", 80); Solution.main(new String[0]);");
+        MaliciousCodeDetector.MaliciousCodeResult result = detector.analyzeCode(test, true);
+        assertTrue(result.malicious());
+        assertTrue(result.reasons().contains("Network operations detected"), result.reasons());
+    }
+
+    @Test
+    void cachesVerdicts() {
+        assertSame(detector.analyzeCode(SOLUTION, false), detector.analyzeCode(SOLUTION, false));
+        assertNotSame(detector.analyzeCode(SOLUTION, false), detector.analyzeCode(SOLUTION, true));
+    }
+
+    @Test
+    void runsInLinearTimeOnAdversarialInput() {
+        scanAdversarial("long member chains", size -> "a.".repeat(size / 2));
+        scanAdversarial("long identifier", size -> "x".repeat(size));
+        scanAdversarial("near-miss prefixes", size -> "getruntime.exe ".repeat(size / 15));
+        scanAdversarial("unterminated comment", size -> "/*" + "*".repeat(size - 2));
+        scanAdversarial("unterminated string", size -> "\"" + "\\".repeat(size - 1));
+        scanAdversarial("comment starts", size -> "/ ".repeat(size / 2));
+        scanAdversarial("deep nesting", size -> "for(;;){".repeat(size / 16) + "}".repeat(size / 16));
+        scanAdversarial("open parentheses", size -> "(".repeat(size));
+        scanAdversarial("unicode escapes", size -> "\\u0061".repeat(size / 6));
+        scanAdversarial("ordinary code", size -> SOLUTION.repeat(size / SOLUTION.length()));
+    }
+
+    private void assertReason(String code, String reason) {
+        MaliciousCodeDetector.MaliciousCodeResult result = detector.analyzeCode(code, false);
+        assertTrue(result.malicious(), code);
+        assertTrue(result.reasons().contains(reason), code + " -> " + result.reasons());
+    }
+
+    /**
+     * Compare the scan time of the full input with that of an eighth of it, rather than with a fixed budget.
+     * Times are CPU time of the scanning thread, which other load on the machine does not inflate.
+     */
+    private void scanAdversarial(String name, IntFunction<String> generator) {
+        String code = generator.apply(ADVERSARIAL_SIZE);
+        // the first scan also warms up the JIT, so that both measurements see compiled code
+        long large = assertTimeoutPreemptively(ADVERSARIAL_TIMEOUT, () -> fastestScanNanos(code), name);
+        long small = Math.max(fastestScanNanos(generator.apply(ADVERSARIAL_SIZE / 8)), MIN_MEASURED_NANOS);
+        large = Math.min(large, fastestScanNanos(code));
+
+        double growth = (double) large / small;
+        assertTrue(growth < MAX_GROWTH, name + " took " + growth + " times as long on 8 times the input");
+    }
+
+    private static long fastestScanNanos(String code) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            MaliciousCodeDetector uncached = new MaliciousCodeDetector();
+            long start = threads.getCurrentThreadCpuTime();
+            uncached.analyzeCode(code, false);
+            fastest = Math.min(fastest, threads.getCurrentThreadCpuTime() - start);
+        }
+        return fastest;
+    }
+}
@@ -0,0 +1,229 @@
+package com.main.codedrill.service;
+
+import com.main.codedrill.model.IoCase;
+import com.main.codedrill.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Comparison modes, the description of the first difference, and the cost of comparing large outputs
+ */
+class OutputComparatorTest {
+
+    private static final int LARGE_OUTPUT_NUMBERS = 200_000;
+    // Comparing 8 times the output takes about 8 times as long if comparison is linear, 64 times if quadratic
+    private static final double MAX_GROWTH = 24;
+    private static final long MIN_MEASURED_NANOS = 1_000_000;
+    private static final Duration LARGE_OUTPUT_TIMEOUT = Duration.ofSeconds(30);
+
+    private final OutputComparator comparator = new OutputComparator();
+
+    private static Task task(String expectedOutput, Task.OutputComparison mode, Double tolerance) {
+        Task task = new Task();
+        task.setId(1L);
+        task.setExpectedOutput(expectedOutput);
+        task.setOutputComparison(mode);
+        task.setOutputTolerance(tolerance);
+        return task;
+    }
+
+    @Test
+    void ignoresWhitespaceByDefault() {
+        Task task = task("1 2\n3\n", null, null);
+        assertTrue(comparator.compare(task, "  1\t2 3").matches());
+        assertTrue(comparator.compare(task, "1\r\n2\r\n3\r\n\r\n").matches());
+        assertFalse(comparator.compare(task, "1 2 3 4").matches());
+        assertFalse(comparator.compare(task, "1 2").matches());
+        assertFalse(comparator.compare(task, "12 3").matches());
+    }
+
+    @Test
+    void acceptsAnyOutputWithoutExpectedOutput() {
+        assertTrue(comparator.compare(task(null, null, null), "anything").matches());
+        assertTrue(comparator.compare(task(" \n", Task.OutputComparison.EXACT, null), null).matches());
+    }
+
+    @Test
+    void comparesExactlyUpToLineEndings() {
+        Task task = task("a  b\r\nc\n", Task.OutputComparison.EXACT, null);
+        assertTrue(comparator.compare(task, "a  b\nc").matches());
+        assertTrue(comparator.compare(task, "a  b\r\nc\r\n\n").matches());
+        assertFalse(comparator.compare(task, "a b\nc").matches());
+        assertFalse(comparator.compare(task, "a  b\nc ").matches());
+        assertFalse(comparator.compare(task, "a  b").matches());
+    }
+
+    @Test
+    void acceptsNumbersWithinTolerance() {
+        Task task = task("pi 3.14159\n1000000 -2", Task.OutputComparison.NUMERIC, 1e-3);
+        assertTrue(comparator.compare(task, "pi 3.1416 1000000.5 -2.0").matches());
+        assertTrue(comparator.compare(task, "pi 3.14159 1e6 -2").matches());
+        assertFalse(comparator.compare(task, "pi 3.15 1000000 -2").matches());
+        assertFalse(comparator.compare(task, "PI 3.14159 1000000 -2").matches());
+        assertFalse(comparator.compare(task, "pi 3.14159 1000000 -2x").matches());
+
+        Task defaultTolerance = task("0.1", Task.OutputComparison.NUMERIC, null);
+        assertTrue(comparator.compare(defaultTolerance, "0.10000000001").matches());
+        assertFalse(comparator.compare(defaultTolerance, "0.1001").matches());
+        assertFalse(comparator.compare(task("0.1", null, null), "0.10").matches());
+    }
+
+    @Test
+    void describesTheFirstDifference() {
+        Task task = task("line 1\nline 2\nline 3\nline 4\nline 5\n", null, null);
+        OutputComparator.Verdict verdict = comparator.compare(task, "line 1\nline 2\nline 3\nline four\nline 5\n");
+
+        assertFalse(verdict.matches());
+        assertEquals(4, verdict.expectedLine());
+        assertEquals(4, verdict.actualLine());
+        assertEquals("4", verdict.expected());
+        assertEquals("four", verdict.actual());
+        assertEquals("""
+                @@ expected line 1, actual line 1 @@
+                  line 1
+                  line 2
+                  line 3
+                - line 4
+                + line four
+                  line 5
+                """, verdict.diff());
+    }
+
+    @Test
+    void reportsMissingAndExtraOutput() {
+        Task task = task("a\nb\n", null, null);
+
+        OutputComparator.Verdict missing = comparator.compare(task, "a\n");
+        assertEquals(2, missing.expectedLine());
+        assertEquals("b", missing.expected());
+        assertEquals(OutputComparator.END_OF_OUTPUT, missing.actual());
+        assertTrue(missing.diff().contains("- b\n"));
+
+        OutputComparator.Verdict extra = comparator.compare(task, "a\nb\nc\n");
+        assertEquals(3, extra.actualLine());
+        assertEquals(OutputComparator.END_OF_OUTPUT, extra.expected());
+        assertEquals("c", extra.actual());
+        assertTrue(extra.diff().contains("+ c\n"));
+
+        OutputComparator.Verdict exact = comparator.compare(task("a\nb", Task.OutputComparison.EXACT, null), "a\nx\n");
+        assertEquals(2, exact.expectedLine());
+        assertEquals("b", exact.expected());
+        assertEquals("x", exact.actual());
+    }
+
+    @Test
+    void boundsTheDiff() {
+        StringBuilder expected = new StringBuilder();
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            expected.append(i).append('\n');
+            actual.append(i < 5_000 ? i : -i).append('\n');
+        }
+        expected.append("x".repeat(100_000));
+        OutputComparator.Verdict verdict = comparator.compare(task(expected.toString(), null, null), actual.toString());
+
+        assertEquals(5_001, verdict.expectedLine());
+        String[] lines = verdict.diff().split("\n");
+        assertEquals("@@ expected line 4998, actual line 4998 @@", lines[0]);
+        assertTrue(lines.length <= 22, "diff of " + lines.length + " lines");
+        assertEquals("  ...", lines[lines.length - 1]);
+    }
+
+    @Test
+    void reusesThePreparedExpectedOutputUntilTheTaskChanges() {
+        Task task = task("1 2 3", null, null);
+        OutputComparator.Expected prepared = comparator.prepare(task);
+        assertSame(prepared, comparator.prepare(task));
+
+        task.setOutputComparison(Task.OutputComparison.NUMERIC);
+        assertNotSame(prepared, comparator.prepare(task));
+
+        task.setExpectedOutput("1 2 4");
+        assertTrue(comparator.compare(task, "1 2 4").matches());
+        assertFalse(comparator.compare(task, "1 2 3").matches());
+    }
+
+    @Test
+    void judgesEachInputOutputCase() {
+        Task task = task(null, null, null);
+        task.setIoCases(List.of(new IoCase("1 2", "3"), new IoCase("2 2", "4"), new IoCase("0 0", "0"),
+                new IoCase("9", "")));
+        CaseReport report = new CaseReport(null, List.of(
+                new CaseReport.Case(CaseReport.Status.OK, "3\n", "", 5),
+                new CaseReport.Case(CaseReport.Status.OK, "5\n", "", 4),
+                new CaseReport.Case(CaseReport.Status.EXCEPTION, "", "java.lang.ArithmeticException", 1),
+                new CaseReport.Case(CaseReport.Status.OK, "9", "", 1)), 30);
+
+        List<OutputComparator.CaseVerdict> verdicts = comparator.judge(task, report);
+        assertEquals(4, verdicts.size());
+        assertTrue(verdicts.get(0).passed());
+        assertEquals(5L, verdicts.get(0).durationMillis());
+        assertFalse(verdicts.get(1).passed());
+        assertEquals("4", verdicts.get(1).output().expected());
+        assertFalse(verdicts.get(2).passed());
+        assertNull(verdicts.get(2).output());
+        assertEquals("java.lang.ArithmeticException", verdicts.get(2).error());
+        assertFalse(verdicts.get(3).passed(), "a case without expected output must print nothing");
+
+        GradingResult result = new GradingResult("", null).withCaseReport(report);
+        assertFalse(result.isCorrect(OutputComparator.Verdict.MATCH, verdicts));
+        assertTrue(result.isCorrect(OutputComparator.Verdict.MATCH, verdicts.subList(0, 1)));
+    }
+
+    @Test
+    void failsCasesTheReportDoesNotCover() {
+        Task task = task(null, null, null);
+        task.setIoCases(List.of(new IoCase("1", "1"), new IoCase("2", "2")));
+
+        List<OutputComparator.CaseVerdict> verdicts = comparator.judge(task, CaseReport.error("⏰ timeout"));
+        assertEquals(2, verdicts.size());
+        assertTrue(verdicts.stream().noneMatch(OutputComparator.CaseVerdict::passed));
+        assertEquals("⏰ timeout", verdicts.get(1).error());
+        assertEquals(CaseReport.Status.ERROR, verdicts.get(1).status());
+
+        assertTrue(comparator.judge(task(null, null, null), null).isEmpty());
+    }
+
+    @Test
+    void comparesLargeOutputsInLinearTime() {
+        // the first comparison also warms up the JIT, so that both measurements see compiled code
+        long large = assertTimeoutPreemptively(LARGE_OUTPUT_TIMEOUT,
+                () -> fastestComparisonNanos(2L, LARGE_OUTPUT_NUMBERS), "large output");
+        long small = Math.max(fastestComparisonNanos(3L, LARGE_OUTPUT_NUMBERS / 8), MIN_MEASURED_NANOS);
+        large = Math.min(large, fastestComparisonNanos(2L, LARGE_OUTPUT_NUMBERS));
+
+        double growth = (double) large / small;
+        assertTrue(growth < MAX_GROWTH, "took " + growth + " times as long on 8 times the output");
+    }
+
+    /**
+     * CPU time of the comparing thread for a matching and a differing output of the given count of numbers,
+     * best of three; other load on the machine does not inflate it
+     */
+    private long fastestComparisonNanos(long taskId, int numbers) {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < numbers; i++) {
+            expected.append(i * 0.5).append(i % 10 == 9 ? '\n' : ' ');
+        }
+        Task task = task(expected.toString(), Task.OutputComparison.NUMERIC, null);
+        task.setId(taskId);
+        String actual = expected.toString().replace(' ', '\t');
+        String different = actual.substring(0, actual.length() - 4) + "x\n";
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = threads.getCurrentThreadCpuTime();
+            assertTrue(comparator.compare(task, actual).matches());
+            assertFalse(comparator.compare(task, different).matches());
+            fastest = Math.min(fastest, threads.getCurrentThreadCpuTime() - start);
+        }
+        return fastest;
+    }
+}
@@ -0,0 +1,61 @@
+package com.main.codedrill.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Head and tail capture of sandbox output, and the truncation marker between them
+ */
+class ProcessOutputTest {
+
+    private static ProcessOutput.BoundedCapture capture(String... writes) {
+        ProcessOutput.BoundedCapture capture = new ProcessOutput.BoundedCapture(8);
+        for (String write : writes) {
+            byte[] bytes = write.getBytes(StandardCharsets.UTF_8);
+            capture.write(bytes, 0, bytes.length);
+        }
+        return capture;
+    }
+
+    private static String truncated(String head, long dropped, String tail) {
+        return head + "\n... [output truncated, " + dropped + " bytes dropped] ...\n" + tail;
+    }
+
+    @Test
+    void keepsOutputThatFillsHeadAndTailExactly() {
+        assertEquals("abcdefgh", capture("abcdefgh").toString());
+        assertEquals("abcdefgh", capture("abc", "defg", "h").toString());
+        assertEquals("", capture().toString());
+    }
+
+    @Test
+    void keepsTheLastBytesWhenTheTailWrapsAround() {
+        assertEquals(truncated("abcd", 2, "ghij"), capture("abcd", "efg", "hij").toString());
+        assertEquals(truncated("abcd", 5, "jklm"),
+                capture("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m").toString());
+    }
+
+    @Test
+    void keepsTheEndOfAWriteLargerThanTheTail() {
+        assertEquals(truncated("abcd", 6, "6789"), capture("abcd", "0123456789").toString());
+        assertEquals(truncated("abcd", 6, "6789"), capture("abcd0123456789").toString());
+        assertEquals(truncated("abcd", 7, "6789"), capture("abcd", "x", "0123456789").toString());
+    }
+
+    @Test
+    void cutsMultibyteCharactersAtTheSplitWhole() {
+        // the head ends with the first byte of é, the rest of it is dropped with the middle
+        String headCut = capture("abcé", "xyz€").toString();
+        assertEquals(truncated("abc", 4, "z€"), headCut);
+
+        // the tail starts with the last byte of the first €
+        String tailCut = capture("abcd", "€€").toString();
+        assertEquals(truncated("abcd", 3, "€"), tailCut);
+
+        assertFalse(headCut.contains("�"));
+        assertFalse(tailCut.contains("�"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.main.codedrill.service;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Trees;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the syntax tree checks on submissions parsed by the JDK compiler
+ */
+class SubmissionTreeAnalyzerTest {
+
+    private final SubmissionTreeAnalyzer analyzer = new SubmissionTreeAnalyzer();
+
+    @Test
+    void acceptsOrdinarySolutions() throws IOException {
+        MaliciousCodeDetector.MaliciousCodeResult result = analyze("""
+                import java.util.*;
+
+                public class Solution {
+                    public static void main(String[] args) {
+                        Scanner in = new Scanner(System.in);
+                        int n = in.nextInt();
+                        int[] values = new int[100_000];
+                        List<Integer> list = new ArrayList<>(1_000_000);
+                        while (true) {
+                            if (!in.hasNextInt()) {
+                                break;
+                            }
+                            list.add(in.nextInt());
+                        }
+                        for (int a = 0; a < n; a++)
+                            for (int b = 0; b < n; b++)
+                                for (int c = 0; c < n; c++)
+                                    for (int d = 0; d < n; d++)
+                                        values[(a + b + c + d) % values.length]++;
+                    }
+                }
+                """);
+        assertFalse(result.malicious(), result.toString());
+    }
+
+    @Test
+    void detectsCommandExecutionThroughVariables() throws IOException {
+        MaliciousCodeDetector.MaliciousCodeResult result = analyze("""
+                public class Solution {
+                    public static void main(String[] args) throws Exception {
+                        var runtime = Runtime.getRuntime();
+                        runtime.exec("id");
+                    }
+                }
+                """);
+        assertEquals(MaliciousCodeDetector.RiskLevel.CRITICAL, result.riskLevel());
+        assertTrue(result.reasons().contains("System command execution detected (line 4)"), result.reasons());
+    }
+
+    @Test
+    void detectsReflectionAndThreads() throws IOException {
+        String reasons = analyze("""
+                import java.lang.reflect.Field;
+                import java.util.concurrent.Executors;
+
+                public class Solution {
+                    public static void main(String[] args) throws Exception {
+                        Field field = String.class.getDeclaredField("value");
+                        field.setAccessible(true);
+                        Executors.newFixedThreadPool(4);
+                        new Thread(() -> {}).start();
+                    }
+                }
+                """).reasons();
+        assertTrue(reasons.contains("Reflection API abuse detected (line 1)"), reasons);
+        assertTrue(reasons.contains("Thread creation detected (line 8)"), reasons);
+    }
+
+    @Test
+    void detectsHugeConstantAllocations() throws IOException {
+        for (String allocation : List.of("new long[1 << 30]", "new int[SIZE][SIZE]", "new byte[Integer.MAX_VALUE - 8]")) {
+            MaliciousCodeDetector.MaliciousCodeResult result = analyze("""
+                    public class Solution {
+                        static final int SIZE = 50_000;
+                        public static void main(String[] args) {
+                            Object o = %s;
+                        }
+                    }
+                    """.formatted(allocation));
+            assertTrue(result.reasons().contains("Large array allocation detected"), allocation + " -> " + result);
+        }
+    }
+
+    @Test
+    void detectsLoopsWithoutExitAndDeepNesting() throws IOException {
+        String reasons = analyze("""
+                public class Solution {
+                    public static void main(String[] args) {
+                        for (;;) {
+                            for (int i = 0; i < 10; i++) {
+                                break;
+                            }
+                        }
+                    }
+
+                    static void nested(int n) {
+                        for (int a = 0; a < n; a++)
+                            for (int b = 0; b < n; b++)
+                                for (int c = 0; c < n; c++)
+                                    for (int d = 0; d < n; d++)
+                                        while (n-- > 0) {
+                                        }
+                    }
+                }
+                """).reasons();
+        assertTrue(reasons.contains("Loop without exit detected (DoS risk) (line 3)"), reasons);
+        assertTrue(reasons.contains("Excessive nested loops detected (DoS risk) (line 15)"), reasons);
+    }
+
+    private MaliciousCodeDetector.MaliciousCodeResult analyze(String source) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        SimpleJavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Solution.java"),
+                SimpleJavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavacTask task = (JavacTask) compiler.getTask(null, null, null, List.of("-proc:none"), null, List.of(file));
+        CompilationUnitTree unit = task.parse().iterator().next();
+        return analyzer.analyze(unit, Trees.instance(task).getSourcePositions());
+    }
+}
@@ -0,0 +1,86 @@
+package com.main.codedrill.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Report frames sent by the sandbox's test harness, and the JSON the API serves from them
+ */
+class TestReportTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static final TestReport REPORT = new TestReport(true, null, 2, 1, 1, 4, false,
+            List.of(new TestReport.Failure("rejectsNegative()", "expected: <1> but was: <\"-1\">",
+                    "org.opentest4j.AssertionFailedError: ...\n\tat SolutionTest.rejectsNegative(SolutionTest.java:12)")),
+            3,
+            List.of(new TestReport.TestCase("adds()", "passed", 4),
+                    new TestReport.TestCase("rejectsNegative()", "failed", 7),
+                    new TestReport.TestCase("ünïcödé ✓", "skipped", 0)),
+            2, 15, 11, null, null);
+
+    @Test
+    void roundTripsThroughTheFrame() throws IOException {
+        assertEquals(REPORT, TestReport.decode(REPORT.encode()));
+
+        TestReport error = TestReport.error("Test execution failed: \"quoted\"\nand a second line \\ with a backslash");
+        assertEquals(error, TestReport.decode(error.encode()));
+    }
+
+    @Test
+    void rejectsTruncatedAndUnknownFrames() {
+        byte[] frame = REPORT.encode();
+        for (int length : new int[]{0, 1, 10, frame.length / 2, frame.length - 1}) {
+            byte[] truncated = Arrays.copyOf(frame, length);
+            assertThrows(IOException.class, () -> TestReport.decode(truncated), "length " + length);
+        }
+
+        frame[0] = TestReport.FRAME_VERSION + 1;
+        assertThrows(IOException.class, () -> TestReport.decode(frame));
+    }
+
+    @Test
+    void servesTheSummaryShapeAsJson() throws IOException {
+        JsonNode json = mapper.readTree(mapper.writeValueAsString(REPORT));
+        assertTrue(json.get("success").asBoolean());
+        assertFalse(json.get("allTestsPassed").asBoolean());
+        assertEquals(1, json.get("testsFailed").asInt());
+        assertEquals("rejectsNegative()", json.get("failures").get(0).get("testName").asText());
+        assertEquals("failed", json.get("tests").get(1).get("status").asText());
+        assertFalse(json.has("message"));
+        assertFalse(json.has("compilationErrors"));
+
+        JsonNode error = mapper.readTree(mapper.writeValueAsString(TestReport.error("boom")));
+        assertEquals(0, error.get("totalTests").asInt());
+        assertFalse(error.has("tests"));
+    }
+
+    @Test
+    void readsQueuedResultsOfTheFormerFormat() throws IOException {
+        GradingResult result = mapper.readValue("""
+                {"output": "42", "testResults": {"event": "summary", "success": true, "testsSucceeded": 3,
+                 "testsFailed": 0, "testsSkipped": 0, "totalTests": 3, "allTestsPassed": true}}
+                """, GradingResult.class);
+        assertTrue(result.testsRun());
+        assertTrue(result.testsPassed());
+        assertEquals(3, result.testReport().testsSucceeded());
+        assertEquals(GradingResult.Status.COMPLETED, result.status());
+
+        assertEquals(result, mapper.readValue(mapper.writeValueAsString(result), GradingResult.class));
+    }
+
+    @Test
+    void recognizesTimeouts() {
+        assertTrue(TestReport.error("⏰ Test execution timeout - tests took longer than 30 seconds").timedOut());
+        assertFalse(TestReport.error("Test execution failed: boom").timedOut());
+        assertFalse(TestReport.error("Test execution failed: ⏰ Test execution timeout").timedOut());
+        assertFalse(REPORT.timedOut());
+    }
+}
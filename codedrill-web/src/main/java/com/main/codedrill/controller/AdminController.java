@@ -2,6 +2,8 @@ package com.main.codedrill.controller;
 
 import com.main.codedrill.model.User;
 import com.main.codedrill.repository.TaskRepository;
+import com.main.codedrill.service.ContainerLeaseRegistry;
+import com.main.codedrill.service.RegradeService;
 import com.main.codedrill.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,12 +29,17 @@ public class AdminController {
     private final UserService userService;
     private final ApplicationContext applicationContext;
     private final TaskRepository taskRepository;
+    private final ContainerLeaseRegistry leaseRegistry;
+    private final RegradeService regradeService;
 
     @Autowired
-    public AdminController(UserService userService, ApplicationContext applicationContext, TaskRepository taskRepository) {
+    public AdminController(UserService userService, ApplicationContext applicationContext, TaskRepository taskRepository,
+                           ContainerLeaseRegistry leaseRegistry, RegradeService regradeService) {
         this.userService = userService;
         this.applicationContext = applicationContext;
         this.taskRepository = taskRepository;
+        this.leaseRegistry = leaseRegistry;
+        this.regradeService = regradeService;
     }
 
     @GetMapping
@@ -48,6 +55,7 @@ public class AdminController {
         model.addAttribute("moderatorCount", moderatorCount);
         model.addAttribute("moderators", userService.findAllModerators());
         model.addAttribute("taskCount", taskRepository.count());
+        model.addAttribute("regradeJobs", regradeService.getJobs());
 
         return "admin/dashboard";
     }
@@ -246,6 +254,48 @@ public class AdminController {
         return "redirect:/admin/users";
     }
 
+    @PostMapping("/containers/reconcile")
+    public String reconcileContainers(RedirectAttributes redirectAttributes) {
+        ContainerLeaseRegistry.ReconcileReport report = leaseRegistry.reconcile();
+
+        redirectAttributes.addFlashAttribute("successMessage", "Sandbox containers reconciled: "
+                + report.removed() + " orphans removed, " + report.dropped() + " stale leases dropped, "
+                + report.active() + " active");
+        return "redirect:/admin";
+    }
+
+    @PostMapping("/regrade")
+    public String startRegrade(@RequestParam Long taskId, RedirectAttributes redirectAttributes) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+
+        try {
+            regradeService.start(taskId, auth.getName());
+            redirectAttributes.addFlashAttribute("successMessage", "Regrade of task " + taskId + " started");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/admin";
+    }
+
+    @PostMapping("/regrade/{taskId}/cancel")
+    public String cancelRegrade(@PathVariable Long taskId, RedirectAttributes redirectAttributes) {
+        if (regradeService.cancel(taskId)) {
+            redirectAttributes.addFlashAttribute("successMessage", "Regrade of task " + taskId + " cancelled");
+        } else {
+            redirectAttributes.addFlashAttribute("errorMessage", "No regrade of task " + taskId + " is running");
+        }
+        return "redirect:/admin";
+    }
+
+    /**
+     * Progress of current and recent regrades, for polling
+     */
+    @GetMapping("/regrade/jobs")
+    @ResponseBody
+    public List<RegradeService.Job> regradeJobs() {
+        return regradeService.getJobs();
+    }
+
     @PostMapping("/emergency-shutdown")
     public String emergencyShutdown(@RequestParam String password, RedirectAttributes redirectAttributes) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -98,14 +98,22 @@ public class ModeratorController {
 
     // Save or update task
     @PostMapping("/tasks/save")
-    public String saveTask(@ModelAttribute Task task) {
+    public String saveTask(@ModelAttribute Task task, Model model) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         User currentUser = userService.findByUsername(auth.getName());
 
-        if (task.getId() == null) {
-            taskService.createTask(task, currentUser);
-        } else {
-            taskService.updateTask(task, currentUser);
+        try {
+            if (task.getId() == null) {
+                taskService.createTask(task, currentUser);
+            } else {
+                taskService.updateTask(task, currentUser);
+            }
+        } catch (IllegalArgumentException e) {
+            // Tests that do not compile are reported here rather than to students
+            model.addAttribute("task", task);
+            model.addAttribute("allTags", taskService.getAllTags());
+            model.addAttribute("error", e.getMessage());
+            return "moderator/task-form";
         }
 
         return "redirect:/moderator/tasks";
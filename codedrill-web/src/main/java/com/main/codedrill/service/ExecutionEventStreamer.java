@@ -0,0 +1,155 @@
+package com.main.codedrill.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Streams the live output of an execution job to a browser as Server-Sent Events.
+ * <p>
+ * Events are {@code output} (stdout/stderr text since the previous event), {@code truncated} once the
+ * job's output limit was reached, and a final {@code verdict} carrying the same response as the job's
+ * result endpoint. Events are sent from a small sender pool, never from the thread running the job: while
+ * a slow client is still receiving one event, further output accumulates in the job's {@link LiveOutput}
+ * and goes out as a single larger event.
+ */
+@Component
+public class ExecutionEventStreamer {
+
+    @Value("${execution.stream.timeout_seconds:120}")
+    private int timeoutSeconds;
+
+    @Value("${execution.stream.sender_threads:8}")
+    private int senderThreads;
+
+    @Value("${execution.stream.max_bytes:65536}")
+    private int maxStreamBytes;
+
+    private ExecutorService senders;
+
+    private final Logger logger = LoggerFactory.getLogger(ExecutionEventStreamer.class);
+
+    @PostConstruct
+    private void initialize() {
+        if (timeoutSeconds <= 0 || senderThreads <= 0) {
+            throw new IllegalArgumentException("Invalid stream settings: timeout=" + timeoutSeconds + ", threads=" + senderThreads);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "CodeExecution-Events-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Follow a job from the beginning of its output
+     *
+     * @param verdict builds the final event's payload once the job has finished
+     */
+    public SseEmitter stream(ExecutionJobService.Job job, Supplier<Object> verdict) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        Pump pump = new Pump(job, emitter, verdict);
+        emitter.onCompletion(pump::stop);
+        emitter.onTimeout(pump::stop);
+        emitter.onError(error -> pump.stop());
+        pump.start();
+        return emitter;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        senders.shutdownNow();
+    }
+
+    /**
+     * Drains new output into events whenever it is signalled. Signals that arrive while a drain is running
+     * only make it loop once more, so at most one sender thread works on a stream at a time.
+     */
+    private final class Pump implements Runnable {
+        private final ExecutionJobService.Job job;
+        private final SseEmitter emitter;
+        private final Supplier<Object> verdict;
+        private final AtomicInteger signals = new AtomicInteger();
+        private volatile LiveOutput.Subscription subscription;
+        private boolean outputFinished = false;
+        private volatile boolean stopped = false;
+
+        Pump(ExecutionJobService.Job job, SseEmitter emitter, Supplier<Object> verdict) {
+            this.job = job;
+            this.emitter = emitter;
+            this.verdict = verdict;
+        }
+
+        void start() {
+            subscription = job.output().subscribe(this::signal);
+            job.result().whenComplete((result, failure) -> signal());
+        }
+
+        void signal() {
+            if (!stopped && signals.getAndIncrement() == 0) {
+                senders.execute(this);
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            int seen = signals.get();
+            while (true) {
+                drain();
+                seen = signals.addAndGet(-seen);
+                if (seen == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                LiveOutput.Chunk chunk;
+                while (!stopped && subscription != null && (chunk = subscription.poll()) != null) {
+                    if (chunk.hasOutput()) {
+                        Map<String, Object> data = new LinkedHashMap<>();
+                        data.put("stdout", chunk.stdout());
+                        data.put("stderr", chunk.stderr());
+                        emitter.send(SseEmitter.event().name("output").data(data));
+                    }
+                    if (chunk.truncated()) {
+                        emitter.send(SseEmitter.event().name("truncated").data(Map.of("maxBytes", maxStreamBytes)));
+                    }
+                    outputFinished |= chunk.finished();
+                }
+
+                if (!stopped && outputFinished && job.result().isDone()) {
+                    emitter.send(SseEmitter.event().name("verdict").data(verdict.get()));
+                    emitter.complete();
+                    stop();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client disconnected or the emitter already completed
+                logger.debug("📡 Event stream of job {} closed: {}", job.getId(), e.getMessage());
+                stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.main.codedrill.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs code executions as background jobs so that no request thread waits for a sandbox.
+ * <p>
+ * A submitted job gets an id right away; its result is kept in a bounded in-memory store until it expires
+ * a few minutes after the job finished, and a user holds at most a fixed number of its entries: their oldest
+ * finished jobs make room for new ones, and a user whose entries are all unfinished is turned away. Jobs run on the submitting user's security context, so they are
+ * queued under that user by the fair-share scheduler. Cancelling a job that is still waiting for an
+ * execution slot interrupts it, which withdraws it from the scheduler. Each job has a {@link LiveOutput}
+ * that live viewers can follow; it is closed when the job finishes.
+ */
+@Service
+public class ExecutionJobService {
+
+    @Value("${execution.jobs.max_jobs:1000}")
+    private int maxJobs;
+
+    @Value("${execution.jobs.max_jobs_per_user:20}")
+    private int maxJobsPerOwner;
+
+    @Value("${execution.jobs.retention_minutes:10}")
+    private int retentionMinutes;
+
+    @Value("${execution.jobs.worker_threads:64}")
+    private int workerThreads;
+
+    @Value("${execution.stream.max_bytes:65536}")
+    private int maxStreamBytes;
+
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private ExecutorService workers;
+
+    private final Logger logger = LoggerFactory.getLogger(ExecutionJobService.class);
+
+    @PostConstruct
+    private void initialize() {
+        if (maxJobs <= 0 || maxJobsPerOwner <= 0 || maxJobsPerOwner > maxJobs || retentionMinutes <= 0
+                || workerThreads <= 0 || maxStreamBytes <= 0) {
+            throw new IllegalArgumentException("Invalid job settings: jobs=" + maxJobs + ", jobs per user="
+                    + maxJobsPerOwner + ", retention=" + retentionMinutes + ", threads=" + workerThreads
+                    + ", stream bytes=" + maxStreamBytes);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "CodeExecution-Job-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.workers = new DelegatingSecurityContextExecutorService(executor);
+
+        logger.info("📮 Execution jobs: max {} stored ({} per user), kept {} min, {} worker threads",
+                maxJobs, maxJobsPerOwner, retentionMinutes, workerThreads);
+    }
+
+    /**
+     * Start a job on behalf of a user
+     *
+     * @throws RejectedExecutionException if the job store is full, or the user already has as many unfinished
+     *                                    jobs as a user may store
+     */
+    public Job submit(String owner, JobWork work) {
+        Job job = new Job(UUID.randomUUID().toString(), owner, new LiveOutput(maxStreamBytes));
+        synchronized (this) {
+            purgeExpired();
+            makeRoomFor(owner);
+            if (jobs.size() >= maxJobs) {
+                throw new RejectedExecutionException("Job store is full (" + jobs.size() + " jobs)");
+            }
+            jobs.put(job.getId(), job);
+        }
+        job.handle = workers.submit(() -> job.run(work));
+        return job;
+    }
+
+    /**
+     * @return the job, or {@code null} if it does not exist, has expired or belongs to another user
+     */
+    public Job getJob(String id, String owner) {
+        Job job = jobs.get(id);
+        if (job == null || !job.getOwner().equals(owner)) {
+            return null;
+        }
+        if (job.isExpired(Instant.now(), retention())) {
+            jobs.remove(id, job);
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Cancel a job and drop it from the store, e.g. once its result was delivered synchronously
+     */
+    public void discard(Job job) {
+        job.cancel();
+        jobs.remove(job.getId(), job);
+    }
+
+    public int getJobCount() {
+        return jobs.size();
+    }
+
+    /**
+     * Drop the owner's oldest finished jobs until the owner is below the per-user limit
+     *
+     * @throws RejectedExecutionException if the owner's unfinished jobs alone reach the limit
+     */
+    private void makeRoomFor(String owner) {
+        List<Job> owned = jobs.values().stream()
+                .filter(job -> job.getOwner().equals(owner))
+                .sorted(Comparator.comparing(Job::getCreatedAt))
+                .toList();
+        int excess = owned.size() - maxJobsPerOwner + 1;
+        for (Job job : owned) {
+            if (excess <= 0) {
+                return;
+            }
+            if (job.getStatus().isFinished()) {
+                jobs.remove(job.getId(), job);
+                excess--;
+            }
+        }
+        if (excess > 0) {
+            throw new RejectedExecutionException("Too many unfinished jobs for " + owner + " (" + owned.size() + " jobs)");
+        }
+    }
+
+    private void purgeExpired() {
+        Instant now = Instant.now();
+        Duration retention = retention();
+        jobs.values().removeIf(job -> job.isExpired(now, retention));
+    }
+
+    private Duration retention() {
+        return Duration.ofMinutes(retentionMinutes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        jobs.values().forEach(Job::cancel);
+        workers.shutdownNow();
+    }
+
+    /**
+     * Body of a job; what it prints while running goes to the given live output
+     */
+    @FunctionalInterface
+    public interface JobWork {
+        Map<String, Object> run(LiveOutput output) throws Exception;
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * One submitted execution. The result future completes with the job's response, exceptionally with
+     * the failure, or is cancelled.
+     */
+    public static final class Job {
+        private final String id;
+        private final String owner;
+        private final Instant createdAt = Instant.now();
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        private final LiveOutput output;
+        private Status status = Status.QUEUED;
+        private Instant finishedAt;
+        private volatile Future<?> handle;
+
+        private Job(String id, String owner, LiveOutput output) {
+            this.id = id;
+            this.owner = owner;
+            this.output = output;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getOwner() {
+            return owner;
+        }
+
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+        public synchronized Status getStatus() {
+            return status;
+        }
+
+        public CompletableFuture<Map<String, Object>> result() {
+            return result;
+        }
+
+        public LiveOutput output() {
+            return output;
+        }
+
+        /**
+         * Cancel the job unless it already finished; a running job is interrupted
+         *
+         * @return whether the job was cancelled by this call
+         */
+        public boolean cancel() {
+            synchronized (this) {
+                if (status.isFinished()) {
+                    return false;
+                }
+                finish(Status.CANCELLED);
+            }
+            Future<?> running = handle;
+            if (running != null) {
+                running.cancel(true);
+            }
+            result.cancel(false);
+            output.close();
+            return true;
+        }
+
+        private void run(JobWork work) {
+            synchronized (this) {
+                if (status != Status.QUEUED) {
+                    return;
+                }
+                status = Status.RUNNING;
+            }
+
+            try {
+                Map<String, Object> response = work.run(output);
+                if (transition(Status.DONE)) {
+                    result.complete(response);
+                }
+            } catch (Exception e) {
+                if (transition(Status.FAILED)) {
+                    result.completeExceptionally(e);
+                }
+            } finally {
+                output.close();
+            }
+        }
+
+        private synchronized boolean transition(Status finalStatus) {
+            if (status.isFinished()) {
+                return false;  // cancelled while running
+            }
+            finish(finalStatus);
+            return true;
+        }
+
+        private void finish(Status finalStatus) {
+            status = finalStatus;
+            finishedAt = Instant.now();
+        }
+
+        private synchronized boolean isExpired(Instant now, Duration retention) {
+            return finishedAt != null && finishedAt.plus(retention).isBefore(now);
+        }
+    }
+}
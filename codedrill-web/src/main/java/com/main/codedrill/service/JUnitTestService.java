@@ -0,0 +1,42 @@
+package com.main.codedrill.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+@Service
+public class JUnitTestService {
+
+    private final CodeExecutionService codeExecutionService;
+
+    @Autowired
+    public JUnitTestService(CodeExecutionService codeExecutionService) {
+        this.codeExecutionService = codeExecutionService;
+    }
+
+    /**
+     * Runs JUnit tests against student code using secure Docker execution
+     *
+     * @param studentCode The student's Java code
+     * @param junitTests  The JUnit tests to run against the student code
+     * @return The test report
+     */
+    public TestReport runTests(String studentCode, String junitTests) {
+        try {
+            // Use the secure Docker execution service
+            return codeExecutionService.executeJUnitTests(studentCode, junitTests);
+
+        } catch (Exception e) {
+            return new TestReport(false, "Error running tests: " + e.getMessage(), 0, 0, 0, 0, false, null, 0,
+                    null, 0, 0, 0, null, e.toString());
+        }
+    }
+
+    /**
+     * Convenience method for backward compatibility
+     */
+    @Deprecated
+    public TestReport runTestsLocally(String studentCode, String junitTests) {
+        // Redirect to secure Docker execution
+        return runTests(studentCode, junitTests);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,492 @@
+package com.main.codedrill.service;
+
+import com.main.codedrill.model.Task;
+import com.main.codedrill.repository.TaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-grades every attempt of a task after its tests or expected output changed, and brings the task's
+ * completions in line with the new verdicts.
+ * <p>
+ * Attempts are read in pages ordered by id (keyset paging, so late pages cost as much as early ones) and
+ * identical submissions are graded once per job. New submissions go to {@link CodeExecutionService#gradeBatch}
+ * in batches, each of which takes a single execution slot in its own queue of the fair-share scheduler.
+ * A batch only queues once no interactive request is waiting and a slot is free, or after waiting
+ * {@code regrade.max_yield_seconds} for that, so a regrade never holds more than one slot. Changed verdicts
+ * are written back with one JDBC batch per page. Jobs run one at a time.
+ */
+@Service
+public class RegradeService {
+
+    @Value("${regrade.page_size:500}")
+    private int pageSize;
+
+    @Value("${regrade.batch_size:10}")
+    private int batchSize;
+
+    @Value("${regrade.idle_poll_millis:200}")
+    private long idlePollMillis;
+
+    @Value("${regrade.max_yield_seconds:60}")
+    private long maxYieldSeconds;
+
+    // Queue of regrade batches in the fair-share scheduler
+    static final String QUEUE_KEY = "system:regrade";
+
+    private static final int MAX_FINISHED_JOBS = 20;
+
+    private static final String SELECT_PAGE = "SELECT id, user_id, code_submitted, successful FROM task_attempts "
+            + "WHERE task_id = ? AND id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_VERDICT = "UPDATE task_attempts SET successful = ? WHERE id = ?";
+    private static final String INSERT_COMPLETION = "INSERT INTO user_task_completions (user_id, task_id, completed_at) "
+            + "SELECT ?, ?, ? WHERE NOT EXISTS "
+            + "(SELECT 1 FROM user_task_completions WHERE user_id = ? AND task_id = ?)";
+    private static final String DELETE_COMPLETION = "DELETE FROM user_task_completions WHERE user_id = ? AND task_id = ?";
+
+    private final TaskRepository taskRepository;
+    private final CodeExecutionService codeExecutionService;
+    private final OutputComparator outputComparator;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Latest job of each task
+    private final ConcurrentHashMap<Long, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Regrade-Worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Logger logger = LoggerFactory.getLogger(RegradeService.class);
+
+    @Autowired
+    public RegradeService(TaskRepository taskRepository, CodeExecutionService codeExecutionService,
+                          OutputComparator outputComparator, JdbcTemplate jdbcTemplate) {
+        this.taskRepository = taskRepository;
+        this.codeExecutionService = codeExecutionService;
+        this.outputComparator = outputComparator;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    private void initialize() {
+        if (pageSize <= 0 || batchSize <= 0 || idlePollMillis <= 0 || maxYieldSeconds < 0) {
+            throw new IllegalArgumentException("Invalid regrade settings: page=" + pageSize + ", batch=" + batchSize
+                    + ", poll=" + idlePollMillis + " ms, max yield=" + maxYieldSeconds + " s");
+        }
+    }
+
+    /**
+     * Queue a regrade of all attempts of a task
+     *
+     * @throws IllegalArgumentException if the task does not exist
+     * @throws IllegalStateException    if the task is already being regraded
+     */
+    public Job start(Long taskId, String requestedBy) {
+        Task task = taskRepository.findById(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("Task not found: " + taskId));
+
+        Job job = new Job(taskId, task.getTitle(), requestedBy);
+        Job previous = jobs.compute(taskId, (id, existing) ->
+                existing != null && !existing.getStatus().isFinished() ? existing : job);
+        if (previous != job) {
+            throw new IllegalStateException("Task " + taskId + " is already being regraded");
+        }
+
+        purgeFinished();
+        job.handle = worker.submit(() -> run(job));
+        logger.info("🔁 Regrade of task {} queued by {}", taskId, requestedBy);
+        return job;
+    }
+
+    /**
+     * @return whether a queued or running regrade of the task was cancelled
+     */
+    public boolean cancel(Long taskId) {
+        Job job = jobs.get(taskId);
+        return job != null && job.cancel();
+    }
+
+    /**
+     * Current and recent jobs, newest first
+     */
+    public List<Job> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(Job::getCreatedAt).reversed())
+                .toList();
+    }
+
+    private void purgeFinished() {
+        List<Job> finished = getJobs().stream().filter(job -> job.getStatus().isFinished()).toList();
+        for (Job job : finished.subList(Math.min(finished.size(), MAX_FINISHED_JOBS), finished.size())) {
+            jobs.remove(job.getTaskId(), job);
+        }
+    }
+
+    private void run(Job job) {
+        if (!job.begin()) {
+            return;
+        }
+
+        try {
+            Task task = taskRepository.findById(job.getTaskId())
+                    .orElseThrow(() -> new IllegalArgumentException("Task not found: " + job.getTaskId()));
+            Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM task_attempts WHERE task_id = ?",
+                    Long.class, task.getId());
+            job.total = total != null ? total : 0;
+            logger.info("🔁 Regrading {} attempts of task {}", job.total, task.getId());
+
+            // Verdict by submission hash; null if the submission could not be graded reproducibly
+            Map<String, Boolean> verdicts = new HashMap<>();
+            // Whether each user who attempted the task has a successful attempt after the regrade
+            Map<Long, Boolean> solvedByUser = new HashMap<>();
+
+            long afterId = 0;
+            List<Attempt> page;
+            while (!(page = fetchPage(task.getId(), afterId)).isEmpty()) {
+                job.checkCancelled();
+                gradeNewSubmissions(task, page, verdicts, job);
+                writeVerdicts(page, verdicts, solvedByUser, job);
+                afterId = page.get(page.size() - 1).id();
+                logger.debug("🔁 Task {}: {}/{} attempts, {} distinct submissions graded", task.getId(),
+                        job.processed.get(), job.total, job.graded.get());
+            }
+
+            updateCompletions(task.getId(), solvedByUser, job);
+            job.finish(Status.DONE, null);
+            logger.info("🔁 Regrade of task {} done: {} attempts, {} graded, {} changed, {} skipped, "
+                            + "completions +{}/-{}, {} attempts/s", task.getId(), job.processed.get(), job.graded.get(),
+                    job.changed.get(), job.skipped.get(), job.completionsAdded, job.completionsRemoved,
+                    String.format("%.1f", job.getThroughput()));
+
+        } catch (InterruptedException e) {
+            job.finish(Status.CANCELLED, null);
+            logger.info("🔁 Regrade of task {} cancelled after {} attempts", job.getTaskId(), job.processed.get());
+        } catch (Exception e) {
+            job.finish(Status.FAILED, e.getMessage());
+            logger.error("Regrade of task {} failed", job.getTaskId(), e);
+        }
+    }
+
+    private List<Attempt> fetchPage(Long taskId, long afterId) {
+        return jdbcTemplate.query(SELECT_PAGE, (rs, rowNum) -> {
+            String code = rs.getString("code_submitted");
+            Object successful = rs.getObject("successful");
+            return new Attempt(rs.getLong("id"), rs.getLong("user_id"), code,
+                    successful != null ? rs.getBoolean("successful") : null,
+                    VerdictCache.submissionHash(code));
+        }, taskId, afterId, pageSize);
+    }
+
+    /**
+     * Grade the submissions of a page that earlier pages did not contain
+     */
+    private void gradeNewSubmissions(Task task, List<Attempt> page, Map<String, Boolean> verdicts, Job job)
+            throws Exception {
+        Map<String, String> pending = new LinkedHashMap<>();
+        for (Attempt attempt : page) {
+            if (!verdicts.containsKey(attempt.hash()) && attempt.code() != null && !attempt.code().isBlank()) {
+                pending.putIfAbsent(attempt.hash(), attempt.code());
+            }
+        }
+
+        List<String> hashes = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < hashes.size(); from += batchSize) {
+            List<String> batchHashes = hashes.subList(from, Math.min(hashes.size(), from + batchSize));
+            List<String> codes = batchHashes.stream().map(pending::get).toList();
+
+            List<GradingResult> results = gradeWhenIdle(task, codes, job);
+            for (int i = 0; i < batchHashes.size(); i++) {
+                GradingResult result = results.get(i);
+                boolean reproducible = result != null && codeExecutionService.isReproducible(result);
+                verdicts.put(batchHashes.get(i), reproducible
+                        ? result.isCorrect(outputComparator.compare(task, result.output()),
+                                outputComparator.judge(task, result.caseReport()))
+                        : null);
+            }
+            job.graded.addAndGet(batchHashes.size());
+        }
+    }
+
+    /**
+     * Grade a batch, waiting for spare capacity first so that interactive requests keep their slots
+     */
+    private List<GradingResult> gradeWhenIdle(Task task, List<String> codes, Job job) throws Exception {
+        long yieldDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxYieldSeconds);
+        while (true) {
+            job.checkCancelled();
+            CodeExecutionService.ExecutionMetrics metrics = codeExecutionService.getExecutionMetrics();
+            boolean idle = metrics.queued() == 0 && metrics.inFlight() < metrics.limit();
+            if (idle || System.nanoTime() - yieldDeadline > 0) {
+                List<GradingResult> results = codeExecutionService.gradeBatch(task, codes, QUEUE_KEY);
+                if (results != null) {
+                    return results;
+                }
+                yieldDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxYieldSeconds);
+            }
+            Thread.sleep(idlePollMillis);
+        }
+    }
+
+    /**
+     * Write the verdicts that changed with one JDBC batch. Attempts whose submission could not be graded, or
+     * has no code, keep their stored verdict.
+     */
+    private void writeVerdicts(List<Attempt> page, Map<String, Boolean> verdicts, Map<Long, Boolean> solvedByUser,
+                               Job job) {
+        List<Object[]> updates = new ArrayList<>();
+        int skipped = 0;
+        for (Attempt attempt : page) {
+            Boolean verdict = verdicts.get(attempt.hash());
+            if (verdict == null) {
+                verdict = Boolean.TRUE.equals(attempt.successful());
+                skipped++;
+            } else if (!verdict.equals(attempt.successful())) {
+                updates.add(new Object[]{verdict, attempt.id()});
+            }
+            solvedByUser.merge(attempt.userId(), verdict, Boolean::logicalOr);
+        }
+
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_VERDICT, updates);
+        }
+        job.changed.addAndGet(updates.size());
+        job.skipped.addAndGet(skipped);
+        job.processed.addAndGet(page.size());
+    }
+
+    /**
+     * Add the completions of users who now solved the task and remove those of users none of whose
+     * attempts is successful any more. Experience points already awarded are not taken back.
+     */
+    private void updateCompletions(Long taskId, Map<Long, Boolean> solvedByUser, Job job) {
+        Set<Long> completed = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT user_id FROM user_task_completions WHERE task_id = ?", Long.class, taskId));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        solvedByUser.forEach((userId, solved) -> {
+            if (solved && !completed.contains(userId)) {
+                inserts.add(new Object[]{userId, taskId, now, userId, taskId});
+            } else if (!solved && completed.contains(userId)) {
+                deletes.add(new Object[]{userId, taskId});
+            }
+        });
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_COMPLETION, inserts);
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_COMPLETION, deletes);
+        }
+        job.completionsAdded = inserts.size();
+        job.completionsRemoved = deletes.size();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        jobs.values().forEach(Job::cancel);
+        worker.shutdownNow();
+    }
+
+    private record Attempt(long id, long userId, String code, Boolean successful, String hash) {
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, DONE, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * One regrade of a task, with its progress
+     */
+    public static final class Job {
+        private final Long taskId;
+        private final String taskTitle;
+        private final String requestedBy;
+        private final Instant createdAt = Instant.now();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong graded = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private Status status = Status.QUEUED;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private String failure;
+        private volatile long total;
+        private volatile int completionsAdded;
+        private volatile int completionsRemoved;
+        private volatile Future<?> handle;
+
+        private Job(Long taskId, String taskTitle, String requestedBy) {
+            this.taskId = taskId;
+            this.taskTitle = taskTitle;
+            this.requestedBy = requestedBy;
+        }
+
+        public Long getTaskId() {
+            return taskId;
+        }
+
+        public String getTaskTitle() {
+            return taskTitle;
+        }
+
+        public String getRequestedBy() {
+            return requestedBy;
+        }
+
+        public Instant getCreatedAt() {
+            return createdAt;
+        }
+
+        public synchronized Status getStatus() {
+            return status;
+        }
+
+        public synchronized String getFailure() {
+            return failure;
+        }
+
+        /**
+         * Attempts of the task when the job started; attempts made while it runs are regraded too
+         */
+        public long getTotal() {
+            return total;
+        }
+
+        public long getProcessed() {
+            return processed.get();
+        }
+
+        /**
+         * Distinct submissions sent to a sandbox
+         */
+        public long getGraded() {
+            return graded.get();
+        }
+
+        /**
+         * Attempts whose verdict changed
+         */
+        public long getChanged() {
+            return changed.get();
+        }
+
+        /**
+         * Attempts that kept their verdict because their submission timed out or could not be graded
+         */
+        public long getSkipped() {
+            return skipped.get();
+        }
+
+        public int getCompletionsAdded() {
+            return completionsAdded;
+        }
+
+        public int getCompletionsRemoved() {
+            return completionsRemoved;
+        }
+
+        public int getPercentComplete() {
+            if (getStatus() == Status.DONE) {
+                return 100;
+            }
+            return total > 0 ? (int) Math.min(99, processed.get() * 100 / total) : 0;
+        }
+
+        /**
+         * Attempts processed per second since the job started
+         */
+        public synchronized double getThroughput() {
+            if (startedAt == null) {
+                return 0;
+            }
+            long millis = Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+            return millis > 0 ? processed.get() * 1000.0 / millis : 0;
+        }
+
+        /**
+         * Estimated seconds until the job finishes at its current throughput, or -1 if unknown
+         */
+        public long getEtaSeconds() {
+            if (getStatus() != Status.RUNNING) {
+                return getStatus().isFinished() ? 0 : -1;
+            }
+            double throughput = getThroughput();
+            return throughput > 0 ? (long) Math.ceil(Math.max(0, total - processed.get()) / throughput) : -1;
+        }
+
+        private synchronized boolean begin() {
+            if (status != Status.QUEUED) {
+                return false;
+            }
+            status = Status.RUNNING;
+            startedAt = Instant.now();
+            return true;
+        }
+
+        private void checkCancelled() throws InterruptedException {
+            if (Thread.currentThread().isInterrupted() || getStatus().isFinished()) {
+                throw new InterruptedException("Regrade cancelled");
+            }
+        }
+
+        /**
+         * Cancel the job unless it already finished; a running job stops before its next batch
+         *
+         * @return whether the job was cancelled by this call
+         */
+        private boolean cancel() {
+            synchronized (this) {
+                if (status.isFinished()) {
+                    return false;
+                }
+                finish(Status.CANCELLED, null);
+            }
+            Future<?> running = handle;
+            if (running != null) {
+                running.cancel(true);
+            }
+            return true;
+        }
+
+        private synchronized void finish(Status finalStatus, String failureMessage) {
+            if (status.isFinished()) {
+                return;  // cancelled while running
+            }
+            status = finalStatus;
+            failure = failureMessage;
+            finishedAt = Instant.now();
+        }
+    }
+}
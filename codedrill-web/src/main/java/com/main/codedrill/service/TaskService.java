@@ -1,5 +1,6 @@
 package com.main.codedrill.service;
 
+import com.main.codedrill.model.IoCase;
 import com.main.codedrill.model.Task;
 import com.main.codedrill.model.User;
 import com.main.codedrill.repository.TaskAttemptRepository;
@@ -10,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -21,14 +23,20 @@ public class TaskService {
     private final TaskRepository taskRepository;
     private final UserTaskCompletionRepository userTaskCompletionRepository;
     private final TaskAttemptRepository taskAttemptRepository;
+    private final VerdictCache verdictCache;
+    private final TestBytecodeStore testBytecodeStore;
 
     @Autowired
     public TaskService(TaskRepository taskRepository,
                        UserTaskCompletionRepository userTaskCompletionRepository,
-                       TaskAttemptRepository taskAttemptRepository) {
+                       TaskAttemptRepository taskAttemptRepository,
+                       VerdictCache verdictCache,
+                       TestBytecodeStore testBytecodeStore) {
         this.taskRepository = taskRepository;
         this.userTaskCompletionRepository = userTaskCompletionRepository;
         this.taskAttemptRepository = taskAttemptRepository;
+        this.verdictCache = verdictCache;
+        this.testBytecodeStore = testBytecodeStore;
     }
 
 
@@ -51,12 +59,22 @@ public class TaskService {
         return taskRepository.findByCreatedByOrderByCreatedAtDesc(user);
     }
 
+    /**
+     * @throws IllegalArgumentException if the task's JUnit tests do not compile, see {@link TestBytecodeStore#compile}
+     */
     public Task createTask(Task task, User user) {
+        PrecompiledTests tests = testBytecodeStore.compile(task);
         task.setId(null);
         task.setCreatedBy(user);
-        return taskRepository.save(task);
+        task.setIoCases(filledIoCases(task));
+        Task saved = taskRepository.save(task);
+        testBytecodeStore.store(saved.getId(), tests);
+        return saved;
     }
 
+    /**
+     * @throws IllegalArgumentException if the task's JUnit tests do not compile, see {@link TestBytecodeStore#compile}
+     */
     public Task updateTask(Task task, User user) {
         Optional<Task> existingTask = taskRepository.findById(task.getId());
 
@@ -66,6 +84,8 @@ public class TaskService {
             if (user.isAdmin() ||
                     (taskToUpdate.getCreatedBy() != null && taskToUpdate.getCreatedBy().equals(user))) {
 
+                PrecompiledTests tests = testBytecodeStore.compile(task);
+
                 taskToUpdate.setTitle(task.getTitle());
                 taskToUpdate.setDescription(task.getDescription());
                 taskToUpdate.setTags(task.getTags());
@@ -73,15 +93,36 @@ public class TaskService {
                 taskToUpdate.setSolution(task.getSolution());
                 taskToUpdate.setExpectedOutput(task.getExpectedOutput());
                 taskToUpdate.setJunitTests(task.getJunitTests());
+                taskToUpdate.setNondeterministic(task.isNondeterministic());
+                taskToUpdate.setParallelTests(task.isParallelTests());
+                taskToUpdate.setOutputComparison(task.getOutputComparison());
+                taskToUpdate.setOutputTolerance(task.getOutputTolerance());
+                taskToUpdate.getIoCases().clear();
+                taskToUpdate.getIoCases().addAll(filledIoCases(task));
                 taskToUpdate.setUpdatedAt(LocalDateTime.now());
 
-                return taskRepository.save(taskToUpdate);
+                Task saved = taskRepository.save(taskToUpdate);
+                testBytecodeStore.store(saved.getId(), tests);
+                verdictCache.invalidateTask(saved.getId());
+                return saved;
             }
         }
 
         return null;
     }
 
+    /**
+     * The task's input/output cases without the rows the form left empty
+     */
+    private static List<IoCase> filledIoCases(Task task) {
+        if (task.getIoCases() == null) {
+            return new ArrayList<>();
+        }
+        return task.getIoCases().stream()
+                .filter(ioCase -> ioCase != null && !ioCase.isBlank())
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
     @Transactional
     public boolean deleteTask(Long id, User user) {
         Optional<Task> task = taskRepository.findById(id);
@@ -96,6 +137,8 @@ public class TaskService {
                 taskAttemptRepository.deleteByTask(taskToDelete);
                 userTaskCompletionRepository.deleteByTask(taskToDelete);
                 taskRepository.delete(taskToDelete);
+                testBytecodeStore.delete(id);
+                verdictCache.invalidateTask(id);
                 return true;
             }
         }
@@ -120,7 +163,9 @@ public class TaskService {
 
     @Transactional
     public Task updateTask(Task task) {
-        return taskRepository.save(task);
+        Task saved = taskRepository.save(task);
+        verdictCache.invalidateTask(saved.getId());
+        return saved;
     }
 
     public List<Task> getTasksByLearningCategory(String category) {
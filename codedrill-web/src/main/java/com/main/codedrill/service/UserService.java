@@ -39,8 +39,6 @@ public class UserService {
 
     private final Logger logger = LoggerFactory.getLogger(UserService.class);
 
-    private boolean currentExecutions = false;
-
     @Autowired
     public UserService(UserRepository userRepository,
                        PasswordEncoder passwordEncoder,
@@ -243,18 +241,6 @@ public class UserService {
         return false;
     }
 
-    /**
-     * Get current number of execution slots in use
-     */
-    public boolean getCurrentExecutions() {
-        return currentExecutions;
-    }
-
-    public void setCurrentExecutions(boolean currentExecutions) {
-        this.currentExecutions = currentExecutions;
-        ;
-    }
-
     /**
      * Generate a temporary password
      */
@@ -0,0 +1,27 @@
+package com.main.codedrill.worker;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.Map;
+
+/**
+ * Worker process for runner hosts: takes submissions from the durable execution queue and grades them in
+ * local sandboxes. Shares the database with the web nodes and serves no HTTP.
+ */
+@SpringBootApplication(scanBasePackages = "com.main.codedrill.service")
+@EntityScan("com.main.codedrill.model")
+@EnableJpaRepositories("com.main.codedrill.repository")
+public class ExecutionWorkerApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ExecutionWorkerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(Map.of("execution.queue.worker.enabled", "true"))
+                .run(args);
+    }
+
+}
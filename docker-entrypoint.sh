@@ -1,6 +1,15 @@
 #!/bin/bash
 set -e
 
+# Every JVM runs on the class path the image's CDS archive was recorded with, followed by the submission,
+# so that JDK, JUnit and harness classes are mapped from the archive. The harness jar comes first so that
+# submitted classes cannot shadow it.
+RUN_CLASSPATH="$HARNESS_JAR:$JUNIT_CLASSPATH:."
+CDS_OPTS=""
+if [ -n "$CDS_ARCHIVE" ] && [ -f "$CDS_ARCHIVE" ]; then
+    CDS_OPTS="-XX:SharedArchiveFile=$CDS_ARCHIVE"
+fi
+
 # Function to execute regular Java code
 execute_regular_code() {
     local java_code="$1"
@@ -16,7 +25,7 @@ execute_regular_code() {
     fi
 
     # Run with timeout and memory constraints
-    if ! timeout ${TIMEOUT}s java -Xmx${MEMORY_LIMIT} Solution 2> runtime_error.txt; then
+    if ! timeout ${TIMEOUT}s java -Xmx${MEMORY_LIMIT} $CDS_OPTS -cp "$RUN_CLASSPATH" Solution 2> runtime_error.txt; then
         EXIT_CODE=$?
         if [ $EXIT_CODE -eq 124 ]; then
             echo "Execution timeout - your code took too long to run"
@@ -31,6 +40,104 @@ execute_regular_code() {
     exit $?
 }
 
+# Function to unpack host-compiled class files shipped as "CLASS <binary name> <base64>" lines
+unpack_bytecode() {
+    local input="$1"
+
+    echo "$input" | grep '^CLASS ' | while read -r _ class_name class_data; do
+        class_file="${class_name//.//}.class"
+        mkdir -p "$(dirname "$class_file")"
+        echo "$class_data" | base64 -d > "$class_file"
+    done
+}
+
+# Function to execute regular Java code that was already compiled on the host
+execute_bytecode() {
+    local input="$1"
+
+    main_class=$(echo "$input" | grep '^ENTRY ' | head -1 | cut -d' ' -f2)
+    unpack_bytecode "$input"
+
+    # Run with timeout and memory constraints
+    if ! timeout ${TIMEOUT}s java -Xmx${MEMORY_LIMIT} $CDS_OPTS -cp "$RUN_CLASSPATH" "$main_class" 2> runtime_error.txt; then
+        EXIT_CODE=$?
+        if [ $EXIT_CODE -eq 124 ]; then
+            echo "Execution timeout - your code took too long to run"
+        else
+            echo "Runtime Error"
+            cat runtime_error.txt
+        fi
+        exit $EXIT_CODE
+    fi
+
+    exit $?
+}
+
+# Function to execute JUnit tests against student and test classes that were already compiled on the host
+execute_junit_bytecode() {
+    local input="$1"
+
+    test_class=$(echo "$input" | grep '^ENTRY ' | head -1 | cut -d' ' -f2)
+    parallel=$(echo "$input" | grep '^PARALLEL ' | head -1 | cut -d' ' -f2)
+    unpack_bytecode "$input"
+
+    run_junit_tests "$test_class" "$parallel"
+}
+
+# Function to grade host-compiled code in one container: run main, then the JUnit tests.
+# The run output and the test report are separated by the nonce given on the REPORT line.
+execute_grade_bytecode() {
+    local input="$1"
+
+    main_class=$(echo "$input" | grep '^ENTRY ' | head -1 | cut -d' ' -f2)
+    test_class=$(echo "$input" | grep '^TEST ' | head -1 | cut -d' ' -f2)
+    report_marker=$(echo "$input" | grep '^REPORT ' | head -1 | cut -d' ' -f2)
+    parallel=$(echo "$input" | grep '^PARALLEL ' | head -1 | cut -d' ' -f2)
+    unpack_bytecode "$input"
+
+    exit_code=0
+    timeout ${TIMEOUT}s java -Xmx${MEMORY_LIMIT} $CDS_OPTS -cp "$RUN_CLASSPATH" "$main_class" 2> runtime_error.txt || exit_code=$?
+    if [ $exit_code -eq 124 ]; then
+        echo "Execution timeout - your code took too long to run"
+    elif [ $exit_code -ne 0 ]; then
+        echo "Runtime Error"
+        cat runtime_error.txt
+    fi
+
+    # Start the tests from pristine class files, whatever main left in the working directory
+    find . -mindepth 1 -delete
+    unpack_bytecode "$input"
+
+    echo ""
+    echo "$report_marker"
+    run_junit_tests "$test_class" "$parallel"
+}
+
+# Function to run host-compiled code once per input/output case through the prebuilt case harness.
+# The harness prints its report as a single base64 line after ===CASE_REPORT===.
+execute_cases_bytecode() {
+    local input="$1"
+
+    main_class=$(echo "$input" | grep '^ENTRY ' | head -1 | cut -d' ' -f2)
+    case_timeout=$(echo "$input" | grep '^CASE_TIMEOUT ' | head -1 | cut -d' ' -f2)
+    time_limit=$(echo "$input" | grep '^TIME_LIMIT ' | head -1 | cut -d' ' -f2)
+
+    # The classes stay off the class path: the harness loads them afresh from this directory for every case
+    mkdir -p classes
+    (cd classes && unpack_bytecode "$input")
+    echo "$input" | grep '^CASE ' | cut -d' ' -f2 > cases.txt
+
+    exit_code=0
+    timeout ${time_limit}s java -Xmx${MEMORY_LIMIT} $CDS_OPTS -cp "$RUN_CLASSPATH" \
+        com.main.codedrill.sandbox.CaseHarness "$main_class" classes cases.txt "$case_timeout" 2> case_error.txt || exit_code=$?
+
+    if [ $exit_code -eq 124 ]; then
+        echo "===CASE_ERROR=== Test cases timeout - the cases took too long to run"
+    elif [ $exit_code -ne 0 ]; then
+        echo "===CASE_ERROR=== Test cases failed: $(tail -c 2000 case_error.txt | tr '\r\n' '  ')"
+    fi
+}
+
 # Function to execute JUnit tests
 execute_junit_tests() {
     local input="$1"
@@ -44,7 +151,7 @@ execute_junit_tests() {
     test_class=$(echo "$test_code" | grep -o 'public class [A-Za-z0-9_]*' | head -1 | cut -d' ' -f3)
 
     if [ -z "$student_class" ] || [ -z "$test_class" ]; then
-        echo '{"success":false,"message":"Could not extract class names","testsSucceeded":0,"testsFailed":0,"testsSkipped":0,"totalTests":0,"allTestsPassed":false}'
+        test_error "Could not extract class names"
         exit 0
     fi
 
@@ -54,122 +161,62 @@ execute_junit_tests() {
 
     # Compile student code first
     if ! javac -cp ".:$JUNIT_CLASSPATH" "${student_class}.java" 2> student_compile_error.txt; then
-        error_msg=$(cat student_compile_error.txt | tr '"' "'" | tr '\n' ' ')
-        echo "{\"success\":false,\"message\":\"Student code compilation failed: $error_msg\",\"testsSucceeded\":0,\"testsFailed\":0,\"testsSkipped\":0,\"totalTests\":0,\"allTestsPassed\":false}"
+        test_error "Student code compilation failed: $(cat student_compile_error.txt)"
         exit 0
     fi
 
     # Compile test code
     if ! javac -cp ".:$JUNIT_CLASSPATH" "${test_class}.java" 2> test_compile_error.txt; then
-        error_msg=$(cat test_compile_error.txt | tr '"' "'" | tr '\n' ' ')
-        echo "{\"success\":false,\"message\":\"Test code compilation failed: $error_msg\",\"testsSucceeded\":0,\"testsFailed\":0,\"testsSkipped\":0,\"totalTests\":0,\"allTestsPassed\":false}"
+        test_error "Test code compilation failed: $(cat test_compile_error.txt)"
         exit 0
     fi
 
-    # Create a simple test runner
-    cat > TestRunner.java << 'EOF'
-import org.junit.platform.launcher.Launcher;
-import org.junit.platform.launcher.LauncherDiscoveryRequest;
-import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
-import org.junit.platform.launcher.core.LauncherFactory;
-import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
-import org.junit.platform.launcher.listeners.TestExecutionSummary;
-import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.List;
-import java.util.ArrayList;
-import java.io.StringWriter;
-import java.io.PrintWriter;
-
-public class TestRunner {
-    public static void main(String[] args) {
-        try {
-            String testClassName = args[0];
-            Class<?> testClass = Class.forName(testClassName);
-
-            LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
-                .selectors(selectClass(testClass))
-                .build();
-
-            Launcher launcher = LauncherFactory.create();
-            SummaryGeneratingListener listener = new SummaryGeneratingListener();
-
-            launcher.registerTestExecutionListeners(listener);
-            launcher.execute(request);
-
-            TestExecutionSummary summary = listener.getSummary();
-
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("testsSucceeded", (int)summary.getTestsSucceededCount());
-            result.put("testsFailed", (int)summary.getTestsFailedCount());
-            result.put("testsSkipped", (int)summary.getTestsSkippedCount());
-            result.put("totalTests", (int)summary.getTestsFoundCount());
-            result.put("allTestsPassed", summary.getTestsFailedCount() == 0 && summary.getTestsSucceededCount() > 0);
-
-            if (summary.getTestsFailedCount() > 0) {
-                List<Map<String, String>> failures = new ArrayList<>();
-                summary.getFailures().forEach(failure -> {
-                    Map<String, String> failureInfo = new HashMap<>();
-                    failureInfo.put("testName", failure.getTestIdentifier().getDisplayName());
-
-                    StringWriter sw = new StringWriter();
-                    PrintWriter pw = new PrintWriter(sw);
-                    failure.getException().printStackTrace(pw);
-                    String stackTrace = sw.toString();
-
-                    failureInfo.put("exception", failure.getException().getMessage());
-                    failureInfo.put("stackTrace", stackTrace);
-                    failures.add(failureInfo);
-                });
-                result.put("failures", failures);
-            }
-
-            ObjectMapper mapper = new ObjectMapper();
-            System.out.println(mapper.writeValueAsString(result));
-
-        } catch (Exception e) {
-            StringWriter sw = new StringWriter();
-            PrintWriter pw = new PrintWriter(sw);
-            e.printStackTrace(pw);
-            String stackTrace = sw.toString().replace("\"", "\\\"").replace("\n", "\\n");
-
-            System.out.println("{\"success\":false,\"message\":\"Test execution failed: " +
-                             e.getMessage().replace("\"", "\\\"") +
-                             "\",\"testsSucceeded\":0,\"testsFailed\":0,\"testsSkipped\":0,\"totalTests\":0,\"allTestsPassed\":false,\"exception\":\"" +
-                             stackTrace + "\"}");
-        }
-    }
+    run_junit_tests "$test_class"
 }
-EOF
 
-    # Compile the test runner
-    if ! javac -cp ".:$JUNIT_CLASSPATH" TestRunner.java 2> runner_compile_error.txt; then
-        error_msg=$(cat runner_compile_error.txt | tr '"' "'" | tr '\n' ' ')
-        echo "{\"success\":false,\"message\":\"Test runner compilation failed: $error_msg\",\"testsSucceeded\":0,\"testsFailed\":0,\"testsSkipped\":0,\"totalTests\":0,\"allTestsPassed\":false}"
-        exit 0
+# Report an error that kept the tests from running, as the last line of the output; the host turns it
+# into a failed test report. The message is folded onto that one line.
+test_error() {
+    echo "===TEST_ERROR=== $(printf '%s' "$1" | tr '\r\n' '  ')"
+}
+
+# Function to run a compiled JUnit test class through the prebuilt test harness.
+# The harness prints its report as a single base64 line after ===TEST_REPORT===.
+# A second argument above 1 runs the test methods in parallel on that many threads.
+run_junit_tests() {
+    local test_class="$1"
+    local harness_opts=""
+    if [ -n "$2" ] && [ "$2" -gt 1 ] 2>/dev/null; then
+        harness_opts="--parallel $2"
     fi
 
-    # Run the tests with timeout and memory limits
-    if ! timeout 30s java -Xmx${MEMORY_LIMIT} -cp ".:$JUNIT_CLASSPATH" TestRunner "$test_class" 2> test_runtime_error.txt; then
-        EXIT_CODE=$?
-        if [ $EXIT_CODE -eq 124 ]; then
-            echo '{"success":false,"message":"Test execution timeout - tests took too long to run","testsSucceeded":0,"testsFailed":0,"testsSkipped":0,"totalTests":0,"allTestsPassed":false}'
-        else
-            error_msg=$(cat test_runtime_error.txt | tr '"' "'" | tr '\n' ' ')
-            echo "{\"success\":false,\"message\":\"Test execution failed: $error_msg\",\"testsSucceeded\":0,\"testsFailed\":0,\"testsSkipped\":0,\"totalTests\":0,\"allTestsPassed\":false}"
-        fi
-        exit 0
+    exit_code=0
+    timeout 30s java -Xmx${MEMORY_LIMIT} $CDS_OPTS -cp "$RUN_CLASSPATH" \
+        com.main.codedrill.sandbox.TestHarness "$test_class" $harness_opts 2> test_runtime_error.txt || exit_code=$?
+
+    if [ $exit_code -eq 124 ]; then
+        test_error "Test execution timeout - tests took too long to run"
+    elif [ $exit_code -ne 0 ]; then
+        test_error "Test execution failed: $(tail -c 2000 test_runtime_error.txt)"
     fi
 }
 
 # Read all input
 input=$(cat)
 
+# Host-compiled submissions announce themselves on the first line
+first_line=$(echo "$input" | head -n 1)
+
+if [ "$first_line" = "===BYTECODE===" ]; then
+    execute_bytecode "$input"
+elif [ "$first_line" = "===JUNIT_BYTECODE===" ]; then
+    execute_junit_bytecode "$input"
+elif [ "$first_line" = "===GRADE_BYTECODE===" ]; then
+    execute_grade_bytecode "$input"
+elif [ "$first_line" = "===CASES_BYTECODE===" ]; then
+    execute_cases_bytecode "$input"
 # Check if this is a JUnit test execution by looking for special markers
-if echo "$input" | grep -q "===STUDENT_CODE==="; then
+elif echo "$input" | grep -q "===STUDENT_CODE==="; then
     # JUnit test mode
     execute_junit_tests "$input"
 else
@@ -0,0 +1,61 @@
+package com.main.codedrill.sandbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class run by the image build to record which classes the JVM loads for a typical grading run, so
+ * that they can be put into the class data sharing archive. It exercises the paths of the JUnit platform
+ * and {@link TestHarness} that submissions hit: passing, failing, erroring and skipped tests, lifecycle
+ * methods and the common assertions.
+ */
+public class ArchiveTraining {
+
+    private List<Integer> values;
+
+    @BeforeEach
+    void setUp() {
+        values = new ArrayList<>(List.of(3, 1, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        values.clear();
+    }
+
+    @Test
+    @DisplayName("passing assertions")
+    void passes() {
+        values.sort(null);
+        assertEquals(List.of(1, 2, 3), values);
+        assertArrayEquals(new int[]{1, 2, 3}, values.stream().mapToInt(Integer::intValue).toArray());
+        assertTrue(values.contains(2), "contains 2");
+        assertThrows(IndexOutOfBoundsException.class, () -> values.get(5));
+    }
+
+    @Test
+    void fails() {
+        assertEquals(4, values.size(), "size");
+    }
+
+    @Test
+    void throwsException() {
+        throw new IllegalStateException("unexpected");
+    }
+
+    @Test
+    @Disabled("skipped")
+    void skipped() {
+    }
+}
@@ -0,0 +1,263 @@
+package com.main.codedrill.sandbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Harness for the input/output cases of a task, precompiled into the runner image as part of the sandbox jar.
+ * <p>
+ * Runs the submission's {@code main} method once per case, one case after another in the same JVM. Every
+ * case gets a fresh class loader, so static state does not leak from one case into the next, its input as
+ * {@code System.in}, its own bounded {@code System.out} and {@code System.err}, and its own time limit.
+ * A case that is still running at its time limit, or leaves threads behind, cannot be stopped safely and
+ * would write into the streams of the next case, so the remaining cases are skipped.
+ * <p>
+ * The outcome is a {@link Report} with the status, duration and output of every case; the host compares
+ * the outputs with the expected ones, which never enter the sandbox. {@link SandboxWorker} calls the
+ * harness in-process for a cases job, the entrypoint runs it as a main class, which prints the report in
+ * base64 on a single line after {@value #REPORT_LINE}. Report frame layout (big-endian, strings as a
+ * length-prefixed UTF-8 byte array, length -1 for null):
+ * <pre>
+ * version:byte message:string caseCount:int (status:byte durationMillis:long stdout:string stderr:string)*
+ * wallMillis:long
+ * </pre>
+ */
+public final class CaseHarness {
+
+    static final String REPORT_LINE = "===CASE_REPORT===";
+
+    static final int MAX_CASE_OUTPUT_BYTES = 64 * 1024;
+    static final int MAX_CASE_ERROR_CHARS = 2048;
+    private static final long POLL_MILLIS = 20;
+
+    private CaseHarness() {
+    }
+
+    /**
+     * Arguments: entry class, directory of the submission's class files, file with one base64 line of
+     * input per case, time limit of a case in milliseconds
+     */
+    public static void main(String[] args) throws IOException {
+        // stdout carries the report; whatever a case that could not be stopped prints later goes to stderr
+        PrintStream reportOut = System.out;
+        System.setOut(System.err);
+
+        Report report;
+        try {
+            URL[] classPath = {Paths.get(args[1]).toUri().toURL()};
+            ClassLoader parent = CaseHarness.class.getClassLoader();
+            List<byte[]> inputs = new ArrayList<>();
+            Base64.Decoder decoder = Base64.getDecoder();
+            for (String line : Files.readAllLines(Path.of(args[2]))) {
+                inputs.add(decoder.decode(line.trim()));
+            }
+            report = run(() -> new URLClassLoader(classPath, parent), args[0], inputs, Long.parseLong(args[3]));
+        } catch (Throwable t) {
+            report = Report.error("Test cases failed: " + t.getMessage());
+        }
+        reportOut.println(REPORT_LINE + " " + Base64.getEncoder().encodeToString(report.encode()));
+        reportOut.flush();
+        // threads a case left behind must not keep this JVM alive
+        Runtime.getRuntime().halt(0);
+    }
+
+    /**
+     * Run every case in order
+     *
+     * @param loaders creates the class loader of one case, which defines the submission's classes afresh
+     */
+    static Report run(Supplier<ClassLoader> loaders, String entryClass, List<byte[]> inputs, long caseTimeoutMillis) {
+        Report report = new Report();
+        long start = System.nanoTime();
+        boolean abandoned = false;
+        for (byte[] input : inputs) {
+            if (abandoned) {
+                report.add(Report.CASE_SKIPPED, 0, "", "Not run: an earlier case could not be stopped");
+                continue;
+            }
+            abandoned = runCase(report, loaders.get(), entryClass, input, caseTimeoutMillis);
+        }
+        report.wallMillis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    /**
+     * @return whether the case left threads running, which rules out further cases
+     */
+    private static boolean runCase(Report report, ClassLoader loader, String entryClass, byte[] input,
+                                   long timeoutMillis) {
+        CaseCapture stdout = new CaseCapture();
+        CaseCapture stderr = new CaseCapture();
+        PrintStream caseOut = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        PrintStream caseErr = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        InputStream originalIn = System.in;
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ThreadGroup group = new ThreadGroup("case-" + (report.statuses.size() + 1));
+        Thread thread = new Thread(group, () -> {
+            try {
+                SandboxWorker.invokeMain(Class.forName(entryClass, true, loader));
+            } catch (InvocationTargetException e) {
+                failure.set(e.getCause());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "main");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(loader);
+
+        System.setIn(new ByteArrayInputStream(input));
+        System.setOut(caseOut);
+        System.setErr(caseErr);
+        long start = System.nanoTime();
+        byte status;
+        try {
+            thread.start();
+            long deadline = start + timeoutMillis * 1_000_000;
+            while (thread.isAlive() && !stdout.exceeded && !stderr.exceeded) {
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                thread.join(Math.min(remainingMillis, POLL_MILLIS));
+            }
+
+            if (stdout.exceeded || stderr.exceeded) {
+                thread.interrupt();
+                status = Report.CASE_OUTPUT_LIMIT;
+            } else if (thread.isAlive()) {
+                thread.interrupt();
+                status = Report.CASE_TIMEOUT;
+            } else if (failure.get() instanceof NoSuchMethodException || failure.get() instanceof ClassNotFoundException) {
+                caseErr.println("Error: " + failure.get().getMessage());
+                status = Report.CASE_ERROR;
+            } else if (failure.get() != null) {
+                SandboxWorker.reportFailure(failure.get(), caseErr);
+                status = Report.CASE_EXCEPTION;
+            } else {
+                status = Report.CASE_OK;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            thread.interrupt();
+            status = Report.CASE_ERROR;
+        } finally {
+            caseOut.flush();
+            caseErr.flush();
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            System.setIn(originalIn);
+        }
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+
+        report.add(status, durationMillis, stdout.toString(),
+                TestHarness.truncate(stderr.toString(), MAX_CASE_ERROR_CHARS));
+        return SandboxWorker.leftThreadsBehind(group);
+    }
+
+    /**
+     * Outcome of the cases of a submission, or the error that prevented them
+     */
+    static final class Report {
+        static final int FRAME_VERSION = 1;
+
+        static final byte CASE_OK = 0;
+        static final byte CASE_EXCEPTION = 1;
+        static final byte CASE_TIMEOUT = 2;
+        static final byte CASE_OUTPUT_LIMIT = 3;
+        static final byte CASE_ERROR = 4;
+        static final byte CASE_SKIPPED = 5;
+
+        private String message;
+        private final List<Byte> statuses = new ArrayList<>();
+        private final List<Long> durations = new ArrayList<>();
+        private final List<String> stdouts = new ArrayList<>();
+        private final List<String> stderrs = new ArrayList<>();
+        private long wallMillis;
+
+        static Report error(String message) {
+            Report report = new Report();
+            report.message = TestHarness.truncate(message, TestHarness.MAX_MESSAGE_CHARS);
+            return report;
+        }
+
+        void add(byte status, long durationMillis, String stdout, String stderr) {
+            statuses.add(status);
+            durations.add(durationMillis);
+            stdouts.add(stdout);
+            stderrs.add(stderr);
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(buffer);
+            data.writeByte(FRAME_VERSION);
+            writeString(data, message);
+            data.writeInt(statuses.size());
+            for (int i = 0; i < statuses.size(); i++) {
+                data.writeByte(statuses.get(i));
+                data.writeLong(durations.get(i));
+                writeString(data, stdouts.get(i));
+                writeString(data, stderrs.get(i));
+            }
+            data.writeLong(wallMillis);
+            return buffer.toByteArray();
+        }
+
+        private static void writeString(DataOutputStream data, String value) throws IOException {
+            if (value == null) {
+                data.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    /**
+     * Keeps the first {@value #MAX_CASE_OUTPUT_BYTES} bytes written and notes whether more were attempted
+     */
+    private static final class CaseCapture extends OutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private volatile boolean exceeded;
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            int kept = Math.min(len, MAX_CASE_OUTPUT_BYTES - bytes.size());
+            bytes.write(b, off, kept);
+            if (kept < len) {
+                exceeded = true;
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+}
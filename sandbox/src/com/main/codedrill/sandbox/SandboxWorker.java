@@ -0,0 +1,644 @@
+package com.main.codedrill.sandbox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Long-lived job runner that lives inside a sandbox container.
+ * <p>
+ * The host starts one worker per container with {@code docker exec -i} and sends jobs as length-prefixed
+ * frames on stdin; results are written as frames on stdout, which is reserved for the protocol. Every job
+ * is defined in its own throwaway class loader, runs on a dedicated thread group under a time limit and
+ * has its output captured into bounded buffers. The worker asks to be recycled (and exits) after
+ * {@code maxJobs} jobs or as soon as a job breaks isolation: it timed out, ran out of memory, left threads
+ * behind or changed JVM-wide state.
+ * <p>
+ * Before answering a job the worker wipes the scratch directories the host names in
+ * {@code -Dsandbox.scratch}, the same ones that are wiped before an entrypoint run in the container, so
+ * that files written by one submission are gone for the next. A job that leaves files behind which
+ * cannot be deleted breaks isolation as well.
+ * <p>
+ * A grade job runs the entry class's {@code main} and then, in a fresh class loader, the JUnit test class,
+ * so that one submission is graded by a single JVM. The test phase is skipped if the main phase already
+ * broke isolation; its status is reported separately. Jobs with a {@code testParallelism} above 1 run their test
+ * methods concurrently (see {@link TestHarness}); JUnit's executor threads belong to the phase's thread
+ * group and are gone once the test run returns.
+ * <p>
+ * A cases job runs the entry class's {@code main} once per input/output case through {@link CaseHarness},
+ * every case in a class loader of its own.
+ * <p>
+ * Jobs that ask for it have the output of their {@code main} method streamed to the host while they run,
+ * as OUTPUT frames sent every {@value #OUTPUT_FLUSH_MILLIS} ms or whenever {@value #OUTPUT_CHUNK_BYTES}
+ * bytes accumulated. Only the beginning of the captured output is streamed, so the stream ends where the
+ * capture starts to truncate. A job whose output exceeds {@code maxOutputBytes} in total is stopped with
+ * status OUTPUT_LIMIT.
+ * <p>
+ * Frame layout (all integers big-endian, strings in modified UTF-8). Every frame after READY starts with
+ * its kind:
+ * <pre>
+ * READY : "READY" protocolVersion:int jvmUptimeMillis:long
+ * JOB   : type:byte jobId:utf entryClass:utf timeoutMillis:long testClass:utf testTimeoutMillis:long
+ *         classCount:int (name:utf length:int bytes)* streamOutput:boolean maxOutputBytes:long
+ *         testParallelism:int caseTimeoutMillis:long caseCount:int (stdin:bytes)*
+ * OUTPUT: 1:byte stream:byte bytes...
+ * RESULT: 2:byte jobId:utf status:byte stdout:bytes stderr:bytes durationMillis:long report:bytes
+ *         testStatus:byte recycle:byte
+ * </pre>
+ * The report is the {@link TestHarness.Report} frame of a JUnit job or of the test phase of a grade job,
+ * the {@link CaseHarness.Report} frame of a cases job, empty otherwise.
+ */
+public final class SandboxWorker {
+
+    static final int PROTOCOL_VERSION = 8;
+
+    static final byte FRAME_OUTPUT = 1;
+    static final byte FRAME_RESULT = 2;
+
+    static final byte STREAM_STDOUT = 0;
+    static final byte STREAM_STDERR = 1;
+
+    static final byte JOB_RUN = 1;
+    static final byte JOB_JUNIT = 2;
+    static final byte JOB_GRADE = 3;
+    static final byte JOB_CASES = 4;
+
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_EXCEPTION = 1;
+    static final byte STATUS_TIMEOUT = 2;
+    static final byte STATUS_OUT_OF_MEMORY = 3;
+    static final byte STATUS_ERROR = 4;
+    static final byte STATUS_SKIPPED = 5;
+    static final byte STATUS_OUTPUT_LIMIT = 6;
+
+    static final byte RECYCLE_NONE = 0;
+    static final byte RECYCLE_JOB_LIMIT = 1;
+    static final byte RECYCLE_ISOLATION_BREACH = 2;
+
+    private static final int MAX_CAPTURE_BYTES = 256 * 1024;
+    static final long OUTPUT_FLUSH_MILLIS = 50;
+    static final int OUTPUT_CHUNK_BYTES = 8192;
+    private static final long THREAD_GRACE_MILLIS = 100;
+    private static final double RETAINED_HEAP_LIMIT = 0.5;
+
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int maxJobs;
+    private final Properties baselineProperties;
+    private final Locale baselineLocale = Locale.getDefault();
+    private final TimeZone baselineTimeZone = TimeZone.getDefault();
+    private int completedJobs = 0;
+
+    private SandboxWorker(DataInputStream in, DataOutputStream out, int maxJobs) {
+        this.in = in;
+        this.out = out;
+        this.maxJobs = maxJobs;
+        this.baselineProperties = (Properties) System.getProperties().clone();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxJobs = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+
+        // stdout is reserved for protocol frames; anything else printed goes to per-job buffers
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        new SandboxWorker(in, out, maxJobs).serve();
+    }
+
+    private void serve() throws IOException {
+        cleanScratch();
+
+        ByteArrayOutputStream ready = new ByteArrayOutputStream();
+        DataOutputStream frame = new DataOutputStream(ready);
+        frame.writeUTF("READY");
+        frame.writeInt(PROTOCOL_VERSION);
+        frame.writeLong(ManagementFactory.getRuntimeMXBean().getUptime());
+        writeFrame(ready.toByteArray());
+
+        while (true) {
+            Job job;
+            try {
+                job = Job.decode(readFrame());
+            } catch (EOFException e) {
+                return;  // host closed the session
+            }
+
+            JobResult result = runJob(job);
+            completedJobs++;
+            boolean scratchClean = cleanScratch();
+
+            byte recycle = result.breach || !scratchClean ? RECYCLE_ISOLATION_BREACH
+                    : completedJobs >= maxJobs ? RECYCLE_JOB_LIMIT
+                    : RECYCLE_NONE;
+            writeFrame(result.encode(job.id, recycle));
+
+            if (recycle != RECYCLE_NONE) {
+                // halt rather than exit: leftover job threads must not keep this JVM alive
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    private JobResult runJob(Job job) {
+        long start = System.nanoTime();
+        Phase main;
+        Phase tests = null;
+
+        if (job.type == JOB_JUNIT) {
+            main = runPhase(job, job.entryClass, PhaseKind.TESTS, job.timeoutMillis);
+        } else if (job.type == JOB_CASES) {
+            main = runPhase(job, job.entryClass, PhaseKind.CASES, job.timeoutMillis);
+        } else {
+            main = runPhase(job, job.entryClass, PhaseKind.MAIN, job.timeoutMillis);
+            if (job.type == JOB_GRADE && !main.breach) {
+                tests = runPhase(job, job.testClass, PhaseKind.TESTS, job.testTimeoutMillis);
+            }
+        }
+
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        boolean breach = main.breach || (tests != null && tests.breach) || changedGlobalState() || retainedTooMuchHeap();
+
+        byte[] report = job.type == JOB_JUNIT || job.type == JOB_CASES ? main.report
+                : tests != null ? tests.report
+                : new byte[0];
+        byte testStatus = job.type != JOB_GRADE ? STATUS_OK : tests != null ? tests.status : STATUS_SKIPPED;
+
+        return new JobResult(main.status, main.stdout, main.stderr, durationMillis, report, testStatus, breach);
+    }
+
+    /**
+     * Run the entry point of one class in a fresh class loader on its own thread group, with stdio redirected
+     * to bounded buffers
+     */
+    private Phase runPhase(Job job, String className, PhaseKind kind, long timeoutMillis) {
+        JobClassLoader loader = new JobClassLoader(job.classes, SandboxWorker.class.getClassLoader());
+        boolean stream = job.streamOutput && kind == PhaseKind.MAIN;
+        OutputForwarder stdoutForwarder = stream ? new OutputForwarder(STREAM_STDOUT) : null;
+        OutputForwarder stderrForwarder = stream ? new OutputForwarder(STREAM_STDERR) : null;
+        AtomicLong written = new AtomicLong();
+        BoundedCapture stdout = new BoundedCapture(MAX_CAPTURE_BYTES, written, stdoutForwarder);
+        BoundedCapture stderr = new BoundedCapture(MAX_CAPTURE_BYTES, written, stderrForwarder);
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        InputStream originalIn = System.in;
+
+        PrintStream jobOut = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        PrintStream jobErr = new PrintStream(stderr, true, StandardCharsets.UTF_8);
+        System.setOut(jobOut);
+        System.setErr(jobErr);
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<byte[]> report = new AtomicReference<>(new byte[0]);
+        ThreadGroup group = new ThreadGroup("job-" + job.id + kind.groupSuffix);
+
+        Thread thread = new Thread(group, () -> {
+            try {
+                switch (kind) {
+                    case TESTS -> report.set(TestHarness.run(Class.forName(className, true, loader),
+                            job.testParallelism).encode());
+                    case CASES -> report.set(CaseHarness.run(
+                            () -> new JobClassLoader(job.classes, SandboxWorker.class.getClassLoader()),
+                            className, job.caseInputs, job.caseTimeoutMillis).encode());
+                    default -> invokeMain(Class.forName(className, true, loader));
+                }
+            } catch (InvocationTargetException e) {
+                failure.set(e.getCause());
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "main");
+        thread.setDaemon(true);
+        thread.setContextClassLoader(loader);
+
+        byte status;
+        boolean breach = false;
+
+        try {
+            thread.start();
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000;
+            boolean outputExceeded = false;
+            while (thread.isAlive()) {
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    break;
+                }
+                thread.join(Math.min(remainingMillis, OUTPUT_FLUSH_MILLIS));
+                flush(stdoutForwarder);
+                flush(stderrForwarder);
+                outputExceeded = job.maxOutputBytes > 0 && written.get() > job.maxOutputBytes;
+                if (outputExceeded) {
+                    break;
+                }
+            }
+
+            if (outputExceeded || (job.maxOutputBytes > 0 && written.get() > job.maxOutputBytes)) {
+                thread.interrupt();
+                status = STATUS_OUTPUT_LIMIT;
+                breach = true;
+            } else if (thread.isAlive()) {
+                thread.interrupt();
+                status = STATUS_TIMEOUT;
+                breach = true;
+            } else if (failure.get() instanceof OutOfMemoryError) {
+                reportFailure(failure.get(), jobErr);
+                status = STATUS_OUT_OF_MEMORY;
+                breach = true;
+            } else if (failure.get() instanceof NoSuchMethodException || failure.get() instanceof ClassNotFoundException) {
+                jobErr.println("Error: " + failure.get().getMessage());
+                status = STATUS_ERROR;
+            } else if (failure.get() != null) {
+                reportFailure(failure.get(), jobErr);
+                status = STATUS_EXCEPTION;
+            } else {
+                status = STATUS_OK;
+            }
+        } catch (InterruptedException e) {
+            status = STATUS_ERROR;
+            breach = true;
+        } finally {
+            jobOut.flush();
+            jobErr.flush();
+            // Output of threads that outlive the phase is captured but no longer streamed
+            close(stdoutForwarder);
+            close(stderrForwarder);
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            System.setIn(originalIn);
+        }
+
+        breach = breach || leftThreadsBehind(group);
+        return new Phase(status, stdout.toByteArray(), stderr.toByteArray(), report.get(), breach);
+    }
+
+    private void flush(OutputForwarder forwarder) {
+        if (forwarder != null) {
+            forwarder.flush();
+        }
+    }
+
+    private void close(OutputForwarder forwarder) {
+        if (forwarder != null) {
+            forwarder.close();
+        }
+    }
+
+    static void invokeMain(Class<?> entryClass) throws Exception {
+        Method main;
+        try {
+            main = entryClass.getMethod("main", String[].class);
+        } catch (NoSuchMethodException e) {
+            throw new NoSuchMethodException("Main method not found in class " + entryClass.getName());
+        }
+        if (!Modifier.isStatic(main.getModifiers())) {
+            throw new NoSuchMethodException("Main method is not static in class " + entryClass.getName());
+        }
+        main.invoke(null, (Object) new String[0]);
+    }
+
+    /**
+     * Print an uncaught exception the way the java launcher does, without the worker's own frames
+     */
+    static void reportFailure(Throwable failure, PrintStream err) {
+        StackTraceElement[] trace = failure.getStackTrace();
+        int keep = trace.length;
+        for (int i = 0; i < trace.length; i++) {
+            String className = trace[i].getClassName();
+            if (className.startsWith("jdk.internal.reflect.") || className.startsWith("java.lang.reflect.")
+                    || className.startsWith(SandboxWorker.class.getPackageName())) {
+                keep = i;
+                break;
+            }
+        }
+        failure.setStackTrace(Arrays.copyOf(trace, keep));
+        err.print("Exception in thread \"main\" ");
+        failure.printStackTrace(err);
+    }
+
+    static boolean leftThreadsBehind(ThreadGroup group) {
+        long deadline = System.currentTimeMillis() + THREAD_GRACE_MILLIS;
+        while (group.activeCount() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return true;
+            }
+        }
+        return group.activeCount() > 0;
+    }
+
+    private boolean changedGlobalState() {
+        return !System.getProperties().equals(baselineProperties)
+                || !Locale.getDefault().equals(baselineLocale)
+                || !TimeZone.getDefault().equals(baselineTimeZone);
+    }
+
+    private static boolean retainedTooMuchHeap() {
+        System.gc();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return heap.getMax() > 0 && heap.getUsed() > heap.getMax() * RETAINED_HEAP_LIMIT;
+    }
+
+    /**
+     * Wipe the scratch directories passed as {@code -Dsandbox.scratch}, separated by the path separator.
+     * Nothing is deleted unless the host names the directories explicitly, so running the worker outside a
+     * container is harmless.
+     *
+     * @return whether every scratch directory is empty afterwards
+     */
+    static boolean cleanScratch() {
+        String scratch = System.getProperty("sandbox.scratch");
+        if (scratch == null || scratch.isBlank()) {
+            return true;
+        }
+
+        boolean clean = true;
+        for (String directory : scratch.split(File.pathSeparator)) {
+            Path root = Paths.get(directory);
+            if (directory.isBlank() || !Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder())
+                        .filter(p -> !p.equals(root))
+                        .forEach(p -> p.toFile().delete());
+            } catch (IOException | UncheckedIOException ignored) {
+                // unreadable directories are caught by the check below
+            }
+            try (Stream<Path> left = Files.list(root)) {
+                clean &= left.findAny().isEmpty();
+            } catch (IOException e) {
+                clean = false;
+            }
+        }
+        return clean;
+    }
+
+    private byte[] readFrame() throws IOException {
+        int length = in.readInt();
+        return in.readNBytes(length);
+    }
+
+    private void writeFrame(byte[] frame) throws IOException {
+        synchronized (out) {
+            out.writeInt(frame.length);
+            out.write(frame);
+            out.flush();
+        }
+    }
+
+    private static final class Job {
+        private byte type;
+        private String id;
+        private String entryClass;
+        private long timeoutMillis;
+        private String testClass;
+        private long testTimeoutMillis;
+        private final Map<String, byte[]> classes = new HashMap<>();
+        private boolean streamOutput;
+        private long maxOutputBytes;
+        private int testParallelism;
+        private long caseTimeoutMillis;
+        private final List<byte[]> caseInputs = new ArrayList<>();
+
+        static Job decode(byte[] frame) throws IOException {
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(frame));
+            Job job = new Job();
+            job.type = data.readByte();
+            job.id = data.readUTF();
+            job.entryClass = data.readUTF();
+            job.timeoutMillis = data.readLong();
+            job.testClass = data.readUTF();
+            job.testTimeoutMillis = data.readLong();
+            int classCount = data.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String name = data.readUTF();
+                byte[] bytes = new byte[data.readInt()];
+                data.readFully(bytes);
+                job.classes.put(name, bytes);
+            }
+            job.streamOutput = data.readBoolean();
+            job.maxOutputBytes = data.readLong();
+            job.testParallelism = data.readInt();
+            job.caseTimeoutMillis = data.readLong();
+            int caseCount = data.readInt();
+            for (int i = 0; i < caseCount; i++) {
+                byte[] input = new byte[data.readInt()];
+                data.readFully(input);
+                job.caseInputs.add(input);
+            }
+            return job;
+        }
+    }
+
+    private enum PhaseKind {
+        MAIN(""), TESTS("-tests"), CASES("-cases");
+
+        private final String groupSuffix;
+
+        PhaseKind(String groupSuffix) {
+            this.groupSuffix = groupSuffix;
+        }
+    }
+
+    private record Phase(byte status, byte[] stdout, byte[] stderr, byte[] report, boolean breach) {
+    }
+
+    private record JobResult(byte status, byte[] stdout, byte[] stderr, long durationMillis, byte[] report,
+                             byte testStatus, boolean breach) {
+
+        byte[] encode(String jobId, byte recycle) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(buffer);
+            data.writeByte(FRAME_RESULT);
+            data.writeUTF(jobId);
+            data.writeByte(status);
+            writeBytes(data, stdout);
+            writeBytes(data, stderr);
+            data.writeLong(durationMillis);
+            writeBytes(data, report);
+            data.writeByte(testStatus);
+            data.writeByte(recycle);
+            return buffer.toByteArray();
+        }
+
+        private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    /**
+     * Defines the job's classes from memory; everything else is delegated to the worker's class path
+     */
+    private static final class JobClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        JobClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+            super("job", parent);
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Sends a job's output to the host in OUTPUT frames while the job runs
+     */
+    private final class OutputForwarder {
+        private final byte stream;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private boolean closed;
+
+        OutputForwarder(byte stream) {
+            this.stream = stream;
+        }
+
+        synchronized void forward(byte[] b, int off, int len) {
+            if (closed) {
+                return;
+            }
+            pending.write(b, off, len);
+            if (pending.size() >= OUTPUT_CHUNK_BYTES) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            if (closed || pending.size() == 0) {
+                return;
+            }
+            byte[] frame = new byte[pending.size() + 2];
+            frame[0] = FRAME_OUTPUT;
+            frame[1] = stream;
+            System.arraycopy(pending.toByteArray(), 0, frame, 2, pending.size());
+            pending.reset();
+            try {
+                writeFrame(frame);
+            } catch (IOException e) {
+                closed = true;  // the host is gone; the main loop notices on its next read
+            }
+        }
+
+        synchronized void close() {
+            flush();
+            closed = true;
+        }
+    }
+
+    /**
+     * Output stream that keeps the first half of {@code limit} bytes as written and the last half in a ring
+     * buffer, and counts everything written into a counter shared by the job's streams. Bytes kept at the
+     * beginning are also passed to the forwarder, if any.
+     */
+    private static final class BoundedCapture extends OutputStream {
+        private final byte[] head;
+        private final byte[] tail;
+        private final AtomicLong written;
+        private final OutputForwarder forwarder;
+        private int headLength;
+        private int tailEnd;
+        private int tailLength;
+        private long dropped;
+
+        BoundedCapture(int limit, AtomicLong written, OutputForwarder forwarder) {
+            this.head = new byte[limit / 2];
+            this.tail = new byte[limit - limit / 2];
+            this.written = written;
+            this.forwarder = forwarder;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            written.addAndGet(len);
+            int toHead = Math.min(len, head.length - headLength);
+            System.arraycopy(b, off, head, headLength, toHead);
+            headLength += toHead;
+            if (forwarder != null && toHead > 0) {
+                forwarder.forward(b, off, toHead);
+            }
+            off += toHead;
+            len -= toHead;
+            if (len == 0) {
+                return;
+            }
+
+            if (len >= tail.length) {
+                dropped += tailLength + len - tail.length;
+                System.arraycopy(b, off + len - tail.length, tail, 0, tail.length);
+                tailEnd = 0;
+                tailLength = tail.length;
+                return;
+            }
+            dropped += Math.max(0, tailLength + len - tail.length);
+            int first = Math.min(len, tail.length - tailEnd);
+            System.arraycopy(b, off, tail, tailEnd, first);
+            System.arraycopy(b, off + first, tail, 0, len - first);
+            tailEnd = (tailEnd + len) % tail.length;
+            tailLength = Math.min(tail.length, tailLength + len);
+        }
+
+        synchronized byte[] toByteArray() {
+            ByteArrayOutputStream result = new ByteArrayOutputStream(headLength + tailLength + 64);
+            result.write(head, 0, headLength);
+            if (dropped > 0) {
+                result.writeBytes(("\n... [output truncated, " + dropped + " bytes dropped] ...\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            int start = Math.floorMod(tailEnd - tailLength, Math.max(1, tail.length));
+            int first = Math.min(tailLength, tail.length - start);
+            result.write(tail, start, first);
+            result.write(tail, 0, tailLength - first);
+            return result.toByteArray();
+        }
+    }
+}
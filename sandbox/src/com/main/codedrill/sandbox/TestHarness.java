@@ -0,0 +1,290 @@
+package com.main.codedrill.sandbox;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+
+/**
+ * JUnit harness that is precompiled into the runner image as part of the sandbox jar.
+ * <p>
+ * Runs one test class and produces a {@link Report}: the counts of passed, failed and skipped tests, the
+ * failures and the per-test results. Failure messages, stack traces and the number of reported failures
+ * and tests are capped, which bounds the size of every report. The report is sent to the host as a binary
+ * frame, whose layout is documented with the host's {@code TestReport}: {@link SandboxWorker} calls the
+ * harness in-process and puts the frame into its RESULT frame, the entrypoint runs it as a main class,
+ * which prints the frame in base64 on a single line after {@value #REPORT_LINE}.
+ * <p>
+ * Tasks that opt in have their test methods run concurrently by JUnit Jupiter's parallel executor, with
+ * as many threads as the host asks for. The container's CPU quota still bounds how much of that helps
+ * tests that compute; tests that sleep or wait gain from it under any quota. The report
+ * contains the parallelism, the wall-clock time of the run and the sum of the per-test durations, which
+ * together show the speedup.
+ */
+public final class TestHarness {
+
+    static final String REPORT_LINE = "===TEST_REPORT===";
+
+    static final int MAX_MESSAGE_CHARS = 1024;
+    static final int MAX_TRACE_CHARS = 4096;
+    static final int MAX_REPORTED_FAILURES = 20;
+    static final int MAX_REPORTED_TESTS = 200;
+
+    private static Launcher launcher;
+
+    private TestHarness() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        // stdout carries the report; anything the tests print goes to stderr
+        PrintStream reportOut = System.out;
+        System.setOut(System.err);
+
+        Report report;
+        try {
+            int parallelism = args.length > 2 && "--parallel".equals(args[1]) ? Integer.parseInt(args[2]) : 1;
+            report = run(Class.forName(args[0]), parallelism);
+        } catch (Throwable t) {
+            report = Report.error("Test execution failed: " + t.getMessage(), t);
+        }
+        reportOut.println(REPORT_LINE + " " + Base64.getEncoder().encodeToString(report.encode()));
+        reportOut.flush();
+    }
+
+    /**
+     * Run all tests of a class
+     *
+     * @param parallelism threads that run the test methods concurrently, 1 to run them one by one
+     */
+    static Report run(Class<?> testClass, int parallelism) {
+        if (launcher == null) {
+            launcher = LauncherFactory.create();
+        }
+
+        parallelism = Math.max(parallelism, 1);
+        boolean parallel = parallelism > 1;
+        LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
+                .selectors(selectClass(testClass))
+                .configurationParameters(parallelConfiguration(parallel, parallelism))
+                .build();
+
+        ReportListener listener = new ReportListener();
+        long start = System.nanoTime();
+        launcher.execute(request, listener);
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        return listener.report(parallelism, wallMillis);
+    }
+
+    /**
+     * Jupiter configuration for a run; a sequential run sets the parameters too, so that a
+     * {@code junit-platform.properties} shipped with a submission cannot switch parallel execution on
+     */
+    private static Map<String, String> parallelConfiguration(boolean parallel, int parallelism) {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("junit.jupiter.execution.parallel.enabled", Boolean.toString(parallel));
+        if (parallel) {
+            parameters.put("junit.jupiter.execution.parallel.mode.default", "concurrent");
+            parameters.put("junit.jupiter.execution.parallel.config.strategy", "fixed");
+            parameters.put("junit.jupiter.execution.parallel.config.fixed.parallelism", Integer.toString(parallelism));
+        }
+        return parameters;
+    }
+
+    private static String stackTrace(Throwable failure) {
+        StringWriter trace = new StringWriter();
+        failure.printStackTrace(new PrintWriter(trace));
+        return truncate(trace.toString(), MAX_TRACE_CHARS);
+    }
+
+    static String truncate(String value, int maxChars) {
+        if (value == null || value.length() <= maxChars) {
+            return value;
+        }
+        return value.substring(0, maxChars) + "\n... (" + (value.length() - maxChars) + " more characters)";
+    }
+
+    /**
+     * Outcome of a test run, or the error that prevented it
+     */
+    static final class Report {
+        static final int FRAME_VERSION = 1;
+
+        static final byte TEST_PASSED = 0;
+        static final byte TEST_FAILED = 1;
+        static final byte TEST_SKIPPED = 2;
+
+        private boolean success;
+        private String message;
+        private String exception;
+        private int succeeded;
+        private int failed;
+        private int skipped;
+        private int totalTests;
+        private final List<String[]> failures = new ArrayList<>();  // test name, exception message, stack trace
+        private int failuresOmitted;
+        private final List<String> testNames = new ArrayList<>();
+        private final List<Byte> testStatuses = new ArrayList<>();
+        private final List<Long> testDurations = new ArrayList<>();
+        private int parallelism;
+        private long wallMillis;
+        private long testMillis;
+
+        static Report error(String message, Throwable failure) {
+            Report report = new Report();
+            report.message = truncate(message, MAX_MESSAGE_CHARS);
+            report.exception = failure != null ? stackTrace(failure) : null;
+            return report;
+        }
+
+        boolean allTestsPassed() {
+            return success && failed == 0 && succeeded > 0;
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(buffer);
+            data.writeByte(FRAME_VERSION);
+            data.writeByte((success ? 1 : 0) | (allTestsPassed() ? 2 : 0));
+            writeString(data, message);
+            writeString(data, exception);
+            data.writeInt(succeeded);
+            data.writeInt(failed);
+            data.writeInt(skipped);
+            data.writeInt(totalTests);
+            data.writeInt(failures.size());
+            for (String[] failure : failures) {
+                writeString(data, failure[0]);
+                writeString(data, failure[1]);
+                writeString(data, failure[2]);
+            }
+            data.writeInt(failuresOmitted);
+            data.writeInt(testNames.size());
+            for (int i = 0; i < testNames.size(); i++) {
+                writeString(data, testNames.get(i));
+                data.writeByte(testStatuses.get(i));
+                data.writeLong(testDurations.get(i));
+            }
+            data.writeInt(parallelism);
+            data.writeLong(wallMillis);
+            data.writeLong(testMillis);
+            return buffer.toByteArray();
+        }
+
+        private static void writeString(DataOutputStream data, String value) throws IOException {
+            if (value == null) {
+                data.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    /**
+     * Accumulates the report. Parallel runs call it from several threads at once, so every callback is
+     * synchronized.
+     */
+    private static final class ReportListener implements TestExecutionListener {
+        private final Report report = new Report();
+        private final Map<String, Long> startTimes = new HashMap<>();
+
+        @Override
+        public synchronized void testPlanExecutionStarted(TestPlan testPlan) {
+            report.totalTests = (int) testPlan.countTestIdentifiers(TestIdentifier::isTest);
+        }
+
+        @Override
+        public synchronized void executionStarted(TestIdentifier identifier) {
+            startTimes.put(identifier.getUniqueId(), System.nanoTime());
+        }
+
+        @Override
+        public synchronized void executionSkipped(TestIdentifier identifier, String reason) {
+            if (identifier.isTest()) {
+                report.skipped++;
+                record(identifier, Report.TEST_SKIPPED, 0);
+            }
+        }
+
+        @Override
+        public synchronized void executionFinished(TestIdentifier identifier, TestExecutionResult result) {
+            Long start = startTimes.remove(identifier.getUniqueId());
+            long durationMillis = start != null ? (System.nanoTime() - start) / 1_000_000 : 0;
+            Throwable throwable = result.getThrowable().orElse(null);
+
+            if (!identifier.isTest()) {
+                // Failures of @BeforeAll/@AfterAll or class initialization fail the whole class
+                if (result.getStatus() == TestExecutionResult.Status.FAILED && throwable != null) {
+                    addFailure(identifier.getDisplayName(), throwable);
+                }
+                return;
+            }
+
+            byte status;
+            switch (result.getStatus()) {
+                case SUCCESSFUL -> {
+                    report.succeeded++;
+                    status = Report.TEST_PASSED;
+                }
+                case ABORTED -> {
+                    report.skipped++;
+                    status = Report.TEST_SKIPPED;
+                }
+                default -> {
+                    report.failed++;
+                    status = Report.TEST_FAILED;
+                    if (throwable != null) {
+                        addFailure(identifier.getDisplayName(), throwable);
+                    }
+                }
+            }
+            report.testMillis += durationMillis;
+            record(identifier, status, durationMillis);
+        }
+
+        private void record(TestIdentifier identifier, byte status, long durationMillis) {
+            if (report.testNames.size() < MAX_REPORTED_TESTS) {
+                report.testNames.add(identifier.getDisplayName());
+                report.testStatuses.add(status);
+                report.testDurations.add(durationMillis);
+            }
+        }
+
+        private void addFailure(String testName, Throwable throwable) {
+            if (report.failures.size() >= MAX_REPORTED_FAILURES) {
+                report.failuresOmitted++;
+                return;
+            }
+            report.failures.add(new String[]{testName, truncate(throwable.getMessage(), MAX_MESSAGE_CHARS),
+                    stackTrace(throwable)});
+        }
+
+        synchronized Report report(int parallelism, long wallMillis) {
+            report.success = true;
+            report.parallelism = parallelism;
+            report.wallMillis = wallMillis;
+            return report;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /** @type {import('tailwindcss').Config} */
 module.exports = {
-  content: ["./src/main/resources/templates/**/*.html"],
+  content: ["./codedrill-web/src/main/resources/templates/**/*.html"],
   darkMode: 'class',
   theme: {
     extend: {